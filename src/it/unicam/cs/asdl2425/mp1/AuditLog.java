@@ -0,0 +1,384 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Un registro di audit a sola aggiunta, in cui ogni voce è concatenata alla
+ * precedente tramite il suo hash: a differenza di una {@link HashLinkedList},
+ * in cui ogni hash dipende solo dal proprio dato, un riordinamento, una
+ * rimozione o un troncamento delle voci cambiano tutti gli hash successivi e
+ * vengono quindi rilevati.
+ *
+ * <p>
+ * Le voci sono raggruppate in blocchi di K voci consecutive. Quando un blocco
+ * è completo, i suoi dati vengono inseriti in una {@link HashLinkedList} da
+ * cui si costruisce un {@link MerkleTree}, e la radice dell'albero viene
+ * registrata nella catena come checkpoint: l'hash del checkpoint combina
+ * l'hash dell'ultima voce del blocco con la radice, e la prima voce del
+ * blocco successivo è concatenata al checkpoint. Gli hash sono quindi
+ *
+ * <pre>
+ *     voce i        MD5(precedente + hash del dato i)
+ *     checkpoint c  MD5(hash dell'ultima voce del blocco c + radice c)
+ * </pre>
+ *
+ * dove il precedente è l'hash del checkpoint del blocco precedente per la
+ * prima voce di un blocco, la stringa vuota per la prima voce del registro e
+ * l'hash della voce precedente altrimenti. La verifica di una voce ricalcola
+ * solo il suo blocco, a partire dal checkpoint precedente, e costa quindi
+ * O(K) invece di una ricostruzione dell'intero registro; una volta verificato
+ * il blocco, la prova di Merkle della voce rispetto alla radice del
+ * checkpoint ha lunghezza O(log K).
+ *
+ * <p>
+ * L'aggiunta costa O(1), più il costo O(K) della costruzione dell'albero una
+ * volta ogni K aggiunte, e non acquisisce alcun lock. Le voci sono tenute in
+ * segmenti di dimensione fissa e pubblicate incrementando un contatore
+ * volatile dopo averle scritte, per cui un solo thread produttore può
+ * aggiungere voci mentre un numero qualsiasi di thread le legge e le
+ * verifica. Più produttori devono invece sincronizzarsi esternamente.
+ *
+ * @param <T>
+ *                il tipo dei dati del registro.
+ */
+public class AuditLog<T> {
+    private static final int SEGMENT_BITS = 10;
+
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+
+    /**
+     * Una voce del registro. L'ultima voce di ogni blocco completo contiene
+     * anche il checkpoint del blocco.
+     */
+    private static final class Entry<T> {
+        private final T data;
+
+        private final String hash; // Hash del dato
+
+        private final String chainHash; // Hash concatenato della voce
+
+        private final String root; // Radice del blocco, o null
+
+        private final String checkpointHash; // Hash del checkpoint, o null
+
+        private Entry(T data, String hash, String chainHash, String root,
+                String checkpointHash) {
+            this.data = data;
+            this.hash = hash;
+            this.chainHash = chainHash;
+            this.root = root;
+            this.checkpointHash = checkpointHash;
+        }
+    }
+
+    private final int interval;
+
+    private volatile Entry<T>[][] segments;
+
+    private volatile int size;
+
+    /**
+     * Crea un registro vuoto con un checkpoint ogni K voci.
+     *
+     * @param interval
+     *                     il numero K di voci per checkpoint.
+     * @throws IllegalArgumentException
+     *                                      se l'intervallo è minore di 1.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public AuditLog(int interval) {
+        if (interval < 1)
+            throw new IllegalArgumentException("Invalid interval: " + interval);
+        this.interval = interval;
+        this.segments = new Entry[1][];
+    }
+
+    /**
+     * Aggiunge una voce in coda al registro. Il metodo va chiamato da un solo
+     * thread alla volta.
+     *
+     * @param data
+     *                 il dato da aggiungere.
+     * @return la posizione della voce nel registro.
+     * @throws IllegalArgumentException
+     *                                      se il dato è null.
+     */
+    public int append(T data) {
+        if (data == null)
+            throw new IllegalArgumentException("The data is null");
+        int index = size;
+        String hash = HashUtil.dataToHash(data);
+        String chainHash = link(previousHash(index), hash);
+        String root = null;
+        String checkpointHash = null;
+        if ((index + 1) % interval == 0) {
+            root = blockRoot(index + 1 - interval, data);
+            checkpointHash = link(chainHash, root);
+        }
+        Entry<T> entry = new Entry<>(data, hash, chainHash, root,
+                checkpointHash);
+        int s = index >>> SEGMENT_BITS;
+        Entry<T>[][] dir = segments;
+        if (s == dir.length)
+            dir = Arrays.copyOf(dir, 2 * dir.length);
+        if (dir[s] == null)
+            dir[s] = newSegment();
+        dir[s][index & (SEGMENT_SIZE - 1)] = entry;
+        segments = dir;
+        // La scrittura volatile pubblica la voce e il suo segmento ai lettori
+        size = index + 1;
+        return index;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static <T> Entry<T>[] newSegment() {
+        return new Entry[SEGMENT_SIZE];
+    }
+
+    private static String link(String previous, String hash) {
+        return HashUtil.computeMD5((previous + hash).getBytes());
+    }
+
+    private Entry<T> entry(int index) {
+        return segments[index >>> SEGMENT_BITS][index & (SEGMENT_SIZE - 1)];
+    }
+
+    /**
+     * Restituisce l'hash a cui è concatenata la voce nella posizione
+     * specificata: l'hash del checkpoint precedente per la prima voce di un
+     * blocco, quello della voce precedente altrimenti.
+     */
+    private String previousHash(int index) {
+        if (index == 0)
+            return "";
+        Entry<T> previous = entry(index - 1);
+        return index % interval == 0 ? previous.checkpointHash
+                : previous.chainHash;
+    }
+
+    /**
+     * Costruisce l'albero di Merkle del blocco che inizia dalla posizione
+     * start, la cui ultima voce, non ancora pubblicata, contiene il dato
+     * last, e ne restituisce la radice.
+     */
+    private String blockRoot(int start, T last) {
+        HashLinkedList<T> block = new HashLinkedList<>();
+        for (int i = start; i < start + interval - 1; i++)
+            block.addAtTail(entry(i).data);
+        block.addAtTail(last);
+        return new MerkleTree<>(block).getRoot().getHash();
+    }
+
+    /**
+     * Restituisce il numero di voci nel registro.
+     *
+     * @return il numero di voci.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Restituisce il numero di voci per checkpoint.
+     *
+     * @return l'intervallo tra due checkpoint.
+     */
+    public int getCheckpointInterval() {
+        return interval;
+    }
+
+    /**
+     * Restituisce il numero di checkpoint registrati, ovvero di blocchi
+     * completi.
+     *
+     * @return il numero di checkpoint.
+     */
+    public int getCheckpointCount() {
+        return size / interval;
+    }
+
+    /**
+     * Restituisce il dato della voce nella posizione specificata.
+     *
+     * @param index
+     *                  la posizione della voce.
+     * @return il dato della voce.
+     * @throws IndexOutOfBoundsException
+     *                                       se la posizione non è compresa
+     *                                       tra 0 e size - 1.
+     */
+    public T get(int index) {
+        checkIndex(index, size);
+        return entry(index).data;
+    }
+
+    /**
+     * Restituisce l'hash concatenato della voce nella posizione specificata.
+     *
+     * @param index
+     *                  la posizione della voce.
+     * @return l'hash concatenato della voce.
+     * @throws IndexOutOfBoundsException
+     *                                       se la posizione non è compresa
+     *                                       tra 0 e size - 1.
+     */
+    public String getChainHash(int index) {
+        checkIndex(index, size);
+        return entry(index).chainHash;
+    }
+
+    /**
+     * Restituisce l'hash in testa alla catena, ovvero quello dell'ultimo
+     * checkpoint se l'ultima voce completa un blocco e quello dell'ultima voce
+     * altrimenti. L'hash dipende da tutte le voci del registro e dal loro
+     * ordine.
+     *
+     * @return l'hash in testa alla catena; la stringa vuota se il registro è
+     *         vuoto.
+     */
+    public String getHeadHash() {
+        return previousHash(size);
+    }
+
+    /**
+     * Restituisce la radice dell'albero di Merkle del blocco specificato.
+     *
+     * @param checkpoint
+     *                       il numero del blocco, a partire da 0.
+     * @return la radice del blocco.
+     * @throws IndexOutOfBoundsException
+     *                                       se il blocco non è completo.
+     */
+    public String getCheckpointRoot(int checkpoint) {
+        checkIndex(checkpoint, getCheckpointCount());
+        return entry((checkpoint + 1) * interval - 1).root;
+    }
+
+    /**
+     * Restituisce l'hash del checkpoint del blocco specificato.
+     *
+     * @param checkpoint
+     *                       il numero del blocco, a partire da 0.
+     * @return l'hash del checkpoint.
+     * @throws IndexOutOfBoundsException
+     *                                       se il blocco non è completo.
+     */
+    public String getCheckpointHash(int checkpoint) {
+        checkIndex(checkpoint, getCheckpointCount());
+        return entry((checkpoint + 1) * interval - 1).checkpointHash;
+    }
+
+    /**
+     * Verifica la voce nella posizione specificata ricalcolando il suo
+     * blocco a partire dal checkpoint precedente: gli hash dei dati, gli hash
+     * concatenati e, se il blocco è completo, la radice e l'hash del suo
+     * checkpoint. Un dato modificato dopo l'aggiunta, ad esempio perché
+     * mutabile, rende non valide tutte le voci del suo blocco.
+     *
+     * @param index
+     *                  la posizione della voce.
+     * @return true se il blocco della voce è integro; false altrimenti.
+     * @throws IndexOutOfBoundsException
+     *                                       se la posizione non è compresa
+     *                                       tra 0 e size - 1.
+     */
+    public boolean verify(int index) {
+        int n = size;
+        checkIndex(index, n);
+        int start = index - index % interval;
+        int end = Math.min(start + interval, n);
+        String previous = previousHash(start);
+        HashLinkedList<T> block = new HashLinkedList<>();
+        for (int i = start; i < end; i++) {
+            Entry<T> e = entry(i);
+            String hash = HashUtil.dataToHash(e.data);
+            previous = link(previous, hash);
+            if (!hash.equals(e.hash) || !previous.equals(e.chainHash))
+                return false;
+            block.addAtTail(e.data);
+        }
+        if (end - start < interval)
+            return true;
+        Entry<T> last = entry(end - 1);
+        String root = new MerkleTree<>(block).getRoot().getHash();
+        return root.equals(last.root)
+                && link(previous, root).equals(last.checkpointHash);
+    }
+
+    /**
+     * Restituisce la prova di Merkle della voce nella posizione specificata
+     * rispetto alla radice registrata nel checkpoint del suo blocco,
+     * ricostruendo l'albero del blocco dagli hash dei dati calcolati al
+     * momento dell'aggiunta. Un dato modificato in seguito non viene quindi
+     * validato dalla prova.
+     *
+     * @param index
+     *                  la posizione della voce.
+     * @return la prova di Merkle della voce.
+     * @throws IndexOutOfBoundsException
+     *                                       se la posizione non è compresa
+     *                                       tra 0 e size - 1.
+     * @throws IllegalStateException
+     *                                       se il blocco della voce non è
+     *                                       ancora completo.
+     */
+    public MerkleProof getMerkleProof(int index) {
+        checkIndex(index, size);
+        int start = index - index % interval;
+        if (start + interval > size)
+            throw new IllegalStateException(
+                    "The entry has not been checkpointed yet");
+        List<String> hashes = new ArrayList<>(interval);
+        for (int i = start; i < start + interval; i++)
+            hashes.add(entry(i).hash);
+        HashLevels levels = new HashLevels(hashes);
+        int height = levels.height();
+        MerkleProof proof = new MerkleProof(
+                entry(start + interval - 1).root, height);
+        int j = index - start;
+        for (int l = 0; l < height; l++) {
+            proof.addHash(levels.hashAt(l, j ^ 1), (j & 1) == 1);
+            j >>= 1;
+        }
+        return proof;
+    }
+
+    /**
+     * Confronta una copia delle voci, ad esempio una {@link HashLinkedList}
+     * ricevuta da un revisore, con la catena del registro, ricalcolando gli
+     * hash concatenati della copia. Una voce modificata, spostata o rimossa
+     * viene rilevata nella prima posizione in cui la copia diverge.
+     *
+     * @param entries
+     *                    la copia delle voci, in ordine.
+     * @return la prima posizione in cui la copia diverge dal registro, uguale
+     *         alla lunghezza della più corta se una è un prefisso dell'altra;
+     *         -1 se la copia coincide con il registro.
+     * @throws IllegalArgumentException
+     *                                      se la copia è null.
+     */
+    public int findFirstMismatch(Iterable<? extends T> entries) {
+        if (entries == null)
+            throw new IllegalArgumentException("The entries are null");
+        int n = size;
+        int i = 0;
+        Iterator<? extends T> it = entries.iterator();
+        for (; it.hasNext(); i++) {
+            T data = it.next();
+            if (i == n || data == null
+                    || !link(previousHash(i), HashUtil.dataToHash(data))
+                            .equals(entry(i).chainHash))
+                return i;
+        }
+        return i == n ? -1 : i;
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException(
+                    "Index: " + index + ", Size: " + size);
+    }
+}
@@ -0,0 +1,180 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per la classe {@link AuditLog}. Di seguito, l'elenco dei test
+ * inclusi con una breve descrizione:
+ *
+ * <ul>
+ * <li>{@link #testChain()}: Verifica gli hash concatenati delle voci e dei
+ * checkpoint e che la radice di ogni checkpoint coincida con quella di un
+ * {@link MerkleTree} costruito sul blocco.</li>
+ *
+ * <li>{@link #testVerify()}: Verifica che una voce modificata dopo l'aggiunta
+ * renda non valido solo il suo blocco e che le prove dei blocchi completi
+ * validino le voci.</li>
+ *
+ * <li>{@link #testFindFirstMismatch()}: Verifica che una copia delle voci
+ * modificata, riordinata o troncata venga rilevata nella posizione
+ * corretta.</li>
+ *
+ * <li>{@link #testConcurrentReader()}: Verifica che un lettore concorrente
+ * veda sempre voci complete e verificabili mentre un produttore
+ * aggiunge voci.</li>
+ *
+ * <li>{@link #testInvalidArguments()}: Verifica che vengano lanciate
+ * eccezioni per argomenti non validi.</li>
+ * </ul>
+ */
+class AuditLogTest {
+
+    private static String link(String previous, String hash) {
+        return HashUtil.computeMD5((previous + hash).getBytes());
+    }
+
+    @Test
+    void testChain() {
+        AuditLog<String> log = new AuditLog<>(4);
+        assertEquals("", log.getHeadHash());
+        String previous = "";
+        HashLinkedList<String> block = new HashLinkedList<>();
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, log.append("Voce " + i));
+            previous = link(previous, HashUtil.dataToHash("Voce " + i));
+            assertEquals(previous, log.getChainHash(i),
+                    "Hash concatenato errato per la voce " + i);
+            block.addAtTail("Voce " + i);
+            if (block.getSize() == 4) {
+                String root = new MerkleTree<>(block).getRoot().getHash();
+                int c = i / 4;
+                assertEquals(root, log.getCheckpointRoot(c),
+                        "Radice errata per il checkpoint " + c);
+                previous = link(previous, root);
+                assertEquals(previous, log.getCheckpointHash(c));
+                block = new HashLinkedList<>();
+            }
+            assertEquals(previous, log.getHeadHash());
+        }
+        assertEquals(10, log.getSize());
+        assertEquals(2, log.getCheckpointCount());
+        assertEquals("Voce 7", log.get(7));
+        assertEquals(4, log.getCheckpointInterval());
+    }
+
+    @Test
+    void testVerify() {
+        AuditLog<List<String>> log = new AuditLog<>(4);
+        List<List<String>> records = new ArrayList<>();
+        for (int i = 0; i < 2002; i++) {
+            List<String> record = new ArrayList<>(List.of("Voce " + i));
+            records.add(record);
+            log.append(record);
+        }
+        for (int i = 0; i < 2002; i += 97)
+            assertTrue(log.verify(i),
+                    "La voce " + i + " dovrebbe essere valida.");
+        assertTrue(log.verify(2001), "Il blocco incompleto è integro.");
+
+        MerkleProof proof = log.getMerkleProof(1026);
+        assertEquals(log.getCheckpointRoot(256), proof.getRootHash());
+        assertTrue(proof.proveValidityOfData(records.get(1026)));
+        assertThrows(IllegalStateException.class,
+                () -> log.getMerkleProof(2001),
+                "L'ultimo blocco non è ancora completo.");
+
+        records.get(1026).add("Manomessa");
+        for (int i = 1024; i < 1028; i++)
+            assertFalse(log.verify(i),
+                    "La voce " + i + " appartiene al blocco manomesso.");
+        assertTrue(log.verify(1023));
+        assertTrue(log.verify(1028));
+        assertFalse(log.getMerkleProof(1026)
+                .proveValidityOfData(records.get(1026)),
+                "La prova dovrebbe essere rispetto alla radice registrata.");
+        assertTrue(log.getMerkleProof(1025)
+                .proveValidityOfData(records.get(1025)),
+                "Le voci non modificate restano dimostrabili.");
+
+        records.get(2000).clear();
+        assertFalse(log.verify(2001),
+                "Anche un blocco incompleto dovrebbe rilevare la modifica.");
+    }
+
+    @Test
+    void testFindFirstMismatch() {
+        AuditLog<String> log = new AuditLog<>(3);
+        HashLinkedList<String> copy = new HashLinkedList<>();
+        for (int i = 0; i < 8; i++) {
+            log.append("Voce " + i);
+            copy.addAtTail("Voce " + i);
+        }
+        assertEquals(-1, log.findFirstMismatch(copy));
+
+        copy.set(5, "Voce falsa");
+        assertEquals(5, log.findFirstMismatch(copy));
+        copy.set(5, "Voce 5");
+
+        copy.removeAt(2);
+        copy.insertAt(4, "Voce 2");
+        assertEquals(2, log.findFirstMismatch(copy),
+                "Il riordinamento dovrebbe essere rilevato.");
+        copy.removeAt(4);
+        copy.insertAt(2, "Voce 2");
+
+        copy.removeAt(7);
+        assertEquals(7, log.findFirstMismatch(copy),
+                "Il troncamento dovrebbe essere rilevato.");
+        copy.addAtTail("Voce 7");
+        copy.addAtTail("Voce 8");
+        assertEquals(8, log.findFirstMismatch(copy),
+                "Una voce in più dovrebbe essere rilevata.");
+        assertEquals(0, log.findFirstMismatch(List.of("Voce 1")));
+    }
+
+    @Test
+    void testConcurrentReader() throws InterruptedException {
+        AuditLog<Integer> log = new AuditLog<>(8);
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            int seen = 0;
+            while (seen < 5000 && failure.get() == null) {
+                int n = log.getSize();
+                if (n == 0)
+                    continue;
+                int i = n - 1;
+                if (log.get(i) != i || !log.verify(i))
+                    failure.set("Voce " + i + " non valida");
+                seen = n;
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 5000; i++)
+            log.append(i);
+        reader.join(30_000);
+        assertNull(failure.get());
+        assertFalse(reader.isAlive(), "Il lettore dovrebbe terminare.");
+        assertEquals(625, log.getCheckpointCount());
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new AuditLog<>(0));
+        AuditLog<String> log = new AuditLog<>(2);
+        assertThrows(IllegalArgumentException.class, () -> log.append(null));
+        assertThrows(IllegalArgumentException.class,
+                () -> log.findFirstMismatch(null));
+        log.append("a");
+        assertThrows(IndexOutOfBoundsException.class, () -> log.get(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> log.verify(-1));
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> log.getCheckpointRoot(0),
+                "Il primo blocco non è ancora completo.");
+    }
+}
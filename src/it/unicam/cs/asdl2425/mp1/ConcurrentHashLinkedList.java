@@ -0,0 +1,283 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Variante thread-safe di {@link HashLinkedList}, pensata per essere
+ * alimentata contemporaneamente da più thread produttori. Ogni nodo contiene
+ * il dato originale di tipo generico T e il relativo hash MD5.
+ *
+ * <p>
+ * L'inserimento in coda e in testa è lock-free: il nuovo nodo viene agganciato
+ * con una compare-and-set sul campo {@code next} dell'ultimo nodo (o del nodo
+ * sentinella), secondo lo schema della coda di Michael e Scott. Il riferimento
+ * alla coda è solo un suggerimento che può restare indietro e che ogni thread
+ * aiuta ad avanzare.
+ *
+ * <p>
+ * La rimozione, meno frequente, è serializzata da un lock dedicato che non è
+ * mai acquisito dagli inserimenti. Un nodo rimosso viene prima marcato come
+ * cancellato e poi sganciato fisicamente solo se non è l'ultimo della lista:
+ * in questo modo un produttore non può agganciare un nuovo nodo dopo un nodo
+ * già sganciato. I nodi marcati ma non ancora sganciati vengono rimossi
+ * fisicamente dalle rimozioni successive.
+ *
+ * <p>
+ * L'iterazione e {@link #getAllHashes()} sono debolmente consistenti: non
+ * lanciano mai {@link java.util.ConcurrentModificationException} e riflettono
+ * lo stato della lista in un qualche momento successivo alla loro creazione.
+ *
+ * @param <T>
+ *                il tipo generico dei dati contenuti nei nodi della lista.
+ */
+public class ConcurrentHashLinkedList<T> implements Iterable<T> {
+    private static final VarHandle TAIL; // Accesso atomico a tail
+
+    static {
+        try {
+            TAIL = MethodHandles.lookup().findVarHandle(
+                    ConcurrentHashLinkedList.class, "tail", Node.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Node<T> head; // Nodo sentinella, precede il primo nodo
+
+    private volatile Node<T> tail; // Ultimo nodo o un suo predecessore
+
+    private final AtomicInteger size; // Numero di nodi non cancellati
+
+    private final ReentrantLock removeLock; // Serializza le rimozioni
+
+    public ConcurrentHashLinkedList() {
+        this.head = new Node<>(null, null);
+        this.tail = head;
+        this.size = new AtomicInteger();
+        this.removeLock = new ReentrantLock();
+    }
+
+    /**
+     * Rappresenta un nodo nella lista concatenata.
+     */
+    private static class Node<T> {
+        private static final VarHandle NEXT;
+
+        static {
+            try {
+                NEXT = MethodHandles.lookup().findVarHandle(Node.class, "next",
+                        Node.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        final String hash; // Hash del dato
+
+        final T data; // Dato originale
+
+        volatile Node<T> next;
+
+        volatile boolean deleted; // Cancellazione logica
+
+        Node(T data, String hash) {
+            this.data = data;
+            this.hash = hash;
+        }
+
+        boolean casNext(Node<T> expected, Node<T> update) {
+            return NEXT.compareAndSet(this, expected, update);
+        }
+    }
+
+    /**
+     * Restituisce il numero attuale di nodi nella lista. In presenza di
+     * modifiche concorrenti il valore è solo indicativo.
+     *
+     * @return il numero di nodi nella lista.
+     */
+    public int getSize() {
+        return size.get();
+    }
+
+    /**
+     * Aggiunge un nuovo elemento in testa alla lista, senza acquisire lock.
+     *
+     * @param data
+     *                 il dato da aggiungere.
+     */
+    public void addAtHead(T data) {
+        Node<T> n = new Node<>(data, HashUtil.dataToHash(data));
+        while (true) {
+            Node<T> first = head.next;
+            n.next = first;
+            if (head.casNext(first, n)) {
+                size.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Aggiunge un nuovo elemento in coda alla lista, senza acquisire lock.
+     * L'hash del dato viene calcolato prima di entrare nel ciclo di
+     * compare-and-set, così che la sezione contesa resti la più breve
+     * possibile.
+     *
+     * @param data
+     *                 il dato da aggiungere.
+     */
+    public void addAtTail(T data) {
+        Node<T> n = new Node<>(data, HashUtil.dataToHash(data));
+        while (true) {
+            Node<T> t = tail;
+            Node<T> next = t.next;
+            if (next == null) {
+                if (t.casNext(null, n)) {
+                    casTail(t, n);
+                    size.incrementAndGet();
+                    return;
+                }
+            } else {
+                // La coda è rimasta indietro: la si aiuta ad avanzare
+                casTail(t, next);
+            }
+        }
+    }
+
+    private void casTail(Node<T> expected, Node<T> update) {
+        TAIL.compareAndSet(this, expected, update);
+    }
+
+    /**
+     * Rimuove il primo elemento nella lista che contiene il dato specificato.
+     * Le rimozioni sono serializzate tra loro, ma non bloccano gli
+     * inserimenti concorrenti.
+     *
+     * @param data
+     *                 il dato da rimuovere.
+     * @return true se l'elemento è stato trovato e rimosso, false altrimenti.
+     */
+    public boolean remove(T data) {
+        removeLock.lock();
+        try {
+            Node<T> prev = head;
+            Node<T> n = head.next;
+            while (n != null) {
+                if (n.deleted) {
+                    Node<T> next = n.next;
+                    if (next != null) {
+                        unlink(prev, n, next);
+                        n = next;
+                        continue;
+                    }
+                } else if (n.data.equals(data)) {
+                    n.deleted = true;
+                    size.decrementAndGet();
+                    Node<T> next = n.next;
+                    if (next != null)
+                        unlink(prev, n, next);
+                    return true;
+                }
+                prev = n;
+                n = n.next;
+            }
+            return false;
+        } finally {
+            removeLock.unlock();
+        }
+    }
+
+    /**
+     * Sgancia fisicamente un nodo cancellato che non è l'ultimo della lista.
+     * La compare-and-set può fallire solo se il predecessore è la sentinella e
+     * nel frattempo è avvenuto un inserimento in testa: in quel caso il
+     * predecessore viene cercato di nuovo a partire dalla testa.
+     */
+    private void unlink(Node<T> prev, Node<T> n, Node<T> next) {
+        if (prev.casNext(n, next))
+            return;
+        Node<T> p = head;
+        while (p.next != n)
+            p = p.next;
+        p.casNext(n, next);
+    }
+
+    /**
+     * Restituisce un'istantanea, sotto forma di ArrayList, di tutti gli hash
+     * nella lista in ordine. L'istantanea è debolmente consistente.
+     *
+     * @return una lista con tutti gli hash della lista.
+     */
+    public ArrayList<String> getAllHashes() {
+        ArrayList<String> list = new ArrayList<>();
+        for (Node<T> n = head.next; n != null; n = n.next) {
+            if (!n.deleted)
+                list.add(n.hash);
+        }
+        return list;
+    }
+
+    /**
+     * Costruisce una stringa contenente tutti i nodi della lista, includendo
+     * dati e hash, nello stesso formato di
+     * {@link HashLinkedList#buildNodesString()}.
+     *
+     * @return una rappresentazione testuale di tutti i nodi nella lista.
+     */
+    public String buildNodesString() {
+        StringBuilder result = new StringBuilder();
+        for (Node<T> n = head.next; n != null; n = n.next) {
+            if (!n.deleted)
+                result.append("Dato: ").append(n.data).append(", Hash: ")
+                        .append(n.hash).append("\n");
+        }
+        return result.toString();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Itr();
+    }
+
+    /**
+     * Classe che realizza un iteratore debolmente consistente per
+     * ConcurrentHashLinkedList. Il prossimo nodo non cancellato viene
+     * individuato in anticipo, così che {@link #hasNext()} e {@link #next()}
+     * restino coerenti tra loro anche in presenza di rimozioni concorrenti.
+     */
+    private class Itr implements Iterator<T> {
+
+        private Node<T> node;
+
+        private Itr() {
+            node = skipDeleted(head.next);
+        }
+
+        private Node<T> skipDeleted(Node<T> n) {
+            while (n != null && n.deleted)
+                n = n.next;
+            return n;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return node != null;
+        }
+
+        @Override
+        public T next() {
+            if (node == null)
+                throw new NoSuchElementException();
+            T t = node.data;
+            node = skipDeleted(node.next);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per la classe {@link ConcurrentHashLinkedList}. Di seguito,
+ * l'elenco dei test inclusi con una breve descrizione:
+ *
+ * <ul>
+ * <li>{@link #testAddAndRemove()}: Aggiunge elementi in testa e in coda, ne
+ * rimuove alcuni e verifica la rappresentazione testuale della lista.</li>
+ *
+ * <li>{@link #testRemoveTailThenAdd()}: Rimuove l'ultimo elemento e verifica
+ * che un inserimento in coda successivo non vada perso.</li>
+ *
+ * <li>{@link #testConcurrentAppend()}: Più thread aggiungono elementi in coda
+ * contemporaneamente e si verifica che nessun elemento vada perso e che
+ * l'ordine di ogni produttore sia preservato.</li>
+ *
+ * <li>{@link #testIteratorIsWeaklyConsistent()}: Verifica che modificare la
+ * lista durante l'iterazione non lanci eccezioni.</li>
+ * </ul>
+ */
+class ConcurrentHashLinkedListTest {
+
+    private ConcurrentHashLinkedList<String> list;
+
+    @BeforeEach
+    void setUp() {
+        list = new ConcurrentHashLinkedList<>();
+    }
+
+    @Test
+    void testAddAndRemove() {
+        list.addAtTail("Bob paga Charlie");
+        list.addAtHead("Alice paga Bob");
+        list.addAtTail("Charlie paga Diana");
+        list.addAtTail("Diana paga Alice");
+
+        assertTrue(list.remove("Bob paga Charlie"),
+                "L'elemento 'Bob paga Charlie' doveva essere rimosso.");
+        assertTrue(list.remove("Alice paga Bob"),
+                "L'elemento 'Alice paga Bob' doveva essere rimosso.");
+        assertFalse(list.remove("Alice paga Bob"),
+                "L'elemento 'Alice paga Bob' non doveva più esistere.");
+
+        String expected = "Dato: Charlie paga Diana, Hash: "
+                + HashUtil.dataToHash("Charlie paga Diana") + "\n"
+                + "Dato: Diana paga Alice, Hash: "
+                + HashUtil.dataToHash("Diana paga Alice") + "\n";
+        assertEquals(expected, list.buildNodesString(),
+                "La lista non è corretta dopo le rimozioni.");
+        assertEquals(2, list.getSize(),
+                "La lista dovrebbe contenere due elementi.");
+    }
+
+    @Test
+    void testRemoveTailThenAdd() {
+        list.addAtTail("Alice paga Bob");
+        list.addAtTail("Bob paga Charlie");
+
+        assertTrue(list.remove("Bob paga Charlie"),
+                "L'elemento 'Bob paga Charlie' doveva essere rimosso.");
+        list.addAtTail("Charlie paga Diana");
+
+        List<String> expectedHashes = Arrays.asList(
+                HashUtil.dataToHash("Alice paga Bob"),
+                HashUtil.dataToHash("Charlie paga Diana"));
+        assertEquals(expectedHashes, list.getAllHashes(),
+                "Gli hash della lista non corrispondono all'atteso.");
+    }
+
+    @Test
+    void testConcurrentAppend() throws InterruptedException {
+        int producers = 8;
+        int perProducer = 2000;
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            int id = p;
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++)
+                    list.addAtTail(id + ":" + i);
+            });
+        }
+        for (Thread t : threads)
+            t.start();
+        for (Thread t : threads)
+            t.join();
+
+        assertEquals(producers * perProducer, list.getSize(),
+                "Nessun elemento dovrebbe andare perso.");
+        int[] last = new int[producers];
+        Arrays.fill(last, -1);
+        int count = 0;
+        for (String s : list) {
+            String[] parts = s.split(":");
+            int id = Integer.parseInt(parts[0]);
+            int i = Integer.parseInt(parts[1]);
+            assertTrue(i > last[id],
+                    "L'ordine di ogni produttore dovrebbe essere preservato.");
+            last[id] = i;
+            count++;
+        }
+        assertEquals(producers * perProducer, count,
+                "L'iteratore dovrebbe visitare tutti gli elementi.");
+    }
+
+    @Test
+    void testIteratorIsWeaklyConsistent() {
+        list.addAtTail("Alice paga Bob");
+        list.addAtTail("Bob paga Charlie");
+        list.addAtTail("Charlie paga Diana");
+
+        List<String> visited = new ArrayList<>();
+        assertDoesNotThrow(() -> {
+            for (String s : list) {
+                if (visited.isEmpty()) {
+                    list.remove("Charlie paga Diana");
+                    list.addAtTail("Diana paga Alice");
+                }
+                visited.add(s);
+            }
+        }, "L'iteratore non dovrebbe essere fail-fast.");
+        assertEquals(Arrays.asList("Alice paga Bob", "Bob paga Charlie",
+                "Diana paga Alice"), visited,
+                "L'iteratore dovrebbe riflettere le modifiche successive.");
+    }
+}
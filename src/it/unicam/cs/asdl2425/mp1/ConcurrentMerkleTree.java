@@ -0,0 +1,185 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * Una facciata thread-safe su {@link MerkleTree} che pubblica nuove versioni
+ * dell'albero senza mai bloccare i lettori. La versione corrente è contenuta
+ * in un {@link AtomicReference}: poiché un {@link MerkleTree} e i suoi nodi
+ * sono immutabili e hanno solo campi final, un lettore che legge il
+ * riferimento ottiene un'istantanea coerente su cui può calcolare radici e
+ * prove senza lock e senza attese, qualunque cosa faccia lo scrittore nel
+ * frattempo.
+ *
+ * <p>
+ * Lo scrittore costruisce la nuova versione a parte, con
+ * {@link MerkleTree#withLeaf(int, Object)} o con una ricostruzione completa,
+ * e la pubblica poi con un'unica scrittura del riferimento. Gli aggiornamenti
+ * sono serializzati da un lock dedicato che i lettori non acquisiscono mai,
+ * per cui più thread possono aggiornare l'albero ma uno solo alla volta
+ * prepara una nuova versione, e nessun aggiornamento va perso.
+ *
+ * <p>
+ * Le operazioni di lettura di questa classe leggono il riferimento una sola
+ * volta; per più letture sulla stessa versione, ad esempio la radice e la
+ * prova da restituire insieme, si deve usare {@link #snapshot()}.
+ *
+ * @param <T>
+ *                il tipo di dati su cui l'albero è costruito.
+ */
+public class ConcurrentMerkleTree<T> {
+    private final AtomicReference<MerkleTree<T>> current;
+
+    private final ReentrantLock writeLock; // Serializza gli aggiornamenti
+
+    /**
+     * Crea una facciata che pubblica inizialmente l'albero specificato.
+     *
+     * @param initial
+     *                    la versione iniziale dell'albero.
+     * @throws IllegalArgumentException
+     *                                      se l'albero è null.
+     */
+    public ConcurrentMerkleTree(MerkleTree<T> initial) {
+        if (initial == null)
+            throw new IllegalArgumentException("The tree is null");
+        this.current = new AtomicReference<>(initial);
+        this.writeLock = new ReentrantLock();
+    }
+
+    /**
+     * Restituisce la versione corrente dell'albero. L'albero restituito è
+     * immutabile e resta utilizzabile anche dopo la pubblicazione di versioni
+     * successive.
+     *
+     * @return la versione corrente dell'albero.
+     */
+    public MerkleTree<T> snapshot() {
+        return current.get();
+    }
+
+    /**
+     * Restituisce l'hash della radice della versione corrente.
+     *
+     * @return l'hash della radice.
+     */
+    public String getRootHash() {
+        return current.get().getRoot().getHash();
+    }
+
+    /**
+     * Restituisce la prova di Merkle per il dato nella posizione specificata,
+     * calcolata sulla versione corrente.
+     *
+     * @param index
+     *                  la posizione del dato, a partire da 0.
+     * @return la prova di Merkle per il dato.
+     * @throws IndexOutOfBoundsException
+     *                                       se la posizione non è valida.
+     */
+    public MerkleProof getMerkleProofAt(int index) {
+        return current.get().getMerkleProofAt(index);
+    }
+
+    /**
+     * Restituisce la prova di Merkle per un dato elemento, calcolata sulla
+     * versione corrente.
+     *
+     * @param data
+     *                 l'elemento per cui generare la prova di Merkle.
+     * @return la prova di Merkle per il dato.
+     * @throws IllegalArgumentException
+     *                                      se il dato è null o non è parte
+     *                                      della versione corrente.
+     */
+    public MerkleProof getMerkleProof(T data) {
+        return current.get().getMerkleProof(data);
+    }
+
+    /**
+     * Sostituisce il dato nella posizione specificata e pubblica la nuova
+     * versione. Il costo è quello di {@link MerkleTree#withLeaf(int, Object)}.
+     *
+     * @param index
+     *                  la posizione del dato da sostituire.
+     * @param data
+     *                  il nuovo dato.
+     * @return la versione pubblicata.
+     * @throws IllegalArgumentException
+     *                                       se il dato è null.
+     * @throws IndexOutOfBoundsException
+     *                                       se la posizione non è valida.
+     */
+    public MerkleTree<T> setLeaf(int index, T data) {
+        return update(tree -> tree.withLeaf(index, data));
+    }
+
+    /**
+     * Sostituisce un gruppo di dati e pubblica una sola nuova versione che li
+     * contiene tutti: i lettori vedono o nessuna o tutte le sostituzioni.
+     *
+     * @param changes
+     *                    i nuovi dati, indicizzati per posizione.
+     * @return la versione pubblicata.
+     * @throws IllegalArgumentException
+     *                                       se la mappa o un dato sono null.
+     * @throws IndexOutOfBoundsException
+     *                                       se una posizione non è valida.
+     */
+    public MerkleTree<T> setLeaves(Map<Integer, T> changes) {
+        if (changes == null)
+            throw new IllegalArgumentException("The changes are null");
+        return update(tree -> {
+            for (Map.Entry<Integer, T> e : changes.entrySet())
+                tree = tree.withLeaf(e.getKey(), e.getValue());
+            return tree;
+        });
+    }
+
+    /**
+     * Ricostruisce l'albero da capo sulla lista specificata e pubblica la
+     * nuova versione. Durante la ricostruzione i lettori continuano a usare la
+     * versione precedente.
+     *
+     * @param hashList
+     *                     la lista su cui costruire la nuova versione.
+     * @return la versione pubblicata.
+     * @throws IllegalArgumentException
+     *                                      se la lista è null o vuota.
+     */
+    public MerkleTree<T> rebuild(HashLinkedList<T> hashList) {
+        return update(tree -> new MerkleTree<>(hashList, tree.getShape()));
+    }
+
+    /**
+     * Applica una trasformazione alla versione corrente e pubblica il
+     * risultato. La trasformazione è eseguita mentre si detiene il lock degli
+     * aggiornamenti, per cui nessun altro aggiornamento può essere pubblicato
+     * nel frattempo; se lancia un'eccezione, la versione corrente resta
+     * invariata.
+     *
+     * @param change
+     *                   la trasformazione da applicare.
+     * @return la versione pubblicata.
+     * @throws IllegalArgumentException
+     *                                      se la trasformazione è null o
+     *                                      restituisce null.
+     */
+    public MerkleTree<T> update(UnaryOperator<MerkleTree<T>> change) {
+        if (change == null)
+            throw new IllegalArgumentException("The change is null");
+        writeLock.lock();
+        try {
+            MerkleTree<T> next = change.apply(current.get());
+            if (next == null)
+                throw new IllegalArgumentException("The tree is null");
+            current.set(next);
+            return next;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
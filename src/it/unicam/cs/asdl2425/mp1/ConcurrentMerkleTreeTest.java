@@ -0,0 +1,182 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per la classe {@link ConcurrentMerkleTree}. Di seguito,
+ * l'elenco dei test inclusi con una breve descrizione:
+ *
+ * <ul>
+ * <li>{@link #testPublishAndSnapshot()}: Verifica che un aggiornamento
+ * pubblichi la radice di un albero ricostruito da capo e che un'istantanea
+ * precedente resti invariata.</li>
+ *
+ * <li>{@link #testBatchAndRebuild()}: Verifica la pubblicazione di un gruppo
+ * di sostituzioni e di una ricostruzione completa.</li>
+ *
+ * <li>{@link #testFailedUpdate()}: Verifica che un aggiornamento fallito non
+ * modifichi la versione corrente.</li>
+ *
+ * <li>{@link #testConcurrentReaders()}: Più lettori calcolano prove mentre uno
+ * scrittore pubblica nuove versioni, e si verifica che ogni istantanea sia una
+ * versione pubblicata e coerente con le proprie prove.</li>
+ *
+ * <li>{@link #testConcurrentWriters()}: Più thread aggiornano posizioni
+ * diverse contemporaneamente e si verifica che nessun aggiornamento vada
+ * perso.</li>
+ * </ul>
+ */
+class ConcurrentMerkleTreeTest {
+
+    private static final int WIDTH = 16;
+
+    private HashLinkedList<String> list;
+
+    private ConcurrentMerkleTree<String> tree;
+
+    @BeforeEach
+    void setUp() {
+        list = new HashLinkedList<>();
+        for (int i = 0; i < WIDTH; i++)
+            list.addAtTail("Transazione " + i);
+        tree = new ConcurrentMerkleTree<>(new MerkleTree<>(list));
+    }
+
+    private String rebuiltRoot() {
+        return new MerkleTree<>(list).getRoot().getHash();
+    }
+
+    @Test
+    void testPublishAndSnapshot() {
+        MerkleTree<String> before = tree.snapshot();
+        String oldRoot = tree.getRootHash();
+        tree.setLeaf(3, "Alice paga Bob");
+        list.set(3, "Alice paga Bob");
+
+        assertEquals(rebuiltRoot(), tree.getRootHash(),
+                "La radice pubblicata non è corretta.");
+        assertEquals(oldRoot, before.getRoot().getHash(),
+                "L'istantanea precedente non dovrebbe cambiare.");
+        assertTrue(tree.getMerkleProof("Alice paga Bob")
+                .proveValidityOfData("Alice paga Bob"),
+                "La prova dovrebbe validare il nuovo dato.");
+        assertTrue(before.getMerkleProofAt(3)
+                .proveValidityOfData("Transazione 3"),
+                "L'istantanea precedente dovrebbe validare il vecchio dato.");
+    }
+
+    @Test
+    void testBatchAndRebuild() {
+        Map<Integer, String> changes = new HashMap<>();
+        changes.put(0, "Alice paga Bob");
+        changes.put(15, "Bob paga Charlie");
+        tree.setLeaves(changes);
+        list.set(0, "Alice paga Bob");
+        list.set(15, "Bob paga Charlie");
+        assertEquals(rebuiltRoot(), tree.getRootHash(),
+                "La radice dopo il gruppo di sostituzioni non è corretta.");
+
+        HashLinkedList<String> other = new HashLinkedList<>();
+        other.addAtTail("Charlie paga Diana");
+        other.addAtTail("Diana paga Alice");
+        MerkleTree<String> rebuilt = tree.rebuild(other);
+        assertEquals(2, rebuilt.getWidth(),
+                "La nuova versione dovrebbe avere larghezza 2.");
+        assertEquals(new MerkleTree<>(other).getRoot().getHash(),
+                tree.getRootHash(), "La ricostruzione non è stata pubblicata.");
+    }
+
+    @Test
+    void testFailedUpdate() {
+        String root = tree.getRootHash();
+        Map<Integer, String> changes = new HashMap<>();
+        changes.put(1, "Alice paga Bob");
+        changes.put(WIDTH, "Bob paga Charlie");
+
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> tree.setLeaves(changes));
+        assertThrows(IllegalArgumentException.class,
+                () -> tree.setLeaf(1, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> tree.update(t -> null));
+        assertEquals(root, tree.getRootHash(),
+                "Un aggiornamento fallito non dovrebbe essere pubblicato.");
+        assertThrows(IllegalArgumentException.class,
+                () -> new ConcurrentMerkleTree<String>(null));
+    }
+
+    @Test
+    void testConcurrentReaders() throws InterruptedException {
+        Set<String> published = ConcurrentHashMap.newKeySet();
+        published.add(tree.getRootHash());
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicInteger failures = new AtomicInteger();
+        AtomicInteger reads = new AtomicInteger();
+        Thread[] readers = new Thread[4];
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread(() -> {
+                while (!done.get()) {
+                    MerkleTree<String> snap = tree.snapshot();
+                    String root = snap.getRoot().getHash();
+                    MerkleProof proof = snap.getMerkleProofAt(0);
+                    if (!published.contains(root)
+                            || !proof.proveValidityOfData("Transazione 0"))
+                        failures.incrementAndGet();
+                    reads.incrementAndGet();
+                }
+            });
+            readers[r].start();
+        }
+        for (int n = 0; n < 2000; n++) {
+            int index = 1 + n % (WIDTH - 1);
+            String data = "Versione " + n;
+            tree.update(t -> {
+                MerkleTree<String> next = t.withLeaf(index, data);
+                published.add(next.getRoot().getHash());
+                return next;
+            });
+        }
+        done.set(true);
+        for (Thread t : readers)
+            t.join();
+
+        assertEquals(0, failures.get(),
+                "Ogni istantanea dovrebbe essere una versione pubblicata e "
+                        + "coerente.");
+        assertTrue(reads.get() > 0, "I lettori dovrebbero aver letto.");
+    }
+
+    @Test
+    void testConcurrentWriters() throws InterruptedException {
+        int writers = 4;
+        Thread[] threads = new Thread[writers];
+        for (int w = 0; w < writers; w++) {
+            int id = w;
+            threads[w] = new Thread(() -> {
+                for (int n = 0; n < 500; n++) {
+                    for (int i = id; i < WIDTH; i += writers)
+                        tree.setLeaf(i, "Scrittore " + id + ", passo " + n);
+                }
+            });
+        }
+        for (Thread t : threads)
+            t.start();
+        for (Thread t : threads)
+            t.join();
+
+        for (int i = 0; i < WIDTH; i++)
+            list.set(i, "Scrittore " + (i % writers) + ", passo 499");
+        assertEquals(rebuiltRoot(), tree.getRootHash(),
+                "Nessun aggiornamento dovrebbe andare perso.");
+    }
+}
@@ -0,0 +1,231 @@
+package it.unicam.cs.asdl2425.mp1;
+
+/**
+ * Una prova di consistenza tra due versioni di un albero di Merkle costruito su
+ * dati aggiunti solo in coda: dimostra che l'albero di larghezza
+ * {@code newSize} contiene, come primi {@code oldSize} dati, esattamente i dati
+ * dell'albero di larghezza {@code oldSize}, conoscendo soltanto le due radici.
+ * È l'analogo delle prove di consistenza dei transparency log, e dipende dalla
+ * forma ({@link MerkleTree.Shape}) dei due alberi.
+ *
+ * <p>
+ * Per la forma {@link MerkleTree.Shape#PADDED}, in cui le foglie sono
+ * completate con nodi di riempimento vuoti fino alla potenza di due
+ * successiva, la prova contiene l'hash dell'ultimo dato del vecchio albero e
+ * gli hash dei fratelli dei nodi sul cammino dalla sua foglia alla radice del
+ * nuovo albero.
+ * I fratelli a sinistra del cammino coprono solo dati precedenti, per cui sono
+ * uguali nei due alberi, mentre quelli a destra nel vecchio albero coprono
+ * solo foglie di riempimento e hanno quindi hash vuoto. Il verificatore
+ * ricalcola perciò la vecchia radice usando i fratelli a sinistra e hash vuoti
+ * a destra, e la nuova radice usando tutti i fratelli: se entrambe coincidono
+ * con quelle attese, i due alberi condividono i primi {@code oldSize} dati. La
+ * prova contiene un hash per livello del nuovo albero, ovvero O(log n) hash.
+ *
+ * <p>
+ * Per la forma {@link MerkleTree.Shape#PROMOTED} gli alberi hanno la stessa
+ * struttura di quelli dei transparency log, per cui la prova è quella della
+ * RFC 9162: gli hash dei sottoalberi completi che, combinati, danno sia la
+ * vecchia che la nuova radice, al più uno per livello.
+ */
+public class ConsistencyProof {
+    private final int oldSize;
+
+    private final int newSize;
+
+    private final MerkleTree.Shape shape;
+
+    private final String leafHash; // Hash dell'ultimo dato, solo per PADDED
+
+    private final String[] path; // Hash della prova, dal basso verso l'alto
+
+    /**
+     * Costruisce una prova di consistenza per alberi di forma
+     * {@link MerkleTree.Shape#PADDED}.
+     *
+     * @param oldSize
+     *                     la larghezza del vecchio albero.
+     * @param newSize
+     *                     la larghezza del nuovo albero.
+     * @param leafHash
+     *                     l'hash del dato in posizione oldSize - 1.
+     * @param siblings
+     *                     gli hash dei fratelli dei nodi sul cammino dalla
+     *                     foglia del dato alla radice del nuovo albero, a
+     *                     partire dal livello delle foglie.
+     * @throws IllegalArgumentException
+     *                                      se le larghezze non sono valide o
+     *                                      se un hash è null.
+     */
+    public ConsistencyProof(int oldSize, int newSize, String leafHash,
+            String[] siblings) {
+        this(MerkleTree.Shape.PADDED, oldSize, newSize, leafHash, siblings);
+        if (leafHash == null)
+            throw new IllegalArgumentException("The hash cannot be null");
+    }
+
+    /**
+     * Costruisce una prova di consistenza per alberi di forma
+     * {@link MerkleTree.Shape#PROMOTED}.
+     *
+     * @param oldSize
+     *                    la larghezza del vecchio albero.
+     * @param newSize
+     *                    la larghezza del nuovo albero.
+     * @param path
+     *                    gli hash della prova nell'ordine della RFC 9162.
+     * @throws IllegalArgumentException
+     *                                      se le larghezze non sono valide o
+     *                                      se un hash è null.
+     */
+    public ConsistencyProof(int oldSize, int newSize, String[] path) {
+        this(MerkleTree.Shape.PROMOTED, oldSize, newSize, null, path);
+    }
+
+    private ConsistencyProof(MerkleTree.Shape shape, int oldSize, int newSize,
+            String leafHash, String[] path) {
+        if (oldSize < 1 || oldSize > newSize)
+            throw new IllegalArgumentException(
+                    "Invalid sizes: " + oldSize + ", " + newSize);
+        if (path == null)
+            throw new IllegalArgumentException("The hash cannot be null");
+        for (String s : path) {
+            if (s == null)
+                throw new IllegalArgumentException("The hash cannot be null");
+        }
+        this.shape = shape;
+        this.oldSize = oldSize;
+        this.newSize = newSize;
+        this.leafHash = leafHash;
+        this.path = path.clone();
+    }
+
+    /**
+     * Restituisce la larghezza del vecchio albero.
+     *
+     * @return la larghezza del vecchio albero.
+     */
+    public int getOldSize() {
+        return oldSize;
+    }
+
+    /**
+     * Restituisce la larghezza del nuovo albero.
+     *
+     * @return la larghezza del nuovo albero.
+     */
+    public int getNewSize() {
+        return newSize;
+    }
+
+    /**
+     * Restituisce la forma degli alberi per cui la prova è stata costruita.
+     *
+     * @return la forma degli alberi.
+     */
+    public MerkleTree.Shape getShape() {
+        return shape;
+    }
+
+    /**
+     * Restituisce il numero di hash di sottoalberi contenuti nella prova,
+     * escluso l'eventuale hash del dato.
+     *
+     * @return il numero di hash di sottoalberi.
+     */
+    public int getLength() {
+        return path.length;
+    }
+
+    /**
+     * Verifica che l'albero con la nuova radice estenda quello con la vecchia
+     * radice, ricalcolando entrambe le radici a partire dalla prova.
+     *
+     * @param oldRootHash
+     *                        l'hash della radice del vecchio albero.
+     * @param newRootHash
+     *                        l'hash della radice del nuovo albero.
+     * @return true se entrambe le radici ricalcolate coincidono con quelle
+     *         fornite; false altrimenti.
+     * @throws IllegalArgumentException
+     *                                      se una delle radici è null.
+     */
+    public boolean verify(String oldRootHash, String newRootHash) {
+        if (oldRootHash == null || newRootHash == null)
+            throw new IllegalArgumentException("The root hash is null");
+        if (shape == MerkleTree.Shape.PROMOTED)
+            return verifyPromoted(oldRootHash, newRootHash);
+        int oldHeight = heightOf(oldSize);
+        if (path.length != heightOf(newSize))
+            return false;
+        int index = oldSize - 1;
+        String oldHash = leafHash;
+        String newHash = leafHash;
+        for (int l = 0; l < path.length; l++) {
+            if ((index >> l & 1) == 1) {
+                newHash = combine(path[l], newHash);
+                if (l < oldHeight)
+                    oldHash = combine(path[l], oldHash);
+            } else {
+                newHash = combine(newHash, path[l]);
+                if (l < oldHeight)
+                    oldHash = combine(oldHash, "");
+            }
+        }
+        return oldHash.equals(oldRootHash) && newHash.equals(newRootHash);
+    }
+
+    /**
+     * Verifica la prova secondo l'algoritmo della RFC 9162, sezione 2.1.4.2,
+     * scorrendo i bit delle posizioni degli ultimi dati dei due alberi.
+     */
+    private boolean verifyPromoted(String oldRootHash, String newRootHash) {
+        if (oldSize == newSize)
+            return path.length == 0 && oldRootHash.equals(newRootHash);
+        String[] hashes = path;
+        if (Integer.bitCount(oldSize) == 1) {
+            hashes = new String[path.length + 1];
+            hashes[0] = oldRootHash;
+            System.arraycopy(path, 0, hashes, 1, path.length);
+        }
+        if (hashes.length == 0)
+            return false;
+        int fn = oldSize - 1;
+        int sn = newSize - 1;
+        while ((fn & 1) == 1) {
+            fn >>= 1;
+            sn >>= 1;
+        }
+        String fr = hashes[0];
+        String sr = hashes[0];
+        for (int i = 1; i < hashes.length; i++) {
+            if (sn == 0)
+                return false;
+            if ((fn & 1) == 1 || fn == sn) {
+                fr = combine(hashes[i], fr);
+                sr = combine(hashes[i], sr);
+                while ((fn & 1) == 0 && fn != 0) {
+                    fn >>= 1;
+                    sn >>= 1;
+                }
+            } else {
+                sr = combine(sr, hashes[i]);
+            }
+            fn >>= 1;
+            sn >>= 1;
+        }
+        return sn == 0 && fr.equals(oldRootHash) && sr.equals(newRootHash);
+    }
+
+    private static String combine(String left, String right) {
+        return HashUtil.computeMD5((left + right).getBytes());
+    }
+
+    /**
+     * Restituisce l'altezza di un {@link MerkleTree} con la larghezza
+     * specificata.
+     */
+    private static int heightOf(int width) {
+        return width <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(width - 1);
+    }
+}
@@ -0,0 +1,145 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per la classe {@link ConsistencyProof} e per il metodo
+ * {@code getConsistencyProof} di {@link MerkleTree}. Di seguito, l'elenco dei
+ * test inclusi con una breve descrizione:
+ *
+ * <ul>
+ * <li>{@link #testConsistentVersions()}: Verifica che la prova sia valida per
+ * ogni coppia di larghezze, comprese quelle che attraversano una potenza di
+ * due.</li>
+ *
+ * <li>{@link #testInconsistentVersions()}: Verifica che la prova venga
+ * respinta se il vecchio albero non è un prefisso del nuovo o se le radici
+ * sono scambiate.</li>
+ *
+ * <li>{@link #testProofLength()}: Verifica che la prova contenga un hash per
+ * livello del nuovo albero.</li>
+ *
+ * <li>{@link #testPromotedShape()}: Verifica la prova, secondo la RFC 9162,
+ * per ogni coppia di larghezze di alberi con nodi promossi, e che venga
+ * respinta per un vecchio albero diverso.</li>
+ *
+ * <li>{@link #testInvalidOldSize()}: Verifica che venga lanciata
+ * un'eccezione per larghezze non valide.</li>
+ * </ul>
+ */
+class ConsistencyProofTest {
+
+    private HashLinkedList<String> list;
+
+    @BeforeEach
+    void setUp() {
+        list = new HashLinkedList<>();
+        for (int i = 0; i < 13; i++)
+            list.addAtTail("Alice paga Bob " + i);
+    }
+
+    private MerkleTree<String> prefix(int size, MerkleTree.Shape shape) {
+        HashLinkedList<String> prefix = new HashLinkedList<>();
+        for (int i = 0; i < size; i++)
+            prefix.addAtTail(list.get(i));
+        return new MerkleTree<>(prefix, shape);
+    }
+
+    private String rootOfPrefix(int size) {
+        return prefix(size, MerkleTree.Shape.PADDED).getRoot().getHash();
+    }
+
+    @Test
+    void testConsistentVersions() {
+        for (int newSize = 1; newSize <= 13; newSize++) {
+            String newRoot = rootOfPrefix(newSize);
+            HashLinkedList<String> prefix = new HashLinkedList<>();
+            for (int i = 0; i < newSize; i++)
+                prefix.addAtTail(list.get(i));
+            MerkleTree<String> tree = new MerkleTree<>(prefix);
+            for (int oldSize = 1; oldSize <= newSize; oldSize++) {
+                ConsistencyProof proof = tree.getConsistencyProof(oldSize);
+                assertTrue(proof.verify(rootOfPrefix(oldSize), newRoot),
+                        "La prova tra " + oldSize + " e " + newSize
+                                + " dati dovrebbe essere valida.");
+            }
+        }
+    }
+
+    @Test
+    void testInconsistentVersions() {
+        MerkleTree<String> tree = new MerkleTree<>(list);
+        String newRoot = tree.getRoot().getHash();
+        ConsistencyProof proof = tree.getConsistencyProof(5);
+        String oldRoot = rootOfPrefix(5);
+
+        list.set(2, "Bob paga Charlie");
+        assertFalse(proof.verify(rootOfPrefix(5), newRoot),
+                "La prova non dovrebbe validare un vecchio albero diverso.");
+        assertFalse(proof.verify(oldRoot, new MerkleTree<>(list).getRoot()
+                .getHash()),
+                "La prova non dovrebbe validare un nuovo albero diverso.");
+        assertFalse(proof.verify(newRoot, oldRoot),
+                "La prova non dovrebbe validare radici scambiate.");
+        assertFalse(proof.verify(rootOfPrefix(4), newRoot),
+                "La prova non dovrebbe validare una larghezza diversa.");
+    }
+
+    @Test
+    void testProofLength() {
+        MerkleTree<String> tree = new MerkleTree<>(list);
+
+        assertEquals(4, tree.getConsistencyProof(3).getLength(),
+                "La prova dovrebbe contenere un hash per livello.");
+        assertEquals(3, tree.getConsistencyProof(3).getOldSize(),
+                "La vecchia larghezza non è corretta.");
+        assertEquals(13, tree.getConsistencyProof(3).getNewSize(),
+                "La nuova larghezza non è corretta.");
+    }
+
+    @Test
+    void testInvalidOldSize() {
+        MerkleTree<String> tree = new MerkleTree<>(list);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> tree.getConsistencyProof(0));
+        assertThrows(IllegalArgumentException.class,
+                () -> tree.getConsistencyProof(14));
+    }
+
+    @Test
+    void testPromotedShape() {
+        for (int newSize = 1; newSize <= 13; newSize++) {
+            MerkleTree<String> tree = prefix(newSize, MerkleTree.Shape.PROMOTED);
+            String newRoot = tree.getRoot().getHash();
+            for (int oldSize = 1; oldSize <= newSize; oldSize++) {
+                String oldRoot = prefix(oldSize, MerkleTree.Shape.PROMOTED)
+                        .getRoot().getHash();
+                ConsistencyProof proof = tree.getConsistencyProof(oldSize);
+                assertEquals(MerkleTree.Shape.PROMOTED, proof.getShape(),
+                        "La forma della prova non è corretta.");
+                assertTrue(proof.verify(oldRoot, newRoot),
+                        "La prova tra " + oldSize + " e " + newSize
+                                + " dati dovrebbe essere valida.");
+                if (oldSize < newSize)
+                    assertFalse(proof.verify(newRoot, newRoot),
+                            "La prova non dovrebbe validare una vecchia "
+                                    + "radice errata.");
+            }
+        }
+        MerkleTree<String> tree = prefix(13, MerkleTree.Shape.PROMOTED);
+        ConsistencyProof proof = tree.getConsistencyProof(6);
+        String oldRoot = prefix(6, MerkleTree.Shape.PROMOTED).getRoot()
+                .getHash();
+        list.set(3, "Bob paga Charlie");
+        assertFalse(proof.verify(
+                prefix(6, MerkleTree.Shape.PROMOTED).getRoot().getHash(),
+                tree.getRoot().getHash()),
+                "La prova non dovrebbe validare un vecchio albero diverso.");
+        assertTrue(proof.verify(oldRoot, tree.getRoot().getHash()),
+                "La prova dovrebbe restare valida per le radici originali.");
+    }
+}
@@ -0,0 +1,156 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Un divisore di dati in blocchi definiti dal contenuto, secondo l'algoritmo
+ * FastCDC: la fine di un blocco viene scelta dove un hash a scorrimento Gear
+ * degli ultimi byte letti ha un certo numero di bit a zero, per cui dipende
+ * solo dal contenuto che la precede e non dalla sua posizione. Inserendo o
+ * rimuovendo byte in un punto dei dati cambiano solo i blocchi vicini alla
+ * modifica, mentre quelli successivi tornano ad avere gli stessi confini e
+ * quindi lo stesso hash.
+ *
+ * <p>
+ * Ogni blocco, tranne eventualmente l'ultimo, ha una lunghezza compresa tra
+ * la dimensione minima e quella massima. I primi byte di un blocco, fino alla
+ * dimensione minima, non vengono considerati; fino alla dimensione media si
+ * usa una maschera con un bit in più, oltre una con un bit in meno, così che
+ * le lunghezze si concentrino attorno alla dimensione media.
+ *
+ * <p>
+ * La tabella di Gear è generata da un seme fisso con {@link Random}, il cui
+ * algoritmo è specificato, per cui gli stessi dati vengono divisi negli
+ * stessi blocchi su qualunque macchina. La classe è immutabile e può essere
+ * condivisa tra più thread.
+ */
+public class ContentChunker {
+    private static final long[] GEAR = new long[256];
+
+    static {
+        Random random = new Random(0x4d65726b6c65L);
+        for (int i = 0; i < GEAR.length; i++)
+            GEAR[i] = random.nextLong();
+    }
+
+    private final int minSize;
+
+    private final int averageSize;
+
+    private final int maxSize;
+
+    /*
+     * Maschere sui bit alti dell'hash, che dipendono dagli ultimi 64 byte
+     * letti: la prima è usata prima della dimensione media, la seconda dopo
+     */
+    private final long strictMask;
+
+    private final long looseMask;
+
+    /**
+     * Crea un divisore con le dimensioni dei blocchi specificate.
+     *
+     * @param minSize
+     *                        la dimensione minima in byte di un blocco.
+     * @param averageSize
+     *                        la dimensione media in byte di un blocco, una
+     *                        potenza di 2 almeno pari a 4.
+     * @param maxSize
+     *                        la dimensione massima in byte di un blocco.
+     * @throws IllegalArgumentException
+     *                                      se non vale 1 <= minSize <=
+     *                                      averageSize <= maxSize o se la
+     *                                      dimensione media non è una potenza
+     *                                      di 2 almeno pari a 4.
+     */
+    public ContentChunker(int minSize, int averageSize, int maxSize) {
+        if (minSize < 1 || minSize > averageSize || averageSize > maxSize
+                || averageSize < 4 || Integer.bitCount(averageSize) != 1)
+            throw new IllegalArgumentException("Invalid chunk sizes: "
+                    + minSize + ", " + averageSize + ", " + maxSize);
+        this.minSize = minSize;
+        this.averageSize = averageSize;
+        this.maxSize = maxSize;
+        int bits = Integer.numberOfTrailingZeros(averageSize);
+        this.strictMask = -1L << (63 - bits);
+        this.looseMask = -1L << (65 - bits);
+    }
+
+    /**
+     * Restituisce la dimensione minima di un blocco.
+     *
+     * @return la dimensione minima in byte.
+     */
+    public int getMinSize() {
+        return minSize;
+    }
+
+    /**
+     * Restituisce la dimensione media di un blocco.
+     *
+     * @return la dimensione media in byte.
+     */
+    public int getAverageSize() {
+        return averageSize;
+    }
+
+    /**
+     * Restituisce la dimensione massima di un blocco.
+     *
+     * @return la dimensione massima in byte.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Restituisce la lunghezza del blocco che inizia nella posizione
+     * specificata del buffer. Vengono letti al più {@code available} byte,
+     * con accessi assoluti che non modificano la posizione del buffer; se
+     * sono meno della dimensione minima il blocco li comprende tutti.
+     *
+     * @param buffer
+     *                      i dati.
+     * @param offset
+     *                      la posizione nel buffer dell'inizio del blocco.
+     * @param available
+     *                      il numero di byte disponibili dalla posizione
+     *                      specificata.
+     * @return la lunghezza del blocco, compresa tra 1 e il minimo tra
+     *         {@code available} e la dimensione massima.
+     * @throws IllegalArgumentException
+     *                                       se il buffer è null o se non ci
+     *                                       sono byte disponibili.
+     * @throws IndexOutOfBoundsException
+     *                                       se i byte disponibili superano la
+     *                                       fine del buffer.
+     */
+    public int nextChunkLength(ByteBuffer buffer, int offset, int available) {
+        if (buffer == null)
+            throw new IllegalArgumentException("The buffer is null");
+        if (available < 1)
+            throw new IllegalArgumentException("No data available");
+        if (offset < 0 || available > buffer.limit() - offset)
+            throw new IndexOutOfBoundsException("Offset: " + offset
+                    + ", Available: " + available + ", Limit: "
+                    + buffer.limit());
+        int length = Math.min(available, maxSize);
+        if (length <= minSize)
+            return length;
+        int normal = Math.min(length, averageSize);
+        long hash = 0;
+        int i = minSize;
+        for (; i < normal; i++) {
+            hash = (hash << 1) + GEAR[buffer.get(offset + i) & 0xff];
+            if ((hash & strictMask) == 0)
+                return i + 1;
+        }
+        for (; i < length; i++) {
+            hash = (hash << 1) + GEAR[buffer.get(offset + i) & 0xff];
+            if ((hash & looseMask) == 0)
+                return i + 1;
+        }
+        return length;
+    }
+}
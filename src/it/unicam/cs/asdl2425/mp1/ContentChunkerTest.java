@@ -0,0 +1,142 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per la classe {@link ContentChunker}. Di seguito, l'elenco
+ * dei test inclusi con una breve descrizione:
+ *
+ * <ul>
+ * <li>{@link #testSizes()}: Verifica che i blocchi coprano tutti i dati, con
+ * lunghezze comprese tra la minima e la massima e una media vicina a quella
+ * richiesta.</li>
+ *
+ * <li>{@link #testPositionIndependence()}: Verifica che i confini dei blocchi
+ * dipendano solo dal contenuto e non dalla posizione nel buffer.</li>
+ *
+ * <li>{@link #testInsertion()}: Verifica che, inserendo byte nei dati, solo i
+ * blocchi vicini alla modifica cambino.</li>
+ *
+ * <li>{@link #testInvalidArguments()}: Verifica che vengano lanciate
+ * eccezioni per argomenti non validi.</li>
+ * </ul>
+ */
+class ContentChunkerTest {
+
+    private static List<byte[]> split(ContentChunker chunker, byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        List<byte[]> chunks = new ArrayList<>();
+        for (int p = 0; p < data.length;) {
+            int length = chunker.nextChunkLength(buffer, p, data.length - p);
+            chunks.add(Arrays.copyOfRange(data, p, p + length));
+            p += length;
+        }
+        return chunks;
+    }
+
+    private static Set<String> hashes(List<byte[]> chunks) {
+        Set<String> hashes = new HashSet<>();
+        for (byte[] chunk : chunks)
+            hashes.add(HashUtil.computeMD5(chunk));
+        return hashes;
+    }
+
+    @Test
+    void testSizes() {
+        byte[] data = new byte[1 << 20];
+        new Random(7).nextBytes(data);
+        ContentChunker chunker = new ContentChunker(256, 1024, 4096);
+        List<byte[]> chunks = split(chunker, data);
+        int total = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            int length = chunks.get(i).length;
+            assertTrue(length <= 4096, "Blocco " + i + " troppo lungo.");
+            if (i < chunks.size() - 1)
+                assertTrue(length >= 256, "Blocco " + i + " troppo corto.");
+            total += length;
+        }
+        assertEquals(data.length, total,
+                "I blocchi dovrebbero coprire i dati.");
+        int average = data.length / chunks.size();
+        assertTrue(average > 768 && average < 2048,
+                "Lunghezza media dei blocchi inattesa: " + average);
+        assertEquals(3, chunker.nextChunkLength(ByteBuffer.wrap(data), 0, 3),
+                "Con meno byte della dimensione minima il blocco è unico.");
+    }
+
+    @Test
+    void testPositionIndependence() {
+        byte[] data = new byte[20_000];
+        new Random(8).nextBytes(data);
+        ContentChunker chunker = new ContentChunker(64, 256, 1024);
+        List<byte[]> chunks = split(chunker, data);
+
+        // Gli stessi dati preceduti da altri byte, in un buffer diretto
+        ByteBuffer buffer = ByteBuffer.allocateDirect(data.length + 100);
+        buffer.position(100);
+        buffer.put(data);
+        buffer.clear();
+        int p = 100;
+        for (byte[] chunk : chunks) {
+            int length = chunker.nextChunkLength(buffer, p,
+                    buffer.limit() - p);
+            assertEquals(chunk.length, length,
+                    "Confine diverso nella posizione " + (p - 100));
+            p += length;
+        }
+        assertEquals(0, buffer.position(),
+                "La posizione del buffer non dovrebbe cambiare.");
+    }
+
+    @Test
+    void testInsertion() {
+        byte[] data = new byte[100_000];
+        new Random(9).nextBytes(data);
+        byte[] edited = new byte[data.length + 13];
+        System.arraycopy(data, 0, edited, 0, 40_000);
+        System.arraycopy(data, 40_000, edited, 40_013, 60_000);
+        ContentChunker chunker = new ContentChunker(128, 512, 2048);
+        List<byte[]> chunks = split(chunker, edited);
+        Set<String> original = hashes(split(chunker, data));
+        int changed = 0;
+        for (byte[] chunk : chunks)
+            if (!original.contains(HashUtil.computeMD5(chunk)))
+                changed++;
+        assertTrue(changed >= 1 && changed <= 2,
+                "Solo i blocchi vicini all'inserimento dovrebbero cambiare, "
+                        + "invece ne sono cambiati " + changed);
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ContentChunker(0, 256, 1024));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ContentChunker(512, 256, 1024));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ContentChunker(64, 256, 128));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ContentChunker(64, 300, 1024),
+                "La dimensione media dovrebbe essere una potenza di 2.");
+        ContentChunker chunker = new ContentChunker(64, 256, 1024);
+        ByteBuffer buffer = ByteBuffer.allocate(100);
+        assertThrows(IllegalArgumentException.class,
+                () -> chunker.nextChunkLength(null, 0, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> chunker.nextChunkLength(buffer, 0, 0));
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> chunker.nextChunkLength(buffer, 50, 51));
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> chunker.nextChunkLength(buffer, -1, 10));
+    }
+}
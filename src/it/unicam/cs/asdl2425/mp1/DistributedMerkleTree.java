@@ -0,0 +1,426 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Un albero di Merkle costruito da più processi: un coordinatore e un insieme
+ * di {@link MerkleSubtreeWorker}, ciascuno in una propria JVM, che comunicano
+ * tramite socket sull'interfaccia di loopback. L'albero ha la stessa forma e
+ * la stessa radice di un {@link MerkleTree} costruito sugli stessi dati.
+ *
+ * <p>
+ * Le foglie, completate fino alla potenza di due successiva, vengono divise in
+ * W intervalli allineati della stessa ampiezza, con W potenza di due: ogni
+ * intervallo è la base di un sottoalbero completo, che un worker costruisce a
+ * partire dagli hash delle sue foglie. Il coordinatore invia gli intervalli a
+ * tutti i worker prima di attendere le risposte, per cui i sottoalberi vengono
+ * costruiti in parallelo, e assembla poi i livelli superiori a partire dalle
+ * radici ricevute. Gli intervalli composti solo da foglie di riempimento hanno
+ * radice vuota e non richiedono alcun worker.
+ *
+ * <p>
+ * I livelli inferiori restano nella memoria dei worker: per una prova o per
+ * l'hash di un nodo al di sotto delle radici dei sottoalberi il coordinatore
+ * li richiede al worker interessato. L'albero va chiuso con {@link #close()},
+ * che termina i processi worker.
+ */
+public class DistributedMerkleTree implements Closeable {
+    /**
+     * Tempo massimo di attesa per la connessione di un worker, in millisecondi.
+     */
+    static final int CONNECT_TIMEOUT = 30_000;
+
+    /*
+     * Intervallo con cui, in attesa delle connessioni, si controlla che i
+     * worker non siano già terminati, in millisecondi
+     */
+    private static final int POLL_INTERVAL = 100;
+
+    /**
+     * Un processo worker e la connessione verso di esso.
+     */
+    private static final class Worker {
+        private final Process process;
+
+        private Socket socket;
+
+        private DataInputStream in;
+
+        private DataOutputStream out;
+
+        private Worker(Process process) {
+            this.process = process;
+        }
+    }
+
+    private final int width;
+
+    private final int height;
+
+    private final int spanHeight; // Altezza dei sottoalberi dei worker
+
+    private final Worker[] workers; // null per gli intervalli vuoti
+
+    private final String[][] upper; // Livelli da spanHeight alla radice
+
+    private DistributedMerkleTree(int width, int height, int spanHeight,
+            Worker[] workers) {
+        this.width = width;
+        this.height = height;
+        this.spanHeight = spanHeight;
+        this.workers = workers;
+        this.upper = new String[height - spanHeight + 1][];
+    }
+
+    /**
+     * Costruisce l'albero sugli hash della lista, avviando fino al numero
+     * specificato di JVM worker sulla macchina locale. Il numero effettivo di
+     * intervalli è la più grande potenza di due non superiore a quello
+     * richiesto e al numero di foglie.
+     *
+     * @param hashList
+     *                       un oggetto HashLinkedList contenente i dati e i
+     *                       relativi hash.
+     * @param maxWorkers
+     *                       il numero massimo di worker.
+     * @return l'albero costruito.
+     * @throws IllegalArgumentException
+     *                                      se la lista è null o vuota o se il
+     *                                      numero di worker è minore di 1.
+     * @throws IOException
+     *                                      se l'avvio dei worker o la
+     *                                      comunicazione con essi fallisce.
+     */
+    public static DistributedMerkleTree build(HashLinkedList<?> hashList,
+            int maxWorkers) throws IOException {
+        if (hashList == null || hashList.getSize() == 0)
+            throw new IllegalArgumentException("The list is null or empty");
+        if (maxWorkers < 1)
+            throw new IllegalArgumentException(
+                    "Invalid worker count: " + maxWorkers);
+        List<String> hashes = hashList.getAllHashes();
+        int width = hashes.size();
+        int leaves = HashLevels.upperTwoPower(width);
+        int slots = Math.min(Integer.highestOneBit(maxWorkers), leaves);
+        int span = leaves / slots;
+        int height = Integer.numberOfTrailingZeros(leaves);
+        int used = (width + span - 1) / span;
+        DistributedMerkleTree tree = new DistributedMerkleTree(width, height,
+                Integer.numberOfTrailingZeros(span), new Worker[slots]);
+        try {
+            tree.start(used);
+            for (int k = 0; k < used; k++) {
+                DataOutputStream out = tree.workers[k].out;
+                int from = k * span;
+                int count = Math.min(span, width - from);
+                out.writeByte(MerkleSubtreeWorker.BUILD);
+                out.writeInt(count);
+                out.writeInt(span);
+                for (int i = from; i < from + count; i++)
+                    MerkleSubtreeWorker.writeHash(out, hashes.get(i));
+                out.flush();
+            }
+            String[] roots = new String[slots];
+            for (int k = 0; k < slots; k++) {
+                roots[k] = k < used
+                        ? MerkleSubtreeWorker.readHash(tree.workers[k].in)
+                        : "";
+            }
+            tree.assemble(roots);
+        } catch (IOException | RuntimeException e) {
+            tree.close();
+            throw e;
+        }
+        return tree;
+    }
+
+    /**
+     * Restituisce il classpath dei worker: la posizione da cui è stata
+     * caricata la libreria, che non coincide con il classpath della JVM se
+     * questa è stata avviata, ad esempio, da un launcher eseguibile.
+     */
+    private static String workerClassPath() throws IOException {
+        CodeSource source = MerkleSubtreeWorker.class.getProtectionDomain()
+                .getCodeSource();
+        URL location = source == null ? null : source.getLocation();
+        if (location == null)
+            return System.getProperty("java.class.path");
+        try {
+            return Paths.get(location.toURI()).toString();
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            throw new IOException("Invalid library location: " + location,
+                    e);
+        }
+    }
+
+    /**
+     * Avvia il numero specificato di JVM worker e ne attende le connessioni.
+     */
+    private void start(int count) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin"
+                + File.separator + "java";
+        String classPath = workerClassPath();
+        try (ServerSocket server = new ServerSocket(0, count,
+                InetAddress.getLoopbackAddress())) {
+            server.setSoTimeout(POLL_INTERVAL);
+            for (int k = 0; k < count; k++) {
+                ProcessBuilder pb = new ProcessBuilder(java, "-cp", classPath,
+                        MerkleSubtreeWorker.class.getName(),
+                        server.getInetAddress().getHostAddress(),
+                        Integer.toString(server.getLocalPort()),
+                        Integer.toString(k));
+                pb.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+                pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+                workers[k] = new Worker(pb.start());
+            }
+            // Le connessioni arrivano in ordine qualsiasi: ogni worker invia
+            // per prima cosa la posizione ricevuta all'avvio, così che la
+            // connessione sia associata al suo processo
+            long deadline = System.nanoTime()
+                    + TimeUnit.MILLISECONDS.toNanos(CONNECT_TIMEOUT);
+            for (int k = 0; k < count; k++) {
+                Socket socket = accept(server, count, deadline);
+                try {
+                    socket.setTcpNoDelay(true);
+                    socket.setSoTimeout(CONNECT_TIMEOUT);
+                    DataInputStream in = new DataInputStream(
+                            new BufferedInputStream(socket.getInputStream()));
+                    int slot = in.readInt();
+                    if (slot < 0 || slot >= count
+                            || workers[slot].socket != null)
+                        throw new IOException("Invalid worker slot: " + slot);
+                    socket.setSoTimeout(0);
+                    Worker w = workers[slot];
+                    w.socket = socket;
+                    w.in = in;
+                    w.out = new DataOutputStream(new BufferedOutputStream(
+                            socket.getOutputStream()));
+                } catch (IOException e) {
+                    socket.close();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Attende la prossima connessione, controllando a intervalli regolari che
+     * i worker non ancora connessi siano in esecuzione: un worker terminato
+     * all'avvio fa fallire subito la costruzione con il suo codice di uscita.
+     */
+    private Socket accept(ServerSocket server, int count, long deadline)
+            throws IOException {
+        while (true) {
+            try {
+                return server.accept();
+            } catch (SocketTimeoutException e) {
+                for (int k = 0; k < count; k++) {
+                    Worker w = workers[k];
+                    if (w.socket == null && !w.process.isAlive())
+                        throw new IOException("Worker " + k
+                                + " exited with code "
+                                + w.process.exitValue());
+                }
+                if (System.nanoTime() - deadline > 0)
+                    throw new IOException("Timed out waiting for workers");
+            }
+        }
+    }
+
+    /**
+     * Calcola i livelli superiori a partire dalle radici dei sottoalberi.
+     */
+    private void assemble(String[] roots) {
+        upper[0] = roots;
+        for (int l = 1; l < upper.length; l++) {
+            String[] below = upper[l - 1];
+            String[] level = new String[below.length / 2];
+            for (int j = 0; j < level.length; j++)
+                level[j] = HashLevels.combine(below[2 * j], below[2 * j + 1]);
+            upper[l] = level;
+        }
+    }
+
+    /**
+     * Restituisce l'hash della radice dell'albero.
+     *
+     * @return l'hash della radice.
+     */
+    public String getRootHash() {
+        return upper[upper.length - 1][0];
+    }
+
+    /**
+     * Restituisce la larghezza dell'albero, ovvero il numero di dati.
+     *
+     * @return la larghezza dell'albero.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Restituisce l'altezza dell'albero.
+     *
+     * @return l'altezza dell'albero.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Restituisce il numero di processi worker avviati.
+     *
+     * @return il numero di worker.
+     */
+    public int getWorkerCount() {
+        int count = 0;
+        for (Worker w : workers) {
+            if (w != null)
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * Restituisce l'hash di un nodo dell'albero. I nodi al di sotto delle
+     * radici dei sottoalberi vengono richiesti al worker che li contiene.
+     *
+     * @param level
+     *                  il livello del nodo, 0 per le foglie.
+     * @param index
+     *                  la posizione del nodo nel livello.
+     * @return l'hash del nodo.
+     * @throws IndexOutOfBoundsException
+     *                                       se il nodo non esiste.
+     * @throws IOException
+     *                                       se la comunicazione con il worker
+     *                                       fallisce.
+     */
+    public String getNodeHash(int level, int index) throws IOException {
+        if (level < 0 || level > height || index < 0
+                || index >= 1 << (height - level))
+            throw new IndexOutOfBoundsException(
+                    "Level: " + level + ", Index: " + index);
+        if (level >= spanHeight)
+            return upper[level - spanHeight][index];
+        int perWorker = 1 << (spanHeight - level);
+        Worker w = workers[index / perWorker];
+        if (w == null)
+            return "";
+        synchronized (w) {
+            w.out.writeByte(MerkleSubtreeWorker.NODE);
+            w.out.writeInt(level);
+            w.out.writeInt(index % perWorker);
+            w.out.flush();
+            return MerkleSubtreeWorker.readHash(w.in);
+        }
+    }
+
+    /**
+     * Restituisce la prova di Merkle per il dato nella posizione specificata.
+     * La parte della prova interna al sottoalbero del dato viene richiesta al
+     * worker che lo ha costruito, con un'unica richiesta.
+     *
+     * @param index
+     *                  la posizione del dato, a partire da 0.
+     * @return la prova di Merkle per il dato.
+     * @throws IndexOutOfBoundsException
+     *                                       se la posizione non è compresa
+     *                                       tra 0 e width - 1.
+     * @throws IOException
+     *                                       se la comunicazione con il worker
+     *                                       fallisce.
+     */
+    public MerkleProof getMerkleProofAt(int index) throws IOException {
+        if (index < 0 || index >= width)
+            throw new IndexOutOfBoundsException(
+                    "Index: " + index + ", Width: " + width);
+        MerkleProof proof = new MerkleProof(getRootHash(), height);
+        Worker w = workers[index >> spanHeight];
+        int local = index & ((1 << spanHeight) - 1);
+        synchronized (w) {
+            w.out.writeByte(MerkleSubtreeWorker.PATH);
+            w.out.writeInt(local);
+            w.out.flush();
+            int j = local;
+            for (int l = 0; l < spanHeight; l++) {
+                proof.addHash(MerkleSubtreeWorker.readHash(w.in),
+                        (j & 1) == 1);
+                j >>= 1;
+            }
+        }
+        int j = index >> spanHeight;
+        for (int l = 0; l < upper.length - 1; l++) {
+            proof.addHash(upper[l][j ^ 1], (j & 1) == 1);
+            j >>= 1;
+        }
+        return proof;
+    }
+
+    /**
+     * Chiude le connessioni e termina i processi worker, forzandone la
+     * terminazione se non escono entro pochi secondi.
+     *
+     * @throws IOException
+     *                         se la chiusura di una connessione fallisce.
+     */
+    @Override
+    public void close() throws IOException {
+        for (Worker w : workers) {
+            if (w == null)
+                continue;
+            synchronized (w) {
+                if (w.socket != null) {
+                    try {
+                        w.out.writeByte(MerkleSubtreeWorker.CLOSE);
+                        w.out.flush();
+                    } catch (IOException e) {
+                        // Il worker è già terminato
+                    }
+                    w.socket.close();
+                }
+            }
+        }
+        for (Worker w : workers) {
+            if (w == null)
+                continue;
+            try {
+                if (!w.process.waitFor(5, TimeUnit.SECONDS))
+                    w.process.destroyForcibly();
+            } catch (InterruptedException e) {
+                w.process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Restituisce i processi worker, per verificarne la terminazione.
+     */
+    List<Process> processes() {
+        List<Process> processes = new ArrayList<>();
+        for (Worker w : workers) {
+            if (w != null)
+                processes.add(w.process);
+        }
+        return processes;
+    }
+}
@@ -0,0 +1,115 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per la classe {@link DistributedMerkleTree}. I test avviano
+ * JVM worker reali sulla macchina locale. Di seguito, l'elenco dei test
+ * inclusi con una breve descrizione:
+ *
+ * <ul>
+ * <li>{@link #testMatchesMerkleTree()}: Verifica che radice e nodi coincidano
+ * con quelli di un MerkleTree costruito sugli stessi dati, anche con
+ * intervalli composti solo da riempimento.</li>
+ *
+ * <li>{@link #testProofs()}: Verifica le prove di tutti i dati, composte da
+ * hash richiesti ai worker e hash del coordinatore.</li>
+ *
+ * <li>{@link #testWorkerCount()}: Verifica il numero di worker avviati e la
+ * loro terminazione alla chiusura.</li>
+ *
+ * <li>{@link #testInvalidArguments()}: Verifica che vengano lanciate
+ * eccezioni per argomenti non validi.</li>
+ * </ul>
+ */
+class DistributedMerkleTreeTest {
+
+    private static HashLinkedList<String> listOf(int width) {
+        HashLinkedList<String> list = new HashLinkedList<>();
+        for (int i = 0; i < width; i++)
+            list.addAtTail("Transazione " + i);
+        return list;
+    }
+
+    @Test
+    void testMatchesMerkleTree() throws IOException {
+        HashLinkedList<String> list = listOf(37);
+        MerkleTree<String> expected = new MerkleTree<>(list);
+        try (DistributedMerkleTree tree = DistributedMerkleTree.build(list,
+                4)) {
+            assertEquals(expected.getRoot().getHash(), tree.getRootHash(),
+                    "La radice dovrebbe coincidere con quella del MerkleTree.");
+            assertEquals(37, tree.getWidth());
+            assertEquals(expected.getHeight(), tree.getHeight());
+            assertEquals(3, tree.getWorkerCount(),
+                    "Il quarto intervallo contiene solo riempimento.");
+            assertEquals(expected.getRoot().getLeft().getHash(),
+                    tree.getNodeHash(5, 0));
+            assertEquals(expected.getRoot().getRight().getLeft().getHash(),
+                    tree.getNodeHash(4, 2), "Radice del terzo sottoalbero.");
+            assertEquals(HashUtil.dataToHash("Transazione 36"),
+                    tree.getNodeHash(0, 36), "Foglia richiesta al worker.");
+            assertEquals("", tree.getNodeHash(0, 50),
+                    "Le foglie di riempimento hanno hash vuoto.");
+        }
+    }
+
+    @Test
+    void testProofs() throws IOException {
+        HashLinkedList<String> list = listOf(21);
+        try (DistributedMerkleTree tree = DistributedMerkleTree.build(list,
+                4)) {
+            for (int i = 0; i < 21; i++) {
+                MerkleProof proof = tree.getMerkleProofAt(i);
+                assertEquals(5, proof.getLength());
+                assertTrue(proof.proveValidityOfData("Transazione " + i),
+                        "La prova del dato " + i + " non è valida.");
+                assertFalse(proof.proveValidityOfData("Transazione " + (i + 1)),
+                        "La prova non dovrebbe validare un altro dato.");
+            }
+        }
+    }
+
+    @Test
+    void testWorkerCount() throws IOException {
+        DistributedMerkleTree tree = DistributedMerkleTree.build(listOf(3), 8);
+        assertEquals(new MerkleTree<>(listOf(3)).getRoot().getHash(),
+                tree.getRootHash());
+        assertEquals(3, tree.getWorkerCount(),
+                "Con 3 dati servono 3 worker su 4 intervalli di una foglia.");
+        assertTrue(tree.getMerkleProofAt(2).proveValidityOfData(
+                "Transazione 2"));
+        tree.close();
+        for (Process p : tree.processes())
+            assertFalse(p.isAlive(), "I worker dovrebbero essere terminati.");
+
+        try (DistributedMerkleTree single = DistributedMerkleTree
+                .build(listOf(1), 2)) {
+            assertEquals(HashUtil.dataToHash("Transazione 0"),
+                    single.getRootHash(),
+                    "Con un solo dato la radice è la foglia.");
+            assertEquals(0, single.getMerkleProofAt(0).getLength());
+        }
+    }
+
+    @Test
+    void testInvalidArguments() throws IOException {
+        assertThrows(IllegalArgumentException.class,
+                () -> DistributedMerkleTree.build(null, 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> DistributedMerkleTree.build(new HashLinkedList<>(), 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> DistributedMerkleTree.build(listOf(4), 0));
+        try (DistributedMerkleTree tree = DistributedMerkleTree
+                .build(listOf(4), 2)) {
+            assertThrows(IndexOutOfBoundsException.class,
+                    () -> tree.getMerkleProofAt(4));
+            assertThrows(IndexOutOfBoundsException.class,
+                    () -> tree.getNodeHash(3, 0));
+        }
+    }
+}
@@ -0,0 +1,479 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * Un albero di Merkle per l'integrità di un file, costruito sui blocchi di
+ * dimensione fissa in cui il file è diviso: la foglia i è l'hash MD5 del
+ * contenuto del blocco i, e l'ultimo blocco può essere più corto degli altri.
+ * In alternativa i blocchi possono essere definiti dal contenuto con un
+ * {@link ContentChunker}: in questo caso inserire o rimuovere byte nel file
+ * cambia solo le foglie vicine alla modifica, e
+ * {@link #findMissingChunks(FileMerkleTree)} individua i blocchi da
+ * trasferire per aggiornare una copia. L'albero ha la forma di un
+ * {@link MerkleTree} con riempimento costruito sulle foglie.
+ *
+ * <p>
+ * Il file viene mappato in memoria con {@link FileChannel#map}, in segmenti di
+ * al più 1 GB disposti in modo che nessun blocco sia diviso tra due segmenti:
+ * con blocchi di dimensione fissa i segmenti sono multipli di quella
+ * dimensione, con blocchi definiti dal contenuto due segmenti consecutivi si
+ * sovrappongono per la dimensione massima di un blocco, che non supera metà di
+ * un segmento, per cui i segmenti sono al più il doppio di quelli senza
+ * sovrapposizione. Gli hash dei blocchi vengono calcolati in parallelo,
+ * ciascuno direttamente da una porzione del segmento con
+ * {@link HashUtil#bufferToHash(ByteBuffer)}, senza copiare il contenuto del
+ * file in array intermedi. La mappatura è sempre in sola lettura, così che la sola
+ * verifica non apra mai il file in scrittura: la riparazione di un blocco
+ * scrive nel file con un canale aperto apposta, e la mappatura, condivisa con
+ * il file, ne riflette subito il nuovo contenuto.
+ *
+ * <p>
+ * Poiché le foglie sono hash del contenuto e non di
+ * {@link Object#hashCode()}, una prova restituita da
+ * {@link #getMerkleProof(int)} va verificata con
+ * {@link MerkleProof#proveValidityOfBranch(MerkleNode)} su un nodo con l'hash
+ * del blocco. L'albero permette inoltre di verificare i blocchi del file
+ * rispetto agli hash calcolati alla costruzione e di riparare un blocco
+ * danneggiato con un contenuto il cui hash coincide con quello atteso.
+ * L'albero va chiuso con {@link #close()}.
+ */
+public class FileMerkleTree implements Closeable {
+    private static final int MAX_SEGMENT = 1 << 30;
+
+    private final Path path;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer[] segments;
+
+    /*
+     * Distanza tra gli inizi di due segmenti consecutivi: il blocco che
+     * inizia nella posizione p si trova nel segmento p / segmentStep
+     */
+    private final long segmentStep;
+
+    private final int chunkSize;
+
+    private final long fileSize;
+
+    /*
+     * Posizioni di inizio dei blocchi definiti dal contenuto, seguite dalla
+     * dimensione del file; null se i blocchi hanno dimensione fissa
+     */
+    private final long[] offsets;
+
+    private final int chunkCount;
+
+    private final HashLevels levels;
+
+    private FileMerkleTree(Path path, FileChannel channel,
+            MappedByteBuffer[] segments, long segmentStep, int chunkSize,
+            long fileSize, long[] offsets, int chunkCount) {
+        this.path = path;
+        this.channel = channel;
+        this.segments = segments;
+        this.segmentStep = segmentStep;
+        this.chunkSize = chunkSize;
+        this.fileSize = fileSize;
+        this.offsets = offsets;
+        this.chunkCount = chunkCount;
+        String[] hashes = new String[chunkCount];
+        IntStream.range(0, chunkCount).parallel()
+                .forEach(i -> hashes[i] = HashUtil.bufferToHash(chunk(i)));
+        this.levels = new HashLevels(Arrays.asList(hashes));
+        // Calcola subito i nodi interni: in seguito i livelli vengono solo
+        // letti e possono essere condivisi tra più thread
+        levels.root();
+    }
+
+    /**
+     * Mappa il file in sola lettura e costruisce l'albero sui suoi blocchi.
+     *
+     * @param path
+     *                      il file.
+     * @param chunkSize
+     *                      la dimensione in byte di un blocco, al più 1 GB.
+     * @return l'albero costruito sul file.
+     * @throws IOException
+     *                                      se il file non può essere letto o
+     *                                      mappato.
+     * @throws IllegalArgumentException
+     *                                      se il percorso è null, se il file
+     *                                      è vuoto, se la dimensione dei
+     *                                      blocchi non è valida o se il file
+     *                                      ha più di Integer.MAX_VALUE
+     *                                      blocchi.
+     */
+    static FileMerkleTree open(Path path, int chunkSize) throws IOException {
+        return open(path, chunkSize, MAX_SEGMENT);
+    }
+
+    /**
+     * Come {@link #open(Path, int)}, con una dimensione massima dei segmenti
+     * specificata, per verificare la divisione in segmenti su file piccoli.
+     */
+    static FileMerkleTree open(Path path, int chunkSize, int maxSegment)
+            throws IOException {
+        if (path == null)
+            throw new IllegalArgumentException("The path is null");
+        if (chunkSize < 1 || chunkSize > maxSegment)
+            throw new IllegalArgumentException(
+                    "Invalid chunk size: " + chunkSize);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            long chunks = (size + chunkSize - 1) / chunkSize;
+            if (chunks == 0)
+                throw new IllegalArgumentException("The file is empty");
+            if (chunks > Integer.MAX_VALUE)
+                throw new IllegalArgumentException(
+                        "Too many chunks: " + chunks);
+            long segmentSize = (long) (maxSegment / chunkSize) * chunkSize;
+            MappedByteBuffer[] segments = map(channel, size, segmentSize,
+                    segmentSize);
+            return new FileMerkleTree(path, channel, segments, segmentSize,
+                    chunkSize, size, null, (int) chunks);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Mappa il file in sola lettura e costruisce l'albero sui blocchi
+     * definiti dal contenuto dal divisore specificato.
+     *
+     * @param path
+     *                    il file.
+     * @param chunker
+     *                    il divisore, con dimensione massima dei blocchi
+     *                    al più 512 MB.
+     * @return l'albero costruito sul file.
+     * @throws IOException
+     *                                      se il file non può essere letto o
+     *                                      mappato.
+     * @throws IllegalArgumentException
+     *                                      se il percorso o il divisore sono
+     *                                      null, se il file è vuoto, se la
+     *                                      dimensione massima dei blocchi non
+     *                                      è valida o se il file ha più di
+     *                                      Integer.MAX_VALUE blocchi.
+     */
+    static FileMerkleTree open(Path path, ContentChunker chunker)
+            throws IOException {
+        return open(path, chunker, MAX_SEGMENT);
+    }
+
+    /**
+     * Come {@link #open(Path, ContentChunker)}, con una dimensione massima dei
+     * segmenti specificata, per verificare la divisione in segmenti su file
+     * piccoli.
+     */
+    static FileMerkleTree open(Path path, ContentChunker chunker,
+            int maxSegment) throws IOException {
+        if (path == null)
+            throw new IllegalArgumentException("The path is null");
+        if (chunker == null)
+            throw new IllegalArgumentException("The chunker is null");
+        // Con blocchi fino a metà segmento i segmenti iniziano almeno ogni
+        // mezzo segmento, per cui il loro numero resta proporzionale alla
+        // dimensione del file divisa per quella dei segmenti
+        int maxChunk = chunker.getMaxSize();
+        if (maxChunk > maxSegment / 2)
+            throw new IllegalArgumentException(
+                    "Invalid chunk size: " + maxChunk);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size == 0)
+                throw new IllegalArgumentException("The file is empty");
+            // Ogni segmento si estende oltre l'inizio del successivo per la
+            // dimensione massima di un blocco
+            long step = maxSegment - maxChunk;
+            MappedByteBuffer[] segments = map(channel, size, step,
+                    maxSegment);
+            // I confini dipendono dai blocchi precedenti e vanno trovati in
+            // ordine; solo gli hash sono poi calcolati in parallelo
+            LongStream.Builder bounds = LongStream.builder();
+            bounds.add(0);
+            long chunks = 0;
+            for (long p = 0; p < size; chunks++) {
+                if (chunks == Integer.MAX_VALUE)
+                    throw new IllegalArgumentException(
+                            "Too many chunks: " + (chunks + 1));
+                int s = (int) (p / step);
+                p += chunker.nextChunkLength(segments[s], (int) (p - s * step),
+                        (int) Math.min(maxChunk, size - p));
+                bounds.add(p);
+            }
+            return new FileMerkleTree(path, channel, segments, step, maxChunk,
+                    size, bounds.build().toArray(), (int) chunks);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Mappa il file in sola lettura in segmenti lunghi al più segmentSize
+     * byte, che iniziano ogni step byte.
+     */
+    private static MappedByteBuffer[] map(FileChannel channel, long size,
+            long step, long segmentSize) throws IOException {
+        MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + step
+                - 1) / step)];
+        for (int s = 0; s < segments.length; s++) {
+            long offset = s * step;
+            segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                    Math.min(segmentSize, size - offset));
+        }
+        return segments;
+    }
+
+    /**
+     * Restituisce una porzione della mappatura con il contenuto del blocco
+     * specificato. Ogni chiamata restituisce una porzione indipendente, per
+     * cui più thread possono leggere blocchi diversi contemporaneamente.
+     */
+    private ByteBuffer chunk(int index) {
+        long offset = chunkOffset(index);
+        int s = (int) (offset / segmentStep);
+        return segments[s].slice((int) (offset - s * segmentStep),
+                chunkLength(index));
+    }
+
+    private long chunkOffset(int index) {
+        return offsets == null ? (long) index * chunkSize : offsets[index];
+    }
+
+    private int chunkLength(int index) {
+        if (offsets == null)
+            return (int) Math.min(chunkSize,
+                    fileSize - (long) index * chunkSize);
+        return (int) (offsets[index + 1] - offsets[index]);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= chunkCount)
+            throw new IndexOutOfBoundsException(
+                    "Index: " + index + ", Chunks: " + chunkCount);
+    }
+
+    /**
+     * Restituisce l'hash della radice dell'albero.
+     *
+     * @return l'hash della radice.
+     */
+    public String getRootHash() {
+        return levels.root();
+    }
+
+    /**
+     * Restituisce l'altezza dell'albero.
+     *
+     * @return l'altezza dell'albero.
+     */
+    public int getHeight() {
+        return levels.height();
+    }
+
+    /**
+     * Restituisce la dimensione in byte di un blocco, o la dimensione massima
+     * se i blocchi sono definiti dal contenuto.
+     *
+     * @return la dimensione di un blocco.
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Restituisce il numero di blocchi del file, ovvero la larghezza
+     * dell'albero.
+     *
+     * @return il numero di blocchi.
+     */
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    /**
+     * Restituisce la dimensione in byte del file alla costruzione.
+     *
+     * @return la dimensione del file.
+     */
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    /**
+     * Restituisce la posizione nel file dell'inizio del blocco specificato.
+     *
+     * @param index
+     *                  la posizione del blocco.
+     * @return la posizione in byte dell'inizio del blocco.
+     * @throws IndexOutOfBoundsException
+     *                                       se il blocco non esiste.
+     */
+    public long getChunkOffset(int index) {
+        checkIndex(index);
+        return chunkOffset(index);
+    }
+
+    /**
+     * Restituisce la lunghezza in byte del blocco specificato.
+     *
+     * @param index
+     *                  la posizione del blocco.
+     * @return la lunghezza del blocco.
+     * @throws IndexOutOfBoundsException
+     *                                       se il blocco non esiste.
+     */
+    public int getChunkLength(int index) {
+        checkIndex(index);
+        return chunkLength(index);
+    }
+
+    /**
+     * Restituisce l'hash atteso del blocco specificato, calcolato alla
+     * costruzione dell'albero.
+     *
+     * @param index
+     *                  la posizione del blocco.
+     * @return l'hash del blocco.
+     * @throws IndexOutOfBoundsException
+     *                                       se il blocco non esiste.
+     */
+    public String getChunkHash(int index) {
+        checkIndex(index);
+        return levels.hashAt(0, index);
+    }
+
+    /**
+     * Restituisce la prova di Merkle per il blocco specificato.
+     *
+     * @param index
+     *                  la posizione del blocco.
+     * @return la prova di Merkle per il blocco.
+     * @throws IndexOutOfBoundsException
+     *                                       se il blocco non esiste.
+     */
+    public MerkleProof getMerkleProof(int index) {
+        return levels.proof(index);
+    }
+
+    /**
+     * Verifica che il contenuto attuale del blocco specificato abbia l'hash
+     * calcolato alla costruzione dell'albero.
+     *
+     * @param index
+     *                  la posizione del blocco.
+     * @return true se il blocco è integro; false altrimenti.
+     * @throws IndexOutOfBoundsException
+     *                                       se il blocco non esiste.
+     */
+    public boolean verifyChunk(int index) {
+        checkIndex(index);
+        return HashUtil.bufferToHash(chunk(index))
+                .equals(levels.hashAt(0, index));
+    }
+
+    /**
+     * Verifica in parallelo tutti i blocchi del file.
+     *
+     * @return l'insieme ordinato delle posizioni dei blocchi danneggiati.
+     */
+    public Set<Integer> findCorruptChunks() {
+        return IntStream.range(0, chunkCount).parallel()
+                .filter(i -> !verifyChunk(i)).boxed()
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    /**
+     * Restituisce le posizioni dei blocchi di questo albero il cui hash non
+     * compare tra quelli dell'altro albero, ovvero i blocchi da trasferire
+     * per ricostruire questo file a partire dal contenuto dell'altro. A
+     * differenza di {@link MerkleTree#findInvalidDataIndices(MerkleTree)} il
+     * confronto non dipende dalla posizione dei blocchi, per cui con blocchi
+     * definiti dal contenuto un inserimento nel file non rende diversi i
+     * blocchi che lo seguono.
+     *
+     * @param other
+     *                  l'albero costruito sull'altro file.
+     * @return l'insieme ordinato delle posizioni dei blocchi mancanti
+     *         nell'altro albero.
+     * @throws IllegalArgumentException
+     *                                      se l'altro albero è null.
+     */
+    public Set<Integer> findMissingChunks(FileMerkleTree other) {
+        if (other == null)
+            throw new IllegalArgumentException("The other tree is null");
+        Set<Integer> missing = new TreeSet<>();
+        if (other.getRootHash().equals(getRootHash()))
+            return missing;
+        Set<String> known = IntStream.range(0, other.chunkCount)
+                .mapToObj(i -> other.levels.hashAt(0, i))
+                .collect(Collectors.toSet());
+        for (int i = 0; i < chunkCount; i++)
+            if (!known.contains(levels.hashAt(0, i)))
+                missing.add(i);
+        return missing;
+    }
+
+    /**
+     * Ripara il blocco specificato scrivendo nel file il contenuto fornito,
+     * ad esempio ottenuto da una replica, dopo aver verificato che il suo
+     * hash coincida con quello atteso. Il contenuto viene scritto con un
+     * canale aperto in scrittura solo per la riparazione.
+     *
+     * @param index
+     *                  la posizione del blocco.
+     * @param data
+     *                  il contenuto corretto del blocco.
+     * @throws IndexOutOfBoundsException
+     *                                       se il blocco non esiste.
+     * @throws IllegalArgumentException
+     *                                       se il contenuto è null, ha una
+     *                                       lunghezza diversa da quella del
+     *                                       blocco o un hash diverso da quello
+     *                                       atteso.
+     * @throws IOException
+     *                                       se il file non può essere aperto
+     *                                       in scrittura o scritto.
+     */
+    public void repairChunk(int index, byte[] data) throws IOException {
+        checkIndex(index);
+        if (data == null || data.length != chunkLength(index))
+            throw new IllegalArgumentException(
+                    "The data does not have the chunk length");
+        if (!HashUtil.computeMD5(data).equals(levels.hashAt(0, index)))
+            throw new IllegalArgumentException(
+                    "The data does not match the chunk hash");
+        try (FileChannel out = FileChannel.open(path,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            long position = chunkOffset(index);
+            while (buffer.hasRemaining())
+                position += out.write(buffer, position);
+            out.force(false);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
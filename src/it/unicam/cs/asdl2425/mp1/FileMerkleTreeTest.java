@@ -0,0 +1,236 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per la classe {@link FileMerkleTree}. Di seguito, l'elenco
+ * dei test inclusi con una breve descrizione:
+ *
+ * <ul>
+ * <li>{@link #testRoot()}: Verifica che le foglie siano gli hash dei blocchi,
+ * compreso l'ultimo blocco più corto, e che la radice sia calcolata come in
+ * un {@link MerkleTree} con riempimento.</li>
+ *
+ * <li>{@link #testProofs()}: Verifica le prove di tutti i blocchi di un file
+ * mappato in più segmenti.</li>
+ *
+ * <li>{@link #testVerifyAndRepair()}: Verifica che un blocco danneggiato sul
+ * disco venga rilevato e che la riparazione con il contenuto corretto lo
+ * renda di nuovo integro.</li>
+ *
+ * <li>{@link #testContentDefined()}: Verifica i blocchi definiti dal
+ * contenuto di un file mappato in più segmenti e che, dopo un inserimento
+ * nel file, solo i blocchi vicini alla modifica manchino nell'albero del file
+ * originale.</li>
+ *
+ * <li>{@link #testInvalidArguments()}: Verifica che vengano lanciate
+ * eccezioni per argomenti non validi.</li>
+ * </ul>
+ */
+class FileMerkleTreeTest {
+
+    private Path file;
+
+    private byte[] content;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = Files.createTempFile("merkle", ".data");
+        content = new byte[10_000];
+        new Random(42).nextBytes(content);
+        Files.write(file, content);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private String chunkHash(int from, int to) {
+        return HashUtil.computeMD5(Arrays.copyOfRange(content, from, to));
+    }
+
+    @Test
+    void testRoot() throws IOException {
+        try (FileMerkleTree tree = MerkleTree.ofFile(file, 4096)) {
+            assertEquals(3, tree.getChunkCount());
+            assertEquals(10_000, tree.getFileSize());
+            assertEquals(4096, tree.getChunkSize());
+            assertEquals(2, tree.getHeight());
+            String h0 = chunkHash(0, 4096);
+            String h1 = chunkHash(4096, 8192);
+            String h2 = chunkHash(8192, 10_000);
+            assertEquals(h2, tree.getChunkHash(2),
+                    "L'ultimo blocco è più corto degli altri.");
+            String expected = HashUtil.computeMD5((HashUtil.computeMD5(
+                    (h0 + h1).getBytes()) + HashUtil.computeMD5(h2.getBytes()))
+                    .getBytes());
+            assertEquals(expected, tree.getRootHash(),
+                    "La radice dovrebbe essere calcolata con riempimento.");
+        }
+        try (FileMerkleTree single = MerkleTree.ofFile(file, 10_000)) {
+            assertEquals(chunkHash(0, 10_000), single.getRootHash(),
+                    "Con un solo blocco la radice è la foglia.");
+        }
+    }
+
+    @Test
+    void testProofs() throws IOException {
+        // Segmenti di 3 blocchi da 512 byte
+        try (FileMerkleTree tree = FileMerkleTree.open(file, 512, 1600)) {
+            assertEquals(20, tree.getChunkCount());
+            for (int i = 0; i < 20; i++) {
+                String hash = chunkHash(i * 512,
+                        Math.min((i + 1) * 512, content.length));
+                assertEquals(hash, tree.getChunkHash(i),
+                        "Hash errato per il blocco " + i);
+                MerkleProof proof = tree.getMerkleProof(i);
+                assertEquals(tree.getRootHash(), proof.getRootHash());
+                assertTrue(proof.proveValidityOfBranch(new MerkleNode(hash)),
+                        "La prova del blocco " + i + " non è valida.");
+                assertFalse(proof.proveValidityOfBranch(
+                        new MerkleNode(chunkHash(0, 1))));
+            }
+            try (FileMerkleTree whole = MerkleTree.ofFile(file, 512)) {
+                assertEquals(whole.getRootHash(), tree.getRootHash(),
+                        "La divisione in segmenti non dovrebbe cambiare la "
+                                + "radice.");
+            }
+        }
+    }
+
+    @Test
+    void testVerifyAndRepair() throws IOException {
+        try (FileMerkleTree tree = MerkleTree.ofFile(file, 1000)) {
+            assertTrue(tree.findCorruptChunks().isEmpty());
+            // Il file viene modificato sul posto, senza troncarlo
+            byte[] damaged = content.clone();
+            damaged[3500] ^= 1;
+            damaged[9999] ^= 1;
+            try (FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap(damaged, 3500, 1), 3500);
+                channel.write(ByteBuffer.wrap(damaged, 9999, 1), 9999);
+            }
+            assertFalse(tree.verifyChunk(3));
+            assertTrue(tree.verifyChunk(4));
+            assertEquals(Set.of(3, 9), tree.findCorruptChunks());
+
+            byte[] wrong = Arrays.copyOfRange(damaged, 3000, 4000);
+            assertThrows(IllegalArgumentException.class,
+                    () -> tree.repairChunk(3, wrong),
+                    "Un contenuto con hash diverso non dovrebbe essere "
+                            + "scritto.");
+            assertThrows(IllegalArgumentException.class,
+                    () -> tree.repairChunk(3, new byte[10]));
+            tree.repairChunk(3, Arrays.copyOfRange(content, 3000, 4000));
+            tree.repairChunk(9, Arrays.copyOfRange(content, 9000, 10_000));
+            assertTrue(tree.findCorruptChunks().isEmpty());
+        }
+        assertArrayEquals(content, Files.readAllBytes(file),
+                "Il file riparato dovrebbe coincidere con l'originale.");
+    }
+
+    @Test
+    void testContentDefined() throws IOException {
+        ContentChunker chunker = new ContentChunker(64, 256, 1024);
+        // Segmenti di 2048 byte che iniziano ogni 1024 byte
+        try (FileMerkleTree tree = FileMerkleTree.open(file, chunker, 2048)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            long offset = 0;
+            for (int i = 0; i < tree.getChunkCount(); i++) {
+                int length = chunker.nextChunkLength(buffer, (int) offset,
+                        (int) Math.min(1024, content.length - offset));
+                assertEquals(offset, tree.getChunkOffset(i));
+                assertEquals(length, tree.getChunkLength(i),
+                        "Lunghezza errata per il blocco " + i);
+                String hash = chunkHash((int) offset, (int) offset + length);
+                assertEquals(hash, tree.getChunkHash(i));
+                assertTrue(tree.getMerkleProof(i)
+                        .proveValidityOfBranch(new MerkleNode(hash)));
+                assertTrue(tree.verifyChunk(i));
+                offset += length;
+            }
+            assertEquals(content.length, offset,
+                    "I blocchi dovrebbero coprire il file.");
+            assertEquals(1024, tree.getChunkSize());
+
+            Path edited = Files.createTempFile("merkle", ".data");
+            try {
+                byte[] inserted = new byte[content.length + 5];
+                System.arraycopy(content, 0, inserted, 0, 4000);
+                System.arraycopy(content, 4000, inserted, 4005, 6000);
+                Files.write(edited, inserted);
+                try (FileMerkleTree other = MerkleTree.ofFile(edited,
+                        chunker)) {
+                    Set<Integer> missing = other.findMissingChunks(tree);
+                    assertFalse(missing.isEmpty());
+                    assertTrue(missing.size() <= 2,
+                            "Solo i blocchi vicini all'inserimento dovrebbero "
+                                    + "mancare: " + missing);
+                    for (int i : missing)
+                        assertTrue(other.getChunkOffset(i) <= 4005
+                                && other.getChunkOffset(i)
+                                        + other.getChunkLength(i) >= 4000);
+                    assertTrue(tree.findMissingChunks(tree).isEmpty());
+                }
+                try (FileMerkleTree fixed = MerkleTree.ofFile(edited, 256);
+                        FileMerkleTree original = MerkleTree.ofFile(file,
+                                256)) {
+                    assertTrue(fixed.findMissingChunks(original).size() > 20,
+                            "Con blocchi fissi l'inserimento sposta tutti i "
+                                    + "blocchi successivi.");
+                }
+            } finally {
+                Files.delete(edited);
+            }
+        }
+    }
+
+    @Test
+    void testInvalidArguments() throws IOException {
+        assertThrows(IllegalArgumentException.class,
+                () -> MerkleTree.ofFile(null, 4096));
+        assertThrows(IllegalArgumentException.class,
+                () -> MerkleTree.ofFile(file, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> MerkleTree.ofFile(file, (ContentChunker) null));
+        assertThrows(IllegalArgumentException.class,
+                () -> FileMerkleTree.open(file,
+                        new ContentChunker(64, 256, 1024), 2047),
+                "Un blocco deve essere lungo al più metà di un segmento.");
+        Path empty = Files.createTempFile("merkle", ".data");
+        try {
+            assertThrows(IllegalArgumentException.class,
+                    () -> MerkleTree.ofFile(empty, 4096));
+        } finally {
+            Files.delete(empty);
+        }
+        try (FileMerkleTree tree = MerkleTree.ofFile(file, 4096)) {
+            assertThrows(IndexOutOfBoundsException.class,
+                    () -> tree.verifyChunk(3));
+            assertThrows(IndexOutOfBoundsException.class,
+                    () -> tree.getMerkleProof(-1));
+            assertThrows(IllegalArgumentException.class,
+                    () -> tree.repairChunk(0, null));
+            assertThrows(IllegalArgumentException.class,
+                    () -> tree.findMissingChunks(null));
+            assertThrows(IndexOutOfBoundsException.class,
+                    () -> tree.getChunkOffset(3));
+        }
+    }
+}
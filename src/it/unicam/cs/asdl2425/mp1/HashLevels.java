@@ -0,0 +1,266 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Rappresentazione modificabile di un albero di Merkle come array di hash, uno
+ * per livello, con i figli del nodo j nelle posizioni 2j e 2j + 1 del livello
+ * inferiore. L'albero ha la stessa forma e gli stessi hash di un
+ * {@link MerkleTree} costruito sulle stesse foglie, compreso il riempimento
+ * con foglie vuote fino alla potenza di due successiva.
+ *
+ * <p>
+ * Le modifiche non vengono applicate subito, ma accumulate marcando come
+ * sporche le foglie interessate: alla prima richiesta della radice o di una
+ * prova, ogni nodo interno che ha almeno un discendente sporco viene
+ * ricalcolato una sola volta. Una sostituzione o un inserimento in coda
+ * sporcano un'unica foglia e costano quindi O(log n); un inserimento o una
+ * rimozione in mezzo spostano invece tutte le foglie successive, per cui vanno
+ * ricalcolati i cammini di tutte le foglie da quella posizione in poi.
+ *
+ * <p>
+ * Il numero di foglie allocate è una potenza di due maggiore o uguale alla
+ * larghezza e viene raddoppiato o dimezzato con isteresi, così che una
+ * larghezza che oscilla attorno a una potenza di due non causi continue
+ * riallocazioni: la radice è il primo nodo del livello pari all'altezza
+ * dell'albero.
+ */
+class HashLevels {
+    /**
+     * I livelli dell'albero, dal livello delle foglie (0) alla cima.
+     */
+    private String[][] levels;
+
+    /**
+     * Numero di foglie corrispondenti a dati, escluse quelle di riempimento.
+     */
+    private int width;
+
+    /**
+     * Foglie sostituite o aggiunte dall'ultimo ricalcolo.
+     */
+    private final BitSet dirtyLeaves;
+
+    /**
+     * Posizione della prima foglia spostata dall'ultimo ricalcolo, o
+     * Integer.MAX_VALUE se nessuna foglia è stata spostata.
+     */
+    private int dirtyFrom;
+
+    /**
+     * Costruisce l'albero sulle foglie fornite. Gli hash interni vengono
+     * calcolati alla prima richiesta.
+     *
+     * @param hashes
+     *                   gli hash delle foglie, in ordine.
+     */
+    HashLevels(List<String> hashes) {
+        this.dirtyLeaves = new BitSet();
+        this.levels = new String[][] { new String[0] };
+        resize(upperTwoPower(hashes.size()));
+        for (String hash : hashes)
+            levels[0][width++] = hash;
+        this.dirtyFrom = 0;
+    }
+
+    /**
+     * Costruisce l'albero a partire da livelli già calcolati, ad esempio letti
+     * da uno snapshot, senza ricalcolare alcun hash. Gli array vengono
+     * adottati senza copia.
+     *
+     * @param levels
+     *                   i livelli dell'albero, dalle foglie alla radice; il
+     *                   livello delle foglie ha dimensione pari a una potenza
+     *                   di due.
+     * @param width
+     *                   il numero di foglie corrispondenti a dati.
+     */
+    HashLevels(String[][] levels, int width) {
+        this.dirtyLeaves = new BitSet();
+        this.levels = levels;
+        this.width = width;
+        this.dirtyFrom = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Restituisce il numero di foglie corrispondenti a dati.
+     */
+    int width() {
+        return width;
+    }
+
+    /**
+     * Restituisce l'altezza dell'albero, uguale a quella di un
+     * {@link MerkleTree} costruito sulle stesse foglie.
+     */
+    int height() {
+        return width <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(width - 1);
+    }
+
+    /**
+     * Restituisce l'hash della radice, ricalcolando prima i nodi interessati
+     * dalle modifiche in sospeso, o null se l'albero è vuoto.
+     */
+    String root() {
+        if (width == 0)
+            return null;
+        flush();
+        return levels[height()][0];
+    }
+
+    /**
+     * Restituisce l'hash di un nodo, ricalcolando prima i nodi interessati
+     * dalle modifiche in sospeso.
+     *
+     * @param level
+     *                  il livello del nodo, 0 per le foglie.
+     * @param index
+     *                  la posizione del nodo nel livello.
+     */
+    String hashAt(int level, int index) {
+        flush();
+        return levels[level][index];
+    }
+
+    /**
+     * Restituisce la prova di Merkle per la foglia nella posizione
+     * specificata, rispetto alla radice corrente.
+     *
+     * @throws IndexOutOfBoundsException
+     *                                       se la posizione non è compresa
+     *                                       tra 0 e width - 1.
+     */
+    MerkleProof proof(int index) {
+        if (index < 0 || index >= width)
+            throw new IndexOutOfBoundsException(
+                    "Index: " + index + ", Width: " + width);
+        String root = root();
+        int height = height();
+        MerkleProof proof = new MerkleProof(root, height);
+        int j = index;
+        for (int l = 0; l < height; l++) {
+            proof.addHash(levels[l][j ^ 1], (j & 1) == 1);
+            j >>= 1;
+        }
+        return proof;
+    }
+
+    /**
+     * Sostituisce l'hash della foglia nella posizione specificata.
+     */
+    void set(int index, String hash) {
+        if (index < 0 || index >= width)
+            throw new IndexOutOfBoundsException(
+                    "Index: " + index + ", Width: " + width);
+        levels[0][index] = hash;
+        dirtyLeaves.set(index);
+    }
+
+    /**
+     * Inserisce una foglia nella posizione specificata, spostando in avanti
+     * le successive.
+     */
+    void insert(int index, String hash) {
+        if (index < 0 || index > width)
+            throw new IndexOutOfBoundsException(
+                    "Index: " + index + ", Width: " + width);
+        if (width == levels[0].length)
+            resize(Math.max(1, 2 * width));
+        String[] leaves = levels[0];
+        System.arraycopy(leaves, index, leaves, index + 1, width - index);
+        leaves[index] = hash;
+        width++;
+        if (index == width - 1)
+            dirtyLeaves.set(index);
+        else
+            dirtyFrom = Math.min(dirtyFrom, index);
+    }
+
+    /**
+     * Rimuove la foglia nella posizione specificata, spostando indietro le
+     * successive.
+     */
+    void remove(int index) {
+        if (index < 0 || index >= width)
+            throw new IndexOutOfBoundsException(
+                    "Index: " + index + ", Width: " + width);
+        String[] leaves = levels[0];
+        System.arraycopy(leaves, index + 1, leaves, index, width - index - 1);
+        width--;
+        leaves[width] = "";
+        dirtyFrom = Math.min(dirtyFrom, index);
+        if (width > 0 && width <= leaves.length / 4)
+            resize(leaves.length / 2);
+    }
+
+    /**
+     * Porta il numero di foglie alla capacità specificata, copiando i nodi già
+     * calcolati e aggiungendo nodi vuoti di riempimento. Aumentando la
+     * capacità cambia solo la cima dell'albero, che viene ricalcolata
+     * marcando come sporca la prima foglia.
+     */
+    private void resize(int capacity) {
+        int height = Integer.numberOfTrailingZeros(capacity);
+        String[][] resized = new String[height + 1][];
+        for (int l = 0; l <= height; l++) {
+            resized[l] = new String[capacity >> l];
+            Arrays.fill(resized[l], "");
+            if (l < levels.length)
+                System.arraycopy(levels[l], 0, resized[l], 0,
+                        Math.min(levels[l].length, resized[l].length));
+        }
+        levels = resized;
+        dirtyLeaves.set(0);
+    }
+
+    /**
+     * Ricalcola, livello per livello, ogni nodo interno con almeno un figlio
+     * modificato. Ciascun nodo viene ricalcolato una sola volta, anche se più
+     * foglie sotto di esso sono state modificate.
+     */
+    private void flush() {
+        if (dirtyFrom == Integer.MAX_VALUE && dirtyLeaves.isEmpty())
+            return;
+        BitSet dirty = dirtyLeaves;
+        int from = dirtyFrom;
+        int end = levels[0].length;
+        for (int l = 1; l < levels.length; l++) {
+            BitSet parents = new BitSet();
+            for (int i = dirty.nextSetBit(0); i >= 0 && i < from;
+                    i = dirty.nextSetBit(i + 1))
+                parents.set(i >> 1);
+            from = from == Integer.MAX_VALUE ? from : from >> 1;
+            end >>= 1;
+            String[] below = levels[l - 1];
+            String[] level = levels[l];
+            for (int j = parents.nextSetBit(0); j >= 0 && j < from;
+                    j = parents.nextSetBit(j + 1))
+                level[j] = combine(below[2 * j], below[2 * j + 1]);
+            for (int j = from; j < end; j++)
+                level[j] = combine(below[2 * j], below[2 * j + 1]);
+            dirty = parents;
+        }
+        dirtyLeaves.clear();
+        dirtyFrom = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Combina gli hash di due figli come in {@link MerkleTree}: due nodi di
+     * riempimento danno un nodo di riempimento, altrimenti si applica MD5 alla
+     * concatenazione.
+     */
+    static String combine(String left, String right) {
+        if (left.isEmpty() && right.isEmpty())
+            return "";
+        return HashUtil.computeMD5((left + right).getBytes());
+    }
+
+    static int upperTwoPower(int n) {
+        int result = 1;
+        while (result < n)
+            result *= 2;
+        return result;
+    }
+}
@@ -1,8 +1,21 @@
 package it.unicam.cs.asdl2425.mp1;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Una classe che rappresenta una lista concatenata con il calcolo degli hash
@@ -15,15 +28,31 @@ import java.util.Iterator;
  * <li>Aggiungere un elemento in testa alla lista</li>
  * <li>Aggiungere un elemento in coda alla lista</li>
  * <li>Rimuovere un elemento dalla lista in base al dato</li>
+ * <li>Leggere, inserire, rimuovere e sostituire un elemento in base alla sua
+ * posizione</li>
  * <li>Recuperare una lista ordinata di tutti gli hash contenuti nella
  * lista</li>
- * <li>Costruire una rappresentazione testuale della lista</li>
+ * <li>Costruire una rappresentazione testuale della lista, anche in streaming
+ * verso una destinazione esterna in formato testo, CSV o JSON Lines</li>
+ * <li>Notificare ogni modifica agli ascoltatori registrati, ad esempio per
+ * mantenere aggiornato un {@link LiveMerkleTree}</li>
+ * <li>Scorrere la lista, anche in parallelo, tramite stream dei dati o delle
+ * coppie (dato, hash)</li>
  * </ul>
  *
  * <p>
  * Questa implementazione include ottimizzazioni come il mantenimento di un
  * riferimento all'ultimo nodo della lista (tail), che rende l'inserimento in
- * coda un'operazione O(1).
+ * coda un'operazione O(1) in media.
+ *
+ * <p>
+ * Per l'accesso posizionale, la lista concatenata costituisce il livello più
+ * basso di una skip list indicizzabile: alcuni nodi, scelti a caso con
+ * probabilità 1/4 per ogni livello, hanno anche collegamenti ai livelli
+ * superiori che saltano molti nodi. Ogni collegamento memorizza la propria
+ * ampiezza, ovvero il numero di posizioni che salta, così che la posizione
+ * i-esima possa essere raggiunta in tempo O(log n) atteso. Gli hash e i dati
+ * restano memorizzati solo nei nodi del livello più basso.
  *
  * <p>
  * La classe utilizza la classe HashUtil per calcolare l'hash MD5 dei dati.
@@ -36,21 +65,118 @@ import java.util.Iterator;
  * 
  */
 public class HashLinkedList<T> implements Iterable<T> {
-    private Node head; // Primo nodo della lista
+    /**
+     * Numero massimo di livelli superiori della skip list. Con probabilità di
+     * promozione 1/4 è sufficiente per liste di qualsiasi dimensione int.
+     */
+    private static final int MAX_LEVEL = 16;
+
+    private final Node header; // Sentinella, header.next è il primo nodo
 
     private Node tail; // Ultimo nodo della lista
 
+    private int levels; // Numero di livelli superiori in uso
+
+    private final Node[] lastAt; // Ultimo nodo di ogni livello superiore
+
+    private final int[] lastRank; // Posizione dei nodi in lastAt
+
     private int size; // Numero di nodi della lista
 
     private int numeroModifiche; // Numero di modifiche effettuate sulla lista
                                  // per l'implementazione dell'iteratore
                                  // fail-fast
 
+    private final List<ChangeListener<? super T>> listeners; // Ascoltatori
+
     public HashLinkedList() {
-        this.head = null;
+        this.header = new Node(MAX_LEVEL);
         this.tail = null;
         this.size = 0;
         this.numeroModifiche = 0;
+        this.levels = 0;
+        this.lastAt = newNodeArray(MAX_LEVEL);
+        this.lastRank = new int[MAX_LEVEL];
+        Arrays.fill(lastAt, header);
+        Arrays.fill(lastRank, -1);
+        this.listeners = new ArrayList<>();
+    }
+
+    /**
+     * Ascoltatore delle modifiche di una HashLinkedList. Ogni metodo viene
+     * invocato in modo sincrono, a modifica già avvenuta, con la posizione
+     * interessata e l'hash già calcolato dalla lista, così che l'ascoltatore
+     * non debba ricalcolarlo. Gli inserimenti in testa e in coda sono
+     * notificati come inserimenti in posizione 0 e size - 1, la rimozione per
+     * dato come rimozione nella posizione in cui il dato si trovava.
+     *
+     * @param <T>
+     *                il tipo dei dati della lista osservata.
+     */
+    public interface ChangeListener<T> {
+        /**
+         * Notifica l'inserimento di un dato nella posizione specificata.
+         *
+         * @param index
+         *                  la posizione del nuovo dato.
+         * @param data
+         *                  il dato inserito.
+         * @param hash
+         *                  l'hash del dato inserito.
+         */
+        void inserted(int index, T data, String hash);
+
+        /**
+         * Notifica la rimozione del dato nella posizione specificata.
+         *
+         * @param index
+         *                  la posizione in cui si trovava il dato.
+         * @param data
+         *                  il dato rimosso.
+         * @param hash
+         *                  l'hash del dato rimosso.
+         */
+        void removed(int index, T data, String hash);
+
+        /**
+         * Notifica la sostituzione del dato nella posizione specificata.
+         *
+         * @param index
+         *                    la posizione del dato sostituito.
+         * @param oldData
+         *                    il dato precedente.
+         * @param data
+         *                    il nuovo dato.
+         * @param hash
+         *                    l'hash del nuovo dato.
+         */
+        void replaced(int index, T oldData, T data, String hash);
+    }
+
+    /**
+     * Registra un ascoltatore che verrà notificato di ogni modifica
+     * successiva della lista.
+     *
+     * @param listener
+     *                     l'ascoltatore da registrare.
+     * @throws IllegalArgumentException
+     *                                      se l'ascoltatore è null.
+     */
+    public void addChangeListener(ChangeListener<? super T> listener) {
+        if (listener == null)
+            throw new IllegalArgumentException("The listener is null");
+        listeners.add(listener);
+    }
+
+    /**
+     * Rimuove un ascoltatore precedentemente registrato.
+     *
+     * @param listener
+     *                     l'ascoltatore da rimuovere.
+     * @return true se l'ascoltatore era registrato, false altrimenti.
+     */
+    public boolean removeChangeListener(ChangeListener<? super T> listener) {
+        return listeners.remove(listener);
     }
 
     /**
@@ -63,7 +189,11 @@ public class HashLinkedList<T> implements Iterable<T> {
     }
 
     /**
-     * Rappresenta un nodo nella lista concatenata.
+     * Rappresenta un nodo nella lista concatenata. Il campo next costituisce
+     * il livello più basso della skip list; forward e span, presenti solo nei
+     * nodi promossi, contengono i collegamenti ai livelli superiori e le
+     * relative ampiezze. L'ampiezza di un collegamento nullo non è
+     * significativa.
      */
     private class Node {
         String hash; // Hash del dato
@@ -72,13 +202,43 @@ public class HashLinkedList<T> implements Iterable<T> {
 
         Node next;
 
-        Node(T data) {
+        Node[] forward; // forward[k] è il successivo al livello k + 1
+
+        int[] span; // span[k] è il numero di posizioni saltate da forward[k]
+
+        Node(T data, int height) {
+            this(height);
             this.data = data;
             this.hash = HashUtil.dataToHash(data);
+        }
+
+        Node(int height) {
             this.next = null;
+            if (height > 0) {
+                this.forward = newNodeArray(height);
+                this.span = new int[height];
+            }
         }
     }
 
+    /*
+     * Crea un array di nodi: Node è una classe interna di un tipo generico,
+     * per cui l'array può essere creato solo con il tipo grezzo
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Node[] newNodeArray(int length) {
+        return new HashLinkedList.Node[length];
+    }
+
+    /**
+     * Estrae il numero di livelli superiori di un nuovo nodo, secondo una
+     * distribuzione geometrica di parametro 1/4.
+     */
+    private static int randomHeight() {
+        int bits = ThreadLocalRandom.current().nextInt();
+        return Math.min(Integer.numberOfTrailingZeros(bits) / 2, MAX_LEVEL);
+    }
+
     /**
      * Aggiunge un nuovo elemento in testa alla lista.
      *
@@ -86,37 +246,225 @@ public class HashLinkedList<T> implements Iterable<T> {
      *                 il dato da aggiungere.
      */
     public void addAtHead(T data) {
-        if(head == null){
-            Node n = new Node(data);
-            head = n;
-            tail = n;
-        } else {
-            Node n = new Node(data);
-            n.next = head;
-            head = n;
-        }
-        numeroModifiche++;
-        size++;
+        insertAt(0, data);
     }
 
     /**
-     * Aggiunge un nuovo elemento in coda alla lista.
+     * Aggiunge un nuovo elemento in coda alla lista. Grazie ai riferimenti
+     * all'ultimo nodo di ogni livello, l'operazione non richiede alcuna
+     * ricerca e costa O(1) in media.
      *
      * @param data
      *                 il dato da aggiungere.
      */
     public void addAtTail(T data) {
-        if(tail == null){
-            Node n = new Node(data);
-            head = n;
-            tail = n;
+        insertAt(size, data);
+    }
+
+    /**
+     * Restituisce il dato nella posizione specificata, in tempo O(log n)
+     * atteso.
+     *
+     * @param index
+     *                  la posizione del dato, a partire da 0.
+     * @return il dato nella posizione specificata.
+     * @throws IndexOutOfBoundsException
+     *                                       se la posizione non è compresa
+     *                                       tra 0 e size - 1.
+     */
+    public T get(int index) {
+        checkElementIndex(index);
+        return nodeAt(index).data;
+    }
+
+    /**
+     * Sostituisce il dato nella posizione specificata, ricalcolandone
+     * l'hash, in tempo O(log n) atteso. La struttura della lista non cambia.
+     *
+     * @param index
+     *                  la posizione del dato, a partire da 0.
+     * @param data
+     *                  il nuovo dato.
+     * @return il dato precedentemente nella posizione specificata.
+     * @throws IndexOutOfBoundsException
+     *                                       se la posizione non è compresa
+     *                                       tra 0 e size - 1.
+     */
+    public T set(int index, T data) {
+        checkElementIndex(index);
+        String hash = HashUtil.dataToHash(data);
+        Node n = nodeAt(index);
+        T old = n.data;
+        n.data = data;
+        n.hash = hash;
+        for (ChangeListener<? super T> l : listeners)
+            l.replaced(index, old, data, hash);
+        return old;
+    }
+
+    /**
+     * Inserisce un dato nella posizione specificata, spostando di una
+     * posizione in avanti quello che la occupava e tutti i successivi, in
+     * tempo O(log n) atteso.
+     *
+     * @param index
+     *                  la posizione del nuovo dato, a partire da 0.
+     * @param data
+     *                  il dato da inserire.
+     * @throws IndexOutOfBoundsException
+     *                                       se la posizione non è compresa
+     *                                       tra 0 e size.
+     */
+    public void insertAt(int index, T data) {
+        if (index < 0 || index > size)
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+        int height = randomHeight();
+        Node n = new Node(data, height);
+        int top = Math.max(levels, height);
+        if (index == size) {
+            // Inserimento in coda: i predecessori sono gli ultimi nodi
+            for (int k = 0; k < height; k++) {
+                lastAt[k].forward[k] = n;
+                lastAt[k].span[k] = size - lastRank[k];
+                lastAt[k] = n;
+                lastRank[k] = size;
+            }
+            Node pred = tail == null ? header : tail;
+            pred.next = n;
         } else {
-            Node n = new Node(data);
-            tail.next = n;
-            tail = n;
+            Node[] preds = newNodeArray(top);
+            int[] ranks = new int[top];
+            Node pred = findPredecessors(index, preds, ranks);
+            for (int k = 0; k < top; k++) {
+                if (lastRank[k] >= index)
+                    lastRank[k]++;
+            }
+            for (int k = 0; k < height; k++) {
+                Node p = preds[k];
+                n.forward[k] = p.forward[k];
+                if (n.forward[k] != null) {
+                    n.span[k] = p.span[k] - (index - ranks[k]) + 1;
+                } else {
+                    lastAt[k] = n;
+                    lastRank[k] = index;
+                }
+                p.forward[k] = n;
+                p.span[k] = index - ranks[k];
+            }
+            for (int k = height; k < levels; k++) {
+                if (preds[k].forward[k] != null)
+                    preds[k].span[k]++;
+            }
+            n.next = pred.next;
+            pred.next = n;
         }
+        if (n.next == null)
+            tail = n;
+        levels = top;
         numeroModifiche++;
         size++;
+        for (ChangeListener<? super T> l : listeners)
+            l.inserted(index, data, n.hash);
+    }
+
+    /**
+     * Rimuove il dato nella posizione specificata, spostando di una posizione
+     * indietro tutti i successivi, in tempo O(log n) atteso.
+     *
+     * @param index
+     *                  la posizione del dato da rimuovere, a partire da 0.
+     * @return il dato rimosso.
+     * @throws IndexOutOfBoundsException
+     *                                       se la posizione non è compresa
+     *                                       tra 0 e size - 1.
+     */
+    public T removeAt(int index) {
+        checkElementIndex(index);
+        Node[] preds = newNodeArray(levels);
+        int[] ranks = new int[levels];
+        Node pred = findPredecessors(index, preds, ranks);
+        Node x = pred.next;
+        for (int k = 0; k < levels; k++) {
+            if (lastRank[k] > index)
+                lastRank[k]--;
+            Node p = preds[k];
+            if (p.forward[k] == x) {
+                p.forward[k] = x.forward[k];
+                if (x.forward[k] != null) {
+                    p.span[k] += x.span[k] - 1;
+                } else {
+                    lastAt[k] = p;
+                    lastRank[k] = ranks[k];
+                }
+            } else if (p.forward[k] != null) {
+                p.span[k]--;
+            }
+        }
+        pred.next = x.next;
+        if (x == tail)
+            tail = pred == header ? null : pred;
+        while (levels > 0 && header.forward[levels - 1] == null)
+            levels--;
+        numeroModifiche++;
+        size--;
+        for (ChangeListener<? super T> l : listeners)
+            l.removed(index, x.data, x.hash);
+        return x.data;
+    }
+
+    /**
+     * Individua, per ogni livello superiore, l'ultimo nodo che precede la
+     * posizione specificata e la sua posizione (-1 per la sentinella). I
+     * livelli non ancora in uso vengono associati alla sentinella.
+     *
+     * @return il nodo che precede la posizione specificata al livello più
+     *         basso.
+     */
+    private Node findPredecessors(int index, Node[] preds, int[] ranks) {
+        Node x = header;
+        int rank = -1;
+        for (int k = levels - 1; k >= 0; k--) {
+            while (x.forward[k] != null && rank + x.span[k] < index) {
+                rank += x.span[k];
+                x = x.forward[k];
+            }
+            preds[k] = x;
+            ranks[k] = rank;
+        }
+        for (int k = levels; k < preds.length; k++) {
+            preds[k] = header;
+            ranks[k] = -1;
+        }
+        while (rank + 1 < index) {
+            x = x.next;
+            rank++;
+        }
+        return x;
+    }
+
+    private Node nodeAt(int index) {
+        Node x = header;
+        int rank = -1;
+        for (int k = levels - 1; k >= 0; k--) {
+            while (x.forward[k] != null && rank + x.span[k] <= index) {
+                rank += x.span[k];
+                x = x.forward[k];
+            }
+        }
+        while (rank < index) {
+            x = x.next;
+            rank++;
+        }
+        return x;
+    }
+
+    private void checkElementIndex(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+    }
+
+    private String outOfBoundsMsg(int index) {
+        return "Index: " + index + ", Size: " + size;
     }
 
     /**
@@ -126,7 +474,7 @@ public class HashLinkedList<T> implements Iterable<T> {
      */
     public ArrayList<String> getAllHashes() {
         ArrayList<String> list = new ArrayList<>();
-        Node n = head;
+        Node n = header.next;
         while(n != null){
             list.add(n.hash);
             n = n.next;
@@ -149,13 +497,94 @@ public class HashLinkedList<T> implements Iterable<T> {
      * @return una rappresentazione testuale di tutti i nodi nella lista.
      */
     public String buildNodesString() {
-        String result = "";
-        Node n = head;
-        while (n != null) {
-            result += "Dato: " + n.data +  ", Hash: " + n.hash + "\n";
-            n = n.next;
+        StringBuilder result = new StringBuilder();
+        try {
+            writeNodesTo(result, NodeEncoder.Format.TEXT);
+        } catch (IOException e) {
+            // Non può accadere scrivendo su uno StringBuilder
+            throw new UncheckedIOException(e);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Scrive in streaming tutti i nodi della lista, in ordine, su una
+     * destinazione testuale nel formato specificato. A differenza di
+     * {@link #buildNodesString()}, la memoria occupata non dipende dalla
+     * dimensione della lista.
+     *
+     * @param out
+     *                   la destinazione, ad esempio un {@link java.io.Writer}.
+     * @param format
+     *                   il formato di esportazione.
+     * @throws IOException
+     *                         se la scrittura sulla destinazione fallisce.
+     */
+    public void writeNodesTo(Appendable out, NodeEncoder.Format format)
+            throws IOException {
+        writeNodesTo(out, new NodeEncoder(format));
+    }
+
+    /**
+     * Scrive in streaming tutti i nodi della lista su una destinazione
+     * testuale, usando un codificatore fornito che può essere riutilizzato per
+     * più esportazioni.
+     *
+     * @param out
+     *                    la destinazione, ad esempio un
+     *                    {@link java.io.Writer}.
+     * @param encoder
+     *                    il codificatore da usare.
+     * @throws IOException
+     *                         se la scrittura sulla destinazione fallisce.
+     */
+    public void writeNodesTo(Appendable out, NodeEncoder encoder)
+            throws IOException {
+        encoder.begin(out);
+        encodeNodes(encoder);
+    }
+
+    /**
+     * Scrive in streaming tutti i nodi della lista, in ordine, su un canale,
+     * codificati in UTF-8 nel formato specificato.
+     *
+     * @param channel
+     *                    il canale di destinazione.
+     * @param format
+     *                    il formato di esportazione.
+     * @throws IOException
+     *                         se la scrittura sul canale fallisce.
+     */
+    public void writeNodesTo(WritableByteChannel channel,
+            NodeEncoder.Format format) throws IOException {
+        writeNodesTo(channel, new NodeEncoder(format));
+    }
+
+    /**
+     * Scrive in streaming tutti i nodi della lista su un canale, usando un
+     * codificatore fornito che può essere riutilizzato per più esportazioni.
+     *
+     * @param channel
+     *                    il canale di destinazione.
+     * @param encoder
+     *                    il codificatore da usare.
+     * @throws IOException
+     *                         se la scrittura sul canale fallisce.
+     */
+    public void writeNodesTo(WritableByteChannel channel,
+            NodeEncoder encoder) throws IOException {
+        encoder.begin(channel);
+        encodeNodes(encoder);
+    }
+
+    private void encodeNodes(NodeEncoder encoder) throws IOException {
+        int modifiche = numeroModifiche;
+        for (Node n = header.next; n != null; n = n.next) {
+            encoder.encode(n.data, n.hash);
+            if (numeroModifiche != modifiche)
+                throw new ConcurrentModificationException();
         }
-        return result ;
+        encoder.end();
     }
 
     /**
@@ -166,27 +595,14 @@ public class HashLinkedList<T> implements Iterable<T> {
      * @return true se l'elemento è stato trovato e rimosso, false altrimenti.
      */
     public boolean remove(T data) {
-        Node n = head;
-        Node prev = null;
+        Node n = header.next;
+        int index = 0;
         while(n != null){
             if(n.data.equals(data)){
-                if(prev == null){
-                    head = n.next;
-                } else {
-                    prev.next = n.next;
-                }
-                if(n.next == null){
-                    tail = prev;
-                } else {
-                    if(prev != null){
-                        prev.next = n.next;
-                    }
-                }
-                numeroModifiche++;
-                size--;
+                removeAt(index);
                 return true;
             }
-            prev = n;
+            index++;
             n = n.next;
         }
         return false;
@@ -197,6 +613,157 @@ public class HashLinkedList<T> implements Iterable<T> {
         return new Itr();
     }
 
+    /**
+     * Restituisce uno spliterator fail-fast {@code ORDERED} e {@code SIZED}
+     * sui dati della lista, in grado di suddividersi in parti di dimensione
+     * bilanciata per l'elaborazione parallela.
+     *
+     * @return uno spliterator sui dati della lista.
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return new Spl<>(header.next, 0, size, n -> n.data);
+    }
+
+    /**
+     * Restituisce uno stream sequenziale dei dati della lista, in ordine.
+     *
+     * @return uno stream dei dati della lista.
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Restituisce uno stream parallelo dei dati della lista. L'ordine degli
+     * elementi è comunque preservato dalle operazioni che ne tengono conto.
+     *
+     * @return uno stream parallelo dei dati della lista.
+     */
+    public Stream<T> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /**
+     * Restituisce uno stream sequenziale delle coppie (dato, hash) della
+     * lista, in ordine. La chiave di ogni coppia è il dato, il valore è il
+     * relativo hash già calcolato, che quindi non viene ricalcolato.
+     *
+     * @return uno stream delle coppie (dato, hash) della lista.
+     */
+    public Stream<Map.Entry<T, String>> entryStream() {
+        return StreamSupport.stream(entrySpliterator(), false);
+    }
+
+    /**
+     * Restituisce uno stream parallelo delle coppie (dato, hash) della lista.
+     *
+     * @return uno stream parallelo delle coppie (dato, hash) della lista.
+     */
+    public Stream<Map.Entry<T, String>> parallelEntryStream() {
+        return StreamSupport.stream(entrySpliterator(), true);
+    }
+
+    private Spliterator<Map.Entry<T, String>> entrySpliterator() {
+        return new Spl<>(header.next, 0, size,
+                n -> new AbstractMap.SimpleImmutableEntry<>(n.data, n.hash));
+    }
+
+    /**
+     * Spliterator fail-fast per HashLinkedList. Ogni suddivisione raggiunge il
+     * nodo a metà della parte coperta con l'accesso posizionale della skip
+     * list, in tempo O(log n) atteso, senza percorrere la lista, e produce
+     * parti di dimensione esatta.
+     *
+     * @param <R>
+     *                il tipo degli elementi prodotti a partire dai nodi.
+     */
+    private class Spl<R> implements Spliterator<R> {
+        /**
+         * Numero minimo di elementi di una parte, sotto il quale non conviene
+         * suddividere ulteriormente.
+         */
+        private static final int MIN_SPLIT = 16;
+
+        private final Function<Node, R> mapper;
+
+        private Node current; // Prossimo nodo da visitare
+
+        private int index; // Posizione assoluta del nodo corrente
+
+        private final int end; // Posizione assoluta successiva all'ultima
+
+        private final int modifiche;
+
+        private Spl(Node current, int index, int end,
+                Function<Node, R> mapper) {
+            this.current = current;
+            this.index = index;
+            this.end = end;
+            this.mapper = mapper;
+            this.modifiche = numeroModifiche;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super R> action) {
+            if (action == null)
+                throw new NullPointerException();
+            checkForComodification();
+            if (index >= end)
+                return false;
+            Node n = current;
+            current = n.next;
+            index++;
+            action.accept(mapper.apply(n));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super R> action) {
+            if (action == null)
+                throw new NullPointerException();
+            checkForComodification();
+            Node n = current;
+            int i = index;
+            while (i < end) {
+                action.accept(mapper.apply(n));
+                n = n.next;
+                i++;
+            }
+            current = n;
+            index = i;
+            checkForComodification();
+        }
+
+        @Override
+        public Spliterator<R> trySplit() {
+            checkForComodification();
+            int remaining = end - index;
+            if (remaining < 2 * MIN_SPLIT)
+                return null;
+            int split = index + remaining / 2;
+            Spl<R> prefix = new Spl<>(current, index, split, mapper);
+            current = nodeAt(split);
+            index = split;
+            return prefix;
+        }
+
+        private void checkForComodification() {
+            if (numeroModifiche != modifiche)
+                throw new ConcurrentModificationException();
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL;
+        }
+    }
+
     /**
      * Classe che realizza un iteratore fail-fast per HashLinkedList.
      */
@@ -206,7 +773,7 @@ public class HashLinkedList<T> implements Iterable<T> {
         int modifiche;
 
         private Itr() {
-            node = head;
+            node = header.next;
             modifiche = numeroModifiche;
         }
 
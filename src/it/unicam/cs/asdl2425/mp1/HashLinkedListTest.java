@@ -4,6 +4,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -65,6 +66,29 @@ import static org.junit.jupiter.api.Assertions.*;
  * 
  * <li>{@link #testFailFastIterator2()}: Verifica che l'iteratore sia
  * {@code fail-fast} rimuovendo un elemento durante l'iterazione.</li>
+ * 
+ * <li>{@link #testSpliteratorSplit()}: Verifica che lo spliterator sia
+ * {@code SIZED} e che le parti ottenute dalla suddivisione coprano tutti gli
+ * elementi, in ordine e senza sovrapposizioni.</li>
+ * 
+ * <li>{@link #testParallelStream()}: Verifica che lo stream parallelo produca
+ * gli stessi elementi, nello stesso ordine, dello stream sequenziale.</li>
+ * 
+ * <li>{@link #testEntryStream()}: Verifica che lo stream delle coppie
+ * (dato, hash) restituisca gli hash corretti degli elementi.</li>
+ * 
+ * <li>{@link #testPositionalAccess()}: Inserisce, sostituisce e rimuove
+ * elementi in base alla posizione e verifica il contenuto della lista.</li>
+ * 
+ * <li>{@link #testPositionalAccessRandom()}: Esegue una sequenza casuale di
+ * operazioni posizionali e in testa/coda, confrontando ogni volta la lista con
+ * una {@code ArrayList} di riferimento.</li>
+ * 
+ * <li>{@link #testPositionalAccessOutOfBounds()}: Verifica che l'accesso a
+ * posizioni non valide lanci {@code IndexOutOfBoundsException}.</li>
+ * 
+ * <li>{@link #testChangeListener()}: Verifica che un ascoltatore registrato
+ * riceva le notifiche delle modifiche con le posizioni corrette.</li>
  * </ul>
  */
 class HashLinkedListTest {
@@ -337,4 +361,184 @@ class HashLinkedListTest {
                 "L'iteratore non è fail-fast."
         );
     }
-}
\ No newline at end of file
+
+    @Test
+    void testSpliteratorSplit() {
+        for (int i = 0; i < 1000; i++)
+            list.addAtTail("Transazione " + i);
+
+        Spliterator<String> suffix = list.spliterator();
+        assertTrue(suffix.hasCharacteristics(Spliterator.SIZED),
+                "Lo spliterator dovrebbe essere SIZED.");
+        assertEquals(1000, suffix.estimateSize(),
+                "La dimensione dello spliterator non è corretta.");
+
+        Spliterator<String> prefix = suffix.trySplit();
+        assertNotNull(prefix, "Lo spliterator dovrebbe potersi suddividere.");
+        assertEquals(1000, prefix.estimateSize() + suffix.estimateSize(),
+                "Le parti dovrebbero coprire tutti gli elementi.");
+
+        List<String> elements = new ArrayList<>();
+        prefix.forEachRemaining(elements::add);
+        suffix.forEachRemaining(elements::add);
+        List<String> expected = new ArrayList<>();
+        for (String s : list)
+            expected.add(s);
+        assertEquals(expected, elements,
+                "Le parti dovrebbero contenere gli elementi in ordine.");
+    }
+
+    @Test
+    void testParallelStream() {
+        for (int i = 0; i < 5000; i++)
+            list.addAtTail("Transazione " + i);
+
+        List<String> sequential = list.stream().collect(Collectors.toList());
+        List<String> parallel = list.parallelStream()
+                .collect(Collectors.toList());
+
+        assertEquals(5000, parallel.size(),
+                "Lo stream parallelo dovrebbe contenere tutti gli elementi.");
+        assertEquals(sequential, parallel,
+                "Lo stream parallelo dovrebbe preservare l'ordine.");
+    }
+
+    @Test
+    void testEntryStream() {
+        list.addAtTail("Alice paga Bob");
+        list.addAtTail("Bob paga Charlie");
+
+        List<String> hashes = list.parallelEntryStream()
+                .map(Map.Entry::getValue).collect(Collectors.toList());
+
+        assertEquals(list.getAllHashes(), hashes,
+                "Gli hash delle coppie non corrispondono all'atteso.");
+        assertEquals("Alice paga Bob",
+                list.entryStream().findFirst().get().getKey(),
+                "Il dato della prima coppia non è corretto.");
+    }
+
+    @Test
+    void testPositionalAccess() {
+        list.addAtTail("Alice paga Bob");
+        list.addAtTail("Charlie paga Diana");
+        list.insertAt(1, "Bob paga Charlie");
+        list.insertAt(3, "Diana paga Alice");
+
+        assertEquals("Bob paga Charlie", list.get(1),
+                "L'elemento in posizione 1 non è corretto.");
+        assertEquals("Diana paga Alice", list.get(3),
+                "L'elemento in posizione 3 non è corretto.");
+
+        assertEquals("Charlie paga Diana", list.set(2, "Charlie paga Bob"),
+                "Dovrebbe essere restituito l'elemento sostituito.");
+        assertEquals("Alice paga Bob", list.removeAt(0),
+                "Dovrebbe essere restituito l'elemento rimosso.");
+
+        String expected = "Dato: Bob paga Charlie, Hash: "
+                + HashUtil.dataToHash("Bob paga Charlie") + "\n"
+                + "Dato: Charlie paga Bob, Hash: "
+                + HashUtil.dataToHash("Charlie paga Bob") + "\n"
+                + "Dato: Diana paga Alice, Hash: "
+                + HashUtil.dataToHash("Diana paga Alice") + "\n";
+        assertEquals(expected, list.buildNodesString(),
+                "La lista non è corretta dopo le operazioni posizionali.");
+    }
+
+    @Test
+    void testPositionalAccessRandom() {
+        Random random = new Random(42);
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            String s = "Transazione " + i;
+            int op = random.nextInt(6);
+            if (op == 0) {
+                list.addAtHead(s);
+                expected.add(0, s);
+            } else if (op == 1) {
+                list.addAtTail(s);
+                expected.add(s);
+            } else if (op == 2 || expected.isEmpty()) {
+                int index = random.nextInt(expected.size() + 1);
+                list.insertAt(index, s);
+                expected.add(index, s);
+            } else if (op == 3) {
+                int index = random.nextInt(expected.size());
+                assertEquals(expected.remove(index), list.removeAt(index),
+                        "L'elemento rimosso non è corretto.");
+            } else if (op == 4) {
+                int index = random.nextInt(expected.size());
+                assertEquals(expected.set(index, s), list.set(index, s),
+                        "L'elemento sostituito non è corretto.");
+            } else {
+                String target = expected.get(random.nextInt(expected.size()));
+                expected.remove(target);
+                assertTrue(list.remove(target),
+                        "L'elemento doveva essere rimosso.");
+            }
+            if (!expected.isEmpty()) {
+                int index = random.nextInt(expected.size());
+                assertEquals(expected.get(index), list.get(index),
+                        "L'elemento in posizione " + index
+                                + " non è corretto.");
+            }
+        }
+        assertEquals(expected.size(), list.getSize(),
+                "La dimensione della lista non è corretta.");
+        for (int i = 0; i < expected.size(); i++)
+            assertEquals(expected.get(i), list.get(i),
+                    "L'elemento in posizione " + i + " non è corretto.");
+        list.addAtTail("Ultima transazione");
+        expected.add("Ultima transazione");
+        assertEquals(expected, list.stream().collect(Collectors.toList()),
+                "La lista non è corretta dopo le operazioni casuali.");
+    }
+
+    @Test
+    void testPositionalAccessOutOfBounds() {
+        list.addAtTail("Alice paga Bob");
+
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(-1));
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> list.insertAt(2, "Bob paga Charlie"));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.removeAt(1));
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> list.set(1, "Bob paga Charlie"));
+    }
+
+    @Test
+    void testChangeListener() {
+        List<String> events = new ArrayList<>();
+        HashLinkedList.ChangeListener<String> listener =
+                new HashLinkedList.ChangeListener<String>() {
+            @Override
+            public void inserted(int index, String data, String hash) {
+                events.add("+" + index + " " + data);
+            }
+
+            @Override
+            public void removed(int index, String data, String hash) {
+                events.add("-" + index + " " + data);
+            }
+
+            @Override
+            public void replaced(int index, String oldData, String data,
+                    String hash) {
+                events.add("=" + index + " " + data);
+            }
+        };
+        list.addChangeListener(listener);
+        list.addAtTail("Alice paga Bob");
+        list.addAtHead("Bob paga Charlie");
+        list.set(1, "Charlie paga Diana");
+        list.remove("Bob paga Charlie");
+        assertTrue(list.removeChangeListener(listener),
+                "L'ascoltatore doveva essere registrato.");
+        list.addAtTail("Diana paga Alice");
+
+        assertEquals(Arrays.asList("+0 Alice paga Bob", "+0 Bob paga Charlie",
+                "=1 Charlie paga Diana", "-0 Bob paga Charlie"), events,
+                "Le notifiche ricevute non sono corrette.");
+    }
+}
@@ -1,5 +1,6 @@
 package it.unicam.cs.asdl2425.mp1;
 
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
@@ -10,6 +11,13 @@ import java.security.NoSuchAlgorithmException;
  */
 public class HashUtil {
 
+    /**
+     * Lunghezza in byte di un digest MD5.
+     */
+    public static final int MD5_LENGTH = 16;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
     /**
      * Calcola l'hash del dato fornito utilizzando MD5.
      *
@@ -34,11 +42,31 @@ public class HashUtil {
         try {
             MessageDigest md = MessageDigest.getInstance("MD5");
             byte[] hashBytes = md.digest(input);
-            StringBuilder hashString = new StringBuilder();
-            for (byte b : hashBytes) {
-                hashString.append(String.format("%02x", b));
-            }
-            return hashString.toString();
+            return bytesToHex(hashBytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("MD5 algorithm not found", e);
+        }
+    }
+
+    /**
+     * Calcola l'hash MD5 dei byte rimanenti di un buffer, leggendoli
+     * direttamente dal buffer senza copiarne prima il contenuto in un array
+     * della stessa dimensione. La posizione del
+     * buffer non viene modificata, per cui il metodo può essere usato su
+     * porzioni di un {@link java.nio.MappedByteBuffer} condivise tra più
+     * thread, purché ciascuno usi la propria porzione.
+     *
+     * @param buffer
+     *                   il buffer di cui calcolare l'hash.
+     * @return l'hash come stringa esadecimale.
+     * @throws RuntimeException
+     *                              se l'algoritmo di hashing non è disponibile.
+     */
+    public static String bufferToHash(ByteBuffer buffer) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("MD5");
+            md.update(buffer.duplicate());
+            return bytesToHex(md.digest());
         } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException("MD5 algorithm not found", e);
         }
@@ -61,4 +89,48 @@ public class HashUtil {
         return new byte[] { (byte) (value >> 24), (byte) (value >> 16),
                 (byte) (value >> 8), (byte) value };
     }
-}
\ No newline at end of file
+
+    /**
+     * Converte un array di byte nella corrispondente stringa esadecimale, con
+     * cifre minuscole, nello stesso formato restituito da
+     * {@link #computeMD5(byte[])}.
+     *
+     * @param bytes
+     *                  l'array di byte da convertire.
+     * @return la stringa esadecimale.
+     */
+    public static String bytesToHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            hex[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Converte una stringa esadecimale nel corrispondente array di byte.
+     * Operazione inversa di {@link #bytesToHex(byte[])}.
+     *
+     * @param hex
+     *                la stringa esadecimale da convertire.
+     * @return l'array di byte rappresentato dalla stringa.
+     * @throws IllegalArgumentException
+     *                                      se la stringa ha lunghezza dispari
+     *                                      o contiene caratteri non
+     *                                      esadecimali.
+     */
+    public static byte[] hexToBytes(String hex) {
+        if (hex.length() % 2 != 0)
+            throw new IllegalArgumentException("Odd hex string length");
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int hi = Character.digit(hex.charAt(2 * i), 16);
+            int lo = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (hi < 0 || lo < 0)
+                throw new IllegalArgumentException("Invalid hex string");
+            bytes[i] = (byte) ((hi << 4) | lo);
+        }
+        return bytes;
+    }
+}
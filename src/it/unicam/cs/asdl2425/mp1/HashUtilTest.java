@@ -2,6 +2,8 @@ package it.unicam.cs.asdl2425.mp1;
 
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -18,6 +20,13 @@ import static org.junit.jupiter.api.Assertions.*;
  * 
  * <li>{@link #testComputeMD5_nullInput()}: Verifica che il metodo
  * {@code computeMD5} lanci una {@code NullPointerException} quando l'input è {@code null}.</li>
+ * 
+ * <li>{@link #testHexConversion()}: Verifica che {@code hexToBytes} e
+ * {@code bytesToHex} siano l'una l'inversa dell'altra.</li>
+ *
+ * <li>{@link #testBufferToHash()}: Verifica che l'hash dei byte rimanenti di
+ * un buffer coincida con quello dello stesso array e che la posizione del
+ * buffer non venga modificata.</li>
  * </ul>
  */
 class HashUtilTest {
@@ -49,4 +58,33 @@ class HashUtilTest {
         assertThrows(NullPointerException.class, () -> HashUtil.computeMD5(null),
                 "Dovrebbe lanciare NullPointerException se l'input è null.");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testHexConversion() {
+        String hash = HashUtil.computeMD5("Hello, World!".getBytes());
+        byte[] bytes = HashUtil.hexToBytes(hash);
+
+        assertEquals(HashUtil.MD5_LENGTH, bytes.length,
+                "Il digest dovrebbe essere lungo 16 byte.");
+        assertEquals(hash, HashUtil.bytesToHex(bytes),
+                "La conversione dovrebbe restituire la stringa originale.");
+        assertThrows(IllegalArgumentException.class,
+                () -> HashUtil.hexToBytes("abc"),
+                "Una stringa di lunghezza dispari non dovrebbe essere valida.");
+    }
+
+    @Test
+    void testBufferToHash() {
+        byte[] input = "Hello, World!".getBytes();
+        ByteBuffer direct = ByteBuffer.allocateDirect(input.length + 2);
+        direct.put((byte) 1).put(input).put((byte) 2);
+        direct.position(1).limit(1 + input.length);
+
+        assertEquals(HashUtil.computeMD5(input), HashUtil.bufferToHash(direct),
+                "L'hash del buffer non corrisponde a quello dell'array.");
+        assertEquals(1, direct.position(),
+                "La posizione del buffer non dovrebbe cambiare.");
+        assertEquals("d41d8cd98f00b204e9800998ecf8427e",
+                HashUtil.bufferToHash(ByteBuffer.allocate(0)));
+    }
+}
@@ -0,0 +1,464 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32;
+
+/**
+ * Un albero di Merkle aggiornabile in modo incrementale e persistente su
+ * disco, che sopravvive a un'interruzione improvvisa del processo. Lo stato è
+ * conservato in una directory che contiene due file:
+ *
+ * <ul>
+ * <li>{@code checkpoint.snapshot}, l'ultimo checkpoint, nel formato di
+ * {@link MappedMerkleTree}, il cui campo sequenza indica quanti aggiornamenti
+ * sono già inclusi;</li>
+ * <li>{@code journal.log}, un journal in sola aggiunta degli aggiornamenti
+ * delle foglie successivi al checkpoint.</li>
+ * </ul>
+ *
+ * <p>
+ * Il journal inizia con un'intestazione di 16 byte (magic 0x4D4B4A4C, versione
+ * e numero di sequenza del primo record) seguita da record di lunghezza fissa:
+ *
+ * <pre>
+ *     offset  0: operazione    byte 1 (sostituzione) o 2 (aggiunta in coda)
+ *     offset  1: riservato     3 byte a zero
+ *     offset  4: indice        int  posizione della foglia
+ *     offset  8: digest        16 byte, hash del nuovo dato
+ *     offset 24: crc           int  CRC32 dei 24 byte precedenti
+ * </pre>
+ *
+ * <p>
+ * I record vengono scritti a gruppi (group commit): un aggiornamento viene
+ * applicato subito all'albero in memoria, ma il suo record resta in un buffer
+ * finché non se ne accumulano {@code groupCommitSize}, e solo allora il gruppo
+ * viene scritto e forzato su disco con un'unica {@link FileChannel#force}.
+ * Gli aggiornamenti non ancora forzati possono andare persi in caso di crash;
+ * {@link #sync()} forza immediatamente quelli in sospeso.
+ *
+ * <p>
+ * Ogni {@code checkpointInterval} aggiornamenti, o su richiesta con
+ * {@link #checkpoint()}, l'albero viene compattato in un nuovo snapshot e il
+ * journal viene svuotato. Snapshot e journal sono sostituiti scrivendo un file
+ * temporaneo e rinominandolo atomicamente, per cui un crash durante il
+ * checkpoint lascia sempre una coppia coerente. All'apertura lo snapshot viene
+ * caricato senza ricalcolare alcun hash e i record del journal successivi al
+ * checkpoint vengono riapplicati; il journal viene troncato al primo record
+ * incompleto o con CRC errato, che corrisponde a una scrittura interrotta.
+ *
+ * @param <T>
+ *                il tipo di dati delle foglie.
+ */
+public class JournaledMerkleTree<T> implements Closeable {
+    static final String SNAPSHOT_FILE = "checkpoint.snapshot";
+
+    static final String JOURNAL_FILE = "journal.log";
+
+    static final int JOURNAL_MAGIC = 0x4D4B4A4C;
+
+    static final int JOURNAL_VERSION = 1;
+
+    static final int JOURNAL_HEADER_SIZE = 16;
+
+    static final int RECORD_SIZE = 28;
+
+    private static final byte OP_SET = 1;
+
+    private static final byte OP_APPEND = 2;
+
+    private final Path directory;
+
+    private final int groupCommitSize;
+
+    private final int checkpointInterval;
+
+    private final HashLevels levels;
+
+    private final ByteBuffer pending; // Record non ancora scritti
+
+    private final CRC32 crc;
+
+    private FileChannel journal;
+
+    private long sequence; // Numero di aggiornamenti registrati
+
+    private long checkpointSequence; // Aggiornamenti inclusi nel checkpoint
+
+    private JournaledMerkleTree(Path directory, int groupCommitSize,
+            int checkpointInterval, HashLevels levels) {
+        this.directory = directory;
+        this.groupCommitSize = groupCommitSize;
+        this.checkpointInterval = checkpointInterval;
+        this.levels = levels;
+        this.pending = ByteBuffer.allocate(groupCommitSize * RECORD_SIZE);
+        this.crc = new CRC32();
+    }
+
+    /**
+     * Apre l'albero conservato in una directory, creandolo vuoto se la
+     * directory non ne contiene uno, e ripristina lo stato riapplicando al
+     * checkpoint gli aggiornamenti registrati nel journal.
+     *
+     * @param <T>
+     *                               il tipo di dati delle foglie.
+     * @param directory
+     *                               la directory dell'albero, creata se non
+     *                               esiste.
+     * @param groupCommitSize
+     *                               il numero di aggiornamenti scritti e
+     *                               forzati su disco insieme.
+     * @param checkpointInterval
+     *                               il numero di aggiornamenti dopo cui viene
+     *                               eseguito un checkpoint automatico, 0 per
+     *                               disabilitarlo.
+     * @return l'albero ripristinato.
+     * @throws IllegalArgumentException
+     *                                      se la directory è null o i
+     *                                      parametri non sono validi.
+     * @throws IOException
+     *                                      se i file non possono essere letti
+     *                                      o sono danneggiati.
+     */
+    public static <T> JournaledMerkleTree<T> open(Path directory,
+            int groupCommitSize, int checkpointInterval) throws IOException {
+        if (directory == null)
+            throw new IllegalArgumentException("The directory is null");
+        if (groupCommitSize <= 0)
+            throw new IllegalArgumentException(
+                    "The group commit size must be positive");
+        if (checkpointInterval < 0)
+            throw new IllegalArgumentException(
+                    "The checkpoint interval must not be negative");
+        Files.createDirectories(directory);
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        HashLevels levels;
+        long checkpointSequence = 0;
+        if (Files.exists(snapshot)) {
+            try (MappedMerkleTree<T> mapped = MappedMerkleTree.open(snapshot)) {
+                if (mapped.getShape() != MerkleTree.Shape.PADDED)
+                    throw new IOException(
+                            "Unsupported snapshot shape: " + mapped.getShape());
+                levels = load(mapped);
+                checkpointSequence = mapped.getSequence();
+            }
+        } else {
+            levels = new HashLevels(List.of());
+        }
+        JournaledMerkleTree<T> tree = new JournaledMerkleTree<>(directory,
+                groupCommitSize, checkpointInterval, levels);
+        tree.checkpointSequence = checkpointSequence;
+        tree.recover();
+        return tree;
+    }
+
+    /**
+     * Ricostruisce i livelli dell'albero leggendo i digest dello snapshot.
+     */
+    private static HashLevels load(MappedMerkleTree<?> mapped) {
+        int height = mapped.getHeight();
+        String[][] levels = new String[height + 1][];
+        for (int l = 0; l <= height; l++) {
+            int size = 1 << (height - l);
+            long first = size - 1; // Primo nodo del livello nello snapshot
+            levels[l] = new String[size];
+            for (int j = 0; j < size; j++)
+                levels[l][j] = mapped.hashAt(first + j);
+        }
+        return new HashLevels(levels, mapped.getWidth());
+    }
+
+    /**
+     * Riapplica i record del journal successivi al checkpoint e tronca il
+     * journal dopo l'ultimo record integro. Se il journal manca o ha
+     * un'intestazione incompleta, viene ricreato vuoto.
+     */
+    private void recover() throws IOException {
+        Path path = directory.resolve(JOURNAL_FILE);
+        sequence = checkpointSequence;
+        if (!Files.exists(path) || Files.size(path) < JOURNAL_HEADER_SIZE) {
+            resetJournal();
+            return;
+        }
+        journal = FileChannel.open(path, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(JOURNAL_HEADER_SIZE);
+        readFully(header, 0);
+        if (header.getInt(0) != JOURNAL_MAGIC
+                || header.getInt(4) != JOURNAL_VERSION)
+            throw new IOException("Not a Merkle tree journal: " + path);
+        long seq = header.getLong(8);
+        if (seq > checkpointSequence)
+            throw new IOException("Journal starts after the checkpoint: "
+                    + seq + " > " + checkpointSequence);
+        ByteBuffer buffer = ByteBuffer.allocate(256 * RECORD_SIZE);
+        long position = JOURNAL_HEADER_SIZE;
+        long size = journal.size();
+        byte[] digest = new byte[HashUtil.MD5_LENGTH];
+        boolean torn = false;
+        while (!torn && position + RECORD_SIZE <= size) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(),
+                    (size - position) / RECORD_SIZE * RECORD_SIZE));
+            readFully(buffer, position);
+            for (int off = 0; off < buffer.limit(); off += RECORD_SIZE) {
+                crc.reset();
+                crc.update(buffer.array(), off, RECORD_SIZE - 4);
+                if ((int) crc.getValue() != buffer.getInt(off + 24)) {
+                    torn = true;
+                    break;
+                }
+                if (seq++ >= checkpointSequence) {
+                    buffer.get(off + 8, digest);
+                    apply(buffer.get(off), buffer.getInt(off + 4),
+                            HashUtil.bytesToHex(digest));
+                    sequence++;
+                }
+                position += RECORD_SIZE;
+            }
+        }
+        if (seq < checkpointSequence)
+            throw new IOException("Journal ends before the checkpoint: " + seq
+                    + " < " + checkpointSequence);
+        if (position < size) {
+            journal.truncate(position);
+            journal.force(false);
+        }
+        journal.position(position);
+    }
+
+    private void apply(byte op, int index, String hash) throws IOException {
+        if (op == OP_SET && index >= 0 && index < levels.width())
+            levels.set(index, hash);
+        else if (op == OP_APPEND && index == levels.width())
+            levels.insert(index, hash);
+        else
+            throw new IOException("Corrupted journal record: op " + op
+                    + ", index " + index);
+    }
+
+    private void readFully(ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            if (journal.read(buffer, position + buffer.position()) < 0)
+                throw new IOException("Truncated journal");
+        }
+    }
+
+    /**
+     * Sostituisce il journal con uno vuoto che inizia dalla sequenza corrente,
+     * scrivendolo in un file temporaneo e rinominandolo atomicamente.
+     */
+    private void resetJournal() throws IOException {
+        if (journal != null)
+            journal.close();
+        Path path = directory.resolve(JOURNAL_FILE);
+        Path tmp = directory.resolve(JOURNAL_FILE + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(JOURNAL_HEADER_SIZE);
+            header.putInt(JOURNAL_MAGIC).putInt(JOURNAL_VERSION)
+                    .putLong(sequence).flip();
+            while (header.hasRemaining())
+                out.write(header);
+            out.force(true);
+        }
+        Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        journal = FileChannel.open(path, StandardOpenOption.WRITE);
+        journal.position(JOURNAL_HEADER_SIZE);
+    }
+
+    /**
+     * Sostituisce il dato nella posizione specificata.
+     *
+     * @param index
+     *                  la posizione del dato, a partire da 0.
+     * @param data
+     *                  il nuovo dato.
+     * @throws IllegalArgumentException
+     *                                       se il dato è null.
+     * @throws IndexOutOfBoundsException
+     *                                       se la posizione non è compresa
+     *                                       tra 0 e width - 1.
+     * @throws IOException
+     *                                       se la scrittura del journal
+     *                                       fallisce.
+     */
+    public void set(int index, T data) throws IOException {
+        if (data == null)
+            throw new IllegalArgumentException("The data is null");
+        if (index < 0 || index >= levels.width())
+            throw new IndexOutOfBoundsException(
+                    "Index: " + index + ", Width: " + levels.width());
+        String hash = HashUtil.dataToHash(data);
+        levels.set(index, hash);
+        log(OP_SET, index, hash);
+    }
+
+    /**
+     * Aggiunge un dato in coda all'albero.
+     *
+     * @param data
+     *                 il dato da aggiungere.
+     * @throws IllegalArgumentException
+     *                                      se il dato è null.
+     * @throws IOException
+     *                                      se la scrittura del journal
+     *                                      fallisce.
+     */
+    public void append(T data) throws IOException {
+        if (data == null)
+            throw new IllegalArgumentException("The data is null");
+        String hash = HashUtil.dataToHash(data);
+        int index = levels.width();
+        levels.insert(index, hash);
+        log(OP_APPEND, index, hash);
+    }
+
+    private void log(byte op, int index, String hash) throws IOException {
+        int off = pending.position();
+        pending.put(op).put((byte) 0).put((byte) 0).put((byte) 0)
+                .putInt(index).put(HashUtil.hexToBytes(hash));
+        crc.reset();
+        crc.update(pending.array(), off, RECORD_SIZE - 4);
+        pending.putInt((int) crc.getValue());
+        sequence++;
+        if (!pending.hasRemaining())
+            sync();
+        if (checkpointInterval > 0
+                && sequence - checkpointSequence >= checkpointInterval)
+            checkpoint();
+    }
+
+    /**
+     * Scrive nel journal gli aggiornamenti in sospeso e li forza su disco.
+     *
+     * @throws IOException
+     *                         se la scrittura fallisce.
+     */
+    public void sync() throws IOException {
+        if (pending.position() == 0)
+            return;
+        pending.flip();
+        while (pending.hasRemaining())
+            journal.write(pending);
+        pending.clear();
+        journal.force(false);
+    }
+
+    /**
+     * Compatta lo stato corrente in un nuovo checkpoint e svuota il journal.
+     *
+     * @throws IOException
+     *                         se la scrittura fallisce.
+     */
+    public void checkpoint() throws IOException {
+        sync();
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (levels.width() > 0) {
+            Path tmp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+            MappedMerkleTree.write(levelOrder(), levels.width(),
+                    levels.height(), MerkleTree.Shape.PADDED, sequence, tmp);
+            Files.move(tmp, snapshot, StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+        checkpointSequence = sequence;
+        resetJournal();
+    }
+
+    /**
+     * Restituisce gli hash dei nodi per livelli a partire dalla radice, come
+     * richiesto dal formato degli snapshot.
+     */
+    private Iterator<String> levelOrder() {
+        int height = levels.height();
+        return new Iterator<String>() {
+            private int depth = 0;
+
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return depth <= height;
+            }
+
+            @Override
+            public String next() {
+                if (depth > height)
+                    throw new NoSuchElementException();
+                String hash = levels.hashAt(height - depth, index);
+                if (++index == 1 << depth) {
+                    depth++;
+                    index = 0;
+                }
+                return hash;
+            }
+        };
+    }
+
+    /**
+     * Restituisce l'hash della radice dell'albero.
+     *
+     * @return l'hash della radice, o null se l'albero è vuoto.
+     */
+    public String getRootHash() {
+        return levels.root();
+    }
+
+    /**
+     * Restituisce la larghezza dell'albero, ovvero il numero di dati.
+     *
+     * @return la larghezza dell'albero.
+     */
+    public int getWidth() {
+        return levels.width();
+    }
+
+    /**
+     * Restituisce il numero di aggiornamenti registrati dalla creazione
+     * dell'albero, compresi quelli non ancora forzati su disco.
+     *
+     * @return il numero di aggiornamenti registrati.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Restituisce la prova di Merkle per il dato nella posizione specificata.
+     *
+     * @param index
+     *                  la posizione del dato, a partire da 0.
+     * @return la prova di Merkle per il dato.
+     * @throws IndexOutOfBoundsException
+     *                                       se la posizione non è compresa
+     *                                       tra 0 e width - 1.
+     */
+    public MerkleProof getMerkleProof(int index) {
+        return levels.proof(index);
+    }
+
+    /**
+     * Forza su disco gli aggiornamenti in sospeso e chiude il journal, senza
+     * eseguire un checkpoint.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            journal.close();
+        }
+    }
+}
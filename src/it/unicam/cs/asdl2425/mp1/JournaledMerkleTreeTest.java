@@ -0,0 +1,215 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per la classe {@link JournaledMerkleTree}. Di seguito,
+ * l'elenco dei test inclusi con una breve descrizione:
+ *
+ * <ul>
+ * <li>{@link #testRootMatchesMerkleTree()}: Verifica che la radice coincida
+ * con quella di un {@link MerkleTree} costruito sugli stessi dati e che le
+ * prove validino i dati.</li>
+ *
+ * <li>{@link #testRecoveryFromJournal()}: Riapre l'albero senza checkpoint e
+ * verifica che il journal venga riapplicato.</li>
+ *
+ * <li>{@link #testRecoveryAfterCheckpoint()}: Riapre l'albero dopo un
+ * checkpoint manuale e alcuni checkpoint automatici, verificando che lo stato
+ * sia il checkpoint più il journal successivo.</li>
+ *
+ * <li>{@link #testTornJournalTail()}: Simula una scrittura interrotta in coda
+ * al journal e verifica che il record incompleto venga scartato.</li>
+ *
+ * <li>{@link #testGroupCommit()}: Verifica che gli aggiornamenti vengano
+ * scritti nel journal solo a gruppi o su richiesta.</li>
+ * </ul>
+ */
+class JournaledMerkleTreeTest {
+
+    private static final String[] DATA = { "Alice paga Bob",
+            "Bob paga Charlie", "Charlie paga Diana", "Diana paga Alice",
+            "Alice paga Charlie" };
+
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("journaled");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path p : (Iterable<Path>) files
+                    .sorted(Comparator.reverseOrder())::iterator)
+                Files.delete(p);
+        }
+    }
+
+    private static String expectedRoot(String... data) {
+        HashLinkedList<String> list = new HashLinkedList<>();
+        for (String s : data)
+            list.addAtTail(s);
+        return new MerkleTree<>(list).getRoot().getHash();
+    }
+
+    @Test
+    void testRootMatchesMerkleTree() throws IOException {
+        try (JournaledMerkleTree<String> tree = JournaledMerkleTree
+                .open(directory, 4, 0)) {
+            assertNull(tree.getRootHash(),
+                    "La radice di un albero vuoto dovrebbe essere null.");
+            for (String s : DATA)
+                tree.append(s);
+            assertEquals(expectedRoot(DATA), tree.getRootHash(),
+                    "La radice non coincide con quella di MerkleTree.");
+            tree.set(1, "Bob paga Diana");
+            assertEquals(expectedRoot("Alice paga Bob", "Bob paga Diana",
+                    "Charlie paga Diana", "Diana paga Alice",
+                    "Alice paga Charlie"), tree.getRootHash(),
+                    "La radice non è stata aggiornata.");
+            assertTrue(tree.getMerkleProof(1)
+                    .proveValidityOfData("Bob paga Diana"),
+                    "La prova dovrebbe validare il nuovo dato.");
+            assertTrue(tree.getMerkleProof(4)
+                    .proveValidityOfData("Alice paga Charlie"),
+                    "La prova dovrebbe validare l'ultimo dato.");
+            assertThrows(IndexOutOfBoundsException.class,
+                    () -> tree.set(5, "Bob paga Diana"));
+        }
+    }
+
+    @Test
+    void testRecoveryFromJournal() throws IOException {
+        String root;
+        try (JournaledMerkleTree<String> tree = JournaledMerkleTree
+                .open(directory, 2, 0)) {
+            for (String s : DATA)
+                tree.append(s);
+            tree.set(0, "Bob paga Alice");
+            root = tree.getRootHash();
+        }
+        assertFalse(Files.exists(
+                directory.resolve(JournaledMerkleTree.SNAPSHOT_FILE)),
+                "Senza checkpoint non dovrebbe esistere uno snapshot.");
+
+        try (JournaledMerkleTree<String> tree = JournaledMerkleTree
+                .open(directory, 2, 0)) {
+            assertEquals(root, tree.getRootHash(),
+                    "La radice ripristinata non è corretta.");
+            assertEquals(5, tree.getWidth(),
+                    "La larghezza ripristinata non è corretta.");
+            assertEquals(6, tree.getSequence(),
+                    "La sequenza ripristinata non è corretta.");
+            assertTrue(tree.getMerkleProof(0)
+                    .proveValidityOfData("Bob paga Alice"),
+                    "La prova dovrebbe validare il dato ripristinato.");
+        }
+    }
+
+    @Test
+    void testRecoveryAfterCheckpoint() throws IOException {
+        String root;
+        try (JournaledMerkleTree<String> tree = JournaledMerkleTree
+                .open(directory, 1, 0)) {
+            for (String s : DATA)
+                tree.append(s);
+            tree.checkpoint();
+            assertEquals(JournaledMerkleTree.JOURNAL_HEADER_SIZE,
+                    Files.size(directory
+                            .resolve(JournaledMerkleTree.JOURNAL_FILE)),
+                    "Il checkpoint dovrebbe svuotare il journal.");
+            tree.append("Diana paga Bob");
+            tree.set(2, "Charlie paga Alice");
+            root = tree.getRootHash();
+        }
+
+        try (JournaledMerkleTree<String> tree = JournaledMerkleTree
+                .open(directory, 1, 3)) {
+            assertEquals(root, tree.getRootHash(),
+                    "La radice ripristinata non è corretta.");
+            assertEquals(6, tree.getWidth(),
+                    "La larghezza ripristinata non è corretta.");
+            for (int i = 0; i < 7; i++)
+                tree.append("Bob paga Alice " + i);
+            root = tree.getRootHash();
+        }
+
+        try (JournaledMerkleTree<String> tree = JournaledMerkleTree
+                .open(directory, 1, 0)) {
+            assertEquals(root, tree.getRootHash(),
+                    "La radice dopo i checkpoint automatici non è corretta.");
+            assertEquals(13, tree.getWidth(),
+                    "La larghezza dopo i checkpoint automatici non è corretta.");
+            assertEquals(14, tree.getSequence(),
+                    "La sequenza dopo i checkpoint automatici non è corretta.");
+        }
+    }
+
+    @Test
+    void testTornJournalTail() throws IOException {
+        String root;
+        try (JournaledMerkleTree<String> tree = JournaledMerkleTree
+                .open(directory, 1, 0)) {
+            for (String s : DATA)
+                tree.append(s);
+            root = tree.getRootHash();
+        }
+        Path journal = directory.resolve(JournaledMerkleTree.JOURNAL_FILE);
+        long size = Files.size(journal);
+        byte[] torn = new byte[JournaledMerkleTree.RECORD_SIZE + 10];
+        torn[0] = 1;
+        Files.write(journal, torn, StandardOpenOption.APPEND);
+
+        try (JournaledMerkleTree<String> tree = JournaledMerkleTree
+                .open(directory, 1, 0)) {
+            assertEquals(root, tree.getRootHash(),
+                    "Il record incompleto non dovrebbe essere applicato.");
+            assertEquals(size, Files.size(journal),
+                    "Il journal dovrebbe essere troncato all'ultimo record.");
+            tree.append("Diana paga Bob");
+            root = tree.getRootHash();
+        }
+
+        try (JournaledMerkleTree<String> tree = JournaledMerkleTree
+                .open(directory, 1, 0)) {
+            assertEquals(root, tree.getRootHash(),
+                    "I record successivi al troncamento dovrebbero essere "
+                            + "ripristinati.");
+        }
+    }
+
+    @Test
+    void testGroupCommit() throws IOException {
+        Path journal = directory.resolve(JournaledMerkleTree.JOURNAL_FILE);
+        long header = JournaledMerkleTree.JOURNAL_HEADER_SIZE;
+        long record = JournaledMerkleTree.RECORD_SIZE;
+        try (JournaledMerkleTree<String> tree = JournaledMerkleTree
+                .open(directory, 3, 0)) {
+            tree.append(DATA[0]);
+            tree.append(DATA[1]);
+            assertEquals(header, Files.size(journal),
+                    "Un gruppo incompleto non dovrebbe essere scritto.");
+            tree.append(DATA[2]);
+            assertEquals(header + 3 * record, Files.size(journal),
+                    "Un gruppo completo dovrebbe essere scritto.");
+            tree.append(DATA[3]);
+            tree.sync();
+            assertEquals(header + 4 * record, Files.size(journal),
+                    "La sincronizzazione dovrebbe scrivere i record in "
+                            + "sospeso.");
+        }
+    }
+}
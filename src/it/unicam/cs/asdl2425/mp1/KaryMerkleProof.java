@@ -0,0 +1,157 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Una prova di Merkle per un {@link KaryMerkleTree}. Come per
+ * {@link MerkleProof}, la prova è una sequenza di passi dalla foglia alla
+ * radice, ma a ogni passo il nodo corrente ha fino a k - 1 fratelli invece di
+ * uno: ogni passo contiene gli hash dei fratelli, nell'ordine, e la posizione
+ * del nodo corrente tra di essi. L'hash del padre si ottiene concatenando gli
+ * hash dei fratelli a sinistra, quello del nodo corrente e quelli dei
+ * fratelli a destra e applicando MD5 al risultato.
+ */
+public class KaryMerkleProof {
+    /**
+     * I passi della prova, dalla foglia alla radice.
+     */
+    private final List<Step> steps;
+
+    /**
+     * L'hash della radice dell'albero per il quale la prova è stata
+     * costruita.
+     */
+    private final String rootHash;
+
+    /**
+     * Numero massimo di passi della prova.
+     */
+    private final int length;
+
+    /**
+     * Costruisce una nuova prova vuota, specificando la radice dell'albero e il
+     * numero massimo di passi.
+     *
+     * @param rootHash
+     *                     l'hash della radice dell'albero.
+     * @param length
+     *                     il numero massimo di passi della prova.
+     * @throws IllegalArgumentException
+     *                                      se l'hash della radice è null.
+     */
+    public KaryMerkleProof(String rootHash, int length) {
+        if (rootHash == null)
+            throw new IllegalArgumentException("The root hash is null");
+        this.steps = new ArrayList<>();
+        this.rootHash = rootHash;
+        this.length = length;
+    }
+
+    /**
+     * Restituisce il numero massimo di passi della prova.
+     *
+     * @return il numero massimo di passi della prova.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Restituisce il numero complessivo di hash di fratelli contenuti nella
+     * prova, che ne determina la dimensione.
+     *
+     * @return il numero di hash contenuti nella prova.
+     */
+    public int getHashCount() {
+        int count = 0;
+        for (Step s : steps)
+            count += s.siblings.length;
+        return count;
+    }
+
+    /**
+     * Aggiunge un passo alla prova. Se la prova è già completa il passo non
+     * viene aggiunto e la funzione restituisce false.
+     *
+     * @param siblings
+     *                     gli hash dei fratelli del nodo corrente, in ordine.
+     * @param position
+     *                     la posizione del nodo corrente tra i figli del
+     *                     padre, da 0 a siblings.length.
+     * @return true se il passo è stato aggiunto, false altrimenti.
+     * @throws IllegalArgumentException
+     *                                      se gli hash sono null o la
+     *                                      posizione non è valida.
+     */
+    public boolean addStep(String[] siblings, int position) {
+        if (siblings == null)
+            throw new IllegalArgumentException("The hashes cannot be null");
+        for (String s : siblings) {
+            if (s == null)
+                throw new IllegalArgumentException("The hash cannot be null");
+        }
+        if (position < 0 || position > siblings.length)
+            throw new IllegalArgumentException("Invalid position: " + position);
+        if (steps.size() >= length)
+            return false;
+        steps.add(new Step(siblings.clone(), position));
+        return true;
+    }
+
+    /**
+     * Valida un dato elemento per questa prova, ricalcolando la radice a
+     * partire dall'hash del dato.
+     *
+     * @param data
+     *                 l'elemento da validare.
+     * @return true se il dato è valido secondo la prova; false altrimenti.
+     * @throws IllegalArgumentException
+     *                                      se il dato è null.
+     */
+    public boolean proveValidityOfData(Object data) {
+        if (data == null)
+            throw new IllegalArgumentException("The data is null");
+        return proveValidityOfHash(HashUtil.dataToHash(data));
+    }
+
+    /**
+     * Valida l'hash di un nodo per questa prova, ricalcolando la radice a
+     * partire da esso.
+     *
+     * @param hash
+     *                 l'hash da validare.
+     * @return true se l'hash è valido secondo la prova; false altrimenti.
+     * @throws IllegalArgumentException
+     *                                      se l'hash è null.
+     */
+    public boolean proveValidityOfHash(String hash) {
+        if (hash == null)
+            throw new IllegalArgumentException("The hash is null");
+        for (Step s : steps) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < s.position; i++)
+                sb.append(s.siblings[i]);
+            sb.append(hash);
+            for (int i = s.position; i < s.siblings.length; i++)
+                sb.append(s.siblings[i]);
+            hash = HashUtil.computeMD5(sb.toString().getBytes());
+        }
+        return hash.equals(rootHash);
+    }
+
+    /**
+     * Un passo della prova: i fratelli del nodo corrente e la sua posizione
+     * tra di essi.
+     */
+    private static class Step {
+        private final String[] siblings;
+
+        private final int position;
+
+        private Step(String[] siblings, int position) {
+            this.siblings = siblings;
+            this.position = position;
+        }
+    }
+}
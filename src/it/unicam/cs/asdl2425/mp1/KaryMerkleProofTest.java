@@ -0,0 +1,83 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per la classe {@link KaryMerkleProof}. Di seguito, l'elenco
+ * dei test inclusi con una breve descrizione:
+ *
+ * <ul>
+ * <li>{@link #testBuildProof()}: Verifica che non sia possibile aggiungere
+ * più passi del limite e che il numero di hash sia calcolato
+ * correttamente.</li>
+ *
+ * <li>{@link #testVerifyProof()}: Verifica una prova costruita a mano, con il
+ * nodo in diverse posizioni tra i fratelli.</li>
+ *
+ * <li>{@link #testInvalidStep()}: Verifica che vengano lanciate eccezioni per
+ * passi non validi.</li>
+ * </ul>
+ */
+class KaryMerkleProofTest {
+
+    private static String md5(String s) {
+        return HashUtil.computeMD5(s.getBytes());
+    }
+
+    @Test
+    void testBuildProof() {
+        KaryMerkleProof proof = new KaryMerkleProof("root", 2);
+
+        assertTrue(proof.addStep(new String[] { "a", "b", "c" }, 1),
+                "Il primo passo dovrebbe essere aggiunto.");
+        assertTrue(proof.addStep(new String[] { "d" }, 0),
+                "Il secondo passo dovrebbe essere aggiunto.");
+        assertFalse(proof.addStep(new String[] { "e" }, 0),
+                "Un passo oltre il limite non dovrebbe essere aggiunto.");
+        assertEquals(2, proof.getLength(),
+                "La lunghezza della prova non è corretta.");
+        assertEquals(4, proof.getHashCount(),
+                "Il numero di hash della prova non è corretto.");
+    }
+
+    @Test
+    void testVerifyProof() {
+        String a = HashUtil.dataToHash("Alice paga Bob");
+        String b = HashUtil.dataToHash("Bob paga Charlie");
+        String c = HashUtil.dataToHash("Charlie paga Diana");
+        String d = HashUtil.dataToHash("Diana paga Alice");
+        String parent = md5(a + b + c);
+        String root = md5(parent + d);
+
+        KaryMerkleProof proof = new KaryMerkleProof(root, 2);
+        proof.addStep(new String[] { a, c }, 1);
+        proof.addStep(new String[] { d }, 0);
+        assertTrue(proof.proveValidityOfData("Bob paga Charlie"),
+                "La prova dovrebbe validare il dato centrale.");
+        assertFalse(proof.proveValidityOfData("Alice paga Bob"),
+                "La prova non dovrebbe validare un dato in un'altra posizione.");
+
+        KaryMerkleProof last = new KaryMerkleProof(root, 1);
+        last.addStep(new String[] { parent }, 1);
+        assertTrue(last.proveValidityOfData("Diana paga Alice"),
+                "La prova dovrebbe validare l'ultimo dato.");
+        assertTrue(last.proveValidityOfHash(d),
+                "La prova dovrebbe validare l'hash dell'ultimo dato.");
+    }
+
+    @Test
+    void testInvalidStep() {
+        KaryMerkleProof proof = new KaryMerkleProof("root", 1);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> proof.addStep(new String[] { "a" }, 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> proof.addStep(new String[] { null }, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new KaryMerkleProof(null, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> proof.proveValidityOfData(null));
+    }
+}
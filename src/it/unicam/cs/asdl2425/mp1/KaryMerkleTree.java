@@ -0,0 +1,264 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Un albero di Merkle in cui ogni nodo interno ha fino a k figli invece di
+ * due. L'hash di un nodo interno si ottiene concatenando gli hash dei figli da
+ * sinistra a destra e applicando MD5 al risultato. Le foglie vengono
+ * raggruppate a k a k dal basso: se l'ultimo gruppo di un livello è composto
+ * da un solo nodo, questo viene promosso al livello superiore senza essere
+ * combinato, per cui non esistono nodi di riempimento e con k = 2 l'albero
+ * coincide con un {@link MerkleTree} di forma {@link MerkleTree.Shape#PROMOTED}.
+ *
+ * <p>
+ * Con fan-out k l'altezza è ceil(log_k n) invece di ceil(log_2 n): una prova
+ * richiede meno calcoli di hash per essere verificata, ma contiene fino a
+ * k - 1 hash per livello. I livelli sono memorizzati come array di hash, con i
+ * figli del nodo j nelle posizioni da j * k a j * k + k - 1 del livello
+ * inferiore.
+ *
+ * @param <T>
+ *                il tipo di dati su cui l'albero è costruito.
+ */
+public class KaryMerkleTree<T> {
+    /**
+     * Il numero massimo di figli di un nodo interno.
+     */
+    private final int fanOut;
+
+    /**
+     * I livelli dell'albero, dal livello delle foglie (0) alla radice.
+     */
+    private final String[][] levels;
+
+    /**
+     * Costruisce un albero di Merkle con il fan-out specificato a partire da
+     * un oggetto HashLinkedList, utilizzando gli hash della lista come foglie.
+     *
+     * @param hashList
+     *                     un oggetto HashLinkedList contenente i dati e i
+     *                     relativi hash.
+     * @param fanOut
+     *                     il numero massimo di figli di un nodo interno.
+     * @throws IllegalArgumentException
+     *                                      se la lista è null o vuota o se il
+     *                                      fan-out è minore di 2.
+     */
+    public KaryMerkleTree(HashLinkedList<T> hashList, int fanOut) {
+        if (hashList == null || hashList.getSize() == 0)
+            throw new IllegalArgumentException("The list is null or empty");
+        if (fanOut < 2)
+            throw new IllegalArgumentException(
+                    "The fan-out must be at least 2");
+        this.fanOut = fanOut;
+        List<String[]> built = new ArrayList<>();
+        String[] level = hashList.getAllHashes().toArray(new String[0]);
+        built.add(level);
+        while (level.length > 1) {
+            String[] parents = new String[(level.length + fanOut - 1) / fanOut];
+            for (int j = 0; j < parents.length; j++) {
+                int from = j * fanOut;
+                int to = Math.min(from + fanOut, level.length);
+                if (to - from == 1) {
+                    parents[j] = level[from];
+                } else {
+                    StringBuilder sb = new StringBuilder();
+                    for (int i = from; i < to; i++)
+                        sb.append(level[i]);
+                    parents[j] = HashUtil.computeMD5(sb.toString().getBytes());
+                }
+            }
+            built.add(parents);
+            level = parents;
+        }
+        this.levels = built.toArray(new String[0][]);
+    }
+
+    /**
+     * Restituisce l'hash della radice dell'albero.
+     *
+     * @return l'hash della radice.
+     */
+    public String getRootHash() {
+        return levels[levels.length - 1][0];
+    }
+
+    /**
+     * Restituisce il fan-out dell'albero.
+     *
+     * @return il numero massimo di figli di un nodo interno.
+     */
+    public int getFanOut() {
+        return fanOut;
+    }
+
+    /**
+     * Restituisce la larghezza dell'albero, ovvero il numero di dati.
+     *
+     * @return la larghezza dell'albero.
+     */
+    public int getWidth() {
+        return levels[0].length;
+    }
+
+    /**
+     * Restituisce l'altezza dell'albero.
+     *
+     * @return l'altezza dell'albero.
+     */
+    public int getHeight() {
+        return levels.length - 1;
+    }
+
+    /**
+     * Restituisce l'indice di un elemento secondo questo albero. Se l'hash
+     * dell'elemento non è presente come dato dell'albero, viene restituito -1.
+     *
+     * @param data
+     *                 l'elemento da cercare.
+     * @return l'indice del dato nell'albero; -1 se il dato non è presente.
+     * @throws IllegalArgumentException
+     *                                      se il dato è null.
+     */
+    public int getIndexOfData(T data) {
+        if (data == null)
+            throw new IllegalArgumentException("The data is null");
+        String hash = HashUtil.dataToHash(data);
+        String[] leaves = levels[0];
+        for (int i = 0; i < leaves.length; i++) {
+            if (leaves[i].equals(hash))
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Sottopone a validazione un elemento per verificare se il suo hash è
+     * l'hash di una foglia dell'albero.
+     *
+     * @param data
+     *                 l'elemento da validare.
+     * @return true se l'hash dell'elemento è parte dell'albero; false
+     *         altrimenti.
+     */
+    public boolean validateData(T data) {
+        return getIndexOfData(data) >= 0;
+    }
+
+    /**
+     * Sottopone a validazione un altro albero per verificare se rappresenta
+     * gli stessi dati di questo, confrontando le radici.
+     *
+     * @param otherTree
+     *                      l'altro albero.
+     * @return true se i due alberi hanno la stessa struttura e la stessa
+     *         radice; false altrimenti.
+     * @throws IllegalArgumentException
+     *                                      se l'albero fornito è null.
+     */
+    public boolean validateTree(KaryMerkleTree<T> otherTree) {
+        if (otherTree == null)
+            throw new IllegalArgumentException("The tree is null");
+        return otherTree.fanOut == fanOut
+                && otherTree.getWidth() == getWidth()
+                && otherTree.getRootHash().equals(getRootHash());
+    }
+
+    /**
+     * Trova gli indici dei dati diversi tra questo albero e un altro con la
+     * stessa struttura, scendendo solo nei figli i cui hash differiscono.
+     *
+     * @param otherTree
+     *                      l'altro albero.
+     * @return l'insieme di indici dei dati diversi.
+     * @throws IllegalArgumentException
+     *                                      se l'altro albero è null o ha un
+     *                                      fan-out o una larghezza diversi.
+     */
+    public Set<Integer> findInvalidDataIndices(KaryMerkleTree<T> otherTree) {
+        if (otherTree == null || otherTree.fanOut != fanOut
+                || otherTree.getWidth() != getWidth())
+            throw new IllegalArgumentException();
+        Set<Integer> invalid = new HashSet<>();
+        ArrayDeque<int[]> stack = new ArrayDeque<>();
+        stack.push(new int[] { getHeight(), 0 });
+        while (!stack.isEmpty()) {
+            int[] node = stack.pop();
+            int l = node[0];
+            int j = node[1];
+            if (levels[l][j].equals(otherTree.levels[l][j]))
+                continue;
+            if (l == 0) {
+                invalid.add(j);
+                continue;
+            }
+            int from = j * fanOut;
+            int to = Math.min(from + fanOut, levels[l - 1].length);
+            for (int i = from; i < to; i++)
+                stack.push(new int[] { l - 1, i });
+        }
+        return invalid;
+    }
+
+    /**
+     * Restituisce la prova di Merkle per il dato nella posizione specificata.
+     * Un livello in cui il nodo è stato promosso non aggiunge alcun passo.
+     *
+     * @param index
+     *                  la posizione del dato, a partire da 0.
+     * @return la prova di Merkle per il dato.
+     * @throws IndexOutOfBoundsException
+     *                                       se la posizione non è compresa
+     *                                       tra 0 e width - 1.
+     */
+    public KaryMerkleProof getMerkleProofAt(int index) {
+        if (index < 0 || index >= getWidth())
+            throw new IndexOutOfBoundsException(
+                    "Index: " + index + ", Width: " + getWidth());
+        List<String[]> siblings = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        int j = index;
+        for (int l = 0; l < getHeight(); l++) {
+            int from = j / fanOut * fanOut;
+            int to = Math.min(from + fanOut, levels[l].length);
+            if (to - from > 1) {
+                String[] group = Arrays.copyOfRange(levels[l], from, to);
+                String[] others = new String[group.length - 1];
+                System.arraycopy(group, 0, others, 0, j - from);
+                System.arraycopy(group, j - from + 1, others, j - from,
+                        to - j - 1);
+                siblings.add(others);
+                positions.add(j - from);
+            }
+            j /= fanOut;
+        }
+        KaryMerkleProof proof = new KaryMerkleProof(getRootHash(),
+                siblings.size());
+        for (int i = 0; i < siblings.size(); i++)
+            proof.addStep(siblings.get(i), positions.get(i));
+        return proof;
+    }
+
+    /**
+     * Restituisce la prova di Merkle per un dato elemento.
+     *
+     * @param data
+     *                 l'elemento per cui generare la prova di Merkle.
+     * @return la prova di Merkle per il dato.
+     * @throws IllegalArgumentException
+     *                                      se il dato è null o non è parte
+     *                                      dell'albero.
+     */
+    public KaryMerkleProof getMerkleProof(T data) {
+        int index = getIndexOfData(data);
+        if (index < 0)
+            throw new IllegalArgumentException("The data is not in the tree");
+        return getMerkleProofAt(index);
+    }
+}
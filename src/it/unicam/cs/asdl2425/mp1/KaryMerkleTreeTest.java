@@ -0,0 +1,141 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per la classe {@link KaryMerkleTree}. Di seguito, l'elenco
+ * dei test inclusi con una breve descrizione:
+ *
+ * <ul>
+ * <li>{@link #testBinaryMatchesPromotedTree()}: Verifica che con fan-out 2
+ * l'albero coincida con un {@link MerkleTree} con nodi promossi.</li>
+ *
+ * <li>{@link #testHeight()}: Verifica l'altezza per diversi fan-out.</li>
+ *
+ * <li>{@link #testProofs()}: Verifica che le prove validino ogni dato per
+ * diversi fan-out e che contengano al più k - 1 hash per livello.</li>
+ *
+ * <li>{@link #testValidation()}: Verifica la ricerca e la validazione di dati
+ * e alberi.</li>
+ *
+ * <li>{@link #testFindInvalidDataIndices()}: Verifica gli indici dei dati
+ * diversi tra due alberi.</li>
+ *
+ * <li>{@link #testInvalidArguments()}: Verifica che vengano lanciate
+ * eccezioni per argomenti non validi.</li>
+ * </ul>
+ */
+class KaryMerkleTreeTest {
+
+    private HashLinkedList<String> list;
+
+    @BeforeEach
+    void setUp() {
+        list = new HashLinkedList<>();
+        for (int i = 0; i < 37; i++)
+            list.addAtTail("Alice paga Bob " + i);
+    }
+
+    @Test
+    void testBinaryMatchesPromotedTree() {
+        KaryMerkleTree<String> binary = new KaryMerkleTree<>(list, 2);
+        MerkleTree<String> promoted = new MerkleTree<>(list,
+                MerkleTree.Shape.PROMOTED);
+
+        assertEquals(promoted.getRoot().getHash(), binary.getRootHash(),
+                "Con fan-out 2 la radice dovrebbe coincidere.");
+        assertEquals(promoted.getHeight(), binary.getHeight(),
+                "Con fan-out 2 l'altezza dovrebbe coincidere.");
+    }
+
+    @Test
+    void testHeight() {
+        assertEquals(6, new KaryMerkleTree<>(list, 2).getHeight(),
+                "L'altezza con fan-out 2 non è corretta.");
+        assertEquals(3, new KaryMerkleTree<>(list, 4).getHeight(),
+                "L'altezza con fan-out 4 non è corretta.");
+        assertEquals(2, new KaryMerkleTree<>(list, 8).getHeight(),
+                "L'altezza con fan-out 8 non è corretta.");
+        assertEquals(2, new KaryMerkleTree<>(list, 16).getHeight(),
+                "L'altezza con fan-out 16 non è corretta.");
+        assertEquals(37, new KaryMerkleTree<>(list, 16).getWidth(),
+                "La larghezza non è corretta.");
+    }
+
+    @Test
+    void testProofs() {
+        for (int k : new int[] { 2, 4, 8, 16 }) {
+            KaryMerkleTree<String> tree = new KaryMerkleTree<>(list, k);
+            for (int i = 0; i < 37; i++) {
+                KaryMerkleProof proof = tree.getMerkleProofAt(i);
+                assertTrue(proof.proveValidityOfData("Alice paga Bob " + i),
+                        "La prova dovrebbe validare il dato " + i
+                                + " con fan-out " + k + ".");
+                assertFalse(proof.proveValidityOfData("Bob paga Alice"),
+                        "La prova non dovrebbe validare un dato assente.");
+                assertTrue(proof.getLength() <= tree.getHeight(),
+                        "La prova non dovrebbe avere più passi dei livelli.");
+                assertTrue(proof.getHashCount() <= (k - 1) * tree.getHeight(),
+                        "La prova dovrebbe avere al più k - 1 hash per livello.");
+            }
+        }
+        KaryMerkleTree<String> tree = new KaryMerkleTree<>(list, 4);
+        assertEquals(8, tree.getMerkleProofAt(0).getHashCount(),
+                "La prova del primo dato dovrebbe avere 3 + 3 + 2 hash.");
+        assertTrue(tree.getMerkleProof("Alice paga Bob 36")
+                .proveValidityOfData("Alice paga Bob 36"),
+                "La prova per dato dovrebbe validare il dato.");
+    }
+
+    @Test
+    void testValidation() {
+        KaryMerkleTree<String> tree = new KaryMerkleTree<>(list, 8);
+
+        assertEquals(20, tree.getIndexOfData("Alice paga Bob 20"),
+                "L'indice del dato non è corretto.");
+        assertEquals(-1, tree.getIndexOfData("Bob paga Alice"),
+                "Un dato assente dovrebbe avere indice -1.");
+        assertTrue(tree.validateData("Alice paga Bob 0"),
+                "Il dato dovrebbe essere valido.");
+        assertTrue(tree.validateTree(new KaryMerkleTree<>(list, 8)),
+                "Un albero identico dovrebbe essere valido.");
+        assertFalse(tree.validateTree(new KaryMerkleTree<>(list, 4)),
+                "Un albero con fan-out diverso non dovrebbe essere valido.");
+    }
+
+    @Test
+    void testFindInvalidDataIndices() {
+        KaryMerkleTree<String> tree = new KaryMerkleTree<>(list, 4);
+        list.set(3, "Bob paga Alice");
+        list.set(36, "Bob paga Charlie");
+        KaryMerkleTree<String> modified = new KaryMerkleTree<>(list, 4);
+
+        assertEquals(Set.of(3, 36), tree.findInvalidDataIndices(modified),
+                "Gli indici dei dati diversi non sono corretti.");
+        assertTrue(tree.findInvalidDataIndices(tree).isEmpty(),
+                "Un albero non dovrebbe differire da se stesso.");
+        assertThrows(IllegalArgumentException.class,
+                () -> tree.findInvalidDataIndices(
+                        new KaryMerkleTree<>(list, 8)));
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new KaryMerkleTree<>(list, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new KaryMerkleTree<String>(null, 4));
+        assertThrows(IllegalArgumentException.class,
+                () -> new KaryMerkleTree<>(new HashLinkedList<String>(), 4));
+        KaryMerkleTree<String> tree = new KaryMerkleTree<>(list, 4);
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> tree.getMerkleProofAt(37));
+        assertThrows(IllegalArgumentException.class,
+                () -> tree.getMerkleProof("Bob paga Alice"));
+    }
+}
@@ -0,0 +1,124 @@
+package it.unicam.cs.asdl2425.mp1;
+
+/**
+ * Un albero di Merkle che resta aggiornato rispetto a una
+ * {@link HashLinkedList}, ascoltandone le modifiche invece di essere
+ * ricostruito da capo. L'hash della radice coincide in ogni momento con quello
+ * di un {@link MerkleTree} costruito a partire dallo stato corrente della
+ * lista, compreso il riempimento con foglie vuote fino alla potenza di due
+ * successiva.
+ *
+ * <p>
+ * Gli hash sono mantenuti in un {@link HashLevels}, che accumula le modifiche
+ * e ricalcola ogni nodo interno interessato una sola volta alla prima
+ * richiesta della radice o di una prova. Una sostituzione o un inserimento in
+ * coda costano quindi O(log n); un inserimento o una rimozione in mezzo alla
+ * lista spostano invece tutte le foglie successive, per cui vanno ricalcolati
+ * i cammini di tutte le foglie da quella posizione in poi.
+ *
+ * @param <T>
+ *                il tipo di dati della lista osservata.
+ */
+public class LiveMerkleTree<T> {
+    /**
+     * La lista osservata.
+     */
+    private final HashLinkedList<T> list;
+
+    /**
+     * L'ascoltatore registrato sulla lista.
+     */
+    private final HashLinkedList.ChangeListener<T> listener;
+
+    /**
+     * Gli hash dell'albero, per livelli.
+     */
+    private final HashLevels levels;
+
+    /**
+     * Costruisce un albero di Merkle a partire dallo stato corrente della
+     * lista e si registra come suo ascoltatore, così da restare aggiornato.
+     *
+     * @param list
+     *                 la lista da osservare.
+     * @throws IllegalArgumentException
+     *                                      se la lista è null.
+     */
+    public LiveMerkleTree(HashLinkedList<T> list) {
+        if (list == null)
+            throw new IllegalArgumentException("The list is null");
+        this.list = list;
+        this.levels = new HashLevels(list.getAllHashes());
+        this.listener = new HashLinkedList.ChangeListener<T>() {
+            @Override
+            public void inserted(int index, T data, String hash) {
+                levels.insert(index, hash);
+            }
+
+            @Override
+            public void removed(int index, T data, String hash) {
+                levels.remove(index);
+            }
+
+            @Override
+            public void replaced(int index, T oldData, T data, String hash) {
+                levels.set(index, hash);
+            }
+        };
+        list.addChangeListener(listener);
+    }
+
+    /**
+     * Smette di osservare la lista. Dopo la chiamata l'albero rappresenta
+     * l'ultimo stato della lista osservato.
+     */
+    public void detach() {
+        list.removeChangeListener(listener);
+    }
+
+    /**
+     * Restituisce l'hash della radice relativo allo stato corrente della
+     * lista, ricalcolando prima i nodi interessati dalle modifiche in sospeso.
+     *
+     * @return l'hash della radice, o null se la lista è vuota.
+     */
+    public String getRootHash() {
+        return levels.root();
+    }
+
+    /**
+     * Restituisce la larghezza dell'albero, ovvero il numero di dati nella
+     * lista osservata.
+     *
+     * @return la larghezza dell'albero.
+     */
+    public int getWidth() {
+        return levels.width();
+    }
+
+    /**
+     * Restituisce l'altezza dell'albero, uguale a quella di un
+     * {@link MerkleTree} costruito sugli stessi dati.
+     *
+     * @return l'altezza dell'albero.
+     */
+    public int getHeight() {
+        return levels.height();
+    }
+
+    /**
+     * Restituisce la prova di Merkle per il dato nella posizione specificata,
+     * verificabile con {@link MerkleProof#proveValidityOfData(Object)} rispetto
+     * alla radice corrente.
+     *
+     * @param index
+     *                  la posizione del dato, a partire da 0.
+     * @return la prova di Merkle per il dato.
+     * @throws IndexOutOfBoundsException
+     *                                       se la posizione non è compresa
+     *                                       tra 0 e width - 1.
+     */
+    public MerkleProof getMerkleProof(int index) {
+        return levels.proof(index);
+    }
+}
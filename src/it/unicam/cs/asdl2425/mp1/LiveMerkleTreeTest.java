@@ -0,0 +1,105 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per la classe {@link LiveMerkleTree}. Di seguito, l'elenco
+ * dei test inclusi con una breve descrizione:
+ *
+ * <ul>
+ * <li>{@link #testInitialRoot()}: Verifica che la radice iniziale coincida con
+ * quella di un {@link MerkleTree} costruito sulla stessa lista.</li>
+ *
+ * <li>{@link #testRootFollowsChanges()}: Esegue una sequenza casuale di
+ * modifiche sulla lista e verifica dopo ognuna che la radice coincida con
+ * quella di un {@link MerkleTree} ricostruito da capo.</li>
+ *
+ * <li>{@link #testMerkleProof()}: Verifica che le prove restituite validino i
+ * dati della lista rispetto alla radice corrente.</li>
+ *
+ * <li>{@link #testDetach()}: Verifica che, dopo {@code detach()}, l'albero non
+ * segua più le modifiche della lista.</li>
+ * </ul>
+ */
+class LiveMerkleTreeTest {
+
+    private HashLinkedList<String> list;
+
+    @BeforeEach
+    void setUp() {
+        list = new HashLinkedList<>();
+        list.addAtTail("Alice paga Bob");
+        list.addAtTail("Bob paga Charlie");
+        list.addAtTail("Charlie paga Diana");
+    }
+
+    @Test
+    void testInitialRoot() {
+        LiveMerkleTree<String> tree = new LiveMerkleTree<>(list);
+        MerkleTree<String> expected = new MerkleTree<>(list);
+
+        assertEquals(expected.getRoot().getHash(), tree.getRootHash(),
+                "La radice non coincide con quella del MerkleTree.");
+        assertEquals(expected.getHeight(), tree.getHeight(),
+                "L'altezza non coincide con quella del MerkleTree.");
+        assertEquals(3, tree.getWidth(), "La larghezza non è corretta.");
+    }
+
+    @Test
+    void testRootFollowsChanges() {
+        LiveMerkleTree<String> tree = new LiveMerkleTree<>(list);
+        Random random = new Random(7);
+        for (int i = 0; i < 300; i++) {
+            String s = "Transazione " + i;
+            int op = random.nextInt(5);
+            if (op == 0)
+                list.addAtHead(s);
+            else if (op == 1 || list.getSize() < 2)
+                list.addAtTail(s);
+            else if (op == 2)
+                list.insertAt(random.nextInt(list.getSize() + 1), s);
+            else if (op == 3)
+                list.removeAt(random.nextInt(list.getSize()));
+            else
+                list.set(random.nextInt(list.getSize()), s);
+            assertEquals(new MerkleTree<>(list).getRoot().getHash(),
+                    tree.getRootHash(),
+                    "La radice non coincide dopo la modifica " + i + ".");
+        }
+    }
+
+    @Test
+    void testMerkleProof() {
+        LiveMerkleTree<String> tree = new LiveMerkleTree<>(list);
+        list.addAtTail("Diana paga Alice");
+        list.addAtTail("Alice paga Charlie");
+
+        for (int i = 0; i < list.getSize(); i++) {
+            MerkleProof proof = tree.getMerkleProof(i);
+            assertTrue(proof.proveValidityOfData(list.get(i)),
+                    "La prova dovrebbe validare il dato in posizione " + i
+                            + ".");
+            assertFalse(proof.proveValidityOfData("Bob paga Diana"),
+                    "La prova non dovrebbe validare un dato assente.");
+        }
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> tree.getMerkleProof(5));
+    }
+
+    @Test
+    void testDetach() {
+        LiveMerkleTree<String> tree = new LiveMerkleTree<>(list);
+        String root = tree.getRootHash();
+        tree.detach();
+        list.addAtTail("Diana paga Alice");
+
+        assertEquals(root, tree.getRootHash(),
+                "L'albero non dovrebbe più seguire la lista.");
+        assertEquals(3, tree.getWidth(), "La larghezza non è corretta.");
+    }
+}
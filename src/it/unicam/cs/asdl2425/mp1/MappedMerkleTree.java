@@ -0,0 +1,595 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Un albero di Merkle in sola lettura servito direttamente da uno snapshot su
+ * disco, mappato in memoria tramite {@link FileChannel#map}. L'apertura non
+ * ricalcola alcun hash e non crea alcun nodo: radice, prove e confronti
+ * leggono i digest dalla mappatura, per cui il tempo di apertura non dipende
+ * dalla dimensione dell'albero.
+ *
+ * <p>
+ * Uno snapshot si ottiene con {@link MerkleTree#save(Path)} e ha il seguente
+ * formato, con interi big-endian:
+ *
+ * <pre>
+ *     offset  0: magic         int  0x4D4B4C54 ("MKLT")
+ *     offset  4: versione      int  2
+ *     offset  8: algoritmo     int  1 (MD5)
+ *     offset 12: lunghezza     int  lunghezza in byte di un digest (16)
+ *     offset 16: larghezza     int  numero di dati dell'albero
+ *     offset 20: altezza       int  altezza h dell'albero
+ *     offset 24: sequenza      long aggiornamenti di journal inclusi
+ *     offset 32: forma         int  0 (PADDED) o 1 (PROMOTED)
+ *     offset 36: riservato     12 byte a zero
+ *     offset 48: digest        digest grezzi dei nodi, per livelli
+ * </pre>
+ *
+ * I digest sono memorizzati per livelli a partire dalla radice, da sinistra a
+ * destra. Il livello alla profondità d ha 2^d nodi per la forma
+ * {@link MerkleTree.Shape#PADDED}, in totale 2^(h+1) - 1, per cui i figli del
+ * nodo in posizione i sono in posizione 2i + 1 e 2i + 2; i nodi di
+ * riempimento, che in {@link MerkleTree} hanno hash vuoto, sono rappresentati
+ * da un digest di soli zeri. Per la forma {@link MerkleTree.Shape#PROMOTED}
+ * i livelli, dalle foglie alla radice, hanno n, ⌈n/2⌉, ..., 1 nodi: i figli
+ * del nodo i sono i nodi 2i e 2i + 1 del livello inferiore, e un nodo senza
+ * fratello compare anche al livello superiore, come nodo promosso con lo
+ * stesso digest. Il campo sequenza vale 0 per gli snapshot scritti da
+ * {@link MerkleTree#save(Path)}, mentre per i checkpoint di un
+ * {@link JournaledMerkleTree} indica quanti aggiornamenti del journal sono già
+ * inclusi nello snapshot.
+ *
+ * <p>
+ * Gli snapshot della versione 1 hanno un'intestazione di 32 byte senza il
+ * campo forma e contengono sempre un albero con riempimento; vengono ancora
+ * aperti normalmente.
+ *
+ * <p>
+ * File più grandi di 1 GB vengono mappati in più segmenti da 1 GB; poiché
+ * l'intestazione e i digest hanno dimensioni multiple di 16 byte, nessun
+ * digest è mai diviso tra due segmenti.
+ *
+ * @param <T>
+ *                il tipo di dati su cui l'albero è stato costruito.
+ */
+public class MappedMerkleTree<T> implements Closeable {
+    static final int MAGIC = 0x4D4B4C54;
+
+    static final int VERSION = 2;
+
+    static final int ALGORITHM_MD5 = 1;
+
+    static final int HEADER_SIZE = 48;
+
+    private static final int V1_HEADER_SIZE = 32;
+
+    private static final int SHAPE_PADDED = 0;
+
+    private static final int SHAPE_PROMOTED = 1;
+
+    private static final int DIGEST = HashUtil.MD5_LENGTH;
+
+    private static final int SEGMENT_SHIFT = 30;
+
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer[] segments;
+
+    private final int width;
+
+    private final int height;
+
+    private final MerkleTree.Shape shape;
+
+    private final long sequence;
+
+    private final int headerSize;
+
+    private final long[] levelStart; // Primo nodo di ogni profondità
+
+    private MappedMerkleTree(FileChannel channel, MappedByteBuffer[] segments,
+            int width, int height, MerkleTree.Shape shape, long sequence,
+            int headerSize) {
+        this.channel = channel;
+        this.segments = segments;
+        this.width = width;
+        this.height = height;
+        this.shape = shape;
+        this.sequence = sequence;
+        this.headerSize = headerSize;
+        this.levelStart = levelStarts(shape, width, height);
+    }
+
+    /**
+     * Restituisce il numero di nodi alla profondità specificata.
+     */
+    private static long levelCount(MerkleTree.Shape shape, int width,
+            int height, int depth) {
+        if (shape == MerkleTree.Shape.PADDED)
+            return 1L << depth;
+        return ((width - 1L) >>> (height - depth)) + 1;
+    }
+
+    /**
+     * Restituisce, per ogni profondità, la posizione del primo nodo del
+     * livello nello snapshot; l'ultimo elemento è il numero totale di nodi.
+     */
+    private static long[] levelStarts(MerkleTree.Shape shape, int width,
+            int height) {
+        long[] starts = new long[height + 2];
+        for (int d = 0; d <= height; d++)
+            starts[d + 1] = starts[d] + levelCount(shape, width, height, d);
+        return starts;
+    }
+
+    /**
+     * Scrive lo snapshot di un albero su un file, sovrascrivendolo se esiste.
+     * I nodi vengono visitati per livelli; con la forma
+     * {@link MerkleTree.Shape#PROMOTED} un nodo senza fratello nel livello
+     * inferiore viene scritto di nuovo in quel livello.
+     *
+     * @param root
+     *                   la radice dell'albero.
+     * @param width
+     *                   la larghezza dell'albero.
+     * @param height
+     *                   l'altezza dell'albero.
+     * @param shape
+     *                   la forma dell'albero.
+     * @param path
+     *                   il file di destinazione.
+     * @throws IOException
+     *                         se la scrittura fallisce.
+     */
+    static void write(MerkleNode root, int width, int height,
+            MerkleTree.Shape shape, Path path) throws IOException {
+        Iterator<String> hashes = new Iterator<String>() {
+            private List<MerkleNode> level = List.of(root);
+
+            private List<MerkleNode> below = new ArrayList<>();
+
+            private int depth = 0;
+
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return depth <= height;
+            }
+
+            @Override
+            public String next() {
+                if (depth > height)
+                    throw new NoSuchElementException();
+                MerkleNode n = level.get(index);
+                if (depth < height) {
+                    if (2L * index + 1 < levelCount(shape, width, height,
+                            depth + 1)) {
+                        below.add(n.getLeft());
+                        below.add(n.getRight());
+                    } else {
+                        below.add(n); // Nodo promosso
+                    }
+                }
+                if (++index == level.size()) {
+                    level = below;
+                    below = new ArrayList<>();
+                    depth++;
+                    index = 0;
+                }
+                return n.getHash();
+            }
+        };
+        write(hashes, width, height, shape, 0, path);
+    }
+
+    /**
+     * Scrive uno snapshot su un file a partire dagli hash dei suoi nodi,
+     * sovrascrivendolo se esiste. Il file viene forzato su disco prima di
+     * essere chiuso.
+     *
+     * @param hashes
+     *                     gli hash esadecimali dei nodi, per livelli a partire
+     *                     dalla radice come descritto nel formato; la stringa
+     *                     vuota indica un nodo di riempimento.
+     * @param width
+     *                     la larghezza dell'albero.
+     * @param height
+     *                     l'altezza dell'albero.
+     * @param shape
+     *                     la forma dell'albero.
+     * @param sequence
+     *                     il numero di aggiornamenti di un journal inclusi
+     *                     nello snapshot.
+     * @param path
+     *                     il file di destinazione.
+     * @throws IOException
+     *                         se la scrittura fallisce.
+     */
+    static void write(Iterator<String> hashes, int width, int height,
+            MerkleTree.Shape shape, long sequence, Path path)
+            throws IOException {
+        try (FileChannel out = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(ALGORITHM_MD5)
+                    .putInt(DIGEST).putInt(width).putInt(height)
+                    .putLong(sequence)
+                    .putInt(shape == MerkleTree.Shape.PADDED ? SHAPE_PADDED
+                            : SHAPE_PROMOTED);
+            buffer.position(HEADER_SIZE);
+            while (hashes.hasNext()) {
+                String hash = hashes.next();
+                if (buffer.remaining() < DIGEST)
+                    drain(buffer, out);
+                if (hash.isEmpty())
+                    buffer.put(new byte[DIGEST]);
+                else
+                    buffer.put(HashUtil.hexToBytes(hash));
+            }
+            drain(buffer, out);
+            out.force(true);
+        }
+    }
+
+    private static void drain(ByteBuffer buffer, FileChannel out)
+            throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            out.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Apre uno snapshot scritto da {@link MerkleTree#save(Path)}, mappandolo
+     * in memoria in sola lettura.
+     *
+     * @param <T>
+     *                 il tipo di dati su cui l'albero è stato costruito.
+     * @param path
+     *                 il file dello snapshot.
+     * @return l'albero servito dallo snapshot.
+     * @throws IOException
+     *                         se il file non può essere letto o non è uno
+     *                         snapshot valido.
+     */
+    public static <T> MappedMerkleTree<T> open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < V1_HEADER_SIZE)
+                throw new IOException("Not a Merkle tree snapshot: " + path);
+            ByteBuffer header = ByteBuffer
+                    .allocate((int) Math.min(size, HEADER_SIZE));
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0)
+                    throw new IOException("Truncated snapshot: " + path);
+            }
+            header.flip();
+            if (header.getInt() != MAGIC)
+                throw new IOException("Not a Merkle tree snapshot: " + path);
+            int version = header.getInt();
+            if (version != 1 && version != VERSION)
+                throw new IOException(
+                        "Unsupported snapshot version: " + version);
+            int algorithm = header.getInt();
+            int digest = header.getInt();
+            if (algorithm != ALGORITHM_MD5 || digest != DIGEST)
+                throw new IOException(
+                        "Unsupported hash algorithm: " + algorithm);
+            int width = header.getInt();
+            int height = header.getInt();
+            long sequence = header.getLong();
+            int headerSize = V1_HEADER_SIZE;
+            MerkleTree.Shape shape = MerkleTree.Shape.PADDED;
+            if (version == VERSION) {
+                if (header.remaining() < HEADER_SIZE - V1_HEADER_SIZE)
+                    throw new IOException("Truncated snapshot: " + path);
+                headerSize = HEADER_SIZE;
+                int code = header.getInt();
+                if (code == SHAPE_PROMOTED)
+                    shape = MerkleTree.Shape.PROMOTED;
+                else if (code != SHAPE_PADDED)
+                    throw new IOException("Unsupported tree shape: " + code);
+            }
+            if (sequence < 0 || width <= 0 || height < 0 || height > 30
+                    || (1L << height) < width
+                    || shape == MerkleTree.Shape.PROMOTED && height > 0
+                            && (1L << (height - 1)) >= width
+                    || size != headerSize + levelStarts(shape, width,
+                            height)[height + 1] * DIGEST)
+                throw new IOException("Corrupted snapshot: " + path);
+            int count = (int) ((size - 1) >>> SEGMENT_SHIFT) + 1;
+            MappedByteBuffer[] segments = new MappedByteBuffer[count];
+            for (int s = 0; s < count; s++) {
+                long start = (long) s << SEGMENT_SHIFT;
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(size - start, 1L << SEGMENT_SHIFT));
+            }
+            return new MappedMerkleTree<>(channel, segments, width, height,
+                    shape, sequence, headerSize);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Restituisce l'hash della radice dell'albero.
+     *
+     * @return l'hash della radice.
+     */
+    public String getRootHash() {
+        return hashAt(0);
+    }
+
+    /**
+     * Restituisce la larghezza dell'albero.
+     *
+     * @return la larghezza dell'albero.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Restituisce l'altezza dell'albero.
+     *
+     * @return l'altezza dell'albero.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Restituisce la forma dell'albero salvato nello snapshot.
+     *
+     * @return la forma dell'albero.
+     */
+    public MerkleTree.Shape getShape() {
+        return shape;
+    }
+
+    /**
+     * Restituisce il numero di aggiornamenti di journal inclusi nello
+     * snapshot, 0 se lo snapshot non è un checkpoint.
+     */
+    long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Restituisce l'indice di un elemento secondo questo albero, cercandone
+     * l'hash tra le foglie senza ricalcolare alcun hash interno.
+     *
+     * @param data
+     *                 l'elemento da cercare.
+     * @return l'indice del dato nell'albero; -1 se il dato non è presente.
+     * @throws IllegalArgumentException
+     *                                      se il dato è null.
+     */
+    public int getIndexOfData(T data) {
+        if (data == null)
+            throw new IllegalArgumentException("The data is null");
+        ByteBuffer digest = ByteBuffer
+                .wrap(HashUtil.hexToBytes(HashUtil.dataToHash(data)));
+        long hi = digest.getLong(0);
+        long lo = digest.getLong(8);
+        long first = levelStart[height];
+        for (int i = 0; i < width; i++) {
+            long off = offset(first + i);
+            MappedByteBuffer seg = segments[(int) (off >>> SEGMENT_SHIFT)];
+            int pos = (int) (off & SEGMENT_MASK);
+            if (seg.getLong(pos) == hi && seg.getLong(pos + 8) == lo)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Sottopone a validazione un elemento per verificare se il suo hash è
+     * l'hash di una foglia dell'albero.
+     *
+     * @param data
+     *                 l'elemento da validare.
+     * @return true se l'hash dell'elemento è parte dell'albero; false
+     *         altrimenti.
+     */
+    public boolean validateData(T data) {
+        return getIndexOfData(data) >= 0;
+    }
+
+    /**
+     * Restituisce la prova di Merkle per il dato nella posizione specificata,
+     * leggendo dallo snapshot al più un hash per livello; i livelli in cui il
+     * nodo viene promosso non contribuiscono alla prova.
+     *
+     * @param index
+     *                  la posizione del dato, a partire da 0.
+     * @return la prova di Merkle per il dato.
+     * @throws IndexOutOfBoundsException
+     *                                       se la posizione non è compresa
+     *                                       tra 0 e width - 1.
+     */
+    public MerkleProof getMerkleProof(int index) {
+        if (index < 0 || index >= width)
+            throw new IndexOutOfBoundsException(
+                    "Index: " + index + ", Width: " + width);
+        int length = 0;
+        for (int d = height; d > 0; d--)
+            if (hasSibling(d, (long) index >>> (height - d)))
+                length++;
+        MerkleProof proof = new MerkleProof(getRootHash(), length);
+        long j = index;
+        for (int d = height; d > 0; d--) {
+            if (hasSibling(d, j))
+                proof.addHash(hashAt(levelStart[d] + (j ^ 1)), (j & 1) == 1);
+            j >>>= 1;
+        }
+        return proof;
+    }
+
+    /**
+     * Restituisce la prova di Merkle per un dato elemento.
+     *
+     * @param data
+     *                 l'elemento per cui generare la prova di Merkle.
+     * @return la prova di Merkle per il dato.
+     * @throws IllegalArgumentException
+     *                                      se il dato è null o non è parte
+     *                                      dell'albero.
+     */
+    public MerkleProof getMerkleProof(T data) {
+        int index = getIndexOfData(data);
+        if (index < 0)
+            throw new IllegalArgumentException("The data is not in the tree");
+        return getMerkleProof(index);
+    }
+
+    /**
+     * Trova gli indici dei dati diversi tra questo albero e un altro
+     * snapshot, scendendo solo nei sottoalberi le cui radici differiscono e
+     * confrontando i digest grezzi senza convertirli.
+     *
+     * @param other
+     *                  l'altro snapshot.
+     * @return l'insieme di indici dei dati diversi.
+     * @throws IllegalArgumentException
+     *                                      se l'altro albero è null o ha
+     *                                      un'altezza o una forma diversa,
+     *                                      o se ha forma
+     *                                      {@link MerkleTree.Shape#PROMOTED}
+     *                                      e una larghezza diversa.
+     */
+    public Set<Integer> findInvalidDataIndices(MappedMerkleTree<T> other) {
+        if (other == null || other.height != height || other.shape != shape
+                || shape == MerkleTree.Shape.PROMOTED && other.width != width)
+            throw new IllegalArgumentException();
+        Set<Integer> invalid = new HashSet<>();
+        ArrayDeque<long[]> stack = new ArrayDeque<>();
+        stack.push(new long[] { 0, 0 });
+        while (!stack.isEmpty()) {
+            long[] node = stack.pop();
+            int d = (int) node[0];
+            long j = node[1];
+            if (sameDigest(levelStart[d] + j, other))
+                continue;
+            if (d == height) {
+                invalid.add((int) j);
+            } else {
+                if (hasSibling(d + 1, 2 * j))
+                    stack.push(new long[] { d + 1, 2 * j + 1 });
+                stack.push(new long[] { d + 1, 2 * j });
+            }
+        }
+        return invalid;
+    }
+
+    /**
+     * Trova gli indici dei dati diversi tra questo albero e un
+     * {@link MerkleTree} in memoria.
+     *
+     * @param other
+     *                  l'albero in memoria.
+     * @return l'insieme di indici dei dati diversi.
+     * @throws IllegalArgumentException
+     *                                      se l'altro albero è null o ha
+     *                                      un'altezza o una forma diversa,
+     *                                      o se ha forma
+     *                                      {@link MerkleTree.Shape#PROMOTED}
+     *                                      e una larghezza diversa.
+     */
+    public Set<Integer> findInvalidDataIndices(MerkleTree<T> other) {
+        if (other == null || other.getHeight() != height
+                || other.getShape() != shape
+                || shape == MerkleTree.Shape.PROMOTED
+                        && other.getWidth() != width)
+            throw new IllegalArgumentException();
+        Set<Integer> invalid = new HashSet<>();
+        collectInvalid(other.getRoot(), 0, 0, invalid);
+        return invalid;
+    }
+
+    private void collectInvalid(MerkleNode otherNode, int depth, long index,
+            Set<Integer> invalid) {
+        if (otherNode.getHash().equals(hashAt(levelStart[depth] + index)))
+            return;
+        if (depth == height) {
+            invalid.add((int) index);
+        } else if (!hasSibling(depth + 1, 2 * index)) {
+            // Nodo promosso: lo stesso nodo al livello inferiore
+            collectInvalid(otherNode, depth + 1, 2 * index, invalid);
+        } else {
+            collectInvalid(otherNode.getLeft(), depth + 1, 2 * index,
+                    invalid);
+            collectInvalid(otherNode.getRight(), depth + 1, 2 * index + 1,
+                    invalid);
+        }
+    }
+
+    /**
+     * Rilascia il file dello snapshot. La memoria mappata viene rilasciata
+     * dalla JVM quando non è più raggiungibile.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Indica se il nodo in posizione index alla profondità depth ha un
+     * fratello; un nodo senza fratello viene promosso al livello superiore.
+     */
+    private boolean hasSibling(int depth, long index) {
+        return (index ^ 1) < levelCount(shape, width, height, depth);
+    }
+
+    private long offset(long node) {
+        return headerSize + node * DIGEST;
+    }
+
+    /**
+     * Restituisce l'hash esadecimale del nodo nella posizione specificata
+     * dello snapshot, oppure la stringa vuota se si tratta di un nodo di
+     * riempimento.
+     */
+    String hashAt(long node) {
+        long off = offset(node);
+        MappedByteBuffer seg = segments[(int) (off >>> SEGMENT_SHIFT)];
+        int pos = (int) (off & SEGMENT_MASK);
+        if (seg.getLong(pos) == 0 && seg.getLong(pos + 8) == 0)
+            return "";
+        byte[] digest = new byte[DIGEST];
+        seg.get(pos, digest);
+        return HashUtil.bytesToHex(digest);
+    }
+
+    private boolean sameDigest(long node, MappedMerkleTree<T> other) {
+        // Le intestazioni possono avere dimensioni diverse tra le versioni
+        long off = offset(node);
+        long otherOff = other.offset(node);
+        MappedByteBuffer a = segments[(int) (off >>> SEGMENT_SHIFT)];
+        MappedByteBuffer b = other.segments[(int) (otherOff >>> SEGMENT_SHIFT)];
+        int pos = (int) (off & SEGMENT_MASK);
+        int otherPos = (int) (otherOff & SEGMENT_MASK);
+        return a.getLong(pos) == b.getLong(otherPos)
+                && a.getLong(pos + 8) == b.getLong(otherPos + 8);
+    }
+}
@@ -0,0 +1,213 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per la classe {@link MappedMerkleTree} e per i metodi
+ * {@code save} e {@code open} di {@link MerkleTree}. Di seguito, l'elenco dei
+ * test inclusi con una breve descrizione:
+ *
+ * <ul>
+ * <li>{@link #testSaveAndOpen()}: Salva un albero e verifica che lo snapshot
+ * riaperto abbia la stessa radice, larghezza e altezza.</li>
+ *
+ * <li>{@link #testProofsFromSnapshot()}: Verifica che le prove servite dallo
+ * snapshot validino i dati, compreso un dato accanto a una foglia di
+ * riempimento.</li>
+ *
+ * <li>{@link #testFindInvalidDataIndices()}: Confronta due snapshot e uno
+ * snapshot con un albero in memoria, verificando gli indici dei dati
+ * diversi.</li>
+ *
+ * <li>{@link #testPromotedSnapshot()}: Verifica, per diverse larghezze, che
+ * lo snapshot di un albero con nodi promossi abbia la stessa radice e le
+ * stesse prove dell'albero in memoria e che il confronto trovi i dati
+ * diversi.</li>
+ *
+ * <li>{@link #testVersion1Snapshot()}: Verifica che uno snapshot della
+ * versione 1, senza il campo forma, venga ancora aperto.</li>
+ *
+ * <li>{@link #testOpenInvalidFile()}: Verifica che l'apertura di un file che
+ * non è uno snapshot lanci {@code IOException}.</li>
+ * </ul>
+ */
+class MappedMerkleTreeTest {
+
+    private HashLinkedList<String> list;
+
+    private Path file;
+
+    private Path otherFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        list = new HashLinkedList<>();
+        list.addAtTail("Alice paga Bob");
+        list.addAtTail("Bob paga Charlie");
+        list.addAtTail("Charlie paga Diana");
+        list.addAtTail("Diana paga Alice");
+        list.addAtTail("Alice paga Charlie");
+        file = Files.createTempFile("merkle", ".snapshot");
+        otherFile = Files.createTempFile("merkle", ".snapshot");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(otherFile);
+    }
+
+    @Test
+    void testSaveAndOpen() throws IOException {
+        MerkleTree<String> tree = new MerkleTree<>(list);
+        tree.save(file);
+
+        try (MappedMerkleTree<String> mapped = MerkleTree.open(file)) {
+            assertEquals(tree.getRoot().getHash(), mapped.getRootHash(),
+                    "La radice dello snapshot non è corretta.");
+            assertEquals(tree.getWidth(), mapped.getWidth(),
+                    "La larghezza dello snapshot non è corretta.");
+            assertEquals(tree.getHeight(), mapped.getHeight(),
+                    "L'altezza dello snapshot non è corretta.");
+            assertEquals(2, mapped.getIndexOfData("Charlie paga Diana"),
+                    "L'indice del dato non è corretto.");
+            assertFalse(mapped.validateData("Bob paga Diana"),
+                    "Un dato assente non dovrebbe essere valido.");
+        }
+    }
+
+    @Test
+    void testProofsFromSnapshot() throws IOException {
+        new MerkleTree<>(list).save(file);
+
+        try (MappedMerkleTree<String> mapped = MerkleTree.open(file)) {
+            for (String s : list) {
+                assertTrue(mapped.getMerkleProof(s).proveValidityOfData(s),
+                        "La prova dovrebbe validare il dato " + s + ".");
+            }
+            assertFalse(mapped.getMerkleProof(4)
+                    .proveValidityOfData("Bob paga Diana"),
+                    "La prova non dovrebbe validare un dato assente.");
+            assertThrows(IllegalArgumentException.class,
+                    () -> mapped.getMerkleProof("Bob paga Diana"));
+        }
+    }
+
+    @Test
+    void testFindInvalidDataIndices() throws IOException {
+        MerkleTree<String> tree = new MerkleTree<>(list);
+        tree.save(file);
+        list.set(1, "Bob paga Diana");
+        list.set(4, "Diana paga Charlie");
+        MerkleTree<String> modified = new MerkleTree<>(list);
+        modified.save(otherFile);
+
+        try (MappedMerkleTree<String> mapped = MerkleTree.open(file);
+                MappedMerkleTree<String> other = MerkleTree.open(otherFile)) {
+            assertEquals(Set.of(1, 4), mapped.findInvalidDataIndices(other),
+                    "Gli indici dei dati diversi non sono corretti.");
+            assertEquals(Set.of(1, 4), mapped.findInvalidDataIndices(modified),
+                    "Gli indici dei dati diversi non sono corretti.");
+            assertTrue(mapped.findInvalidDataIndices(tree).isEmpty(),
+                    "Lo snapshot dovrebbe coincidere con l'albero salvato.");
+        }
+    }
+
+    private static HashLinkedList<Integer> numbers(int count) {
+        HashLinkedList<Integer> numbers = new HashLinkedList<>();
+        for (int i = 0; i < count; i++)
+            numbers.addAtTail(i * 7);
+        return numbers;
+    }
+
+    @Test
+    void testPromotedSnapshot() throws IOException {
+        for (int width = 1; width <= 17; width++) {
+            HashLinkedList<Integer> numbers = numbers(width);
+            MerkleTree<Integer> tree = new MerkleTree<>(numbers,
+                    MerkleTree.Shape.PROMOTED);
+            tree.save(file);
+            numbers.set(width - 1, -1);
+            MerkleTree<Integer> modified = new MerkleTree<>(numbers,
+                    MerkleTree.Shape.PROMOTED);
+            modified.save(otherFile);
+            try (MappedMerkleTree<Integer> mapped = MerkleTree.open(file);
+                    MappedMerkleTree<Integer> other = MerkleTree
+                            .open(otherFile)) {
+                assertEquals(tree.getRoot().getHash(), mapped.getRootHash(),
+                        "La radice non è corretta per larghezza " + width
+                                + ".");
+                assertEquals(tree.getHeight(), mapped.getHeight());
+                assertEquals(MerkleTree.Shape.PROMOTED, mapped.getShape());
+                for (int i = 0; i < width; i++) {
+                    MerkleProof proof = mapped.getMerkleProof(i);
+                    assertEquals(tree.getMerkleProofAt(i).getLength(),
+                            proof.getLength(),
+                            "La prova non dovrebbe contenere livelli "
+                                    + "promossi.");
+                    assertTrue(proof.proveValidityOfData(i * 7),
+                            "La prova del dato " + i + " non è valida per "
+                                    + "larghezza " + width + ".");
+                }
+                assertEquals(width - 1, mapped.getIndexOfData((width - 1) * 7));
+                assertEquals(Set.of(width - 1),
+                        mapped.findInvalidDataIndices(other));
+                assertEquals(Set.of(width - 1),
+                        mapped.findInvalidDataIndices(modified));
+                assertTrue(mapped.findInvalidDataIndices(tree).isEmpty());
+            }
+        }
+        try (MappedMerkleTree<Integer> promoted = MerkleTree.open(file)) {
+            new MerkleTree<>(numbers(17)).save(otherFile);
+            try (MappedMerkleTree<Integer> padded = MerkleTree
+                    .open(otherFile)) {
+                assertThrows(IllegalArgumentException.class,
+                        () -> promoted.findInvalidDataIndices(padded),
+                        "Alberi di forme diverse non sono confrontabili.");
+            }
+        }
+    }
+
+    @Test
+    void testVersion1Snapshot() throws IOException {
+        MerkleTree<String> tree = new MerkleTree<>(list);
+        tree.save(file);
+        // Intestazione di 32 byte, versione 1, senza forma
+        byte[] bytes = Files.readAllBytes(file);
+        byte[] v1 = new byte[bytes.length - 16];
+        System.arraycopy(bytes, 0, v1, 0, 32);
+        System.arraycopy(bytes, 48, v1, 32, bytes.length - 48);
+        ByteBuffer.wrap(v1).putInt(4, 1);
+        Files.write(otherFile, v1);
+
+        try (MappedMerkleTree<String> mapped = MerkleTree.open(otherFile)) {
+            assertEquals(MerkleTree.Shape.PADDED, mapped.getShape());
+            assertEquals(tree.getRoot().getHash(), mapped.getRootHash());
+            assertTrue(mapped.getMerkleProof(4)
+                    .proveValidityOfData("Alice paga Charlie"));
+            try (MappedMerkleTree<String> current = MerkleTree.open(file)) {
+                assertTrue(mapped.findInvalidDataIndices(current).isEmpty(),
+                        "Le due versioni dovrebbero avere gli stessi "
+                                + "digest.");
+            }
+        }
+    }
+
+    @Test
+    void testOpenInvalidFile() throws IOException {
+        Files.write(file, "Alice paga Bob".getBytes());
+
+        assertThrows(IOException.class, () -> MerkleTree.open(file),
+                "Un file qualsiasi non dovrebbe essere uno snapshot valido.");
+    }
+}
@@ -0,0 +1,258 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import java.util.Arrays;
+
+/**
+ * Un Merkle Mountain Range: un log in sola aggiunta autenticato da una
+ * sequenza di alberi di Merkle perfetti ("picchi") di altezze decrescenti, una
+ * per ogni bit a 1 del numero di dati. L'aggiunta di un dato crea un picco di
+ * altezza 0 e fonde poi i due picchi più a destra finché hanno la stessa
+ * altezza, come il riporto di un contatore binario: il costo ammortizzato è
+ * O(1) hash per aggiunta e nessun nodo già esistente viene mai modificato.
+ *
+ * <p>
+ * La radice si ottiene "insaccando" i picchi da destra verso sinistra: si
+ * parte dall'ultimo picco e si combina ogni picco precedente con il risultato,
+ * come padre sinistro. Il costo è O(log n) ed è memorizzato fino all'aggiunta
+ * successiva, per cui dopo un gruppo di aggiunte la radice viene calcolata una
+ * sola volta.
+ *
+ * <p>
+ * I nodi sono memorizzati in un array in ordine posticipato (post-order): i
+ * nodi di un picco seguono quelli dei picchi precedenti e il padre segue i
+ * suoi due sottoalberi. Poiché i nodi non cambiano mai, l'intervallo può
+ * calcolare la radice e le prove di qualsiasi dimensione passata: una
+ * {@link MountainRangeProof} generata per una dimensione m resta valida
+ * rispetto a {@code getRootHash(m)} per sempre, e il cammino dal dato al suo
+ * picco in una dimensione successiva estende quello della dimensione m.
+ *
+ * @param <T>
+ *                il tipo di dati su cui l'intervallo è costruito.
+ */
+public class MerkleMountainRange<T> {
+    /**
+     * Gli hash dei nodi in ordine posticipato.
+     */
+    private String[] nodes;
+
+    /**
+     * Il numero di nodi memorizzati.
+     */
+    private int nodeCount;
+
+    /**
+     * Il numero di dati aggiunti.
+     */
+    private int size;
+
+    /**
+     * La radice della dimensione corrente, o null se da ricalcolare.
+     */
+    private String rootHash;
+
+    /**
+     * Crea un intervallo vuoto.
+     */
+    public MerkleMountainRange() {
+        this.nodes = new String[16];
+    }
+
+    /**
+     * Restituisce il numero di dati aggiunti.
+     *
+     * @return il numero di dati.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Aggiunge un dato in coda all'intervallo, fondendo i picchi della stessa
+     * altezza.
+     *
+     * @param data
+     *                 il dato da aggiungere.
+     * @throws IllegalArgumentException
+     *                                      se il dato è null.
+     */
+    public void append(T data) {
+        if (data == null)
+            throw new IllegalArgumentException("The data is null");
+        // Un'aggiunta crea al più 1 + log2(size + 1) nodi
+        if (nodeCount + 33 > nodes.length)
+            nodes = Arrays.copyOf(nodes, nodes.length * 2);
+        int pos = nodeCount;
+        nodes[pos] = HashUtil.dataToHash(data);
+        for (int h = 0; (size >> h & 1) == 1; h++) {
+            int left = pos - ((2 << h) - 1);
+            nodes[pos + 1] = combine(nodes[left], nodes[pos]);
+            pos++;
+        }
+        nodeCount = pos + 1;
+        size++;
+        rootHash = null;
+    }
+
+    /**
+     * Restituisce gli hash dei picchi della dimensione corrente, da sinistra a
+     * destra.
+     *
+     * @return gli hash dei picchi.
+     */
+    public String[] getPeakHashes() {
+        return peaksOf(size);
+    }
+
+    /**
+     * Restituisce l'hash della radice della dimensione corrente, ovvero
+     * l'insaccamento dei suoi picchi.
+     *
+     * @return l'hash della radice.
+     * @throws IllegalStateException
+     *                                   se l'intervallo è vuoto.
+     */
+    public String getRootHash() {
+        if (rootHash == null)
+            rootHash = getRootHash(size);
+        return rootHash;
+    }
+
+    /**
+     * Restituisce l'hash della radice che l'intervallo aveva quando conteneva
+     * il numero di dati specificato.
+     *
+     * @param size
+     *                 la dimensione passata, tra 1 e la dimensione corrente.
+     * @return l'hash della radice per quella dimensione.
+     * @throws IllegalArgumentException
+     *                                      se la dimensione non è valida.
+     * @throws IllegalStateException
+     *                                      se l'intervallo è vuoto.
+     */
+    public String getRootHash(int size) {
+        if (this.size == 0)
+            throw new IllegalStateException("The range is empty");
+        checkSize(size);
+        return bag(peaksOf(size));
+    }
+
+    /**
+     * Restituisce la prova per il dato nella posizione specificata, rispetto
+     * alla radice della dimensione corrente.
+     *
+     * @param index
+     *                  la posizione del dato, a partire da 0.
+     * @return la prova per il dato.
+     * @throws IndexOutOfBoundsException
+     *                                       se la posizione non è compresa
+     *                                       tra 0 e size - 1.
+     */
+    public MountainRangeProof getProof(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException(
+                    "Index: " + index + ", Size: " + size);
+        return getProof(index, size);
+    }
+
+    /**
+     * Restituisce la prova per il dato nella posizione specificata, rispetto
+     * alla radice che l'intervallo aveva con il numero di dati specificato.
+     *
+     * @param index
+     *                  la posizione del dato, a partire da 0.
+     * @param size
+     *                  la dimensione passata, tra index + 1 e la dimensione
+     *                  corrente.
+     * @return la prova per il dato.
+     * @throws IndexOutOfBoundsException
+     *                                       se la posizione non è compresa
+     *                                       tra 0 e size - 1.
+     * @throws IllegalArgumentException
+     *                                       se la dimensione non è valida.
+     */
+    public MountainRangeProof getProof(int index, int size) {
+        checkSize(size);
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException(
+                    "Index: " + index + ", Size: " + size);
+        String[] peaks = peaksOf(size);
+        int peak = 0;
+        int offset = 0; // Posizione del primo nodo del picco
+        int start = 0; // Primo dato del picco
+        for (int h = 31; h >= 0; h--) {
+            if ((size >> h & 1) == 0)
+                continue;
+            if (index < start + (1 << h)) {
+                return new MountainRangeProof(size, peaks, peak,
+                        pathToPeak(offset, h, index - start, peaks[peak]));
+            }
+            offset += (2 << h) - 1;
+            start += 1 << h;
+            peak++;
+        }
+        throw new AssertionError();
+    }
+
+    /**
+     * Costruisce la prova dal dato in posizione j del picco di altezza h, il
+     * cui primo nodo è in posizione offset, fino alla radice del picco.
+     */
+    private MerkleProof pathToPeak(int offset, int h, int j, String peakHash) {
+        String[] hashes = new String[h];
+        boolean[] lefts = new boolean[h];
+        int from = offset;
+        for (int l = h; l > 0; l--) {
+            int half = (1 << l) - 1; // Nodi di ciascun sottoalbero figlio
+            int leftRoot = from + half - 1;
+            int rightRoot = from + 2 * half - 1;
+            if ((j >> (l - 1) & 1) == 0) {
+                hashes[l - 1] = nodes[rightRoot];
+                lefts[l - 1] = false;
+            } else {
+                hashes[l - 1] = nodes[leftRoot];
+                lefts[l - 1] = true;
+                from += half;
+            }
+        }
+        MerkleProof proof = new MerkleProof(peakHash, h);
+        for (int l = 0; l < h; l++)
+            proof.addHash(hashes[l], lefts[l]);
+        return proof;
+    }
+
+    private void checkSize(int size) {
+        if (size < 1 || size > this.size)
+            throw new IllegalArgumentException(
+                    "Invalid size: " + size + ", Size: " + this.size);
+    }
+
+    /**
+     * Restituisce gli hash dei picchi per il numero di dati specificato.
+     */
+    private String[] peaksOf(int size) {
+        String[] peaks = new String[Integer.bitCount(size)];
+        int offset = 0;
+        int i = 0;
+        for (int h = 31; h >= 0; h--) {
+            if ((size >> h & 1) == 0)
+                continue;
+            offset += (2 << h) - 1;
+            peaks[i++] = nodes[offset - 1];
+        }
+        return peaks;
+    }
+
+    /**
+     * Insacca i picchi da destra verso sinistra in un unico hash.
+     */
+    static String bag(String[] peaks) {
+        String hash = peaks[peaks.length - 1];
+        for (int i = peaks.length - 2; i >= 0; i--)
+            hash = combine(peaks[i], hash);
+        return hash;
+    }
+
+    private static String combine(String left, String right) {
+        return HashUtil.computeMD5((left + right).getBytes());
+    }
+}
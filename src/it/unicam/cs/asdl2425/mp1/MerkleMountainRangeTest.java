@@ -0,0 +1,153 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per la classe {@link MerkleMountainRange}. Di seguito,
+ * l'elenco dei test inclusi con una breve descrizione:
+ *
+ * <ul>
+ * <li>{@link #testPeaks()}: Verifica che i picchi corrispondano ai bit a 1 del
+ * numero di dati e che siano le radici degli alberi perfetti sui dati
+ * corrispondenti.</li>
+ *
+ * <li>{@link #testBaggedRoot()}: Verifica che la radice sia l'insaccamento
+ * dei picchi da destra verso sinistra.</li>
+ *
+ * <li>{@link #testProofs()}: Verifica le prove di tutti i dati per molte
+ * dimensioni.</li>
+ *
+ * <li>{@link #testProofsAfterGrowth()}: Verifica che radici e prove delle
+ * dimensioni passate restino disponibili e valide dopo altre aggiunte.</li>
+ *
+ * <li>{@link #testInvalidArguments()}: Verifica che vengano lanciate
+ * eccezioni per argomenti non validi.</li>
+ * </ul>
+ */
+class MerkleMountainRangeTest {
+
+    private static String data(int i) {
+        return "Transazione " + i;
+    }
+
+    private static MerkleMountainRange<String> rangeOf(int size) {
+        MerkleMountainRange<String> range = new MerkleMountainRange<>();
+        for (int i = 0; i < size; i++)
+            range.append(data(i));
+        return range;
+    }
+
+    /**
+     * Restituisce la radice dell'albero di Merkle perfetto sui dati da from a
+     * from + count - 1, con count potenza di due.
+     */
+    private static String perfectRoot(int from, int count) {
+        HashLinkedList<String> list = new HashLinkedList<>();
+        for (int i = from; i < from + count; i++)
+            list.addAtTail(data(i));
+        return new MerkleTree<>(list).getRoot().getHash();
+    }
+
+    private static String combine(String left, String right) {
+        return HashUtil.computeMD5((left + right).getBytes());
+    }
+
+    @Test
+    void testPeaks() {
+        MerkleMountainRange<String> range = new MerkleMountainRange<>();
+        for (int n = 1; n <= 40; n++) {
+            range.append(data(n - 1));
+            String[] peaks = range.getPeakHashes();
+            assertEquals(Integer.bitCount(n), peaks.length,
+                    "Numero di picchi errato per " + n + " dati.");
+            int from = 0;
+            int p = 0;
+            for (int h = 31; h >= 0; h--) {
+                if ((n >> h & 1) == 0)
+                    continue;
+                assertEquals(perfectRoot(from, 1 << h), peaks[p++],
+                        "Picco errato per " + n + " dati.");
+                from += 1 << h;
+            }
+        }
+        assertEquals(perfectRoot(0, 32), rangeOf(32).getRootHash(),
+                "Con un solo picco la radice è quella dell'albero perfetto.");
+    }
+
+    @Test
+    void testBaggedRoot() {
+        MerkleMountainRange<String> range = rangeOf(7);
+        String expected = combine(perfectRoot(0, 4),
+                combine(perfectRoot(4, 2), HashUtil.dataToHash(data(6))));
+
+        assertEquals(expected, range.getRootHash(),
+                "La radice non è l'insaccamento dei picchi.");
+        range.append(data(7));
+        assertEquals(perfectRoot(0, 8), range.getRootHash(),
+                "La radice dovrebbe essere aggiornata dopo un'aggiunta.");
+    }
+
+    @Test
+    void testProofs() {
+        MerkleMountainRange<String> range = new MerkleMountainRange<>();
+        for (int n = 1; n <= 70; n++) {
+            range.append(data(n - 1));
+            String root = range.getRootHash();
+            for (int i = 0; i < n; i++) {
+                MountainRangeProof proof = range.getProof(i);
+                assertEquals(n, proof.getSize());
+                assertTrue(proof.proveValidityOfData(data(i), root),
+                        "La prova del dato " + i + " non è valida per " + n
+                                + " dati.");
+                assertFalse(proof.proveValidityOfData(data(i + 1), root),
+                        "La prova non dovrebbe validare un altro dato.");
+            }
+        }
+        MountainRangeProof proof = range.getProof(0);
+        assertEquals(6 + 3, proof.getHashCount(),
+                "Con 70 dati il primo sta in un picco di altezza 6, tra 3 picchi.");
+    }
+
+    @Test
+    void testProofsAfterGrowth() {
+        MerkleMountainRange<String> range = rangeOf(13);
+        String root13 = range.getRootHash();
+        MountainRangeProof old = range.getProof(10);
+        for (int i = 13; i < 100; i++)
+            range.append(data(i));
+
+        assertEquals(root13, range.getRootHash(13),
+                "La radice della dimensione 13 dovrebbe restare disponibile.");
+        assertTrue(old.proveValidityOfData(data(10), range.getRootHash(13)),
+                "La vecchia prova dovrebbe restare valida per la vecchia "
+                        + "radice.");
+        assertFalse(old.proveValidityOfData(data(10), range.getRootHash()),
+                "La vecchia prova non dovrebbe valere per la nuova radice.");
+        assertTrue(range.getProof(10, 13).proveValidityOfData(data(10), root13),
+                "Le prove per una dimensione passata dovrebbero essere "
+                        + "valide.");
+        assertTrue(range.getProof(10).proveValidityOfData(data(10),
+                range.getRootHash()),
+                "La nuova prova dovrebbe essere valida per la nuova radice.");
+    }
+
+    @Test
+    void testInvalidArguments() {
+        MerkleMountainRange<String> empty = new MerkleMountainRange<>();
+        assertThrows(IllegalStateException.class, empty::getRootHash);
+        assertThrows(IllegalArgumentException.class, () -> empty.append(null));
+        assertEquals(0, empty.getPeakHashes().length,
+                "L'intervallo vuoto non ha picchi.");
+
+        MerkleMountainRange<String> range = rangeOf(5);
+        assertThrows(IndexOutOfBoundsException.class, () -> range.getProof(5));
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> range.getProof(4, 4));
+        assertThrows(IllegalArgumentException.class,
+                () -> range.getProof(0, 6));
+        assertThrows(IllegalArgumentException.class,
+                () -> range.getRootHash(0));
+    }
+}
@@ -0,0 +1,250 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Una tabella thread-safe per la condivisione (hash-consing) dei
+ * {@link MerkleNode}: due sottoalberi strutturalmente identici, ad esempio
+ * costruiti su dati ripetuti o composti solo da riempimento, vengono
+ * rappresentati dallo stesso oggetto. Per i nodi ottenuti dalla stessa tabella
+ * l'uguaglianza strutturale si riduce quindi a un confronto tra riferimenti,
+ * e un albero con molti dati duplicati occupa memoria solo per i sottoalberi
+ * distinti.
+ *
+ * <p>
+ * La chiave di un nodo è il suo hash insieme ai riferimenti dei due figli.
+ * Poiché i figli vengono a loro volta presi dalla tabella, due nodi hanno la
+ * stessa chiave solo se hanno lo stesso hash e sottoalberi identici: in
+ * particolare una foglia di riempimento e un nodo interno di riempimento, che
+ * hanno entrambi hash vuoto, restano distinti. I nodi vanno quindi creati dal
+ * basso verso l'alto, come fanno i costruttori di {@link MerkleTree} che
+ * accettano una tabella, oppure condivisi a posteriori con
+ * {@link #intern(MerkleNode)}.
+ *
+ * <p>
+ * La tabella tiene i nodi, e i figli nelle chiavi, con riferimenti deboli: un
+ * nodo che non è più raggiungibile da alcun albero viene raccolto dal garbage
+ * collector e la sua voce viene rimossa alla successiva operazione sulla
+ * tabella. La tabella segue così gli alberi in uso, senza trattenere i
+ * sottoalberi di quelli scartati, e un intero sottoalbero scartato viene
+ * liberato in un solo ciclo di raccolta. La capacità limita il numero di nodi
+ * nella tabella: quando è piena, i nodi nuovi vengono creati senza essere
+ * inseriti finché quelli presenti non vengono raccolti.
+ */
+public class MerkleNodeTable {
+    /**
+     * La chiave di un nodo: il suo hash e i riferimenti deboli dei figli, che
+     * non devono tenere in vita i figli di un nodo già raccolto.
+     */
+    private static final class Key {
+        private final String hash;
+
+        private final WeakReference<MerkleNode> left;
+
+        private final WeakReference<MerkleNode> right;
+
+        private final int hashCode;
+
+        private Key(String hash, MerkleNode left, MerkleNode right) {
+            this.hash = hash;
+            this.left = left == null ? null : new WeakReference<>(left);
+            this.right = right == null ? null : new WeakReference<>(right);
+            int h = hash.hashCode();
+            h = 31 * h + System.identityHashCode(left);
+            this.hashCode = 31 * h + System.identityHashCode(right);
+        }
+
+        /*
+         * Un figlio già raccolto non è uguale a nessun altro: la chiave resta
+         * comunque rintracciabile per la rimozione, che confronta prima i
+         * riferimenti delle chiavi
+         */
+        private static boolean same(WeakReference<MerkleNode> a,
+                WeakReference<MerkleNode> b) {
+            if (a == null || b == null)
+                return a == b;
+            MerkleNode node = a.get();
+            return node != null && node == b.get();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key))
+                return false;
+            Key other = (Key) obj;
+            return hashCode == other.hashCode && hash.equals(other.hash)
+                    && same(left, other.left) && same(right, other.right);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * Il riferimento debole a un nodo della tabella, con la chiave con cui
+     * rimuoverlo quando il nodo viene raccolto.
+     */
+    private static final class NodeRef extends WeakReference<MerkleNode> {
+        private final Key key;
+
+        private NodeRef(MerkleNode node, Key key,
+                ReferenceQueue<MerkleNode> queue) {
+            super(node, queue);
+            this.key = key;
+        }
+    }
+
+    private final ConcurrentHashMap<Key, NodeRef> nodes;
+
+    private final ReferenceQueue<MerkleNode> queue;
+
+    private final int capacity;
+
+    /**
+     * Crea una tabella vuota con la capacità specificata.
+     *
+     * @param capacity
+     *                     il numero massimo di nodi nella tabella.
+     * @throws IllegalArgumentException
+     *                                      se la capacità è minore di 1.
+     */
+    public MerkleNodeTable(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        this.nodes = new ConcurrentHashMap<>();
+        this.queue = new ReferenceQueue<>();
+        this.capacity = capacity;
+    }
+
+    /*
+     * Rimuove le voci dei nodi già raccolti; una voce sostituita nel
+     * frattempo da un nodo nuovo con la stessa chiave non viene toccata
+     */
+    private void purge() {
+        for (Object ref; (ref = queue.poll()) != null;)
+            nodes.remove(((NodeRef) ref).key, ref);
+    }
+
+    /**
+     * Restituisce il numero di nodi nella tabella, dopo aver rimosso quelli
+     * già raccolti dal garbage collector.
+     *
+     * @return il numero di nodi.
+     */
+    public int getSize() {
+        purge();
+        return nodes.size();
+    }
+
+    /**
+     * Restituisce la capacità della tabella.
+     *
+     * @return il numero massimo di nodi nella tabella.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Restituisce la foglia con l'hash specificato.
+     *
+     * @param hash
+     *                 l'hash della foglia.
+     * @return la foglia condivisa, o una nuova foglia se la tabella è piena.
+     * @throws IllegalArgumentException
+     *                                      se l'hash è null.
+     */
+    public MerkleNode intern(String hash) {
+        return intern(hash, null, null);
+    }
+
+    /**
+     * Restituisce il nodo con l'hash e i figli specificati, creandolo e
+     * inserendolo nella tabella se non è già presente.
+     *
+     * @param hash
+     *                  l'hash del nodo.
+     * @param left
+     *                  il figlio sinistro, o null per una foglia.
+     * @param right
+     *                  il figlio destro, o null per una foglia.
+     * @return il nodo condiviso, o un nuovo nodo se la tabella è piena.
+     * @throws IllegalArgumentException
+     *                                      se l'hash è null o se uno solo dei
+     *                                      figli è null.
+     */
+    public MerkleNode intern(String hash, MerkleNode left, MerkleNode right) {
+        if (hash == null)
+            throw new IllegalArgumentException("The hash is null");
+        if ((left == null) != (right == null))
+            throw new IllegalArgumentException(
+                    "A node has either zero or two children");
+        purge();
+        Key key = new Key(hash, left, right);
+        MerkleNode node = null;
+        while (true) {
+            NodeRef ref = nodes.get(key);
+            MerkleNode shared = ref == null ? null : ref.get();
+            if (shared != null)
+                return shared;
+            if (node == null)
+                node = new MerkleNode(hash, left, right);
+            if (ref == null && nodes.size() >= capacity)
+                return node;
+            // Una voce il cui nodo è stato raccolto viene sostituita, tenendo
+            // la chiave già presente nella mappa per la rimozione
+            NodeRef created = new NodeRef(node, ref == null ? key : ref.key,
+                    queue);
+            if (ref == null ? nodes.putIfAbsent(key, created) == null
+                    : nodes.replace(key, ref, created))
+                return node;
+        }
+    }
+
+    /**
+     * Condivide un sottoalbero già costruito, sostituendo dal basso verso
+     * l'alto ogni nodo con quello identico della tabella. Il sottoalbero
+     * fornito non viene modificato, e i suoi nodi già condivisi vengono
+     * visitati una sola volta.
+     *
+     * @param node
+     *                 la radice del sottoalbero.
+     * @return la radice del sottoalbero condiviso.
+     * @throws IllegalArgumentException
+     *                                      se il nodo è null.
+     */
+    public MerkleNode intern(MerkleNode node) {
+        if (node == null)
+            throw new IllegalArgumentException("The node is null");
+        return intern(node, new IdentityHashMap<>());
+    }
+
+    private MerkleNode intern(MerkleNode node,
+            Map<MerkleNode, MerkleNode> done) {
+        MerkleNode shared = done.get(node);
+        if (shared == null) {
+            if (node.isLeaf())
+                shared = intern(node.getHash());
+            else
+                shared = intern(node.getHash(), intern(node.getLeft(), done),
+                        intern(node.getRight(), done));
+            done.put(node, shared);
+        }
+        return shared;
+    }
+
+    /**
+     * Rimuove tutti i nodi dalla tabella. I nodi già restituiti restano
+     * validi, ma non saranno più condivisi con quelli creati in seguito.
+     */
+    public void clear() {
+        nodes.clear();
+        purge();
+    }
+}
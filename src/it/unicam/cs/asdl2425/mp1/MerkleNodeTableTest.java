@@ -0,0 +1,169 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per la classe {@link MerkleNodeTable}. Di seguito, l'elenco
+ * dei test inclusi con una breve descrizione:
+ *
+ * <ul>
+ * <li>{@link #testIntern()}: Verifica che nodi con lo stesso hash e gli
+ * stessi figli siano condivisi e che nodi con figli diversi restino
+ * distinti, in particolare foglie e nodi interni di riempimento.</li>
+ *
+ * <li>{@link #testInternSubtree()}: Verifica che un sottoalbero già costruito
+ * venga condiviso con i nodi della tabella senza essere modificato.</li>
+ *
+ * <li>{@link #testCapacity()}: Verifica che una tabella piena continui a
+ * condividere i nodi presenti senza inserirne di nuovi.</li>
+ *
+ * <li>{@link #testCollectedNodes()}: Verifica che i nodi degli alberi
+ * scartati vengano rimossi dalla tabella dopo la raccolta, liberando posto
+ * per i nodi nuovi.</li>
+ *
+ * <li>{@link #testInvalidArguments()}: Verifica che vengano lanciate
+ * eccezioni per argomenti non validi.</li>
+ * </ul>
+ */
+class MerkleNodeTableTest {
+
+    @Test
+    void testIntern() {
+        MerkleNodeTable table = new MerkleNodeTable(100);
+        String h = HashUtil.dataToHash("Alice paga Bob");
+        MerkleNode a = table.intern(h);
+        assertSame(a, table.intern(h),
+                "Foglie con lo stesso hash dovrebbero essere condivise.");
+        assertEquals(h, a.getHash());
+        assertTrue(a.isLeaf());
+
+        MerkleNode padLeaf = table.intern("");
+        MerkleNode padNode = table.intern("", padLeaf, padLeaf);
+        assertNotSame(padLeaf, padNode,
+                "Foglia e nodo interno di riempimento sono nodi diversi.");
+        assertSame(padNode, table.intern("", padLeaf, padLeaf));
+
+        String parent = HashLevels.combine(h, h);
+        MerkleNode p = table.intern(parent, a, a);
+        assertSame(p, table.intern(parent, table.intern(h), table.intern(h)));
+        MerkleNode q = table.intern(parent, a, new MerkleNode(h));
+        assertNotSame(p, q,
+                "Nodi con figli diversi non dovrebbero essere condivisi.");
+        assertEquals(5, table.getSize());
+        assertSame(q, table.intern(parent, a, q.getRight()));
+
+        table.clear();
+        assertEquals(0, table.getSize());
+        assertNotSame(a, table.intern(h),
+                "Dopo la rimozione i nodi non dovrebbero più essere condivisi.");
+    }
+
+    @Test
+    void testInternSubtree() {
+        MerkleNode l1 = new MerkleNode(HashUtil.dataToHash(1));
+        MerkleNode l2 = new MerkleNode(HashUtil.dataToHash(1));
+        String h = HashLevels.combine(l1.getHash(), l2.getHash());
+        MerkleNode left = new MerkleNode(h, l1, l2);
+        MerkleNode right = new MerkleNode(h, new MerkleNode(l1.getHash()),
+                new MerkleNode(l1.getHash()));
+        MerkleNode root = new MerkleNode(HashLevels.combine(h, h), left, right);
+
+        MerkleNodeTable table = new MerkleNodeTable(100);
+        MerkleNode shared = table.intern(root);
+        assertEquals(root.getHash(), shared.getHash());
+        assertSame(shared.getLeft(), shared.getRight(),
+                "I due sottoalberi identici dovrebbero essere condivisi.");
+        assertSame(shared.getLeft().getLeft(), shared.getLeft().getRight());
+        assertEquals(3, table.getSize(),
+                "La tabella dovrebbe contenere solo i nodi distinti.");
+        assertNotSame(root.getLeft(), root.getRight(),
+                "Il sottoalbero originale non dovrebbe essere modificato.");
+        assertSame(shared, table.intern(root));
+
+        // Una catena di nodi di riempimento già condivisi viene visitata una
+        // sola volta per nodo
+        MerkleNode pad = new MerkleNode("");
+        for (int i = 0; i < 64; i++)
+            pad = new MerkleNode("", pad, pad);
+        MerkleNodeTable padTable = new MerkleNodeTable(100);
+        MerkleNode sharedPad = padTable.intern(pad);
+        assertEquals(65, padTable.getSize(),
+                "Dovrebbe esserci un nodo di riempimento per livello.");
+        assertSame(sharedPad.getLeft(), padTable.intern(pad.getLeft()));
+    }
+
+    @Test
+    void testCapacity() {
+        MerkleNodeTable table = new MerkleNodeTable(2);
+        MerkleNode a = table.intern("a");
+        MerkleNode b = table.intern("b");
+        MerkleNode c = table.intern("c");
+        assertEquals(2, table.getSize(),
+                "La tabella non dovrebbe superare la capacità.");
+        assertEquals(2, table.getCapacity());
+        assertSame(a, table.intern("a"));
+        assertSame(b, table.intern("b"));
+        assertEquals("c", c.getHash());
+        assertNotSame(c, table.intern("c"),
+                "I nodi creati a tabella piena non dovrebbero essere inseriti.");
+    }
+
+    /*
+     * Richiede ripetutamente una raccolta finché la tabella non scende alla
+     * dimensione attesa o scade il tempo
+     */
+    private static void awaitSize(MerkleNodeTable table, int size)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (table.getSize() > size && System.nanoTime() < deadline) {
+            System.gc();
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void testCollectedNodes() throws InterruptedException {
+        MerkleNodeTable table = new MerkleNodeTable(1000);
+        MerkleNode kept = table.intern("kept");
+        MerkleNode node = table.intern("a");
+        for (int i = 0; i < 9; i++)
+            node = table.intern(HashLevels.combine(node.getHash(), "b"),
+                    node, table.intern("b" + i));
+        assertEquals(20, table.getSize());
+        node = null;
+        awaitSize(table, 1);
+        assertEquals(1, table.getSize(),
+                "I nodi dell'albero scartato dovrebbero essere rimossi.");
+        assertSame(kept, table.intern("kept"),
+                "I nodi ancora in uso dovrebbero restare condivisi.");
+
+        MerkleNodeTable full = new MerkleNodeTable(2);
+        MerkleNode a = full.intern("a");
+        full.intern("b");
+        MerkleNode c = full.intern("c");
+        assertNotSame(c, full.intern("c"));
+        awaitSize(full, 1);
+        MerkleNode d = full.intern("d");
+        assertSame(d, full.intern("d"),
+                "Il posto dei nodi raccolti dovrebbe tornare disponibile.");
+        assertSame(a, full.intern("a"));
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new MerkleNodeTable(0));
+        MerkleNodeTable table = new MerkleNodeTable(10);
+        MerkleNode leaf = table.intern("a");
+        assertThrows(IllegalArgumentException.class,
+                () -> table.intern((String) null));
+        assertThrows(IllegalArgumentException.class,
+                () -> table.intern((MerkleNode) null));
+        assertThrows(IllegalArgumentException.class,
+                () -> table.intern("b", leaf, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> table.intern("b", null, leaf));
+    }
+}
@@ -0,0 +1,192 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Una prova per una chiave di un {@link MerklePatriciaTrie}, che può
+ * dimostrare sia il valore associato alla chiave (inclusione) sia la sua
+ * assenza (esclusione). La prova contiene i nodi del cammino della chiave
+ * dalla radice in giù, ciascuno descritto dalla sua etichetta, dall'hash del
+ * suo valore e dai primi byte e dagli hash dei figli.
+ *
+ * <p>
+ * Il verificatore ricalcola l'hash di ogni nodo e controlla che coincida con
+ * la radice, per il primo, o con l'hash del figlio scelto dal nodo
+ * precedente, per gli altri. La chiave è inclusa se termina esattamente
+ * nell'ultimo nodo e l'hash del suo valore è quello atteso; è esclusa se
+ * termina in un nodo senza valore, se l'ultimo nodo non ha un figlio per il
+ * byte successivo della chiave, o se la chiave diverge dall'etichetta
+ * dell'ultimo nodo. In tutti gli altri casi la prova non è valida.
+ */
+public class MerklePatriciaProof {
+    /**
+     * I nodi della prova, dalla radice in giù.
+     */
+    private final List<Step> steps;
+
+    /**
+     * L'hash della radice del trie per il quale la prova è stata costruita.
+     */
+    private final String rootHash;
+
+    /**
+     * Costruisce una nuova prova vuota per il trie con la radice specificata.
+     *
+     * @param rootHash
+     *                     l'hash della radice del trie.
+     * @throws IllegalArgumentException
+     *                                      se l'hash della radice è null.
+     */
+    public MerklePatriciaProof(String rootHash) {
+        if (rootHash == null)
+            throw new IllegalArgumentException("The root hash is null");
+        this.steps = new ArrayList<>();
+        this.rootHash = rootHash;
+    }
+
+    /**
+     * Restituisce il numero di nodi contenuti nella prova.
+     *
+     * @return il numero di nodi della prova.
+     */
+    public int getLength() {
+        return steps.size();
+    }
+
+    /**
+     * Aggiunge alla prova il nodo successivo del cammino.
+     *
+     * @param label
+     *                        l'etichetta del nodo.
+     * @param valueHash
+     *                        l'hash del valore del nodo, o la stringa vuota se
+     *                        il nodo non ha valore.
+     * @param childBytes
+     *                        i primi byte delle etichette dei figli, in ordine
+     *                        crescente.
+     * @param childHashes
+     *                        gli hash dei figli, nello stesso ordine.
+     * @throws IllegalArgumentException
+     *                                      se un parametro è null o se i
+     *                                      figli non sono coerenti.
+     */
+    public void addNode(byte[] label, String valueHash, byte[] childBytes,
+            String[] childHashes) {
+        if (label == null || valueHash == null || childBytes == null
+                || childHashes == null)
+            throw new IllegalArgumentException("The node cannot be null");
+        if (childBytes.length != childHashes.length)
+            throw new IllegalArgumentException("Invalid children");
+        for (int i = 0; i < childHashes.length; i++) {
+            if (childHashes[i] == null)
+                throw new IllegalArgumentException("The hash cannot be null");
+            if (i > 0 && Byte.compareUnsigned(childBytes[i - 1],
+                    childBytes[i]) >= 0)
+                throw new IllegalArgumentException("Invalid children");
+        }
+        steps.add(new Step(label.clone(), valueHash, childBytes.clone(),
+                childHashes.clone()));
+    }
+
+    /**
+     * Verifica che la chiave sia associata al valore specificato nel trie con
+     * la radice di questa prova.
+     *
+     * @param key
+     *                  la chiave.
+     * @param value
+     *                  il valore atteso.
+     * @return true se la prova dimostra che la chiave è associata al valore;
+     *         false altrimenti.
+     * @throws IllegalArgumentException
+     *                                      se la chiave o il valore sono null.
+     */
+    public boolean proveInclusion(String key, Object value) {
+        if (value == null)
+            throw new IllegalArgumentException("The value is null");
+        String valueHash = resolve(key);
+        return valueHash != null && valueHash.equals(HashUtil.dataToHash(value));
+    }
+
+    /**
+     * Verifica che la chiave non sia presente nel trie con la radice di questa
+     * prova.
+     *
+     * @param key
+     *                la chiave.
+     * @return true se la prova dimostra che la chiave è assente; false
+     *         altrimenti.
+     * @throws IllegalArgumentException
+     *                                      se la chiave è null.
+     */
+    public boolean proveExclusion(String key) {
+        String valueHash = resolve(key);
+        return valueHash != null && valueHash.isEmpty();
+    }
+
+    /**
+     * Percorre la prova seguendo la chiave e restituisce l'hash del valore
+     * associato alla chiave, la stringa vuota se la prova ne dimostra
+     * l'assenza, o null se la prova non è valida.
+     */
+    private String resolve(String key) {
+        if (key == null)
+            throw new IllegalArgumentException("The key is null");
+        byte[] k = key.getBytes(StandardCharsets.UTF_8);
+        String expected = rootHash;
+        int pos = 0;
+        for (int i = 0; i < steps.size(); i++) {
+            Step s = steps.get(i);
+            boolean last = i == steps.size() - 1;
+            String hash = MerklePatriciaTrie.hashOf(s.label, s.valueHash,
+                    s.childBytes, s.childHashes);
+            if (!hash.equals(expected))
+                return null;
+            if (i > 0 && (s.label.length == 0 || s.label[0] != k[pos]))
+                return null;
+            int common = 0;
+            while (common < s.label.length && pos + common < k.length
+                    && s.label[common] == k[pos + common])
+                common++;
+            if (common < s.label.length)
+                return last ? "" : null;
+            pos += s.label.length;
+            if (pos == k.length)
+                return last ? s.valueHash : null;
+            int child = -1;
+            for (int j = 0; j < s.childBytes.length; j++) {
+                if (s.childBytes[j] == k[pos])
+                    child = j;
+            }
+            if (child < 0)
+                return last ? "" : null;
+            if (last)
+                return null; // La prova si interrompe prima della chiave
+            expected = s.childHashes[child];
+        }
+        return null;
+    }
+
+    /**
+     * Un nodo del cammino della prova.
+     */
+    private static class Step {
+        private final byte[] label;
+
+        private final String valueHash;
+
+        private final byte[] childBytes;
+
+        private final String[] childHashes;
+
+        private Step(byte[] label, String valueHash, byte[] childBytes,
+                String[] childHashes) {
+            this.label = label;
+            this.valueHash = valueHash;
+            this.childBytes = childBytes;
+            this.childHashes = childHashes;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per la classe {@link MerklePatriciaProof}. Di seguito,
+ * l'elenco dei test inclusi con una breve descrizione:
+ *
+ * <ul>
+ * <li>{@link #testHandBuiltProof()}: Verifica una prova costruita a mano per
+ * un dizionario con una sola chiave.</li>
+ *
+ * <li>{@link #testTamperedProof()}: Verifica che una prova con un nodo
+ * alterato o incompleta non venga accettata.</li>
+ *
+ * <li>{@link #testInvalidArguments()}: Verifica che vengano lanciate
+ * eccezioni per argomenti non validi.</li>
+ * </ul>
+ */
+class MerklePatriciaProofTest {
+
+    private static final byte[] LABEL = "alice"
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void testHandBuiltProof() {
+        MerklePatriciaTrie<Integer> trie = new MerklePatriciaTrie<>();
+        trie.put("alice", 10);
+        String leaf = MerklePatriciaTrie.hashOf(LABEL, HashUtil.dataToHash(10),
+                new byte[0], new String[0]);
+        MerklePatriciaProof proof = new MerklePatriciaProof(trie.getRootHash());
+        proof.addNode(new byte[0], "", new byte[] { 'a' },
+                new String[] { leaf });
+        proof.addNode(LABEL, HashUtil.dataToHash(10), new byte[0],
+                new String[0]);
+
+        assertEquals(2, proof.getLength(),
+                "La prova dovrebbe contenere due nodi.");
+        assertTrue(proof.proveInclusion("alice", 10),
+                "La prova costruita a mano dovrebbe essere valida.");
+        assertTrue(proof.proveExclusion("alicia"),
+                "La chiave diverge dall'etichetta della foglia.");
+    }
+
+    @Test
+    void testTamperedProof() {
+        MerklePatriciaTrie<Integer> trie = new MerklePatriciaTrie<>();
+        trie.put("alice", 10);
+        trie.put("bob", 20);
+        String bob = MerklePatriciaTrie.hashOf(
+                "bob".getBytes(StandardCharsets.UTF_8),
+                HashUtil.dataToHash(20), new byte[0], new String[0]);
+        String alice = MerklePatriciaTrie.hashOf(LABEL,
+                HashUtil.dataToHash(10), new byte[0], new String[0]);
+
+        // Il valore della foglia è alterato
+        MerklePatriciaProof forged = new MerklePatriciaProof(
+                trie.getRootHash());
+        forged.addNode(new byte[0], "", new byte[] { 'a', 'b' },
+                new String[] { alice, bob });
+        forged.addNode(LABEL, HashUtil.dataToHash(11), new byte[0],
+                new String[0]);
+        assertFalse(forged.proveInclusion("alice", 11),
+                "Una foglia alterata non dovrebbe essere accettata.");
+
+        // Il nodo della chiave è omesso
+        MerklePatriciaProof truncated = new MerklePatriciaProof(
+                trie.getRootHash());
+        truncated.addNode(new byte[0], "", new byte[] { 'a', 'b' },
+                new String[] { alice, bob });
+        assertFalse(truncated.proveExclusion("alice"),
+                "Una prova incompleta non dovrebbe dimostrare l'assenza.");
+        assertFalse(truncated.proveInclusion("alice", 10),
+                "Una prova incompleta non dovrebbe dimostrare l'inclusione.");
+        assertTrue(truncated.proveExclusion("carlo"),
+                "La radice basta a dimostrare l'assenza di carlo.");
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new MerklePatriciaProof(null));
+        MerklePatriciaProof proof = new MerklePatriciaProof("root");
+        assertThrows(IllegalArgumentException.class,
+                () -> proof.addNode(null, "", new byte[0], new String[0]));
+        assertThrows(IllegalArgumentException.class,
+                () -> proof.addNode(new byte[0], "", new byte[] { 'a' },
+                        new String[0]));
+        assertThrows(IllegalArgumentException.class,
+                () -> proof.addNode(new byte[0], "", new byte[] { 'b', 'a' },
+                        new String[] { "x", "y" }));
+        assertThrows(IllegalArgumentException.class,
+                () -> proof.proveInclusion("alice", null));
+        assertThrows(IllegalArgumentException.class,
+                () -> proof.proveExclusion(null));
+    }
+}
@@ -0,0 +1,374 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Un dizionario autenticato da chiavi stringa a valori, realizzato come trie
+ * di Patricia sui byte UTF-8 delle chiavi i cui nodi hanno un hash calcolato
+ * come quello dei {@link MerkleNode}: l'hash MD5 di una rappresentazione che
+ * comprende l'etichetta del nodo, l'hash del suo valore e gli hash dei figli.
+ * L'hash della radice autentica quindi l'intero contenuto del dizionario, e
+ * per ogni chiave si può ottenere una {@link MerklePatriciaProof} che ne
+ * dimostra il valore o l'assenza.
+ *
+ * <p>
+ * Ogni nodo ha un'etichetta, ovvero la sequenza di byte che lo separa dal
+ * padre, e i figli sono ordinati per il primo byte dell'etichetta, per cui due
+ * figli non iniziano mai con lo stesso byte. Un nodo senza valore ha sempre
+ * almeno due figli, tranne la radice: la forma del trie dipende solo dal suo
+ * contenuto e non dall'ordine delle operazioni, e lo stesso vale per la
+ * radice. Ricerca, inserimento e rimozione costano O(lunghezza della chiave).
+ *
+ * <p>
+ * Le modifiche non ricalcolano subito gli hash, ma si limitano a invalidare
+ * quelli dei nodi sul cammino della chiave. Gli hash vengono ricalcolati alla
+ * prima richiesta della radice o di una prova, oppure con {@link #commit()}:
+ * un gruppo di modifiche ricalcola quindi ogni nodo toccato una sola volta,
+ * anche se più chiavi passano per esso.
+ *
+ * @param <V>
+ *                il tipo dei valori.
+ */
+public class MerklePatriciaTrie<V> {
+    /**
+     * Un nodo del trie.
+     */
+    private static final class Node<V> {
+        private byte[] label;
+
+        private V value; // null se il nodo non ha valore
+
+        private Node<V>[] children; // Ordinati per primo byte dell'etichetta
+
+        private String hash; // null se da ricalcolare
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        private Node(byte[] label, V value) {
+            this.label = label;
+            this.value = value;
+            this.children = new Node[0];
+        }
+
+        /**
+         * Restituisce la posizione del figlio che inizia con il byte
+         * specificato, o -(punto di inserimento) - 1 se non esiste.
+         */
+        private int find(byte b) {
+            int lo = 0;
+            int hi = children.length - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int c = Byte.compareUnsigned(children[mid].label[0], b);
+                if (c < 0)
+                    lo = mid + 1;
+                else if (c > 0)
+                    hi = mid - 1;
+                else
+                    return mid;
+            }
+            return -(lo + 1);
+        }
+
+        private void insertChild(int pos, Node<V> child) {
+            Node<V>[] grown = Arrays.copyOf(children, children.length + 1);
+            System.arraycopy(children, pos, grown, pos + 1,
+                    children.length - pos);
+            grown[pos] = child;
+            children = grown;
+        }
+
+        private void removeChild(int pos) {
+            Node<V>[] shrunk = Arrays.copyOf(children, children.length - 1);
+            System.arraycopy(children, pos + 1, shrunk, pos,
+                    children.length - pos - 1);
+            children = shrunk;
+        }
+    }
+
+    private final Node<V> root;
+
+    private int size;
+
+    /**
+     * Crea un dizionario vuoto.
+     */
+    public MerklePatriciaTrie() {
+        this.root = new Node<>(new byte[0], null);
+    }
+
+    private static byte[] bytesOf(String key) {
+        if (key == null)
+            throw new IllegalArgumentException("The key is null");
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Restituisce la lunghezza del prefisso comune tra un'etichetta e la
+     * chiave a partire dalla posizione specificata.
+     */
+    private static int commonPrefix(byte[] label, byte[] key, int pos) {
+        int n = Math.min(label.length, key.length - pos);
+        int i = 0;
+        while (i < n && label[i] == key[pos + i])
+            i++;
+        return i;
+    }
+
+    /**
+     * Restituisce il numero di chiavi nel dizionario.
+     *
+     * @return il numero di chiavi.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Restituisce il valore associato a una chiave.
+     *
+     * @param key
+     *                la chiave da cercare.
+     * @return il valore associato alla chiave, o null se la chiave non è
+     *         presente.
+     * @throws IllegalArgumentException
+     *                                      se la chiave è null.
+     */
+    public V get(String key) {
+        byte[] k = bytesOf(key);
+        Node<V> n = root;
+        int pos = 0;
+        while (pos < k.length) {
+            int i = n.find(k[pos]);
+            if (i < 0)
+                return null;
+            Node<V> child = n.children[i];
+            if (commonPrefix(child.label, k, pos) < child.label.length)
+                return null;
+            pos += child.label.length;
+            n = child;
+        }
+        return n.value;
+    }
+
+    /**
+     * Associa un valore a una chiave, sostituendo l'eventuale valore
+     * precedente.
+     *
+     * @param key
+     *                  la chiave.
+     * @param value
+     *                  il valore da associare.
+     * @return il valore precedente, o null se la chiave non era presente.
+     * @throws IllegalArgumentException
+     *                                      se la chiave o il valore sono null.
+     */
+    public V put(String key, V value) {
+        byte[] k = bytesOf(key);
+        if (value == null)
+            throw new IllegalArgumentException("The value is null");
+        Node<V> n = root;
+        int pos = 0;
+        while (true) {
+            n.hash = null;
+            if (pos == k.length) {
+                V old = n.value;
+                n.value = value;
+                if (old == null)
+                    size++;
+                return old;
+            }
+            int i = n.find(k[pos]);
+            if (i < 0) {
+                n.insertChild(-i - 1, new Node<>(
+                        Arrays.copyOfRange(k, pos, k.length), value));
+                size++;
+                return null;
+            }
+            Node<V> child = n.children[i];
+            int common = commonPrefix(child.label, k, pos);
+            if (common < child.label.length) {
+                // L'etichetta del figlio va divisa in un nodo intermedio
+                Node<V> mid = new Node<>(
+                        Arrays.copyOfRange(child.label, 0, common), null);
+                child.label = Arrays.copyOfRange(child.label, common,
+                        child.label.length);
+                child.hash = null;
+                mid.insertChild(0, child);
+                n.children[i] = mid;
+                n = mid;
+                pos += common;
+                continue;
+            }
+            n = child;
+            pos += common;
+        }
+    }
+
+    /**
+     * Rimuove una chiave dal dizionario.
+     *
+     * @param key
+     *                la chiave da rimuovere.
+     * @return il valore che era associato alla chiave, o null se la chiave non
+     *         era presente.
+     * @throws IllegalArgumentException
+     *                                      se la chiave è null.
+     */
+    public V delete(String key) {
+        byte[] k = bytesOf(key);
+        List<Node<V>> path = new ArrayList<>();
+        List<Integer> indices = new ArrayList<>();
+        Node<V> n = root;
+        int pos = 0;
+        while (pos < k.length) {
+            int i = n.find(k[pos]);
+            if (i < 0)
+                return null;
+            Node<V> child = n.children[i];
+            if (commonPrefix(child.label, k, pos) < child.label.length)
+                return null;
+            path.add(n);
+            indices.add(i);
+            pos += child.label.length;
+            n = child;
+        }
+        V old = n.value;
+        if (old == null)
+            return null;
+        n.value = null;
+        size--;
+        for (Node<V> p : path)
+            p.hash = null;
+        n.hash = null;
+        if (n == root)
+            return old;
+        Node<V> parent = path.get(path.size() - 1);
+        int index = indices.get(indices.size() - 1);
+        if (n.children.length == 0) {
+            parent.removeChild(index);
+            // Il padre potrebbe essere rimasto con un solo figlio
+            if (parent != root && parent.value == null
+                    && parent.children.length == 1) {
+                Node<V> grand = path.get(path.size() - 2);
+                int parentIndex = indices.get(indices.size() - 2);
+                grand.children[parentIndex] = merge(parent);
+            }
+        } else if (n.children.length == 1) {
+            parent.children[index] = merge(n);
+        }
+        return old;
+    }
+
+    /**
+     * Fonde un nodo senza valore con il suo unico figlio, concatenando le
+     * etichette, e restituisce il nodo risultante.
+     */
+    private static <V> Node<V> merge(Node<V> n) {
+        Node<V> child = n.children[0];
+        byte[] label = Arrays.copyOf(n.label,
+                n.label.length + child.label.length);
+        System.arraycopy(child.label, 0, label, n.label.length,
+                child.label.length);
+        child.label = label;
+        child.hash = null;
+        return child;
+    }
+
+    /**
+     * Ricalcola gli hash dei nodi modificati dall'ultimo ricalcolo, ciascuno
+     * una sola volta, e restituisce il nuovo hash della radice.
+     *
+     * @return l'hash della radice.
+     */
+    public String commit() {
+        return hash(root);
+    }
+
+    /**
+     * Restituisce l'hash della radice, ricalcolando prima gli hash dei nodi
+     * modificati.
+     *
+     * @return l'hash della radice.
+     */
+    public String getRootHash() {
+        return commit();
+    }
+
+    private String hash(Node<V> n) {
+        if (n.hash != null)
+            return n.hash;
+        String[] childHashes = new String[n.children.length];
+        for (int i = 0; i < childHashes.length; i++)
+            childHashes[i] = hash(n.children[i]);
+        n.hash = hashOf(n.label,
+                n.value == null ? "" : HashUtil.dataToHash(n.value),
+                firstBytes(n), childHashes);
+        return n.hash;
+    }
+
+    private static byte[] firstBytes(Node<?> n) {
+        byte[] first = new byte[n.children.length];
+        for (int i = 0; i < first.length; i++)
+            first[i] = n.children[i].label[0];
+        return first;
+    }
+
+    /**
+     * Calcola l'hash di un nodo a partire dalla sua etichetta, dall'hash del
+     * suo valore (vuoto se non ne ha) e dai primi byte e dagli hash dei figli.
+     * Il risultato è l'hash MD5 della stringa formata dall'etichetta in
+     * esadecimale, dal carattere '|', dall'hash del valore, da un altro '|' e,
+     * per ogni figlio, dal suo primo byte in esadecimale seguito dal suo hash.
+     */
+    static String hashOf(byte[] label, String valueHash, byte[] childBytes,
+            String[] childHashes) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(HashUtil.bytesToHex(label)).append('|').append(valueHash)
+                .append('|');
+        for (int i = 0; i < childHashes.length; i++) {
+            sb.append(HashUtil.bytesToHex(new byte[] { childBytes[i] }))
+                    .append(childHashes[i]);
+        }
+        return HashUtil.computeMD5(sb.toString().getBytes());
+    }
+
+    /**
+     * Restituisce la prova per una chiave, che dimostra il valore associato
+     * alla chiave se è presente, o la sua assenza altrimenti. La prova
+     * contiene i nodi del cammino della chiave, fino al nodo in cui la chiave
+     * termina o diverge dal trie.
+     *
+     * @param key
+     *                la chiave per cui generare la prova.
+     * @return la prova per la chiave.
+     * @throws IllegalArgumentException
+     *                                      se la chiave è null.
+     */
+    public MerklePatriciaProof getProof(String key) {
+        byte[] k = bytesOf(key);
+        String rootHash = commit();
+        MerklePatriciaProof proof = new MerklePatriciaProof(rootHash);
+        Node<V> n = root;
+        int pos = 0;
+        while (true) {
+            String[] childHashes = new String[n.children.length];
+            for (int i = 0; i < childHashes.length; i++)
+                childHashes[i] = n.children[i].hash;
+            proof.addNode(n.label,
+                    n.value == null ? "" : HashUtil.dataToHash(n.value),
+                    firstBytes(n), childHashes);
+            if (commonPrefix(n.label, k, pos) < n.label.length)
+                return proof; // La chiave diverge dall'etichetta
+            pos += n.label.length;
+            if (pos == k.length)
+                return proof;
+            int i = n.find(k[pos]);
+            if (i < 0)
+                return proof;
+            n = n.children[i];
+        }
+    }
+}
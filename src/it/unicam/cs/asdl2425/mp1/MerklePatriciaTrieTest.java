@@ -0,0 +1,229 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per la classe {@link MerklePatriciaTrie}. Di seguito,
+ * l'elenco dei test inclusi con una breve descrizione:
+ *
+ * <ul>
+ * <li>{@link #testPutAndGet()}: Verifica inserimenti, sostituzioni e ricerche,
+ * anche di chiavi che sono prefissi di altre.</li>
+ *
+ * <li>{@link #testDelete()}: Verifica le rimozioni, la dimensione e il ritorno
+ * alla radice precedente dopo la fusione dei nodi.</li>
+ *
+ * <li>{@link #testOrderIndependence()}: Verifica che la radice dipenda solo
+ * dal contenuto e non dall'ordine delle operazioni, su molte chiavi.</li>
+ *
+ * <li>{@link #testBatchCommit()}: Verifica che un gruppo di modifiche seguito
+ * da un solo ricalcolo produca la stessa radice dei ricalcoli intermedi.</li>
+ *
+ * <li>{@link #testInclusionProofs()}: Verifica le prove di inclusione per
+ * tutte le chiavi presenti.</li>
+ *
+ * <li>{@link #testExclusionProofs()}: Verifica le prove di esclusione nei
+ * diversi punti in cui una chiave assente può divergere dal trie.</li>
+ *
+ * <li>{@link #testInvalidArguments()}: Verifica che vengano lanciate
+ * eccezioni per argomenti non validi.</li>
+ * </ul>
+ */
+class MerklePatriciaTrieTest {
+
+    private MerklePatriciaTrie<Integer> trie;
+
+    @BeforeEach
+    void setUp() {
+        trie = new MerklePatriciaTrie<>();
+        trie.put("alice", 10);
+        trie.put("alina", 20);
+        trie.put("bob", 30);
+        trie.put("bobby", 40);
+    }
+
+    @Test
+    void testPutAndGet() {
+        assertEquals(4, trie.getSize(),
+                "Il dizionario dovrebbe contenere 4 chiavi.");
+        assertEquals(10, trie.get("alice"));
+        assertEquals(20, trie.get("alina"));
+        assertEquals(30, trie.get("bob"));
+        assertEquals(40, trie.get("bobby"));
+        assertNull(trie.get("ali"),
+                "Un prefisso comune non dovrebbe avere un valore.");
+        assertNull(trie.get("bobb"), "La chiave non dovrebbe essere presente.");
+        assertNull(trie.get(""), "La chiave vuota non dovrebbe essere presente.");
+
+        assertEquals(30, trie.put("bob", 31),
+                "Dovrebbe essere restituito il valore precedente.");
+        assertNull(trie.put("ali", 50));
+        assertNull(trie.put("", 60));
+        assertEquals(6, trie.getSize(),
+                "Il dizionario dovrebbe contenere 6 chiavi.");
+        assertEquals(31, trie.get("bob"));
+        assertEquals(50, trie.get("ali"));
+        assertEquals(60, trie.get(""));
+        assertEquals(10, trie.get("alice"));
+    }
+
+    @Test
+    void testDelete() {
+        String before = trie.getRootHash();
+        trie.put("alfredo", 70);
+        trie.put("b", 80);
+        assertNotEquals(before, trie.getRootHash(),
+                "La radice dovrebbe cambiare dopo gli inserimenti.");
+
+        assertEquals(70, trie.delete("alfredo"));
+        assertEquals(80, trie.delete("b"));
+        assertNull(trie.delete("b"),
+                "Una chiave già rimossa non dovrebbe avere un valore.");
+        assertNull(trie.delete("al"),
+                "Un prefisso senza valore non dovrebbe essere rimosso.");
+        assertEquals(before, trie.getRootHash(),
+                "La radice dovrebbe tornare a quella precedente.");
+        assertEquals(4, trie.getSize(),
+                "Il dizionario dovrebbe contenere 4 chiavi.");
+
+        assertEquals(30, trie.delete("bob"));
+        assertEquals(40, trie.get("bobby"),
+                "Le chiavi più lunghe dovrebbero restare raggiungibili.");
+        assertEquals(10, trie.delete("alice"));
+        assertEquals(20, trie.delete("alina"));
+        assertEquals(40, trie.delete("bobby"));
+        assertEquals(0, trie.getSize(), "Il dizionario dovrebbe essere vuoto.");
+        assertEquals(new MerklePatriciaTrie<Integer>().getRootHash(),
+                trie.getRootHash(),
+                "La radice dovrebbe essere quella del dizionario vuoto.");
+    }
+
+    @Test
+    void testOrderIndependence() {
+        Random random = new Random(42);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 500; i++)
+            keys.add(Integer.toString(random.nextInt(5000), 7));
+        MerklePatriciaTrie<Integer> a = new MerklePatriciaTrie<>();
+        Map<String, Integer> expected = new HashMap<>();
+        for (String k : keys) {
+            a.put(k, k.length());
+            expected.put(k, k.length());
+        }
+        for (int i = 0; i < 100; i++) {
+            a.delete(keys.get(i));
+            expected.remove(keys.get(i));
+        }
+
+        List<String> shuffled = new ArrayList<>(expected.keySet());
+        Collections.shuffle(shuffled, random);
+        MerklePatriciaTrie<Integer> b = new MerklePatriciaTrie<>();
+        for (String k : shuffled)
+            b.put(k, expected.get(k));
+
+        assertEquals(expected.size(), a.getSize(),
+                "La dimensione non è corretta.");
+        assertEquals(b.getRootHash(), a.getRootHash(),
+                "La radice non dovrebbe dipendere dall'ordine delle operazioni.");
+        for (String k : keys)
+            assertEquals(expected.get(k), a.get(k), "Valore errato per " + k);
+    }
+
+    @Test
+    void testBatchCommit() {
+        MerklePatriciaTrie<Integer> stepwise = new MerklePatriciaTrie<>();
+        MerklePatriciaTrie<Integer> batched = new MerklePatriciaTrie<>();
+        for (int i = 0; i < 200; i++) {
+            stepwise.put("chiave" + i, i);
+            stepwise.commit();
+            batched.put("chiave" + i, i);
+        }
+        for (int i = 0; i < 200; i += 3) {
+            stepwise.delete("chiave" + i);
+            stepwise.commit();
+            batched.delete("chiave" + i);
+        }
+
+        String root = batched.commit();
+        assertEquals(stepwise.getRootHash(), root,
+                "Il ricalcolo unico dovrebbe produrre la stessa radice.");
+        assertEquals(root, batched.getRootHash(),
+                "Senza modifiche la radice non dovrebbe cambiare.");
+    }
+
+    @Test
+    void testInclusionProofs() {
+        trie.put("ali", 50);
+        String root = trie.getRootHash();
+        String[] keys = { "alice", "alina", "bob", "bobby", "ali" };
+        int[] values = { 10, 20, 30, 40, 50 };
+        for (int i = 0; i < keys.length; i++) {
+            MerklePatriciaProof proof = trie.getProof(keys[i]);
+            assertTrue(proof.proveInclusion(keys[i], values[i]),
+                    "La prova dovrebbe dimostrare il valore di " + keys[i]);
+            assertFalse(proof.proveInclusion(keys[i], values[i] + 1),
+                    "La prova non dovrebbe accettare un valore diverso.");
+            assertFalse(proof.proveExclusion(keys[i]),
+                    "La prova non dovrebbe dimostrare l'assenza della chiave.");
+        }
+        assertEquals(root, trie.getRootHash(),
+                "Le prove non dovrebbero modificare la radice.");
+
+        MerklePatriciaProof proof = trie.getProof("bobby");
+        trie.put("bobby", 41);
+        assertFalse(trie.getProof("bobby").proveInclusion("bobby", 40),
+                "La prova aggiornata non dovrebbe accettare il vecchio valore.");
+        assertTrue(proof.proveInclusion("bobby", 40),
+                "La vecchia prova resta valida per la vecchia radice.");
+    }
+
+    @Test
+    void testExclusionProofs() {
+        // Nessun figlio per il primo byte
+        MerklePatriciaProof proof = trie.getProof("carlo");
+        assertTrue(proof.proveExclusion("carlo"));
+        assertEquals(1, proof.getLength(),
+                "La prova dovrebbe contenere solo la radice.");
+        // La chiave diverge all'interno di un'etichetta
+        assertTrue(trie.getProof("alx").proveExclusion("alx"));
+        assertTrue(trie.getProof("boa").proveExclusion("boa"));
+        // La chiave termina all'interno di un'etichetta
+        assertTrue(trie.getProof("bobb").proveExclusion("bobb"));
+        assertTrue(trie.getProof("a").proveExclusion("a"));
+        // La chiave termina in un nodo senza valore
+        assertTrue(trie.getProof("ali").proveExclusion("ali"));
+        // La chiave prosegue oltre una foglia
+        assertTrue(trie.getProof("bobbyx").proveExclusion("bobbyx"));
+        // La chiave vuota
+        assertTrue(trie.getProof("").proveExclusion(""));
+
+        assertFalse(trie.getProof("carlo").proveExclusion("alice"),
+                "La prova di un'altra chiave non dovrebbe essere accettata.");
+        assertFalse(trie.getProof("carlo").proveInclusion("alice", 10),
+                "La prova di un'altra chiave non dovrebbe essere accettata.");
+        assertTrue(new MerklePatriciaTrie<Integer>().getProof("alice")
+                .proveExclusion("alice"),
+                "Il dizionario vuoto non contiene alcuna chiave.");
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> trie.get(null));
+        assertThrows(IllegalArgumentException.class, () -> trie.put(null, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> trie.put("carlo", null));
+        assertThrows(IllegalArgumentException.class, () -> trie.delete(null));
+        assertThrows(IllegalArgumentException.class,
+                () -> trie.getProof(null));
+    }
+}
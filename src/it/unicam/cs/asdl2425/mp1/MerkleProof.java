@@ -61,6 +61,15 @@ public class MerkleProof {
         return length;
     }
 
+    /**
+     * Restituisce l'hash della radice per la quale la prova è stata costruita.
+     *
+     * @return l'hash della radice.
+     */
+    public String getRootHash() {
+        return rootHash;
+    }
+
     /**
      * Aggiunge un hash alla prova di Merkle, specificando se esso dovrebbe
      * essere concatenato a sinistra o a destra durante la verifica della prova.
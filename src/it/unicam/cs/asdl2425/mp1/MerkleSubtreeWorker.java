@@ -0,0 +1,157 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * Il processo worker di un {@link DistributedMerkleTree}. Il worker si
+ * collega al coordinatore sull'indirizzo e la porta ricevuti come argomenti,
+ * invia la posizione del proprio intervallo, ricevuta come terzo argomento,
+ * così che il coordinatore possa associare la connessione al processo
+ * corretto, riceve gli hash delle foglie dell'intervallo, costruisce il sottoalbero
+ * corrispondente con la forma e gli hash di un {@link MerkleTree} e ne invia
+ * la radice. Resta poi in attesa di richieste di nodi del sottoalbero, usate
+ * dal coordinatore per costruire le prove, finché non riceve il comando di
+ * chiusura o la connessione non viene chiusa.
+ *
+ * <p>
+ * Il protocollo è binario, su {@link DataInputStream} e
+ * {@link DataOutputStream}, e ogni hash è codificato come un byte di
+ * lunghezza (0 per l'hash vuoto dei nodi di riempimento, 16 altrimenti)
+ * seguito dal digest grezzo. I comandi sono:
+ *
+ * <pre>
+ *     BUILD  int count, int span, count hash  →  hash della radice
+ *     NODE   int level, int index             →  hash del nodo
+ *     PATH   int index                        →  hash dei fratelli, dal basso
+ *     CLOSE                                   →  (nessuna risposta)
+ * </pre>
+ */
+public class MerkleSubtreeWorker {
+    static final byte BUILD = 1;
+
+    static final byte NODE = 2;
+
+    static final byte PATH = 3;
+
+    static final byte CLOSE = 4;
+
+    /**
+     * I livelli del sottoalbero, dalle foglie alla radice.
+     */
+    private String[][] levels;
+
+    /**
+     * Avvia un worker che si collega al coordinatore.
+     *
+     * @param args
+     *                 l'indirizzo e la porta del coordinatore e la posizione
+     *                 dell'intervallo assegnato al worker.
+     * @throws IOException
+     *                         se la comunicazione con il coordinatore
+     *                         fallisce.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3)
+            throw new IllegalArgumentException(
+                    "Usage: MerkleSubtreeWorker <host> <port> <slot>");
+        int slot = Integer.parseInt(args[2]);
+        try (Socket socket = new Socket(args[0], Integer.parseInt(args[1]))) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(socket.getOutputStream()));
+            out.writeInt(slot);
+            out.flush();
+            new MerkleSubtreeWorker().serve(in, out);
+        }
+    }
+
+    /**
+     * Risponde ai comandi del coordinatore fino alla chiusura.
+     */
+    void serve(DataInputStream in, DataOutputStream out) throws IOException {
+        while (true) {
+            byte op;
+            try {
+                op = in.readByte();
+            } catch (EOFException e) {
+                return;
+            }
+            switch (op) {
+            case BUILD:
+                int count = in.readInt();
+                int span = in.readInt();
+                String[] leaves = new String[span];
+                for (int i = 0; i < count; i++)
+                    leaves[i] = readHash(in);
+                build(leaves, count);
+                writeHash(out, levels[levels.length - 1][0]);
+                break;
+            case NODE:
+                int level = in.readInt();
+                int index = in.readInt();
+                writeHash(out, levels[level][index]);
+                break;
+            case PATH:
+                int j = in.readInt();
+                for (int l = 0; l < levels.length - 1; l++) {
+                    writeHash(out, levels[l][j ^ 1]);
+                    j >>= 1;
+                }
+                break;
+            case CLOSE:
+                return;
+            default:
+                throw new IOException("Unknown command: " + op);
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Costruisce i livelli del sottoalbero, completando le foglie con nodi di
+     * riempimento vuoti.
+     */
+    private void build(String[] leaves, int count) {
+        for (int i = count; i < leaves.length; i++)
+            leaves[i] = "";
+        int height = Integer.numberOfTrailingZeros(leaves.length);
+        levels = new String[height + 1][];
+        levels[0] = leaves;
+        for (int l = 1; l <= height; l++) {
+            String[] below = levels[l - 1];
+            String[] level = new String[below.length / 2];
+            for (int j = 0; j < level.length; j++)
+                level[j] = HashLevels.combine(below[2 * j], below[2 * j + 1]);
+            levels[l] = level;
+        }
+    }
+
+    static void writeHash(DataOutputStream out, String hash)
+            throws IOException {
+        if (hash.isEmpty()) {
+            out.writeByte(0);
+        } else {
+            out.writeByte(16);
+            out.write(HashUtil.hexToBytes(hash));
+        }
+    }
+
+    static String readHash(DataInputStream in) throws IOException {
+        int length = in.readUnsignedByte();
+        if (length == 0)
+            return "";
+        if (length != 16)
+            throw new IOException("Invalid hash length: " + length);
+        byte[] digest = new byte[16];
+        in.readFully(digest);
+        return HashUtil.bytesToHex(digest);
+    }
+}
@@ -1,5 +1,7 @@
 package it.unicam.cs.asdl2425.mp1;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
@@ -27,6 +29,42 @@ public class MerkleTree<T> {
      */
     private final int width;
 
+    /**
+     * Forma dell'albero, che stabilisce come vengono trattati i nodi senza
+     * fratello.
+     */
+    private final Shape shape;
+
+    /**
+     * Tabella in cui vengono condivisi i nodi, o null se i nodi non vengono
+     * condivisi.
+     */
+    private final MerkleNodeTable table;
+
+    /**
+     * Le forme possibili di un albero di Merkle la cui larghezza non è una
+     * potenza di due.
+     */
+    public enum Shape {
+        /**
+         * Le foglie vengono completate con nodi di riempimento di hash vuoto
+         * fino alla potenza di due successiva; un nodo con due figli di
+         * riempimento è a sua volta di riempimento. L'albero è completo e
+         * tutte le prove hanno lunghezza pari all'altezza.
+         */
+        PADDED,
+
+        /**
+         * Un nodo senza fratello viene promosso al livello superiore senza
+         * essere combinato con alcun hash, per cui l'albero ha esattamente
+         * width - 1 nodi interni e nessun nodo di riempimento. Il sottoalbero
+         * sinistro di ogni nodo contiene la più grande potenza di due di
+         * foglie minore del totale, come negli alberi dei transparency log, e
+         * le prove non contengono fratelli di riempimento.
+         */
+        PROMOTED
+    }
+
     /**
      * Costruisce un albero di Merkle a partire da un oggetto HashLinkedList,
      * utilizzando direttamente gli hash presenti nella lista per costruire le
@@ -42,36 +80,120 @@ public class MerkleTree<T> {
      *                                      se la lista è null o vuota.
      */
     public MerkleTree(HashLinkedList<T> hashList) {
-        if(hashList == null || hashList.getSize() == 0)
+        this(hashList, Shape.PADDED);
+    }
+
+    /**
+     * Costruisce un albero di Merkle con la forma specificata a partire da un
+     * oggetto HashLinkedList. Con la forma {@link Shape#PADDED} si ottiene lo
+     * stesso albero di {@link #MerkleTree(HashLinkedList)}; con la forma
+     * {@link Shape#PROMOTED} i nodi di riempimento non vengono mai creati né
+     * combinati, il che dimezza nodi e hash calcolati per larghezze appena
+     * superiori a una potenza di due, ma la radice è diversa.
+     *
+     * @param hashList
+     *                     un oggetto HashLinkedList contenente i dati e i
+     *                     relativi hash.
+     * @param shape
+     *                     la forma dell'albero.
+     * @throws IllegalArgumentException
+     *                                      se la lista è null o vuota o se la
+     *                                      forma è null.
+     */
+    public MerkleTree(HashLinkedList<T> hashList, Shape shape) {
+        this(hashList, shape, null);
+    }
+
+    /**
+     * Costruisce un albero di Merkle con la forma specificata a partire da un
+     * oggetto HashLinkedList, condividendo i nodi tramite la tabella
+     * specificata: ogni nodo identico a uno già presente nella tabella, ad
+     * esempio perché costruito su dati ripetuti, viene sostituito da quello
+     * della tabella. L'albero ha la stessa radice e la stessa forma di quello
+     * costruito senza tabella, e le nuove versioni create con
+     * {@link #withLeaf(int, Object)}, {@link #concat(MerkleTree, MerkleTree)}
+     * e {@link #split(int)} usano la stessa tabella.
+     *
+     * @param hashList
+     *                     un oggetto HashLinkedList contenente i dati e i
+     *                     relativi hash.
+     * @param shape
+     *                     la forma dell'albero.
+     * @param table
+     *                     la tabella in cui condividere i nodi, o null per non
+     *                     condividerli.
+     * @throws IllegalArgumentException
+     *                                      se la lista è null o vuota o se la
+     *                                      forma è null.
+     */
+    public MerkleTree(HashLinkedList<T> hashList, Shape shape,
+            MerkleNodeTable table) {
+        if(hashList == null || hashList.getSize() == 0 || shape == null)
             throw new IllegalArgumentException();
         this.width = hashList.getSize();
+        this.shape = shape;
+        this.table = table;
         int leafs = getUpperTwoPower(width);
         List<MerkleNode> nodes = new ArrayList<>();
         List<String> allHashes = hashList.getAllHashes();
         for(String hash : allHashes){
-            nodes.add(new MerkleNode(hash));
+            nodes.add(node(table, hash, null, null));
         }
-        for(int i = allHashes.size(); i < leafs; i++){
-            nodes.add(new MerkleNode(""));
+        if(shape == Shape.PADDED && leafs > allHashes.size()){
+            // I nodi di riempimento di uno stesso livello sono tutti uguali
+            // e vengono quindi condivisi anche senza tabella
+            MerkleNode padding = node(table, "", null, null);
+            for(int i = allHashes.size(); i < leafs; i++){
+                nodes.add(padding);
+            }
         }
         while(nodes.size() > 1){
             List<MerkleNode> newList = new ArrayList<>();
             MerkleNode left = null;
+            MerkleNode padding = null;
             for (MerkleNode n : nodes) {
                 if(left == null){
                     left = n;
                 } else {
-                    if(n.getHash().equals("") && left.getHash().equals(""))
-                        newList.add(new MerkleNode("", left, n));
-                    else newList.add(new MerkleNode(HashUtil.computeMD5((left.getHash() + n.getHash()).getBytes()), left, n));
+                    if(n.getHash().equals("") && left.getHash().equals("")) {
+                        if(padding == null)
+                            padding = node(table, "", left, n);
+                        newList.add(padding);
+                    }
+                    else newList.add(node(table, HashUtil.computeMD5((left.getHash() + n.getHash()).getBytes()), left, n));
                     left = null;
                 }
             }
+            if(left != null)
+                newList.add(left);
             nodes = newList;
         }
         root = nodes.get(0);
     }
 
+    /**
+     * Costruisce un albero a partire da una radice già calcolata, condividendo
+     * tutti i suoi nodi.
+     */
+    private MerkleTree(MerkleNode root, int width, Shape shape,
+            MerkleNodeTable table) {
+        this.root = root;
+        this.width = width;
+        this.shape = shape;
+        this.table = table;
+    }
+
+    /**
+     * Crea un nodo, o restituisce quello identico già presente nella tabella
+     * se la tabella non è null.
+     */
+    private static MerkleNode node(MerkleNodeTable table, String hash,
+            MerkleNode left, MerkleNode right) {
+        if (table == null)
+            return new MerkleNode(hash, left, right);
+        return table.intern(hash, left, right);
+    }
+
     private int getUpperTwoPower(int n){
         int result = 1;
         while(result < n)
@@ -79,6 +201,329 @@ public class MerkleTree<T> {
         return result;
     }
 
+    /**
+     * Restituisce una nuova versione dell'albero in cui il dato nella
+     * posizione specificata è sostituito da quello fornito. Poiché i nodi sono
+     * immutabili, la nuova versione crea soltanto gli height + 1 nodi del
+     * cammino dalla radice alla foglia modificata e condivide con questo
+     * albero tutti gli altri sottoalberi; questo albero resta invariato.
+     *
+     * @param index
+     *                  la posizione del dato da sostituire, a partire da 0.
+     * @param data
+     *                  il nuovo dato.
+     * @return la nuova versione dell'albero.
+     * @throws IllegalArgumentException
+     *                                       se il dato è null.
+     * @throws IndexOutOfBoundsException
+     *                                       se la posizione non è compresa
+     *                                       tra 0 e width - 1.
+     */
+    public MerkleTree<T> withLeaf(int index, T data) {
+        if (data == null)
+            throw new IllegalArgumentException("The data is null");
+        if (index < 0 || index >= width)
+            throw new IndexOutOfBoundsException(
+                    "Index: " + index + ", Width: " + width);
+        MerkleNode newRoot = replaceLeaf(table, root, leafCount(), index,
+                HashUtil.dataToHash(data));
+        return new MerkleTree<>(newRoot, width, shape, table);
+    }
+
+    /**
+     * Copia il cammino dal nodo fornito alla foglia nella posizione
+     * specificata del suo sottoalbero, composto da count foglie, sostituendo
+     * l'hash della foglia e ricalcolando quelli degli antenati.
+     */
+    private static MerkleNode replaceLeaf(MerkleNodeTable table,
+            MerkleNode node, int count, int index, String hash) {
+        if (count == 1)
+            return node(table, hash, null, null);
+        int split = Integer.highestOneBit(count - 1);
+        MerkleNode left = node.getLeft();
+        MerkleNode right = node.getRight();
+        if (index < split)
+            left = replaceLeaf(table, left, split, index, hash);
+        else
+            right = replaceLeaf(table, right, count - split, index - split,
+                    hash);
+        return node(table, HashUtil.computeMD5(
+                (left.getHash() + right.getHash()).getBytes()), left, right);
+    }
+
+    /**
+     * Restituisce l'albero costruito sui dati di a seguiti da quelli di b,
+     * riutilizzando i sottoalberi dei due alberi invece di ricalcolare gli
+     * hash delle foglie. Un nodo del nuovo albero viene ricalcolato solo se
+     * il suo intervallo di foglie non coincide con quello di un nodo di a o
+     * di b. Se la larghezza di a è multipla della potenza di due successiva
+     * alla larghezza di b, ad esempio con partizioni tutte della stessa
+     * dimensione potenza di due, vengono ricalcolati solo gli O(log n) nodi
+     * lungo la giunzione. Altrimenti i sottoalberi di b non sono allineati nel
+     * nuovo albero e vanno ricalcolati fino a quelli di ampiezza pari alla più
+     * grande potenza di due che divide la larghezza di a. I due alberi restano
+     * invariati.
+     *
+     * @param <T>
+     *              il tipo di dati su cui gli alberi sono costruiti.
+     * @param a
+     *              l'albero con i primi dati.
+     * @param b
+     *              l'albero con i dati successivi.
+     * @return l'albero costruito sui dati di entrambi.
+     * @throws IllegalArgumentException
+     *                                      se uno dei due alberi è null o se
+     *                                      i due alberi hanno forme diverse.
+     */
+    public static <T> MerkleTree<T> concat(MerkleTree<T> a, MerkleTree<T> b) {
+        if (a == null || b == null)
+            throw new IllegalArgumentException("The tree is null");
+        if (a.shape != b.shape)
+            throw new IllegalArgumentException("The trees have different shapes");
+        int width = a.width + b.width;
+        Segment[] segments = { new Segment(a, 0, a.width, 0, width),
+                new Segment(b, 0, b.width, a.width, width) };
+        return new MerkleTree<>(assemble(segments, width, a.shape, a.table),
+                width, a.shape, a.table);
+    }
+
+    /**
+     * Divide l'albero in due alberi, uno sui dati prima della posizione
+     * specificata e uno sui dati da quella posizione in poi, riutilizzando i
+     * sottoalberi di questo albero. Il primo albero richiede il ricalcolo dei
+     * soli O(log n) nodi lungo il taglio; per il secondo valgono le
+     * considerazioni sull'allineamento di {@link #concat(MerkleTree,
+     * MerkleTree)}, con la posizione del taglio al posto della larghezza di
+     * a. Questo albero resta invariato.
+     *
+     * @param index
+     *                  la posizione del primo dato del secondo albero, tra 1
+     *                  e width - 1.
+     * @return una lista con i due alberi, nell'ordine.
+     * @throws IndexOutOfBoundsException
+     *                                       se la posizione non è compresa
+     *                                       tra 1 e width - 1.
+     */
+    public List<MerkleTree<T>> split(int index) {
+        if (index < 1 || index >= width)
+            throw new IndexOutOfBoundsException(
+                    "Index: " + index + ", Width: " + width);
+        int rest = width - index;
+        Segment[] head = { new Segment(this, 0, index, 0, index) };
+        Segment[] tail = { new Segment(this, index, rest, -index, rest) };
+        List<MerkleTree<T>> parts = new ArrayList<>();
+        parts.add(new MerkleTree<>(assemble(head, index, shape, table), index,
+                shape, table));
+        parts.add(new MerkleTree<>(assemble(tail, rest, shape, table), rest,
+                shape, table));
+        return parts;
+    }
+
+    /**
+     * Un intervallo contiguo di dati di un albero esistente, spostato di
+     * shift posizioni nell'albero in costruzione.
+     */
+    private static final class Segment {
+        private final MerkleNode root;
+
+        private final int leaves; // Foglie dell'albero, con il riempimento
+
+        private final int from;
+
+        private final int count;
+
+        private final int shift;
+
+        /**
+         * Prima posizione da cui le foglie dell'albero sono di riempimento e
+         * cadono nel riempimento dell'albero in costruzione.
+         */
+        private final int padding;
+
+        private Segment(MerkleTree<?> tree, int from, int count, int shift,
+                int targetWidth) {
+            this.root = tree.root;
+            this.leaves = tree.leafCount();
+            this.from = from;
+            this.count = count;
+            this.shift = shift;
+            this.padding = Math.max(tree.width, targetWidth - shift);
+        }
+
+        /**
+         * Restituisce il nodo di questo albero da riutilizzare per le count
+         * foglie dell'albero in costruzione a partire dalla posizione start,
+         * o null se non esiste un nodo con esattamente quelle foglie.
+         */
+        private MerkleNode find(int start, int size) {
+            int lo = start - shift;
+            int hi = lo + size;
+            if (lo < 0 || hi > leaves)
+                return null;
+            boolean covered = lo >= from && hi <= from + count
+                    || lo >= padding
+                    || lo >= from && from + count >= padding;
+            if (!covered)
+                return null;
+            MerkleNode n = root;
+            int a = 0;
+            int cnt = leaves;
+            while (a != lo || cnt != size) {
+                if (cnt <= size)
+                    return null;
+                int split = Integer.highestOneBit(cnt - 1);
+                if (hi <= a + split) {
+                    n = n.getLeft();
+                    cnt = split;
+                } else if (lo >= a + split) {
+                    n = n.getRight();
+                    a += split;
+                    cnt -= split;
+                } else {
+                    return null;
+                }
+            }
+            return n;
+        }
+    }
+
+    /**
+     * Costruisce la radice di un albero della forma e della larghezza
+     * specificate i cui dati provengono dagli intervalli forniti.
+     */
+    private static MerkleNode assemble(Segment[] segments, int width,
+            Shape shape, MerkleNodeTable table) {
+        int leaves = shape == Shape.PADDED ? HashLevels.upperTwoPower(width)
+                : width;
+        List<MerkleNode> padding = new ArrayList<>();
+        padding.add(node(table, "", null, null));
+        return assemble(segments, width, 0, leaves, padding, table);
+    }
+
+    /**
+     * Restituisce il nodo con le size foglie a partire dalla posizione start,
+     * riutilizzando un nodo esistente se possibile e ricalcolando altrimenti
+     * l'hash a partire dai due figli.
+     */
+    private static MerkleNode assemble(Segment[] segments, int width,
+            int start, int size, List<MerkleNode> padding,
+            MerkleNodeTable table) {
+        if (start >= width)
+            return paddingNode(Integer.numberOfTrailingZeros(size), padding,
+                    table);
+        for (Segment s : segments) {
+            MerkleNode n = s.find(start, size);
+            if (n != null)
+                return n;
+        }
+        int split = Integer.highestOneBit(size - 1);
+        MerkleNode left = assemble(segments, width, start, split, padding,
+                table);
+        MerkleNode right = assemble(segments, width, start + split,
+                size - split, padding, table);
+        return node(table, HashLevels.combine(left.getHash(),
+                right.getHash()), left, right);
+    }
+
+    /**
+     * Restituisce un sottoalbero di riempimento dell'altezza specificata. I
+     * sottoalberi di riempimento sono immutabili e vengono condivisi.
+     */
+    private static MerkleNode paddingNode(int height,
+            List<MerkleNode> padding, MerkleNodeTable table) {
+        while (padding.size() <= height) {
+            MerkleNode below = padding.get(padding.size() - 1);
+            padding.add(node(table, "", below, below));
+        }
+        return padding.get(height);
+    }
+
+    /**
+     * Salva l'albero su file in un formato binario versionato, che contiene
+     * l'intestazione, l'identificativo dell'algoritmo di hash, la larghezza,
+     * la forma e i digest grezzi di tutti i nodi ordinati per livelli. Il
+     * formato è descritto in {@link MappedMerkleTree}.
+     *
+     * @param path
+     *                 il file di destinazione, sovrascritto se esiste.
+     * @throws IOException
+     *                         se la scrittura fallisce.
+     */
+    public void save(Path path) throws IOException {
+        MappedMerkleTree.write(root, width, getHeight(), shape, path);
+    }
+
+    /**
+     * Apre uno snapshot salvato con {@link #save(Path)} mappandolo in memoria.
+     * Radice, prove e confronti vengono serviti direttamente dal file, senza
+     * ricalcolare alcun hash, per cui il tempo di apertura non dipende dalla
+     * dimensione dell'albero.
+     *
+     * @param <T>
+     *                 il tipo di dati su cui l'albero è stato costruito.
+     * @param path
+     *                 il file dello snapshot.
+     * @return l'albero servito dallo snapshot.
+     * @throws IOException
+     *                         se il file non può essere letto o non è uno
+     *                         snapshot valido.
+     */
+    public static <T> MappedMerkleTree<T> open(Path path) throws IOException {
+        return MappedMerkleTree.open(path);
+    }
+
+    /**
+     * Costruisce un albero di Merkle per l'integrità di un file, diviso in
+     * blocchi della dimensione specificata. Il file viene mappato in memoria e
+     * gli hash dei blocchi vengono calcolati in parallelo direttamente dalla
+     * mappatura; l'albero permette poi di verificare e riparare i singoli
+     * blocchi. Il formato delle foglie è descritto in {@link FileMerkleTree}.
+     *
+     * @param path
+     *                      il file.
+     * @param chunkSize
+     *                      la dimensione in byte di un blocco, al più 1 GB.
+     * @return l'albero costruito sul file, da chiudere dopo l'uso.
+     * @throws IOException
+     *                                      se il file non può essere letto o
+     *                                      mappato.
+     * @throws IllegalArgumentException
+     *                                      se il percorso è null, se il file
+     *                                      è vuoto o se la dimensione dei
+     *                                      blocchi non è valida.
+     */
+    public static FileMerkleTree ofFile(Path path, int chunkSize)
+            throws IOException {
+        return FileMerkleTree.open(path, chunkSize);
+    }
+
+    /**
+     * Costruisce un albero di Merkle sui blocchi di un file definiti dal
+     * contenuto dal divisore specificato. A differenza dei blocchi di
+     * dimensione fissa, inserire o rimuovere byte nel file cambia solo le
+     * foglie vicine alla modifica, e le foglie invariate possono essere
+     * individuate con {@link FileMerkleTree#findMissingChunks(FileMerkleTree)}.
+     *
+     * @param path
+     *                    il file.
+     * @param chunker
+     *                    il divisore, con dimensione massima dei blocchi
+     *                    al più 512 MB.
+     * @return l'albero costruito sul file, da chiudere dopo l'uso.
+     * @throws IOException
+     *                                      se il file non può essere letto o
+     *                                      mappato.
+     * @throws IllegalArgumentException
+     *                                      se il percorso o il divisore sono
+     *                                      null, se il file è vuoto o se la
+     *                                      dimensione massima dei blocchi non
+     *                                      è valida.
+     */
+    public static FileMerkleTree ofFile(Path path, ContentChunker chunker)
+            throws IOException {
+        return FileMerkleTree.open(path, chunker);
+    }
+
     /**
      * Restituisce il nodo radice dell'albero.
      *
@@ -97,6 +542,15 @@ public class MerkleTree<T> {
         return width;
     }
 
+    /**
+     * Restituisce la forma dell'albero.
+     *
+     * @return la forma dell'albero.
+     */
+    public Shape getShape() {
+        return shape;
+    }
+
     /**
      * Restituisce l'altezza dell'albero.
      *
@@ -330,6 +784,126 @@ public class MerkleTree<T> {
         return getMerkleProof(path);
     }
 
+    /**
+     * Restituisce la prova di Merkle per il dato nella posizione specificata,
+     * scendendo dalla radice secondo i bit della posizione invece di cercare
+     * l'hash del dato tra le foglie.
+     *
+     * @param index
+     *                  la posizione del dato, a partire da 0.
+     * @return la prova di Merkle per il dato.
+     * @throws IndexOutOfBoundsException
+     *                                       se la posizione non è compresa
+     *                                       tra 0 e width - 1.
+     */
+    public MerkleProof getMerkleProofAt(int index) {
+        if (index < 0 || index >= width)
+            throw new IndexOutOfBoundsException(
+                    "Index: " + index + ", Width: " + width);
+        List<MerkleProof.MerkleProofHash> steps = new ArrayList<>();
+        walkToLeaf(index, steps);
+        MerkleProof proof = new MerkleProof(root.getHash(), steps.size());
+        for (int i = steps.size() - 1; i >= 0; i--)
+            proof.addHash(steps.get(i).getHash(), steps.get(i).isLeft());
+        return proof;
+    }
+
+    /**
+     * Restituisce la prova di consistenza tra la versione di questo albero
+     * costruita sui primi oldSize dati e questo albero, che permette a chi
+     * conosce soltanto le due radici di verificare che questo albero estenda
+     * quello più piccolo aggiungendo dati in coda. La prova contiene al più un
+     * hash per livello di questo albero, più l'hash di un dato per la forma
+     * {@link Shape#PADDED}.
+     *
+     * @param oldSize
+     *                    il numero di dati del vecchio albero.
+     * @return la prova di consistenza.
+     * @throws IllegalArgumentException
+     *                                      se oldSize non è compreso tra 1 e
+     *                                      la larghezza di questo albero.
+     */
+    public ConsistencyProof getConsistencyProof(int oldSize) {
+        if (oldSize < 1 || oldSize > width)
+            throw new IllegalArgumentException(
+                    "Invalid old size: " + oldSize + ", Width: " + width);
+        if (shape == Shape.PROMOTED) {
+            List<String> path = new ArrayList<>();
+            subproof(oldSize, root, width, true, path);
+            return new ConsistencyProof(oldSize, width,
+                    path.toArray(new String[0]));
+        }
+        List<MerkleProof.MerkleProofHash> steps = new ArrayList<>();
+        MerkleNode leaf = walkToLeaf(oldSize - 1, steps);
+        String[] hashes = new String[steps.size()];
+        for (int i = 0; i < hashes.length; i++)
+            hashes[i] = steps.get(hashes.length - 1 - i).getHash();
+        return new ConsistencyProof(oldSize, width, leaf.getHash(), hashes);
+    }
+
+    /**
+     * Aggiunge al cammino la prova di consistenza tra i primi m dati del
+     * sottoalbero fornito, di n foglie, e il sottoalbero stesso, secondo
+     * l'algoritmo SUBPROOF della RFC 9162. Il flag complete indica se i primi
+     * m dati sono un sottoalbero di cui il verificatore conosce già l'hash.
+     */
+    private static void subproof(int m, MerkleNode node, int n,
+            boolean complete, List<String> path) {
+        if (m == n) {
+            if (!complete)
+                path.add(node.getHash());
+            return;
+        }
+        int k = Integer.highestOneBit(n - 1);
+        if (m <= k) {
+            subproof(m, node.getLeft(), k, complete, path);
+            path.add(node.getRight().getHash());
+        } else {
+            subproof(m - k, node.getRight(), n - k, false, path);
+            path.add(node.getLeft().getHash());
+        }
+    }
+
+    /**
+     * Scende dalla radice alla foglia nella posizione specificata e aggiunge
+     * ai passi, a partire dalla radice, l'hash del fratello di ogni nodo
+     * attraversato, indicando se si trova a sinistra. Il sottoalbero sinistro
+     * di un nodo con count foglie ne contiene la più grande potenza di due
+     * minore di count, il che vale per entrambe le forme se per la forma
+     * {@link Shape#PADDED} si contano anche le foglie di riempimento.
+     *
+     * @return la foglia raggiunta.
+     */
+    private MerkleNode walkToLeaf(int index,
+            List<MerkleProof.MerkleProofHash> steps) {
+        MerkleNode n = root;
+        int count = leafCount();
+        while (count > 1) {
+            int split = Integer.highestOneBit(count - 1);
+            if (index < split) {
+                steps.add(new MerkleProof.MerkleProofHash(
+                        n.getRight().getHash(), false));
+                n = n.getLeft();
+                count = split;
+            } else {
+                steps.add(new MerkleProof.MerkleProofHash(
+                        n.getLeft().getHash(), true));
+                n = n.getRight();
+                index -= split;
+                count -= split;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Restituisce il numero di foglie dell'albero, comprese quelle di
+     * riempimento.
+     */
+    private int leafCount() {
+        return shape == Shape.PADDED ? getUpperTwoPower(width) : width;
+    }
+
     /**
      * Restituisce la prova di Merkle per un dato branch, ovvero la lista di
      * hash dei nodi fratelli di ciascun nodo nel cammino dalla radice al dato
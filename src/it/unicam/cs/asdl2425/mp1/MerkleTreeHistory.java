@@ -0,0 +1,180 @@
+package it.unicam.cs.asdl2425.mp1;
+
+/**
+ * Una cronologia limitata delle versioni di un {@link MerkleTree}. Ogni nuova
+ * versione viene derivata dalla più recente con
+ * {@link MerkleTree#withLeaf(int, Object)}, che condivide con la versione
+ * precedente tutti i sottoalberi non modificati: mantenere k versioni di un
+ * albero di n dati costa quindi O(n + k log n) nodi invece di O(k n).
+ *
+ * <p>
+ * Le versioni sono numerate a partire da 0, in ordine di creazione, e vengono
+ * conservate le ultime {@code capacity}: quando la cronologia è piena, la
+ * versione più vecchia viene scartata e i nodi che solo essa usava diventano
+ * raccoglibili dal garbage collector. Radice e prove di Merkle possono essere
+ * richieste per qualunque versione conservata.
+ *
+ * @param <T>
+ *                il tipo di dati su cui l'albero è costruito.
+ */
+public class MerkleTreeHistory<T> {
+    private final MerkleTree<T>[] versions; // Buffer circolare delle versioni
+
+    private long latest; // Numero della versione più recente
+
+    /**
+     * Crea una cronologia che contiene l'albero fornito come versione 0.
+     *
+     * @param initial
+     *                     la versione iniziale dell'albero.
+     * @param capacity
+     *                     il numero massimo di versioni conservate.
+     * @throws IllegalArgumentException
+     *                                      se l'albero è null o la capacità
+     *                                      non è positiva.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public MerkleTreeHistory(MerkleTree<T> initial, int capacity) {
+        if (initial == null)
+            throw new IllegalArgumentException("The tree is null");
+        if (capacity <= 0)
+            throw new IllegalArgumentException(
+                    "The history capacity must be positive");
+        this.versions = new MerkleTree[capacity];
+        this.versions[0] = initial;
+        this.latest = 0;
+    }
+
+    /**
+     * Aggiunge alla cronologia una nuova versione, ottenuta dalla più recente
+     * sostituendo il dato nella posizione specificata.
+     *
+     * @param index
+     *                  la posizione del dato da sostituire, a partire da 0.
+     * @param data
+     *                  il nuovo dato.
+     * @return il numero della nuova versione.
+     * @throws IllegalArgumentException
+     *                                       se il dato è null.
+     * @throws IndexOutOfBoundsException
+     *                                       se la posizione non è compresa
+     *                                       tra 0 e width - 1.
+     */
+    public long withLeaf(int index, T data) {
+        return commit(getLatest().withLeaf(index, data));
+    }
+
+    /**
+     * Aggiunge alla cronologia una nuova versione, scartando la più vecchia se
+     * la cronologia è piena.
+     *
+     * @param tree
+     *                 la nuova versione dell'albero.
+     * @return il numero della nuova versione.
+     * @throws IllegalArgumentException
+     *                                      se l'albero è null.
+     */
+    public long commit(MerkleTree<T> tree) {
+        if (tree == null)
+            throw new IllegalArgumentException("The tree is null");
+        latest++;
+        versions[(int) (latest % versions.length)] = tree;
+        return latest;
+    }
+
+    /**
+     * Restituisce il numero della versione più recente.
+     *
+     * @return il numero della versione più recente.
+     */
+    public long getLatestVersion() {
+        return latest;
+    }
+
+    /**
+     * Restituisce il numero della versione più vecchia ancora conservata.
+     *
+     * @return il numero della versione più vecchia conservata.
+     */
+    public long getOldestVersion() {
+        return Math.max(0, latest - versions.length + 1);
+    }
+
+    /**
+     * Restituisce la versione più recente dell'albero.
+     *
+     * @return la versione più recente.
+     */
+    public MerkleTree<T> getLatest() {
+        return getVersion(latest);
+    }
+
+    /**
+     * Restituisce una versione conservata dell'albero.
+     *
+     * @param version
+     *                    il numero della versione.
+     * @return l'albero nella versione richiesta.
+     * @throws IllegalArgumentException
+     *                                      se la versione non esiste o non è
+     *                                      più conservata.
+     */
+    public MerkleTree<T> getVersion(long version) {
+        if (version < getOldestVersion() || version > latest)
+            throw new IllegalArgumentException(
+                    "Version " + version + " is not retained");
+        return versions[(int) (version % versions.length)];
+    }
+
+    /**
+     * Restituisce l'hash della radice di una versione conservata.
+     *
+     * @param version
+     *                    il numero della versione.
+     * @return l'hash della radice della versione.
+     * @throws IllegalArgumentException
+     *                                      se la versione non esiste o non è
+     *                                      più conservata.
+     */
+    public String getRootHash(long version) {
+        return getVersion(version).getRoot().getHash();
+    }
+
+    /**
+     * Restituisce la prova di Merkle per il dato nella posizione specificata,
+     * rispetto alla radice di una versione conservata.
+     *
+     * @param version
+     *                    il numero della versione.
+     * @param index
+     *                    la posizione del dato, a partire da 0.
+     * @return la prova di Merkle per il dato nella versione richiesta.
+     * @throws IllegalArgumentException
+     *                                       se la versione non esiste o non
+     *                                       è più conservata.
+     * @throws IndexOutOfBoundsException
+     *                                       se la posizione non è compresa
+     *                                       tra 0 e width - 1.
+     */
+    public MerkleProof getMerkleProofAt(long version, int index) {
+        return getVersion(version).getMerkleProofAt(index);
+    }
+
+    /**
+     * Restituisce la prova di Merkle per un dato elemento, rispetto alla
+     * radice di una versione conservata.
+     *
+     * @param version
+     *                    il numero della versione.
+     * @param data
+     *                    l'elemento per cui generare la prova di Merkle.
+     * @return la prova di Merkle per il dato nella versione richiesta.
+     * @throws IllegalArgumentException
+     *                                      se la versione non esiste o non è
+     *                                      più conservata, o se il dato è null
+     *                                      o non è parte della versione.
+     */
+    public MerkleProof getMerkleProof(long version, T data) {
+        return getVersion(version).getMerkleProof(data);
+    }
+}
@@ -0,0 +1,98 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per la classe {@link MerkleTreeHistory}. Di seguito, l'elenco
+ * dei test inclusi con una breve descrizione:
+ *
+ * <ul>
+ * <li>{@link #testVersions()}: Verifica che ogni versione abbia la radice di
+ * un albero costruito da capo sugli stessi dati.</li>
+ *
+ * <li>{@link #testProofsAgainstOldVersions()}: Verifica che le prove di una
+ * versione precedente validino i dati di quella versione e non quelli
+ * successivi.</li>
+ *
+ * <li>{@link #testBoundedHistory()}: Verifica che vengano conservate solo le
+ * ultime versioni.</li>
+ * </ul>
+ */
+class MerkleTreeHistoryTest {
+
+    private HashLinkedList<String> list;
+
+    private MerkleTreeHistory<String> history;
+
+    @BeforeEach
+    void setUp() {
+        list = new HashLinkedList<>();
+        list.addAtTail("Alice paga Bob");
+        list.addAtTail("Bob paga Charlie");
+        list.addAtTail("Charlie paga Diana");
+        list.addAtTail("Diana paga Alice");
+        list.addAtTail("Alice paga Charlie");
+        history = new MerkleTreeHistory<>(new MerkleTree<>(list), 3);
+    }
+
+    @Test
+    void testVersions() {
+        String root0 = new MerkleTree<>(list).getRoot().getHash();
+        assertEquals(1, history.withLeaf(1, "Bob paga Diana"),
+                "La prima versione derivata dovrebbe essere la 1.");
+        list.set(1, "Bob paga Diana");
+        String root1 = new MerkleTree<>(list).getRoot().getHash();
+        assertEquals(2, history.withLeaf(4, "Diana paga Charlie"),
+                "La seconda versione derivata dovrebbe essere la 2.");
+        list.set(4, "Diana paga Charlie");
+        String root2 = new MerkleTree<>(list).getRoot().getHash();
+
+        assertEquals(root0, history.getRootHash(0),
+                "La radice della versione 0 non è corretta.");
+        assertEquals(root1, history.getRootHash(1),
+                "La radice della versione 1 non è corretta.");
+        assertEquals(root2, history.getRootHash(2),
+                "La radice della versione 2 non è corretta.");
+        assertEquals(2, history.getLatestVersion(),
+                "La versione più recente non è corretta.");
+    }
+
+    @Test
+    void testProofsAgainstOldVersions() {
+        history.withLeaf(1, "Bob paga Diana");
+
+        assertTrue(history.getMerkleProof(0, "Bob paga Charlie")
+                .proveValidityOfData("Bob paga Charlie"),
+                "La prova dovrebbe validare il dato della versione 0.");
+        assertTrue(history.getMerkleProofAt(1, 1)
+                .proveValidityOfData("Bob paga Diana"),
+                "La prova dovrebbe validare il dato della versione 1.");
+        assertFalse(history.getMerkleProofAt(0, 1)
+                .proveValidityOfData("Bob paga Diana"),
+                "La prova della versione 0 non dovrebbe validare un dato "
+                        + "successivo.");
+        assertThrows(IllegalArgumentException.class,
+                () -> history.getMerkleProof(1, "Bob paga Charlie"));
+    }
+
+    @Test
+    void testBoundedHistory() {
+        for (int i = 0; i < 5; i++)
+            history.withLeaf(0, "Bob paga Alice " + i);
+
+        assertEquals(5, history.getLatestVersion(),
+                "La versione più recente non è corretta.");
+        assertEquals(3, history.getOldestVersion(),
+                "La versione più vecchia conservata non è corretta.");
+        assertThrows(IllegalArgumentException.class,
+                () -> history.getVersion(2));
+        assertThrows(IllegalArgumentException.class,
+                () -> history.getVersion(6));
+        assertTrue(history.getMerkleProofAt(3, 0)
+                .proveValidityOfData("Bob paga Alice 2"),
+                "La prova dovrebbe validare il dato della versione 3.");
+    }
+}
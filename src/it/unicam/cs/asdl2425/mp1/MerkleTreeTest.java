@@ -77,6 +77,28 @@ import static org.junit.jupiter.api.Assertions.*;
  * 
  * <li>{@link #testSingleLeafTree()}: Verifica il comportamento del MerkleTree per un singolo elemento,
  * controllando larghezza, altezza e validità dei dati.</li>
+ * 
+ * <li>{@link #testWithLeaf()}: Verifica che la nuova versione coincida con un albero costruito da capo,
+ * che la versione originale resti invariata e che i sottoalberi non modificati siano condivisi.</li>
+ * 
+ * <li>{@link #testGetMerkleProofAt()}: Verifica che le prove per posizione validino i dati, compresi
+ * quelli accanto a foglie di riempimento.</li>
+ * 
+ * <li>{@link #testPromotedShape()}: Verifica che un albero con nodi promossi non contenga nodi di
+ * riempimento e che le sue prove, più corte, validino i dati.</li>
+ * 
+ * <li>{@link #testPromotedShapeOperations()}: Verifica ricerca, confronto, nuove versioni e
+ * salvataggio per un albero con nodi promossi.</li>
+ * 
+ * <li>{@link #testConcat()}: Verifica che la concatenazione coincida con un albero costruito da capo,
+ * per entrambe le forme e molte larghezze, e che riutilizzi i sottoalberi allineati.</li>
+ * 
+ * <li>{@link #testSplit()}: Verifica che la divisione produca gli alberi costruiti da capo sulle due
+ * parti e che la concatenazione delle parti restituisca l'albero originale.</li>
+ *
+ * <li>{@link #testSharedNodes()}: Verifica che un albero costruito con una tabella di nodi condivisi
+ * abbia la stessa radice di quello costruito senza, condivida i sottoalberi identici e i nodi di
+ * riempimento e passi la tabella alle nuove versioni.</li>
  * </ul>
  */
 class MerkleTreeTest {
@@ -576,4 +598,244 @@ class MerkleTreeTest {
         assertTrue(singleTree.validateData("Alice paga Bob"),
                 "Il dato dovrebbe essere valido.");
     }
+
+    @Test
+    void testWithLeaf() {
+        String oldRoot = merkleTree2.getRoot().getHash();
+        MerkleTree<Long> updated = merkleTree2.withLeaf(2, 999L);
+        hashList2.set(2, 999L);
+        MerkleTree<Long> rebuilt = new MerkleTree<>(hashList2);
+
+        assertEquals(rebuilt.getRoot().getHash(), updated.getRoot().getHash(),
+                "La radice della nuova versione non è corretta.");
+        assertEquals(oldRoot, merkleTree2.getRoot().getHash(),
+                "La versione originale non dovrebbe cambiare.");
+        assertTrue(updated.validateData(999L),
+                "Il nuovo dato dovrebbe essere valido.");
+        assertFalse(updated.validateData(333L),
+                "Il dato sostituito non dovrebbe essere valido.");
+        assertSame(merkleTree2.getRoot().getRight(),
+                updated.getRoot().getRight(),
+                "Il sottoalbero non modificato dovrebbe essere condiviso.");
+        assertSame(merkleTree2.getRoot().getLeft().getRight(),
+                updated.getRoot().getLeft().getRight(),
+                "Il sottoalbero non modificato dovrebbe essere condiviso.");
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> merkleTree2.withLeaf(13, 999L));
+        assertThrows(IllegalArgumentException.class,
+                () -> merkleTree2.withLeaf(0, null));
+    }
+
+    @Test
+    void testGetMerkleProofAt() {
+        for (int i = 0; i < 13; i++) {
+            MerkleProof proof = merkleTree2.getMerkleProofAt(i);
+            assertTrue(proof.proveValidityOfData(111L * (i + 1)),
+                    "La prova dovrebbe validare il dato in posizione " + i + ".");
+        }
+        assertFalse(merkleTree2.getMerkleProofAt(0).proveValidityOfData(222L),
+                "La prova non dovrebbe validare un dato in un'altra posizione.");
+        assertTrue(merkleTree3.getMerkleProofAt(0).proveValidityOfData(true),
+                "La prova dovrebbe validare l'unico dato.");
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> merkleTree1.getMerkleProofAt(4));
+    }
+
+    private static int countNodes(MerkleNode node) {
+        if (node.isLeaf())
+            return 1;
+        return 1 + countNodes(node.getLeft()) + countNodes(node.getRight());
+    }
+
+    @Test
+    void testPromotedShape() {
+        MerkleTree<Long> promoted = new MerkleTree<>(hashList2,
+                MerkleTree.Shape.PROMOTED);
+
+        assertEquals(MerkleTree.Shape.PROMOTED, promoted.getShape(),
+                "La forma dell'albero non è corretta.");
+        assertEquals(MerkleTree.Shape.PADDED, merkleTree2.getShape(),
+                "La forma predefinita dovrebbe essere con riempimento.");
+        assertEquals(25, countNodes(promoted.getRoot()),
+                "L'albero dovrebbe avere 2 * width - 1 nodi.");
+        assertEquals(31, countNodes(merkleTree2.getRoot()),
+                "L'albero con riempimento dovrebbe avere 31 nodi.");
+        assertEquals(4, promoted.getHeight(),
+                "L'altezza dell'albero non è corretta.");
+        assertNotEquals(merkleTree2.getRoot().getHash(),
+                promoted.getRoot().getHash(),
+                "Le due forme dovrebbero avere radici diverse.");
+        assertEquals(new MerkleTree<>(hashList1, MerkleTree.Shape.PROMOTED)
+                .getRoot().getHash(), merkleTree1.getRoot().getHash(),
+                "Per una potenza di due le due forme dovrebbero coincidere.");
+
+        for (int i = 0; i < 13; i++) {
+            long data = 111L * (i + 1);
+            assertTrue(promoted.getMerkleProofAt(i).proveValidityOfData(data),
+                    "La prova dovrebbe validare il dato in posizione " + i + ".");
+            assertTrue(promoted.getMerkleProof(data).proveValidityOfData(data),
+                    "La prova dovrebbe validare il dato " + data + ".");
+        }
+        assertEquals(2, promoted.getMerkleProofAt(12).getLength(),
+                "La prova dell'ultimo dato non dovrebbe contenere fratelli "
+                        + "di riempimento.");
+        assertEquals(4, promoted.getMerkleProofAt(0).getLength(),
+                "La prova del primo dato dovrebbe avere un hash per livello.");
+    }
+
+    @Test
+    void testPromotedShapeOperations() throws java.io.IOException {
+        MerkleTree<Long> promoted = new MerkleTree<>(hashList2,
+                MerkleTree.Shape.PROMOTED);
+
+        assertEquals(12, promoted.getIndexOfData(1443L),
+                "L'indice dell'ultimo dato non è corretto.");
+        assertTrue(promoted.validateData(555L),
+                "Il dato dovrebbe essere valido.");
+
+        MerkleTree<Long> updated = promoted.withLeaf(11, 0L);
+        hashList2.set(11, 0L);
+        MerkleTree<Long> rebuilt = new MerkleTree<>(hashList2,
+                MerkleTree.Shape.PROMOTED);
+        assertEquals(rebuilt.getRoot().getHash(), updated.getRoot().getHash(),
+                "La nuova versione non coincide con l'albero ricostruito.");
+        assertEquals(Set.of(11), promoted.findInvalidDataIndices(rebuilt),
+                "Gli indici dei dati diversi non sono corretti.");
+        java.nio.file.Path file = java.nio.file.Files.createTempFile("merkle",
+                ".snapshot");
+        try {
+            promoted.save(file);
+            try (MappedMerkleTree<Long> mapped = MerkleTree.open(file)) {
+                assertEquals(MerkleTree.Shape.PROMOTED, mapped.getShape(),
+                        "Lo snapshot dovrebbe conservare la forma.");
+                assertEquals(promoted.getRoot().getHash(),
+                        mapped.getRootHash(),
+                        "La radice dello snapshot non è corretta.");
+            }
+        } finally {
+            java.nio.file.Files.delete(file);
+        }
+    }
+
+    private static MerkleTree<Integer> treeOf(int from, int to,
+            MerkleTree.Shape shape) {
+        HashLinkedList<Integer> list = new HashLinkedList<>();
+        for (int i = from; i < to; i++)
+            list.addAtTail(i);
+        return new MerkleTree<>(list, shape);
+    }
+
+    @Test
+    void testConcat() {
+        for (MerkleTree.Shape shape : MerkleTree.Shape.values()) {
+            for (int m = 1; m <= 12; m++) {
+                for (int n = 1; n <= 12; n++) {
+                    MerkleTree<Integer> joined = MerkleTree.concat(
+                            treeOf(0, m, shape), treeOf(m, m + n, shape));
+                    MerkleTree<Integer> expected = treeOf(0, m + n, shape);
+                    assertEquals(expected.getRoot().getHash(),
+                            joined.getRoot().getHash(),
+                            "Concatenazione errata per " + m + " + " + n);
+                    assertEquals(m + n, joined.getWidth());
+                    assertEquals(countNodes(expected.getRoot()),
+                            countNodes(joined.getRoot()),
+                            "La struttura non coincide per " + m + " + " + n);
+                }
+            }
+        }
+
+        MerkleTree<Integer> a = treeOf(0, 8, MerkleTree.Shape.PADDED);
+        MerkleTree<Integer> b = treeOf(8, 13, MerkleTree.Shape.PADDED);
+        MerkleTree<Integer> joined = MerkleTree.concat(a, b);
+        assertSame(a.getRoot(), joined.getRoot().getLeft(),
+                "Il primo albero dovrebbe essere riutilizzato per intero.");
+        assertSame(b.getRoot().getLeft(), joined.getRoot().getRight().getLeft(),
+                "I sottoalberi allineati del secondo albero dovrebbero essere "
+                        + "riutilizzati.");
+        assertTrue(joined.getMerkleProofAt(12).proveValidityOfData(12));
+        assertThrows(IllegalArgumentException.class, () -> MerkleTree.concat(a,
+                treeOf(0, 2, MerkleTree.Shape.PROMOTED)));
+        assertThrows(IllegalArgumentException.class,
+                () -> MerkleTree.concat(a, null));
+    }
+
+    @Test
+    void testSplit() {
+        for (MerkleTree.Shape shape : MerkleTree.Shape.values()) {
+            MerkleTree<Integer> tree = treeOf(0, 21, shape);
+            for (int i = 1; i < 21; i++) {
+                java.util.List<MerkleTree<Integer>> parts = tree.split(i);
+                assertEquals(treeOf(0, i, shape).getRoot().getHash(),
+                        parts.get(0).getRoot().getHash(),
+                        "La prima parte è errata per il taglio " + i);
+                assertEquals(treeOf(i, 21, shape).getRoot().getHash(),
+                        parts.get(1).getRoot().getHash(),
+                        "La seconda parte è errata per il taglio " + i);
+                assertEquals(tree.getRoot().getHash(), MerkleTree
+                        .concat(parts.get(0), parts.get(1)).getRoot().getHash(),
+                        "La concatenazione delle parti dovrebbe dare l'albero.");
+            }
+        }
+
+        MerkleTree<Integer> tree = treeOf(0, 16, MerkleTree.Shape.PADDED);
+        java.util.List<MerkleTree<Integer>> parts = tree.split(8);
+        assertSame(tree.getRoot().getLeft(), parts.get(0).getRoot(),
+                "Una metà allineata dovrebbe essere riutilizzata.");
+        assertSame(tree.getRoot().getRight(), parts.get(1).getRoot(),
+                "Una metà allineata dovrebbe essere riutilizzata.");
+        assertThrows(IndexOutOfBoundsException.class, () -> tree.split(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> tree.split(16));
+    }
+
+    private static int countDistinctNodes(MerkleNode node,
+            Set<MerkleNode> seen) {
+        if (!seen.add(node) || node.isLeaf())
+            return seen.size();
+        countDistinctNodes(node.getLeft(), seen);
+        return countDistinctNodes(node.getRight(), seen);
+    }
+
+    @Test
+    void testSharedNodes() {
+        // 16 record ripetuti a gruppi di 4: i sottoalberi di 4 foglie sono
+        // tutti uguali
+        HashLinkedList<Integer> list = new HashLinkedList<>();
+        for (int i = 0; i < 16; i++)
+            list.addAtTail(i % 4);
+        MerkleNodeTable table = new MerkleNodeTable(1000);
+        MerkleTree<Integer> plain = new MerkleTree<>(list);
+        MerkleTree<Integer> shared = new MerkleTree<>(list,
+                MerkleTree.Shape.PADDED, table);
+
+        assertEquals(plain.getRoot().getHash(), shared.getRoot().getHash(),
+                "La condivisione non dovrebbe cambiare la radice.");
+        assertEquals(countNodes(plain.getRoot()),
+                countNodes(shared.getRoot()),
+                "La forma dell'albero non dovrebbe cambiare.");
+        assertSame(shared.getRoot().getLeft(), shared.getRoot().getRight(),
+                "Le due metà identiche dovrebbero essere condivise.");
+        Set<MerkleNode> seen = java.util.Collections
+                .newSetFromMap(new java.util.IdentityHashMap<>());
+        assertEquals(9, countDistinctNodes(shared.getRoot(), seen),
+                "Dovrebbero esserci 4 foglie, 2 nodi sopra di esse e un nodo "
+                        + "per ciascun livello superiore.");
+        assertEquals(9, table.getSize());
+        for (int i = 0; i < 16; i++)
+            assertTrue(shared.getMerkleProofAt(i).proveValidityOfData(i % 4));
+
+        // I nodi di riempimento sono condivisi anche senza tabella
+        MerkleTree<Integer> padded = treeOf(0, 17, MerkleTree.Shape.PADDED);
+        MerkleNode right = padded.getRoot().getRight();
+        assertSame(right.getRight().getLeft(), right.getLeft().getRight(),
+                "I nodi di riempimento di uno stesso livello dovrebbero "
+                        + "essere condivisi.");
+
+        MerkleTree<Integer> updated = shared.withLeaf(4, 0);
+        assertTrue(updated.getMerkleProofAt(4).proveValidityOfData(0));
+        assertSame(table.intern(HashUtil.dataToHash(0)),
+                updated.getRoot().getLeft().getRight().getLeft().getLeft(),
+                "La nuova versione dovrebbe usare la stessa tabella.");
+        MerkleTree<Integer> joined = MerkleTree.concat(shared, shared);
+        assertSame(joined.getRoot().getLeft(), joined.getRoot().getRight());
+    }
 }
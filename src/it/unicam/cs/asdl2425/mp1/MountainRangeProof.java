@@ -0,0 +1,112 @@
+package it.unicam.cs.asdl2425.mp1;
+
+/**
+ * Una prova di inclusione per un dato di un {@link MerkleMountainRange}. La
+ * prova è composta da una {@link MerkleProof} dal dato fino al picco che lo
+ * contiene e dagli hash di tutti i picchi della dimensione per cui è stata
+ * generata: il verificatore ricalcola il picco a partire dal dato e poi la
+ * radice insaccando i picchi.
+ *
+ * <p>
+ * La prova si riferisce alla radice della dimensione per cui è stata generata,
+ * che l'intervallo continua a fornire con
+ * {@link MerkleMountainRange#getRootHash(int)} anche dopo altre aggiunte.
+ */
+public class MountainRangeProof {
+    private final int size;
+
+    private final String[] peaks;
+
+    private final int peakIndex;
+
+    private final MerkleProof path;
+
+    /**
+     * Costruisce una prova a partire dai suoi componenti.
+     *
+     * @param size
+     *                      il numero di dati dell'intervallo per cui la prova
+     *                      è stata generata.
+     * @param peaks
+     *                      gli hash dei picchi, da sinistra a destra.
+     * @param peakIndex
+     *                      la posizione del picco che contiene il dato.
+     * @param path
+     *                      la prova dal dato alla radice del suo picco.
+     * @throws IllegalArgumentException
+     *                                      se un parametro è null o non è
+     *                                      coerente con gli altri.
+     */
+    public MountainRangeProof(int size, String[] peaks, int peakIndex,
+            MerkleProof path) {
+        if (peaks == null || path == null)
+            throw new IllegalArgumentException("The proof cannot be null");
+        if (size < 1 || peaks.length != Integer.bitCount(size))
+            throw new IllegalArgumentException("Invalid size: " + size);
+        if (peakIndex < 0 || peakIndex >= peaks.length)
+            throw new IllegalArgumentException(
+                    "Invalid peak index: " + peakIndex);
+        for (String s : peaks) {
+            if (s == null)
+                throw new IllegalArgumentException("The hash cannot be null");
+        }
+        this.size = size;
+        this.peaks = peaks.clone();
+        this.peakIndex = peakIndex;
+        this.path = path;
+    }
+
+    /**
+     * Restituisce il numero di dati dell'intervallo per cui la prova è stata
+     * generata.
+     *
+     * @return la dimensione dell'intervallo.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Restituisce il numero di hash contenuti nella prova, tra fratelli sul
+     * cammino e picchi.
+     *
+     * @return il numero di hash della prova.
+     */
+    public int getHashCount() {
+        return path.getLength() + peaks.length;
+    }
+
+    /**
+     * Restituisce l'hash della radice che la prova dimostra, ottenuto
+     * insaccando i picchi.
+     *
+     * @return l'hash della radice.
+     */
+    public String getRootHash() {
+        return MerkleMountainRange.bag(peaks);
+    }
+
+    /**
+     * Verifica che il dato sia contenuto nell'intervallo con la radice
+     * specificata.
+     *
+     * @param data
+     *                     il dato da validare.
+     * @param rootHash
+     *                     l'hash della radice dell'intervallo, per la
+     *                     dimensione della prova.
+     * @return true se la prova dimostra l'inclusione del dato; false
+     *         altrimenti.
+     * @throws IllegalArgumentException
+     *                                      se il dato o la radice sono null.
+     */
+    public boolean proveValidityOfData(Object data, String rootHash) {
+        if (data == null)
+            throw new IllegalArgumentException("The data is null");
+        if (rootHash == null)
+            throw new IllegalArgumentException("The root hash is null");
+        return path.getRootHash().equals(peaks[peakIndex])
+                && path.proveValidityOfData(data)
+                && getRootHash().equals(rootHash);
+    }
+}
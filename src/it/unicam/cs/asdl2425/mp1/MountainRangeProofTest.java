@@ -0,0 +1,79 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per la classe {@link MountainRangeProof}. Di seguito,
+ * l'elenco dei test inclusi con una breve descrizione:
+ *
+ * <ul>
+ * <li>{@link #testHandBuiltProof()}: Verifica una prova costruita a mano per
+ * un intervallo di tre dati.</li>
+ *
+ * <li>{@link #testWrongPeak()}: Verifica che una prova che porta a un picco
+ * diverso da quello indicato non venga accettata.</li>
+ *
+ * <li>{@link #testInvalidArguments()}: Verifica che vengano lanciate
+ * eccezioni per argomenti non validi.</li>
+ * </ul>
+ */
+class MountainRangeProofTest {
+
+    private static final String A = HashUtil.dataToHash("Alice paga Bob");
+
+    private static final String B = HashUtil.dataToHash("Bob paga Charlie");
+
+    private static final String C = HashUtil.dataToHash("Charlie paga Diana");
+
+    private static String combine(String left, String right) {
+        return HashUtil.computeMD5((left + right).getBytes());
+    }
+
+    @Test
+    void testHandBuiltProof() {
+        String[] peaks = { combine(A, B), C };
+        MerkleProof path = new MerkleProof(peaks[0], 1);
+        path.addHash(A, true);
+        MountainRangeProof proof = new MountainRangeProof(3, peaks, 0, path);
+        String root = combine(peaks[0], C);
+
+        assertEquals(root, proof.getRootHash(),
+                "La radice dovrebbe essere l'insaccamento dei picchi.");
+        assertEquals(3, proof.getHashCount(),
+                "La prova dovrebbe contenere un fratello e due picchi.");
+        assertTrue(proof.proveValidityOfData("Bob paga Charlie", root),
+                "La prova costruita a mano dovrebbe essere valida.");
+        assertFalse(proof.proveValidityOfData("Bob paga Charlie", C),
+                "La prova non dovrebbe valere per un'altra radice.");
+    }
+
+    @Test
+    void testWrongPeak() {
+        String[] peaks = { combine(A, B), C };
+        MerkleProof path = new MerkleProof(C, 0);
+        MountainRangeProof proof = new MountainRangeProof(3, peaks, 0, path);
+
+        assertFalse(proof.proveValidityOfData("Charlie paga Diana",
+                proof.getRootHash()),
+                "Il cammino porta al secondo picco, non al primo.");
+    }
+
+    @Test
+    void testInvalidArguments() {
+        String[] peaks = { combine(A, B), C };
+        MerkleProof path = new MerkleProof(C, 0);
+        assertThrows(IllegalArgumentException.class,
+                () -> new MountainRangeProof(3, null, 1, path));
+        assertThrows(IllegalArgumentException.class,
+                () -> new MountainRangeProof(4, peaks, 1, path));
+        assertThrows(IllegalArgumentException.class,
+                () -> new MountainRangeProof(3, peaks, 2, path));
+        MountainRangeProof proof = new MountainRangeProof(3, peaks, 1, path);
+        assertThrows(IllegalArgumentException.class,
+                () -> proof.proveValidityOfData(null, C));
+        assertThrows(IllegalArgumentException.class,
+                () -> proof.proveValidityOfData("Charlie paga Diana", null));
+    }
+}
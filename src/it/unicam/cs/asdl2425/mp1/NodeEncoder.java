@@ -0,0 +1,298 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Codificatore riutilizzabile per l'esportazione in streaming dei nodi di una
+ * lista, ovvero di coppie (dato, hash), in uno dei formati testuali previsti
+ * da {@link Format}.
+ *
+ * <p>
+ * I record vengono accumulati in un buffer di caratteri che viene svuotato
+ * verso la destinazione ogni volta che supera la dimensione di blocco
+ * specificata, così che la memoria occupata non dipenda dal numero di nodi
+ * esportati. Se la destinazione è un {@link StringBuilder}, i record vi
+ * vengono scritti direttamente senza buffer intermedio. Per le destinazioni
+ * di tipo {@link WritableByteChannel} i caratteri vengono codificati in UTF-8
+ * tramite un buffer di byte anch'esso riutilizzato.
+ *
+ * <p>
+ * Un codificatore può essere usato per più esportazioni successive, ciascuna
+ * delimitata da una chiamata a un metodo {@code begin} e una a
+ * {@link #end()}, ma non da più thread contemporaneamente.
+ */
+public class NodeEncoder {
+
+    /**
+     * Dimensione di blocco predefinita, in caratteri.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * I formati di esportazione supportati.
+     */
+    public enum Format {
+        /**
+         * Formato testuale di {@link HashLinkedList#buildNodesString()}, una
+         * riga {@code Dato: <dato>, Hash: <hash>} per nodo.
+         */
+        TEXT,
+
+        /**
+         * Valori separati da virgola secondo la RFC 4180, con una riga di
+         * intestazione {@code data,hash}.
+         */
+        CSV,
+
+        /**
+         * Un oggetto JSON {@code {"data":"<dato>","hash":"<hash>"}} per riga.
+         */
+        JSON_LINES
+    }
+
+    private final Format format;
+
+    private final int chunkSize;
+
+    private StringBuilder buffer; // Buffer dei record non ancora scritti
+
+    private Appendable out; // Destinazione testuale, se presente
+
+    private WritableByteChannel channel; // Destinazione binaria, se presente
+
+    private CharsetEncoder utf8; // Creato alla prima scrittura su canale
+
+    private ByteBuffer bytes; // Creato alla prima scrittura su canale
+
+    /**
+     * Costruisce un codificatore per il formato specificato con la dimensione
+     * di blocco predefinita.
+     *
+     * @param format
+     *                   il formato di esportazione.
+     */
+    public NodeEncoder(Format format) {
+        this(format, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Costruisce un codificatore per il formato specificato.
+     *
+     * @param format
+     *                      il formato di esportazione.
+     * @param chunkSize
+     *                      il numero di caratteri oltre il quale il buffer
+     *                      viene svuotato verso la destinazione.
+     * @throws IllegalArgumentException
+     *                                      se il formato è null o la
+     *                                      dimensione di blocco non è
+     *                                      positiva.
+     */
+    public NodeEncoder(Format format, int chunkSize) {
+        if (format == null)
+            throw new IllegalArgumentException("The format is null");
+        if (chunkSize <= 0)
+            throw new IllegalArgumentException(
+                    "The chunk size must be positive");
+        this.format = format;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Restituisce il formato di esportazione.
+     *
+     * @return il formato di esportazione.
+     */
+    public Format getFormat() {
+        return format;
+    }
+
+    /**
+     * Inizia un'esportazione verso una destinazione testuale, scrivendo
+     * l'eventuale intestazione del formato.
+     *
+     * @param out
+     *                la destinazione, ad esempio un {@link java.io.Writer}.
+     * @throws IOException
+     *                         se la scrittura sulla destinazione fallisce.
+     */
+    public void begin(Appendable out) throws IOException {
+        if (out == null)
+            throw new IllegalArgumentException("The output is null");
+        this.out = out;
+        this.channel = null;
+        if (out instanceof StringBuilder)
+            buffer = (StringBuilder) out;
+        else
+            resetBuffer();
+        writeHeader();
+    }
+
+    /**
+     * Inizia un'esportazione verso un canale, su cui i record verranno scritti
+     * codificati in UTF-8, scrivendo l'eventuale intestazione del formato.
+     *
+     * @param channel
+     *                    il canale di destinazione.
+     * @throws IOException
+     *                         se la scrittura sul canale fallisce.
+     */
+    public void begin(WritableByteChannel channel) throws IOException {
+        if (channel == null)
+            throw new IllegalArgumentException("The channel is null");
+        this.out = null;
+        this.channel = channel;
+        if (utf8 == null) {
+            utf8 = StandardCharsets.UTF_8.newEncoder();
+            bytes = ByteBuffer.allocate(chunkSize);
+        }
+        resetBuffer();
+        writeHeader();
+    }
+
+    /**
+     * Codifica un nodo, svuotando il buffer verso la destinazione se supera
+     * la dimensione di blocco.
+     *
+     * @param data
+     *                 il dato del nodo.
+     * @param hash
+     *                 l'hash del dato.
+     * @throws IOException
+     *                         se la scrittura sulla destinazione fallisce.
+     * @throws IllegalStateException
+     *                                   se l'esportazione non è stata
+     *                                   iniziata.
+     */
+    public void encode(Object data, String hash) throws IOException {
+        if (out == null && channel == null)
+            throw new IllegalStateException("The encoding has not begun");
+        StringBuilder b = buffer;
+        switch (format) {
+        case TEXT:
+            b.append("Dato: ").append(data).append(", Hash: ").append(hash)
+                    .append('\n');
+            break;
+        case CSV:
+            appendCsv(b, String.valueOf(data));
+            b.append(',').append(hash).append('\n');
+            break;
+        case JSON_LINES:
+            b.append("{\"data\":");
+            appendJson(b, String.valueOf(data));
+            b.append(",\"hash\":\"").append(hash).append("\"}\n");
+            break;
+        }
+        if (b != out && b.length() >= chunkSize)
+            flushBuffer();
+    }
+
+    /**
+     * Termina l'esportazione corrente, scrivendo sulla destinazione i record
+     * ancora nel buffer. La destinazione non viene chiusa.
+     *
+     * @throws IOException
+     *                         se la scrittura sulla destinazione fallisce.
+     */
+    public void end() throws IOException {
+        if (out == null && channel == null)
+            return;
+        if (buffer != out)
+            flushBuffer();
+        else
+            buffer = null;
+        out = null;
+        channel = null;
+    }
+
+    private void writeHeader() {
+        if (format == Format.CSV)
+            buffer.append("data,hash\n");
+    }
+
+    private void resetBuffer() {
+        if (buffer == null || buffer == out || buffer.capacity() < chunkSize)
+            buffer = new StringBuilder(chunkSize + chunkSize / 4);
+        buffer.setLength(0);
+    }
+
+    private void flushBuffer() throws IOException {
+        if (buffer.length() == 0)
+            return;
+        if (out != null) {
+            out.append(buffer);
+        } else {
+            CharBuffer in = CharBuffer.wrap(buffer);
+            utf8.reset();
+            CoderResult r;
+            do {
+                r = utf8.encode(in, bytes, true);
+                if (r.isUnderflow())
+                    r = utf8.flush(bytes);
+                if (r.isError())
+                    r.throwException();
+                bytes.flip();
+                while (bytes.hasRemaining())
+                    channel.write(bytes);
+                bytes.clear();
+            } while (r.isOverflow());
+        }
+        buffer.setLength(0);
+    }
+
+    private static void appendCsv(StringBuilder b, String s) {
+        boolean quote = false;
+        for (int i = 0; i < s.length() && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            b.append(s);
+            return;
+        }
+        b.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"')
+                b.append('"');
+            b.append(c);
+        }
+        b.append('"');
+    }
+
+    private static void appendJson(StringBuilder b, String s) {
+        b.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+            case '"':
+                b.append("\\\"");
+                break;
+            case '\\':
+                b.append("\\\\");
+                break;
+            case '\n':
+                b.append("\\n");
+                break;
+            case '\r':
+                b.append("\\r");
+                break;
+            case '\t':
+                b.append("\\t");
+                break;
+            default:
+                if (c < 0x20)
+                    b.append(String.format("\\u%04x", (int) c));
+                else
+                    b.append(c);
+            }
+        }
+        b.append('"');
+    }
+}
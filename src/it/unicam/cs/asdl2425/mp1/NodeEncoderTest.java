@@ -0,0 +1,112 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per la classe {@link NodeEncoder} e per i metodi
+ * {@code writeNodesTo} di {@link HashLinkedList}. Di seguito, l'elenco dei
+ * test inclusi con una breve descrizione:
+ *
+ * <ul>
+ * <li>{@link #testTextFormat()}: Verifica che il formato testuale coincida con
+ * quello di {@code buildNodesString()}.</li>
+ *
+ * <li>{@link #testCsvFormat()}: Verifica intestazione e quotatura dei campi
+ * nel formato CSV.</li>
+ *
+ * <li>{@link #testJsonLinesFormat()}: Verifica l'escape dei caratteri speciali
+ * nel formato JSON Lines.</li>
+ *
+ * <li>{@link #testChannelWithSmallChunks()}: Scrive su un canale con blocchi
+ * molto piccoli e caratteri non ASCII, verificando che il risultato sia lo
+ * stesso di una scrittura senza blocchi.</li>
+ *
+ * <li>{@link #testEncoderReuse()}: Verifica che lo stesso codificatore possa
+ * essere usato per più esportazioni successive.</li>
+ * </ul>
+ */
+class NodeEncoderTest {
+
+    private HashLinkedList<String> list;
+
+    @BeforeEach
+    void setUp() {
+        list = new HashLinkedList<>();
+        list.addAtTail("Alice paga Bob");
+        list.addAtTail("Bob paga \"Charlie\", 5€");
+    }
+
+    @Test
+    void testTextFormat() throws IOException {
+        StringWriter out = new StringWriter();
+        list.writeNodesTo(out, NodeEncoder.Format.TEXT);
+
+        assertEquals(list.buildNodesString(), out.toString(),
+                "Il formato testuale non coincide con buildNodesString.");
+    }
+
+    @Test
+    void testCsvFormat() throws IOException {
+        StringWriter out = new StringWriter();
+        list.writeNodesTo(out, NodeEncoder.Format.CSV);
+
+        String expected = "data,hash\n"
+                + "Alice paga Bob," + HashUtil.dataToHash("Alice paga Bob")
+                + "\n"
+                + "\"Bob paga \"\"Charlie\"\", 5€\","
+                + HashUtil.dataToHash("Bob paga \"Charlie\", 5€") + "\n";
+        assertEquals(expected, out.toString(), "Il CSV non è corretto.");
+    }
+
+    @Test
+    void testJsonLinesFormat() throws IOException {
+        StringWriter out = new StringWriter();
+        list.writeNodesTo(out, NodeEncoder.Format.JSON_LINES);
+
+        String expected = "{\"data\":\"Alice paga Bob\",\"hash\":\""
+                + HashUtil.dataToHash("Alice paga Bob") + "\"}\n"
+                + "{\"data\":\"Bob paga \\\"Charlie\\\", 5€\",\"hash\":\""
+                + HashUtil.dataToHash("Bob paga \"Charlie\", 5€") + "\"}\n";
+        assertEquals(expected, out.toString(),
+                "Il formato JSON Lines non è corretto.");
+    }
+
+    @Test
+    void testChannelWithSmallChunks() throws IOException {
+        for (int i = 0; i < 100; i++)
+            list.addAtTail("Transazione " + i + " è valida");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        list.writeNodesTo(Channels.newChannel(bytes),
+                new NodeEncoder(NodeEncoder.Format.JSON_LINES, 16));
+
+        StringWriter expected = new StringWriter();
+        list.writeNodesTo(expected, NodeEncoder.Format.JSON_LINES);
+        assertEquals(expected.toString(),
+                new String(bytes.toByteArray(), StandardCharsets.UTF_8),
+                "La scrittura a blocchi su canale non è corretta.");
+    }
+
+    @Test
+    void testEncoderReuse() throws IOException {
+        NodeEncoder encoder = new NodeEncoder(NodeEncoder.Format.CSV);
+        StringWriter first = new StringWriter();
+        StringWriter second = new StringWriter();
+        list.writeNodesTo(first, encoder);
+        list.writeNodesTo(second, encoder);
+
+        assertEquals(first.toString(), second.toString(),
+                "Il codificatore dovrebbe essere riutilizzabile.");
+        assertThrows(IllegalStateException.class,
+                () -> encoder.encode("Alice paga Bob", "hash"));
+    }
+}
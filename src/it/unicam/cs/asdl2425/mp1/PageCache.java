@@ -0,0 +1,177 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cache di dimensione limitata per le pagine di un file a sola lettura, con
+ * politica di rimpiazzamento CLOCK: ogni pagina in memoria ha un bit di
+ * riferimento che viene impostato a ogni accesso, e la lancetta scorre
+ * circolarmente i frame azzerando i bit finché non trova una pagina non
+ * referenziata di recente, che viene sostituita. Il comportamento approssima
+ * LRU senza dover aggiornare una lista a ogni accesso.
+ *
+ * <p>
+ * La cache tiene traccia del numero di accessi serviti dalla memoria e del
+ * numero di page fault, ovvero di pagine lette dal file. I metodi sono
+ * sincronizzati, per cui la cache può essere condivisa tra più thread.
+ */
+class PageCache {
+    private final FileChannel channel;
+
+    private final long firstPageOffset; // Offset nel file della pagina 0
+
+    private final int pageSize;
+
+    private final ByteBuffer[] frames;
+
+    private final long[] pageIds; // Pagina contenuta in ogni frame, o -1
+
+    private final boolean[] referenced;
+
+    private final Map<Long, Integer> frameOf;
+
+    private int hand; // Lancetta del CLOCK
+
+    private long hits;
+
+    private long faults;
+
+    /**
+     * Costruisce una cache vuota per le pagine di un file.
+     *
+     * @param channel
+     *                            il file da cui leggere le pagine.
+     * @param firstPageOffset
+     *                            l'offset nel file della pagina 0.
+     * @param pageSize
+     *                            la dimensione in byte di una pagina.
+     * @param capacity
+     *                            il numero massimo di pagine in memoria.
+     * @throws IllegalArgumentException
+     *                                      se la capacità non è positiva.
+     */
+    PageCache(FileChannel channel, long firstPageOffset, int pageSize,
+            int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException(
+                    "The cache capacity must be positive");
+        this.channel = channel;
+        this.firstPageOffset = firstPageOffset;
+        this.pageSize = pageSize;
+        this.frames = new ByteBuffer[capacity];
+        this.pageIds = new long[capacity];
+        this.referenced = new boolean[capacity];
+        this.frameOf = new HashMap<>();
+        Arrays.fill(pageIds, -1);
+    }
+
+    /**
+     * Copia una porzione di una pagina in un array, leggendo la pagina dal
+     * file se non è già in memoria.
+     *
+     * @param pageId
+     *                   l'identificativo della pagina.
+     * @param offset
+     *                   la posizione nella pagina del primo byte da copiare.
+     * @param dst
+     *                   l'array di destinazione, riempito per intero.
+     * @throws IOException
+     *                         se la lettura dal file fallisce.
+     */
+    synchronized void read(long pageId, int offset, byte[] dst)
+            throws IOException {
+        Integer frame = frameOf.get(pageId);
+        ByteBuffer page;
+        if (frame != null) {
+            hits++;
+            referenced[frame] = true;
+            page = frames[frame];
+        } else {
+            page = load(pageId);
+        }
+        page.get(offset, dst);
+    }
+
+    /**
+     * Carica in memoria le pagine specificate che non vi si trovano già, in
+     * ordine crescente di posizione nel file così da favorire letture
+     * sequenziali. Serve a leggere in anticipo tutte le pagine di un cammino
+     * prima di percorrerlo.
+     *
+     * @param pageIds
+     *                    gli identificativi delle pagine.
+     * @throws IOException
+     *                         se la lettura dal file fallisce.
+     */
+    synchronized void prefetch(long[] pageIds) throws IOException {
+        long[] sorted = pageIds.clone();
+        Arrays.sort(sorted);
+        for (long pageId : sorted) {
+            if (!frameOf.containsKey(pageId))
+                load(pageId);
+        }
+    }
+
+    private ByteBuffer load(long pageId) throws IOException {
+        faults++;
+        int frame = victim();
+        if (pageIds[frame] >= 0)
+            frameOf.remove(pageIds[frame]);
+        ByteBuffer page = frames[frame];
+        if (page == null)
+            page = frames[frame] = ByteBuffer.allocateDirect(pageSize);
+        page.clear();
+        long offset = firstPageOffset + pageId * pageSize;
+        while (page.hasRemaining()) {
+            if (channel.read(page, offset + page.position()) < 0)
+                throw new IOException("Truncated page " + pageId);
+        }
+        page.clear();
+        pageIds[frame] = pageId;
+        referenced[frame] = true;
+        frameOf.put(pageId, frame);
+        return page;
+    }
+
+    private int victim() {
+        while (true) {
+            int frame = hand;
+            hand = (hand + 1) % frames.length;
+            if (pageIds[frame] < 0 || !referenced[frame])
+                return frame;
+            referenced[frame] = false;
+        }
+    }
+
+    /**
+     * Restituisce il numero di accessi serviti dalla memoria.
+     *
+     * @return il numero di accessi serviti dalla memoria.
+     */
+    synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Restituisce il numero di page fault, ovvero di pagine lette dal file.
+     *
+     * @return il numero di page fault.
+     */
+    synchronized long getFaults() {
+        return faults;
+    }
+
+    /**
+     * Restituisce la capacità della cache, in pagine.
+     *
+     * @return la capacità della cache.
+     */
+    int getCapacity() {
+        return frames.length;
+    }
+}
@@ -0,0 +1,569 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Un albero di Merkle residente su disco, per alberi troppo grandi per essere
+ * tenuti in memoria come {@link MerkleNode}. L'albero ha la stessa forma e gli
+ * stessi hash di un {@link MerkleTree} costruito sugli stessi dati, ma i
+ * digest dei nodi sono memorizzati in un file diviso in pagine da 4 KB e solo
+ * un numero limitato di pagine viene tenuto in memoria da una cache con
+ * politica CLOCK.
+ *
+ * <p>
+ * Ogni pagina contiene un sottoalbero di al più 8 livelli (255 digest) e,
+ * negli ultimi 16 byte, il digest del fratello della radice del sottoalbero.
+ * I livelli dell'albero sono raggruppati in fasce di 8 a partire dalle
+ * foglie, così che le pagine delle fasce inferiori siano piene e solo la
+ * fascia della radice, che ha una sola pagina, possa averne meno: una fascia
+ * le cui pagine hanno radice alla profondità r contiene 2^r pagine. Il file
+ * occupa quindi circa il doppio dei digest delle foglie, più il riempimento
+ * fino alla potenza di 2 successiva. Grazie al digest del fratello
+ * memorizzato nella pagina, una prova di Merkle legge esattamente una pagina
+ * per fascia, ovvero O(log n / 8) pagine, che vengono lette in anticipo tutte
+ * insieme prima di costruire la prova.
+ *
+ * <p>
+ * La costruzione con {@link #write(Iterator, int, Path)} legge gli hash dei
+ * dati una sola volta e in ordine, tenendo in memoria solo una pagina per
+ * fascia: le pagine vengono completate e scritte da sinistra a destra man
+ * mano che i relativi sottoalberi sono calcolati, per cui l'albero può essere
+ * più grande della memoria disponibile. Poiché le posizioni dei dati sono
+ * int, l'albero ha al più Integer.MAX_VALUE dati e altezza al più 31.
+ *
+ * <p>
+ * Il file inizia con un'intestazione di una pagina:
+ *
+ * <pre>
+ *     offset  0: magic         int  0x4D4B4C50 ("MKLP")
+ *     offset  4: versione      int  2
+ *     offset  8: algoritmo     int  1 (MD5)
+ *     offset 12: lunghezza     int  lunghezza in byte di un digest (16)
+ *     offset 16: larghezza     int  numero di dati dell'albero
+ *     offset 20: altezza       int  altezza dell'albero
+ *     offset 24: livelli       int  livelli per pagina (8)
+ * </pre>
+ *
+ * @param <T>
+ *                il tipo di dati su cui l'albero è costruito.
+ */
+public class PagedMerkleTree<T> implements Closeable {
+    static final int MAGIC = 0x4D4B4C50;
+
+    static final int VERSION = 2;
+
+    /**
+     * Dimensione in byte di una pagina, e dell'intestazione del file.
+     */
+    public static final int PAGE_SIZE = 4096;
+
+    private static final int PAGE_LEVELS = 8;
+
+    private static final int MAX_HEIGHT = 31;
+
+    private static final int DIGEST = HashUtil.MD5_LENGTH;
+
+    private static final int SIBLING_OFFSET = ((1 << PAGE_LEVELS) - 1)
+            * DIGEST;
+
+    private static final byte[] PADDING = new byte[DIGEST];
+
+    private final FileChannel channel;
+
+    private final PageCache cache;
+
+    private final int width;
+
+    private final int height;
+
+    private final long[] bandStart; // Prima pagina di ogni fascia
+
+    private PagedMerkleTree(FileChannel channel, int cachePages, int width,
+            int height) {
+        this.channel = channel;
+        this.cache = new PageCache(channel, PAGE_SIZE, PAGE_SIZE, cachePages);
+        this.width = width;
+        this.height = height;
+        this.bandStart = bandStarts(height);
+    }
+
+    /**
+     * Costruisce su file l'albero di Merkle dei dati di una lista e lo apre.
+     * Per alberi i cui dati non stanno in memoria, gli hash dei dati possono
+     * essere forniti man mano a {@link #write(Iterator, int, Path)}.
+     *
+     * @param <T>
+     *                       il tipo di dati della lista.
+     * @param hashList
+     *                       la lista dei dati.
+     * @param path
+     *                       il file di destinazione, sovrascritto se esiste.
+     * @param cachePages
+     *                       il numero massimo di pagine da tenere in memoria.
+     * @return l'albero costruito.
+     * @throws IOException
+     *                         se la scrittura o la lettura del file fallisce.
+     * @throws IllegalArgumentException
+     *                                      se la lista è null o vuota.
+     */
+    public static <T> PagedMerkleTree<T> create(HashLinkedList<T> hashList,
+            Path path, int cachePages) throws IOException {
+        if (hashList == null || hashList.getSize() == 0)
+            throw new IllegalArgumentException();
+        write(hashList.entryStream().map(Map.Entry::getValue).iterator(),
+                hashList.getSize(), path);
+        return open(path, cachePages);
+    }
+
+    /**
+     * Apre un albero precedentemente costruito con
+     * {@link #create(HashLinkedList, Path, int)} o con
+     * {@link #write(Iterator, int, Path)}.
+     *
+     * @param <T>
+     *                       il tipo di dati su cui l'albero è costruito.
+     * @param path
+     *                       il file dell'albero.
+     * @param cachePages
+     *                       il numero massimo di pagine da tenere in memoria.
+     * @return l'albero letto dal file.
+     * @throws IOException
+     *                         se il file non può essere letto o non è valido.
+     */
+    public static <T> PagedMerkleTree<T> open(Path path, int cachePages)
+            throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(28);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0)
+                    throw new IOException("Not a paged Merkle tree: " + path);
+            }
+            header.flip();
+            if (header.getInt() != MAGIC)
+                throw new IOException("Not a paged Merkle tree: " + path);
+            if (header.getInt() != VERSION || header.getInt() != 1
+                    || header.getInt() != DIGEST)
+                throw new IOException("Unsupported paged Merkle tree format");
+            int width = header.getInt();
+            int height = header.getInt();
+            if (header.getInt() != PAGE_LEVELS || width <= 0 || height < 0
+                    || height > MAX_HEIGHT || (1L << height) < width
+                    || channel.size() != PAGE_SIZE
+                            + bandStarts(height)[height / PAGE_LEVELS + 1]
+                                    * PAGE_SIZE)
+                throw new IOException("Corrupted paged Merkle tree: " + path);
+            return new PagedMerkleTree<>(channel, cachePages, width, height);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Restituisce, per ogni fascia, l'identificativo della sua prima pagina;
+     * l'ultimo elemento è il numero totale di pagine.
+     */
+    private static long[] bandStarts(int height) {
+        int bands = height / PAGE_LEVELS + 1;
+        long[] starts = new long[bands + 1];
+        for (int b = 0; b < bands; b++)
+            starts[b + 1] = starts[b] + (1L << bandRoot(height, b));
+        return starts;
+    }
+
+    /*
+     * La fascia 0 contiene la radice e gli height % 8 livelli sottostanti;
+     * ogni fascia successiva contiene 8 livelli, fino alle foglie
+     */
+    private static int bandOf(int height, int depth) {
+        int top = height % PAGE_LEVELS + 1;
+        return depth < top ? 0 : (depth - top) / PAGE_LEVELS + 1;
+    }
+
+    private static int bandRoot(int height, int band) {
+        return band == 0 ? 0
+                : height % PAGE_LEVELS + 1 + (band - 1) * PAGE_LEVELS;
+    }
+
+    private static long pageOf(long[] bandStart, int height, int depth,
+            long index) {
+        int b = bandOf(height, depth);
+        int local = depth - bandRoot(height, b);
+        return bandStart[b] + (index >>> local);
+    }
+
+    private static int offsetInPage(int height, int depth, long index) {
+        int local = depth - bandRoot(height, bandOf(height, depth));
+        long slot = (1L << local) - 1 + (index & ((1L << local) - 1));
+        return (int) slot * DIGEST;
+    }
+
+    /**
+     * Scrive su file l'albero costruito sugli hash forniti, visitando le
+     * foglie da sinistra a destra e calcolando ogni nodo interno non appena
+     * il suo figlio destro è disponibile. Gli hash vengono letti una sola
+     * volta e non vengono mai tenuti tutti in memoria, per cui possono essere
+     * prodotti man mano, ad esempio leggendoli da un altro file. L'albero può
+     * poi essere aperto con {@link #open(Path, int)}.
+     *
+     * @param hashes
+     *                   gli hash dei dati, in ordine, come calcolati da
+     *                   {@link HashUtil#dataToHash(Object)}.
+     * @param width
+     *                   il numero di dati, al più Integer.MAX_VALUE.
+     * @param path
+     *                   il file di destinazione, sovrascritto se esiste.
+     * @throws IOException
+     *                                      se la scrittura del file
+     *                                      fallisce.
+     * @throws IllegalArgumentException
+     *                                      se gli hash o il percorso sono
+     *                                      null, se la larghezza non è
+     *                                      positiva o se gli hash sono meno
+     *                                      della larghezza.
+     */
+    public static void write(Iterator<String> hashes, int width, Path path)
+            throws IOException {
+        if (hashes == null || path == null)
+            throw new IllegalArgumentException(
+                    "The hashes or the path are null");
+        if (width <= 0)
+            throw new IllegalArgumentException("Invalid width: " + width);
+        int height = width == 1 ? 0
+                : 32 - Integer.numberOfLeadingZeros(width - 1);
+        long[] bandStart = bandStarts(height);
+        int bands = bandStart.length - 1;
+        try (FileChannel out = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(PAGE_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(1).putInt(DIGEST)
+                    .putInt(width).putInt(height).putInt(PAGE_LEVELS);
+            header.clear();
+            writeFully(out, header, 0);
+            ByteBuffer[] pages = new ByteBuffer[bands];
+            for (int b = 0; b < bands; b++)
+                pages[b] = ByteBuffer.allocate(PAGE_SIZE);
+            byte[][] pending = new byte[height + 1][];
+            MessageDigest md = md5();
+            long leaves = 1L << height;
+            for (long i = 0; i < leaves; i++) {
+                if (i < width && !hashes.hasNext())
+                    throw new IllegalArgumentException(
+                            "Fewer hashes than the width: " + i);
+                byte[] digest = i < width ? HashUtil.hexToBytes(hashes.next())
+                        : PADDING;
+                int d = height;
+                long j = i;
+                while (true) {
+                    int b = bandOf(height, d);
+                    pages[b].put(offsetInPage(height, d, j), digest);
+                    if (d == bandRoot(height, b)) {
+                        // Radice della pagina: il sottoalbero è completo
+                        long page = pageOf(bandStart, height, d, j);
+                        if ((j & 1) == 1) {
+                            pages[b].put(SIBLING_OFFSET, pending[d]);
+                            writeFully(out, ByteBuffer.wrap(digest),
+                                    pageOffset(page - 1) + SIBLING_OFFSET);
+                        }
+                        pages[b].clear();
+                        writeFully(out, pages[b], pageOffset(page));
+                        pages[b].clear();
+                        Arrays.fill(pages[b].array(), (byte) 0);
+                    }
+                    if (d == 0)
+                        break;
+                    if ((j & 1) == 0) {
+                        pending[d] = digest;
+                        break;
+                    }
+                    digest = combine(md, pending[d], digest);
+                    j >>>= 1;
+                    d--;
+                }
+            }
+            out.force(true);
+        }
+    }
+
+    private static long pageOffset(long page) {
+        return PAGE_SIZE + page * PAGE_SIZE;
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer,
+            long position) throws IOException {
+        while (buffer.hasRemaining())
+            position += out.write(buffer, position);
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("MD5 algorithm not found", e);
+        }
+    }
+
+    /**
+     * Combina due digest come in {@link MerkleTree}: l'hash del padre è l'MD5
+     * della concatenazione delle rappresentazioni esadecimali dei figli, dove
+     * un nodo di riempimento ha rappresentazione vuota; due nodi di
+     * riempimento danno un nodo di riempimento.
+     */
+    private static byte[] combine(MessageDigest md, byte[] left,
+            byte[] right) {
+        boolean leftPadding = Arrays.equals(left, PADDING);
+        boolean rightPadding = Arrays.equals(right, PADDING);
+        if (leftPadding && rightPadding)
+            return PADDING;
+        if (!leftPadding)
+            md.update(HashUtil.bytesToHex(left).getBytes());
+        if (!rightPadding)
+            md.update(HashUtil.bytesToHex(right).getBytes());
+        return md.digest();
+    }
+
+    /**
+     * Restituisce l'hash della radice dell'albero.
+     *
+     * @return l'hash della radice.
+     * @throws IOException
+     *                         se la lettura della pagina fallisce.
+     */
+    public String getRootHash() throws IOException {
+        return toHash(digestAt(0, 0));
+    }
+
+    /**
+     * Restituisce la larghezza dell'albero.
+     *
+     * @return la larghezza dell'albero.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Restituisce l'altezza dell'albero.
+     *
+     * @return l'altezza dell'albero.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Restituisce la prova di Merkle per il dato nella posizione specificata.
+     * Tutte le pagine del cammino vengono lette in anticipo con un'unica
+     * richiesta alla cache.
+     *
+     * @param index
+     *                  la posizione del dato, a partire da 0.
+     * @return la prova di Merkle per il dato.
+     * @throws IOException
+     *                         se la lettura delle pagine fallisce.
+     * @throws IndexOutOfBoundsException
+     *                                       se la posizione non è compresa
+     *                                       tra 0 e width - 1.
+     */
+    public MerkleProof getMerkleProof(int index) throws IOException {
+        if (index < 0 || index >= width)
+            throw new IndexOutOfBoundsException(
+                    "Index: " + index + ", Width: " + width);
+        long[] path = new long[height / PAGE_LEVELS + 1];
+        for (int b = 0; b < path.length; b++) {
+            int root = bandRoot(height, b);
+            path[b] = pageOf(bandStart, height, root,
+                    (long) index >>> (height - root));
+        }
+        cache.prefetch(path);
+        MerkleProof proof = new MerkleProof(getRootHash(), height);
+        long j = index;
+        for (int d = height; d > 0; d--) {
+            byte[] sibling = new byte[DIGEST];
+            if (d == bandRoot(height, bandOf(height, d)))
+                cache.read(pageOf(bandStart, height, d, j), SIBLING_OFFSET,
+                        sibling);
+            else
+                sibling = digestAt(d, j ^ 1);
+            proof.addHash(toHash(sibling), (j & 1) == 1);
+            j >>>= 1;
+        }
+        return proof;
+    }
+
+    /**
+     * Restituisce la prova di Merkle per un dato elemento.
+     *
+     * @param data
+     *                 l'elemento per cui generare la prova di Merkle.
+     * @return la prova di Merkle per il dato.
+     * @throws IOException
+     *                         se la lettura delle pagine fallisce.
+     * @throws IllegalArgumentException
+     *                                      se il dato è null o non è parte
+     *                                      dell'albero.
+     */
+    public MerkleProof getMerkleProof(T data) throws IOException {
+        int index = getIndexOfData(data);
+        if (index < 0)
+            throw new IllegalArgumentException("The data is not in the tree");
+        return getMerkleProof(index);
+    }
+
+    /**
+     * Restituisce l'indice di un elemento secondo questo albero. Le pagine
+     * delle foglie vengono lette in sequenza direttamente dal file, senza
+     * passare dalla cache, così che la scansione non ne espella le pagine dei
+     * livelli superiori.
+     *
+     * @param data
+     *                 l'elemento da cercare.
+     * @return l'indice del dato nell'albero; -1 se il dato non è presente.
+     * @throws IOException
+     *                         se la lettura del file fallisce.
+     * @throws IllegalArgumentException
+     *                                      se il dato è null.
+     */
+    public int getIndexOfData(T data) throws IOException {
+        if (data == null)
+            throw new IllegalArgumentException("The data is null");
+        ByteBuffer target = ByteBuffer
+                .wrap(HashUtil.hexToBytes(HashUtil.dataToHash(data)));
+        long hi = target.getLong(0);
+        long lo = target.getLong(8);
+        int leafBand = bandOf(height, height);
+        int perPage = 1 << (height - bandRoot(height, leafBand));
+        int first = offsetInPage(height, height, 0);
+        long firstPage = bandStart[leafBand];
+        ByteBuffer page = ByteBuffer.allocate(PAGE_SIZE);
+        for (long start = 0; start < width; start += perPage) {
+            page.clear();
+            long position = pageOffset(firstPage + start / perPage);
+            while (page.hasRemaining()) {
+                if (channel.read(page, position + page.position()) < 0)
+                    throw new IOException("Truncated paged Merkle tree");
+            }
+            int count = (int) Math.min(perPage, width - start);
+            for (int k = 0; k < count; k++) {
+                int off = first + k * DIGEST;
+                if (page.getLong(off) == hi && page.getLong(off + 8) == lo)
+                    return (int) start + k;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sottopone a validazione un elemento per verificare se il suo hash è
+     * l'hash di una foglia dell'albero.
+     *
+     * @param data
+     *                 l'elemento da validare.
+     * @return true se l'hash dell'elemento è parte dell'albero; false
+     *         altrimenti.
+     * @throws IOException
+     *                         se la lettura del file fallisce.
+     */
+    public boolean validateData(T data) throws IOException {
+        return getIndexOfData(data) >= 0;
+    }
+
+    /**
+     * Trova gli indici dei dati diversi tra questo albero e un altro albero
+     * su disco, scendendo solo nei sottoalberi le cui radici differiscono.
+     *
+     * @param other
+     *                  l'altro albero.
+     * @return l'insieme di indici dei dati diversi.
+     * @throws IOException
+     *                         se la lettura delle pagine fallisce.
+     * @throws IllegalArgumentException
+     *                                      se l'altro albero è null o ha
+     *                                      un'altezza diversa.
+     */
+    public Set<Integer> findInvalidDataIndices(PagedMerkleTree<T> other)
+            throws IOException {
+        if (other == null || other.height != height)
+            throw new IllegalArgumentException();
+        Set<Integer> invalid = new HashSet<>();
+        ArrayDeque<long[]> stack = new ArrayDeque<>();
+        stack.push(new long[] { 0, 0 });
+        while (!stack.isEmpty()) {
+            long[] node = stack.pop();
+            int d = (int) node[0];
+            long j = node[1];
+            if (Arrays.equals(digestAt(d, j), other.digestAt(d, j)))
+                continue;
+            if (d == height) {
+                invalid.add((int) j);
+            } else {
+                stack.push(new long[] { d + 1, 2 * j + 1 });
+                stack.push(new long[] { d + 1, 2 * j });
+            }
+        }
+        return invalid;
+    }
+
+    /**
+     * Restituisce il numero di letture di digest servite dalla cache.
+     *
+     * @return il numero di accessi serviti dalla cache.
+     */
+    public long getCacheHits() {
+        return cache.getHits();
+    }
+
+    /**
+     * Restituisce il numero di page fault, ovvero di pagine lette dal file
+     * perché assenti dalla cache.
+     *
+     * @return il numero di page fault.
+     */
+    public long getPageFaults() {
+        return cache.getFaults();
+    }
+
+    /**
+     * Restituisce la frazione di accessi alle pagine serviti dalla cache.
+     *
+     * @return il tasso di successo della cache, tra 0 e 1; 0 se non ci sono
+     *         ancora stati accessi.
+     */
+    public double getHitRate() {
+        long hits = cache.getHits();
+        long total = hits + cache.getFaults();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private byte[] digestAt(int depth, long index) throws IOException {
+        byte[] digest = new byte[DIGEST];
+        cache.read(pageOf(bandStart, height, depth, index),
+                offsetInPage(height, depth, index), digest);
+        return digest;
+    }
+
+    private static String toHash(byte[] digest) {
+        return Arrays.equals(digest, PADDING) ? ""
+                : HashUtil.bytesToHex(digest);
+    }
+}
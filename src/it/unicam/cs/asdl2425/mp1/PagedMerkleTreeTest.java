@@ -0,0 +1,194 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per la classe {@link PagedMerkleTree}. Di seguito, l'elenco
+ * dei test inclusi con una breve descrizione:
+ *
+ * <ul>
+ * <li>{@link #testRootMatchesMerkleTree()}: Verifica, per diverse larghezze,
+ * che la radice e l'altezza coincidano con quelle di un {@link MerkleTree}
+ * costruito sugli stessi dati.</li>
+ *
+ * <li>{@link #testProofs()}: Verifica che le prove costruite su un albero di
+ * più fasce di pagine validino i dati, con una cache più piccola
+ * dell'albero.</li>
+ *
+ * <li>{@link #testIndexAndValidation()}: Verifica la ricerca dell'indice di un
+ * dato e la validazione di dati presenti e assenti.</li>
+ *
+ * <li>{@link #testFindInvalidDataIndices()}: Confronta due alberi su disco e
+ * verifica gli indici dei dati diversi.</li>
+ *
+ * <li>{@link #testStreamingWrite()}: Verifica la costruzione dagli hash
+ * forniti da un iteratore, confrontando la radice e le prove con quelle di un
+ * {@link MerkleTree}, e che la dimensione del file sia proporzionale al
+ * numero di dati.</li>
+ *
+ * <li>{@link #testCacheMetrics()}: Verifica che prove ripetute sullo stesso
+ * dato siano servite dalla cache senza nuovi page fault.</li>
+ * </ul>
+ */
+class PagedMerkleTreeTest {
+
+    private Path file;
+
+    private Path otherFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = Files.createTempFile("merkle", ".pages");
+        otherFile = Files.createTempFile("merkle", ".pages");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(otherFile);
+    }
+
+    private static HashLinkedList<String> transactions(int count) {
+        HashLinkedList<String> list = new HashLinkedList<>();
+        for (int i = 0; i < count; i++)
+            list.addAtTail("Transazione " + i);
+        return list;
+    }
+
+    @Test
+    void testRootMatchesMerkleTree() throws IOException {
+        for (int width : new int[] { 1, 2, 5, 256, 257, 700 }) {
+            HashLinkedList<String> list = transactions(width);
+            MerkleTree<String> expected = new MerkleTree<>(list);
+            try (PagedMerkleTree<String> tree = PagedMerkleTree.create(list,
+                    file, 4)) {
+                assertEquals(expected.getRoot().getHash(), tree.getRootHash(),
+                        "La radice non è corretta per larghezza " + width
+                                + ".");
+                assertEquals(expected.getHeight(), tree.getHeight(),
+                        "L'altezza non è corretta per larghezza " + width
+                                + ".");
+            }
+        }
+    }
+
+    @Test
+    void testProofs() throws IOException {
+        HashLinkedList<String> list = transactions(700);
+        try (PagedMerkleTree<String> tree = PagedMerkleTree.create(list, file,
+                2)) {
+            for (int i = 0; i < 700; i += 37) {
+                assertTrue(tree.getMerkleProof(i)
+                        .proveValidityOfData("Transazione " + i),
+                        "La prova dovrebbe validare il dato " + i + ".");
+            }
+            assertTrue(tree.getMerkleProof(699)
+                    .proveValidityOfData("Transazione 699"),
+                    "La prova dovrebbe validare l'ultimo dato.");
+            assertFalse(tree.getMerkleProof(3)
+                    .proveValidityOfData("Transazione 4"),
+                    "La prova non dovrebbe validare un dato diverso.");
+        }
+    }
+
+    @Test
+    void testIndexAndValidation() throws IOException {
+        HashLinkedList<String> list = transactions(600);
+        try (PagedMerkleTree<String> tree = PagedMerkleTree.create(list, file,
+                4)) {
+            assertEquals(555, tree.getIndexOfData("Transazione 555"),
+                    "L'indice del dato non è corretto.");
+            assertTrue(tree.validateData("Transazione 0"),
+                    "Un dato presente dovrebbe essere valido.");
+            assertFalse(tree.validateData("Transazione 600"),
+                    "Un dato assente non dovrebbe essere valido.");
+            assertTrue(tree.getMerkleProof("Transazione 300")
+                    .proveValidityOfData("Transazione 300"),
+                    "La prova dovrebbe validare il dato.");
+        }
+    }
+
+    @Test
+    void testFindInvalidDataIndices() throws IOException {
+        HashLinkedList<String> list = transactions(500);
+        HashLinkedList<String> modified = transactions(500);
+        modified.set(3, "Transazione modificata 3");
+        modified.set(420, "Transazione modificata 420");
+        try (PagedMerkleTree<String> tree = PagedMerkleTree.create(list, file,
+                4);
+                PagedMerkleTree<String> other = PagedMerkleTree
+                        .create(modified, otherFile, 4)) {
+            assertEquals(Set.of(3, 420), tree.findInvalidDataIndices(other),
+                    "Gli indici dei dati diversi non sono corretti.");
+        }
+    }
+
+    private static Iterator<String> hashes(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> HashUtil.dataToHash("Transazione " + i))
+                .iterator();
+    }
+
+    @Test
+    void testStreamingWrite() throws IOException {
+        // Con 2^15 foglie la fascia della radice è piena, con 2^16 ha un
+        // solo livello
+        for (int width : new int[] { 32768, 40000, 65536 }) {
+            PagedMerkleTree.write(hashes(width), width, file);
+            MerkleTree<String> expected = new MerkleTree<>(transactions(width));
+            try (PagedMerkleTree<String> tree = PagedMerkleTree.open(file,
+                    4)) {
+                assertEquals(expected.getRoot().getHash(), tree.getRootHash(),
+                        "La radice non è corretta per larghezza " + width
+                                + ".");
+                for (int i = 0; i < width; i += 4999)
+                    assertTrue(tree.getMerkleProof(i)
+                            .proveValidityOfData("Transazione " + i),
+                            "La prova dovrebbe validare il dato " + i + ".");
+                assertEquals(width - 1,
+                        tree.getIndexOfData("Transazione " + (width - 1)));
+            }
+        }
+        // Intestazione, radice, 2 pagine alla profondità 1, 512 alla 9
+        assertEquals((1 + 1 + 2 + 512) * PagedMerkleTree.PAGE_SIZE,
+                Files.size(file),
+                "Le pagine delle foglie dovrebbero essere piene.");
+        PagedMerkleTree.write(hashes(129), 129, file);
+        assertEquals(4 * PagedMerkleTree.PAGE_SIZE, Files.size(file));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> PagedMerkleTree.write(hashes(10), 11, file),
+                "Gli hash sono meno della larghezza.");
+        assertThrows(IllegalArgumentException.class,
+                () -> PagedMerkleTree.write(hashes(10), 0, file));
+        assertThrows(IllegalArgumentException.class,
+                () -> PagedMerkleTree.write(null, 10, file));
+    }
+
+    @Test
+    void testCacheMetrics() throws IOException {
+        HashLinkedList<String> list = transactions(700);
+        try (PagedMerkleTree<String> tree = PagedMerkleTree.create(list, file,
+                8)) {
+            tree.getMerkleProof(100);
+            long faults = tree.getPageFaults();
+            assertTrue(faults > 0, "La prima prova dovrebbe causare page fault.");
+            tree.getMerkleProof(100);
+            assertEquals(faults, tree.getPageFaults(),
+                    "La seconda prova dovrebbe essere servita dalla cache.");
+            assertTrue(tree.getHitRate() > 0.5,
+                    "Il tasso di successo della cache dovrebbe essere alto.");
+        }
+    }
+}
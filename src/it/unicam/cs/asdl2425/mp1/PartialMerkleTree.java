@@ -0,0 +1,375 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Un albero di Merkle materializzato solo in parte, che scambia memoria con
+ * tempo di calcolo. L'albero ha la stessa forma e gli stessi hash di un
+ * {@link MerkleTree} costruito sugli stessi dati, ma ne memorizza soltanto gli
+ * hash delle foglie e quelli degli ultimi L livelli, dalla radice verso il
+ * basso. Un {@link MerkleTree} di larghezza n contiene circa 2n nodi, mentre
+ * questo albero conserva n foglie e circa n / 2^(h - L) hash interni, dove h è
+ * l'altezza: con L pari a h - 3, ad esempio, gli hash interni sono un ottavo
+ * di quelli di un albero completo.
+ *
+ * <p>
+ * Il livello più basso tra quelli memorizzati contiene le radici di
+ * sottoalberi completi, la cui parte inferiore viene ricalcolata dalle foglie
+ * quando serve per una prova o per l'hash di un nodo. I sottoalberi
+ * ricalcolati più di recente vengono tenuti in una cache LRU di dimensione
+ * limitata, per cui prove ripetute su dati vicini non ripetono il calcolo. Il
+ * confronto tra due alberi, invece, scende lungo i livelli memorizzati e
+ * confronta direttamente le foglie dei sottoalberi diversi, senza ricalcolare
+ * alcun nodo.
+ *
+ * @param <T>
+ *                il tipo di dati su cui l'albero è costruito.
+ */
+public class PartialMerkleTree<T> {
+    private final String[] leaves; // Solo le foglie dei dati, senza riempimento
+
+    private final int height;
+
+    private final int base; // Altezza dei sottoalberi ricalcolati
+
+    private final String[][] upper; // Livelli da base alla radice
+
+    private final Map<Integer, String[][]> cache;
+
+    private long hits;
+
+    private long rebuilds;
+
+    /**
+     * Costruisce l'albero a partire da un oggetto HashLinkedList, memorizzando
+     * il numero specificato di livelli a partire dalla radice. Se i livelli
+     * richiesti sono almeno quanti quelli dell'albero, tutti i nodi vengono
+     * memorizzati e nessun sottoalbero viene ricalcolato.
+     *
+     * @param hashList
+     *                               un oggetto HashLinkedList contenente i dati
+     *                               e i relativi hash.
+     * @param materializedLevels
+     *                               il numero di livelli da memorizzare,
+     *                               compresa la radice.
+     * @param cacheSize
+     *                               il numero massimo di sottoalberi
+     *                               ricalcolati tenuti in memoria.
+     * @throws IllegalArgumentException
+     *                                      se la lista è null o vuota, se il
+     *                                      numero di livelli è minore di 1 o
+     *                                      se la dimensione della cache è
+     *                                      negativa.
+     */
+    public PartialMerkleTree(HashLinkedList<T> hashList,
+            int materializedLevels, int cacheSize) {
+        if (hashList == null || hashList.getSize() == 0)
+            throw new IllegalArgumentException("The list is null or empty");
+        if (materializedLevels < 1)
+            throw new IllegalArgumentException(
+                    "Invalid level count: " + materializedLevels);
+        if (cacheSize < 0)
+            throw new IllegalArgumentException(
+                    "Invalid cache size: " + cacheSize);
+        List<String> hashes = hashList.getAllHashes();
+        this.leaves = hashes.toArray(new String[0]);
+        this.height = Integer
+                .numberOfTrailingZeros(HashLevels.upperTwoPower(leaves.length));
+        this.base = Math.max(0, height - materializedLevels + 1);
+        this.upper = new String[height - base + 1][];
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<Integer, String[][]> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        // Le radici dei sottoalberi vengono calcolate una alla volta, senza
+        // tenere in memoria i loro livelli inferiori
+        String[] roots = new String[1 << (height - base)];
+        for (int k = 0; k < roots.length; k++)
+            roots[k] = subtreeRoot(k << base, base);
+        upper[0] = roots;
+        for (int l = 1; l < upper.length; l++) {
+            String[] below = upper[l - 1];
+            String[] level = new String[below.length / 2];
+            for (int j = 0; j < level.length; j++)
+                level[j] = HashLevels.combine(below[2 * j], below[2 * j + 1]);
+            upper[l] = level;
+        }
+    }
+
+    /**
+     * Restituisce l'hash della foglia nella posizione specificata, vuoto per
+     * le foglie di riempimento.
+     */
+    private String leaf(int index) {
+        return index < leaves.length ? leaves[index] : "";
+    }
+
+    /**
+     * Calcola la radice del sottoalbero dell'altezza specificata che inizia
+     * dalla foglia start. I sottoalberi composti solo da riempimento hanno
+     * radice vuota e non vengono visitati.
+     */
+    private String subtreeRoot(int start, int h) {
+        if (start >= leaves.length)
+            return "";
+        if (h == 0)
+            return leaves[start];
+        int half = 1 << (h - 1);
+        return HashLevels.combine(subtreeRoot(start, h - 1),
+                subtreeRoot(start + half, h - 1));
+    }
+
+    /**
+     * Restituisce i livelli del sottoalbero k, dalle foglie alla radice,
+     * ricalcolandoli se non sono nella cache.
+     */
+    private synchronized String[][] subtree(int k) {
+        String[][] levels = cache.get(k);
+        if (levels != null) {
+            hits++;
+            return levels;
+        }
+        rebuilds++;
+        levels = new String[base + 1][];
+        String[] bottom = new String[1 << base];
+        for (int i = 0; i < bottom.length; i++)
+            bottom[i] = leaf((k << base) + i);
+        levels[0] = bottom;
+        for (int l = 1; l <= base; l++) {
+            String[] below = levels[l - 1];
+            String[] level = new String[below.length / 2];
+            for (int j = 0; j < level.length; j++)
+                level[j] = HashLevels.combine(below[2 * j], below[2 * j + 1]);
+            levels[l] = level;
+        }
+        cache.put(k, levels);
+        return levels;
+    }
+
+    /**
+     * Restituisce l'hash della radice dell'albero.
+     *
+     * @return l'hash della radice.
+     */
+    public String getRootHash() {
+        return upper[upper.length - 1][0];
+    }
+
+    /**
+     * Restituisce la larghezza dell'albero, ovvero il numero di dati.
+     *
+     * @return la larghezza dell'albero.
+     */
+    public int getWidth() {
+        return leaves.length;
+    }
+
+    /**
+     * Restituisce l'altezza dell'albero.
+     *
+     * @return l'altezza dell'albero.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Restituisce il numero di livelli memorizzati, compresa la radice, che
+     * non supera quello dei livelli dell'albero.
+     *
+     * @return il numero di livelli memorizzati.
+     */
+    public int getMaterializedLevels() {
+        return upper.length;
+    }
+
+    /**
+     * Restituisce il numero di hash tenuti stabilmente in memoria, ovvero le
+     * foglie dei dati e i nodi dei livelli memorizzati, esclusi i sottoalberi
+     * nella cache. Se sono memorizzati tutti i livelli, il più basso contiene
+     * gli stessi hash delle foglie e non viene contato due volte.
+     *
+     * @return il numero di hash memorizzati.
+     */
+    public int getStoredHashCount() {
+        int count = leaves.length;
+        for (int l = base == 0 ? 1 : 0; l < upper.length; l++)
+            count += upper[l].length;
+        return count;
+    }
+
+    /**
+     * Restituisce l'hash di un nodo dell'albero. I nodi al di sotto dei
+     * livelli memorizzati vengono ricalcolati, o letti dalla cache.
+     *
+     * @param level
+     *                  il livello del nodo, 0 per le foglie.
+     * @param index
+     *                  la posizione del nodo nel livello.
+     * @return l'hash del nodo.
+     * @throws IndexOutOfBoundsException
+     *                                       se il nodo non esiste.
+     */
+    public String getNodeHash(int level, int index) {
+        if (level < 0 || level > height || index < 0
+                || index >= 1 << (height - level))
+            throw new IndexOutOfBoundsException(
+                    "Level: " + level + ", Index: " + index);
+        if (level == 0)
+            return leaf(index);
+        if (level >= base)
+            return upper[level - base][index];
+        int span = base - level;
+        return subtree(index >> span)[level][index & ((1 << span) - 1)];
+    }
+
+    /**
+     * Restituisce la prova di Merkle per il dato nella posizione specificata.
+     * La parte della prova interna al sottoalbero del dato viene presa dal
+     * sottoalbero ricalcolato, il resto dai livelli memorizzati.
+     *
+     * @param index
+     *                  la posizione del dato, a partire da 0.
+     * @return la prova di Merkle per il dato.
+     * @throws IndexOutOfBoundsException
+     *                                       se la posizione non è compresa
+     *                                       tra 0 e width - 1.
+     */
+    public MerkleProof getMerkleProofAt(int index) {
+        if (index < 0 || index >= leaves.length)
+            throw new IndexOutOfBoundsException(
+                    "Index: " + index + ", Width: " + leaves.length);
+        MerkleProof proof = new MerkleProof(getRootHash(), height);
+        int j = index;
+        if (base > 0) {
+            String[][] levels = subtree(index >> base);
+            j = index & ((1 << base) - 1);
+            for (int l = 0; l < base; l++) {
+                proof.addHash(levels[l][j ^ 1], (j & 1) == 1);
+                j >>= 1;
+            }
+            j = index >> base;
+        }
+        for (int l = base; l < height; l++) {
+            proof.addHash(getNodeHash(l, j ^ 1), (j & 1) == 1);
+            j >>= 1;
+        }
+        return proof;
+    }
+
+    /**
+     * Restituisce la prova di Merkle per un dato elemento.
+     *
+     * @param data
+     *                 l'elemento per cui generare la prova di Merkle.
+     * @return la prova di Merkle per il dato.
+     * @throws IllegalArgumentException
+     *                                      se il dato è null o non è parte
+     *                                      dell'albero.
+     */
+    public MerkleProof getMerkleProof(T data) {
+        int index = getIndexOfData(data);
+        if (index < 0)
+            throw new IllegalArgumentException("The data is not in the tree");
+        return getMerkleProofAt(index);
+    }
+
+    /**
+     * Restituisce l'indice di un elemento secondo questo albero.
+     *
+     * @param data
+     *                 l'elemento da cercare.
+     * @return l'indice del dato nell'albero; -1 se il dato non è presente.
+     * @throws IllegalArgumentException
+     *                                      se il dato è null.
+     */
+    public int getIndexOfData(T data) {
+        if (data == null)
+            throw new IllegalArgumentException("The data is null");
+        String hash = HashUtil.dataToHash(data);
+        for (int i = 0; i < leaves.length; i++) {
+            if (leaves[i].equals(hash))
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Sottopone a validazione un elemento per verificare se il suo hash è
+     * l'hash di una foglia dell'albero.
+     *
+     * @param data
+     *                 l'elemento da validare.
+     * @return true se l'hash dell'elemento è parte dell'albero; false
+     *         altrimenti.
+     */
+    public boolean validateData(T data) {
+        return getIndexOfData(data) >= 0;
+    }
+
+    /**
+     * Trova gli indici dei dati diversi tra questo albero e un altro,
+     * scendendo solo nei sottoalberi le cui radici differiscono. Al di sotto
+     * dei livelli memorizzati da entrambi gli alberi vengono confrontate
+     * direttamente le foglie, senza ricalcolare alcun nodo.
+     *
+     * @param other
+     *                  l'altro albero.
+     * @return l'insieme di indici dei dati diversi.
+     * @throws IllegalArgumentException
+     *                                      se l'altro albero è null o ha
+     *                                      un'altezza diversa.
+     */
+    public Set<Integer> findInvalidDataIndices(PartialMerkleTree<T> other) {
+        if (other == null || other.height != height)
+            throw new IllegalArgumentException();
+        int floor = Math.max(base, other.base);
+        Set<Integer> invalid = new HashSet<>();
+        ArrayDeque<int[]> stack = new ArrayDeque<>();
+        stack.push(new int[] { height, 0 });
+        while (!stack.isEmpty()) {
+            int[] node = stack.pop();
+            int level = node[0];
+            int j = node[1];
+            if (getNodeHash(level, j).equals(other.getNodeHash(level, j)))
+                continue;
+            if (level > floor) {
+                stack.push(new int[] { level - 1, 2 * j + 1 });
+                stack.push(new int[] { level - 1, 2 * j });
+            } else {
+                for (int i = j << level; i < (j + 1) << level; i++) {
+                    if (!leaf(i).equals(other.leaf(i)))
+                        invalid.add(i);
+                }
+            }
+        }
+        return invalid;
+    }
+
+    /**
+     * Restituisce il numero di richieste di sottoalberi servite dalla cache.
+     *
+     * @return il numero di accessi serviti dalla cache.
+     */
+    public synchronized long getCacheHits() {
+        return hits;
+    }
+
+    /**
+     * Restituisce il numero di sottoalberi ricalcolati perché assenti dalla
+     * cache.
+     *
+     * @return il numero di sottoalberi ricalcolati.
+     */
+    public synchronized long getRebuilds() {
+        return rebuilds;
+    }
+}
@@ -0,0 +1,195 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per la classe {@link PartialMerkleTree}. Di seguito, l'elenco
+ * dei test inclusi con una breve descrizione:
+ *
+ * <ul>
+ * <li>{@link #testMatchesMerkleTree()}: Verifica, per diverse larghezze e
+ * numeri di livelli memorizzati, che radice, altezza e hash dei nodi
+ * coincidano con quelli di un {@link MerkleTree} costruito sugli stessi
+ * dati.</li>
+ *
+ * <li>{@link #testProofs()}: Verifica che le prove di tutti i dati, in parte
+ * ricalcolate, validino i dati e abbiano la lunghezza attesa.</li>
+ *
+ * <li>{@link #testStoredHashCount()}: Verifica che il numero di hash
+ * memorizzati diminuisca con il numero di livelli memorizzati.</li>
+ *
+ * <li>{@link #testCache()}: Verifica che i sottoalberi ricalcolati vengano
+ * riutilizzati dalla cache e che la cache non superi la sua dimensione.</li>
+ *
+ * <li>{@link #testFindInvalidDataIndices()}: Confronta due alberi con livelli
+ * memorizzati diversi e verifica gli indici dei dati diversi, senza
+ * ricalcolare sottoalberi.</li>
+ *
+ * <li>{@link #testInvalidArguments()}: Verifica che vengano lanciate
+ * eccezioni per argomenti non validi.</li>
+ * </ul>
+ */
+class PartialMerkleTreeTest {
+
+    private static HashLinkedList<String> listOf(int width) {
+        HashLinkedList<String> list = new HashLinkedList<>();
+        for (int i = 0; i < width; i++)
+            list.addAtTail("Transazione " + i);
+        return list;
+    }
+
+    @Test
+    void testMatchesMerkleTree() {
+        for (int width : new int[] { 1, 2, 5, 16, 37 }) {
+            HashLinkedList<String> list = listOf(width);
+            MerkleTree<String> expected = new MerkleTree<>(list);
+            for (int levels = 1; levels <= 8; levels++) {
+                PartialMerkleTree<String> tree = new PartialMerkleTree<>(list,
+                        levels, 2);
+                assertEquals(expected.getRoot().getHash(), tree.getRootHash(),
+                        "Radice errata per " + width + " dati e " + levels
+                                + " livelli.");
+                assertEquals(expected.getHeight(), tree.getHeight());
+                assertEquals(Math.min(levels, expected.getHeight() + 1),
+                        tree.getMaterializedLevels());
+                assertEquals(width, tree.getWidth());
+            }
+        }
+
+        MerkleTree<String> expected = new MerkleTree<>(listOf(37));
+        PartialMerkleTree<String> tree = new PartialMerkleTree<>(listOf(37), 3,
+                4);
+        assertEquals(expected.getRoot().getLeft().getRight().getHash(),
+                tree.getNodeHash(4, 1), "Nodo memorizzato.");
+        assertEquals(
+                expected.getRoot().getRight().getLeft().getLeft().getLeft()
+                        .getHash(),
+                tree.getNodeHash(2, 8), "Nodo ricalcolato.");
+        assertEquals("", tree.getNodeHash(3, 7),
+                "I nodi di riempimento hanno hash vuoto.");
+        assertEquals(HashUtil.dataToHash("Transazione 36"),
+                tree.getNodeHash(0, 36));
+    }
+
+    @Test
+    void testProofs() {
+        HashLinkedList<String> list = listOf(37);
+        for (int levels = 1; levels <= 7; levels++) {
+            PartialMerkleTree<String> tree = new PartialMerkleTree<>(list,
+                    levels, 1);
+            for (int i = 0; i < 37; i++) {
+                MerkleProof proof = tree.getMerkleProofAt(i);
+                assertEquals(6, proof.getLength());
+                assertTrue(proof.proveValidityOfData("Transazione " + i),
+                        "La prova del dato " + i + " non è valida con "
+                                + levels + " livelli.");
+                assertFalse(proof.proveValidityOfData("Transazione " + (i + 1)),
+                        "La prova non dovrebbe validare un altro dato.");
+            }
+            assertTrue(tree.getMerkleProof("Transazione 20")
+                    .proveValidityOfData("Transazione 20"));
+        }
+        PartialMerkleTree<String> single = new PartialMerkleTree<>(listOf(1),
+                1, 1);
+        assertEquals(0, single.getMerkleProofAt(0).getLength());
+        assertTrue(single.getMerkleProofAt(0)
+                .proveValidityOfData("Transazione 0"));
+    }
+
+    @Test
+    void testStoredHashCount() {
+        HashLinkedList<String> list = listOf(1024);
+        PartialMerkleTree<String> full = new PartialMerkleTree<>(list, 11, 0);
+        assertEquals(1024 + 1023, full.getStoredHashCount(),
+                "Con tutti i livelli sono memorizzati tutti i nodi, e le "
+                        + "foglie una sola volta.");
+        PartialMerkleTree<String> partial = new PartialMerkleTree<>(list, 8,
+                0);
+        assertEquals(1024 + 255, partial.getStoredHashCount(),
+                "Dovrebbero essere memorizzati 8 livelli sopra le foglie.");
+        assertEquals(full.getRootHash(), partial.getRootHash());
+    }
+
+    @Test
+    void testCache() {
+        PartialMerkleTree<String> tree = new PartialMerkleTree<>(listOf(64), 3,
+                2);
+        tree.getMerkleProofAt(0);
+        tree.getMerkleProofAt(1);
+        tree.getMerkleProofAt(15);
+        assertEquals(1, tree.getRebuilds(),
+                "I dati 0-15 appartengono allo stesso sottoalbero.");
+        assertEquals(2, tree.getCacheHits());
+        tree.getMerkleProofAt(16);
+        tree.getMerkleProofAt(32);
+        tree.getMerkleProofAt(0);
+        assertEquals(4, tree.getRebuilds(),
+                "Il primo sottoalbero dovrebbe essere stato espulso.");
+        tree.getMerkleProofAt(33);
+        assertEquals(4, tree.getRebuilds());
+        assertEquals(3, tree.getCacheHits());
+
+        PartialMerkleTree<String> uncached = new PartialMerkleTree<>(
+                listOf(64), 3, 0);
+        uncached.getMerkleProofAt(0);
+        uncached.getMerkleProofAt(0);
+        assertEquals(2, uncached.getRebuilds(),
+                "Senza cache ogni prova ricalcola il sottoalbero.");
+        assertEquals(0, uncached.getCacheHits());
+    }
+
+    @Test
+    void testFindInvalidDataIndices() {
+        HashLinkedList<String> list = listOf(40);
+        HashLinkedList<String> changed = new HashLinkedList<>();
+        for (int i = 0; i < 40; i++)
+            changed.addAtTail(i == 3 || i == 27 ? "Modificata " + i
+                    : "Transazione " + i);
+        PartialMerkleTree<String> a = new PartialMerkleTree<>(list, 3, 4);
+        PartialMerkleTree<String> b = new PartialMerkleTree<>(changed, 5, 4);
+        assertEquals(Set.of(3, 27), a.findInvalidDataIndices(b));
+        assertEquals(Set.of(3, 27), b.findInvalidDataIndices(a));
+        assertTrue(a.findInvalidDataIndices(
+                new PartialMerkleTree<>(listOf(40), 1, 0)).isEmpty());
+        assertEquals(0, a.getRebuilds() + b.getRebuilds(),
+                "Il confronto non dovrebbe ricalcolare sottoalberi.");
+
+        PartialMerkleTree<String> shorter = new PartialMerkleTree<>(listOf(35),
+                3, 4);
+        assertEquals(Set.of(35, 36, 37, 38, 39),
+                a.findInvalidDataIndices(shorter),
+                "Le foglie mancanti dovrebbero risultare diverse.");
+        assertThrows(IllegalArgumentException.class,
+                () -> a.findInvalidDataIndices(
+                        new PartialMerkleTree<>(listOf(8), 3, 4)));
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new PartialMerkleTree<String>(null, 3, 4));
+        assertThrows(IllegalArgumentException.class,
+                () -> new PartialMerkleTree<>(new HashLinkedList<String>(), 3,
+                        4));
+        assertThrows(IllegalArgumentException.class,
+                () -> new PartialMerkleTree<>(listOf(4), 0, 4));
+        assertThrows(IllegalArgumentException.class,
+                () -> new PartialMerkleTree<>(listOf(4), 3, -1));
+        PartialMerkleTree<String> tree = new PartialMerkleTree<>(listOf(4), 1,
+                4);
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> tree.getMerkleProofAt(4));
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> tree.getNodeHash(3, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> tree.getMerkleProof("Assente"));
+        assertThrows(IllegalArgumentException.class,
+                () -> tree.getIndexOfData(null));
+        assertFalse(tree.validateData("Assente"));
+        assertTrue(tree.validateData("Transazione 3"));
+    }
+}
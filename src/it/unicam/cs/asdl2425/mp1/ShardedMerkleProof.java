@@ -0,0 +1,87 @@
+package it.unicam.cs.asdl2425.mp1;
+
+/**
+ * Una prova per un dato di uno {@link ShardedMerkleTree}, composta da due
+ * {@link MerkleProof}: la prova del dato nel suo frammento, che porta alla
+ * radice del frammento, e la prova di quella radice come foglia dell'albero
+ * superiore, che porta alla radice complessiva. Il dato è valido se la prima
+ * prova lo valida e la seconda valida la radice a cui la prima porta.
+ */
+public class ShardedMerkleProof {
+    private final MerkleProof shardProof;
+
+    private final MerkleProof topProof;
+
+    /**
+     * Compone una prova a partire dalla prova nel frammento e da quella
+     * nell'albero superiore.
+     *
+     * @param shardProof
+     *                       la prova del dato nel suo frammento.
+     * @param topProof
+     *                       la prova della radice del frammento nell'albero
+     *                       superiore.
+     * @throws IllegalArgumentException
+     *                                      se una delle prove è null.
+     */
+    public ShardedMerkleProof(MerkleProof shardProof, MerkleProof topProof) {
+        if (shardProof == null || topProof == null)
+            throw new IllegalArgumentException("The proof cannot be null");
+        this.shardProof = shardProof;
+        this.topProof = topProof;
+    }
+
+    /**
+     * Restituisce la prova del dato nel suo frammento.
+     *
+     * @return la prova nel frammento.
+     */
+    public MerkleProof getShardProof() {
+        return shardProof;
+    }
+
+    /**
+     * Restituisce la prova della radice del frammento nell'albero superiore.
+     *
+     * @return la prova nell'albero superiore.
+     */
+    public MerkleProof getTopProof() {
+        return topProof;
+    }
+
+    /**
+     * Restituisce l'hash della radice complessiva per cui la prova è stata
+     * costruita.
+     *
+     * @return l'hash della radice.
+     */
+    public String getRootHash() {
+        return topProof.getRootHash();
+    }
+
+    /**
+     * Restituisce il numero complessivo di hash della prova.
+     *
+     * @return la somma delle lunghezze delle due prove.
+     */
+    public int getLength() {
+        return shardProof.getLength() + topProof.getLength();
+    }
+
+    /**
+     * Valida un dato elemento per questa prova.
+     *
+     * @param data
+     *                 l'elemento da validare.
+     * @return true se il dato è valido secondo entrambe le prove; false
+     *         altrimenti.
+     * @throws IllegalArgumentException
+     *                                      se il dato è null.
+     */
+    public boolean proveValidityOfData(Object data) {
+        if (data == null)
+            throw new IllegalArgumentException("The data is null");
+        return shardProof.proveValidityOfData(data) && topProof
+                .proveValidityOfBranch(new MerkleNode(shardProof.getRootHash()));
+    }
+}
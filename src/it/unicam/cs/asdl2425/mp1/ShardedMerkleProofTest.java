@@ -0,0 +1,79 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per la classe {@link ShardedMerkleProof}. Di seguito,
+ * l'elenco dei test inclusi con una breve descrizione:
+ *
+ * <ul>
+ * <li>{@link #testComposition()}: Verifica una prova composta a mano da due
+ * frammenti di due dati ciascuno.</li>
+ *
+ * <li>{@link #testMismatchedProofs()}: Verifica che una prova superiore per
+ * un altro frammento non venga accettata.</li>
+ *
+ * <li>{@link #testInvalidArguments()}: Verifica che vengano lanciate
+ * eccezioni per argomenti non validi.</li>
+ * </ul>
+ */
+class ShardedMerkleProofTest {
+
+    private static final String A = HashUtil.dataToHash("Alice paga Bob");
+
+    private static final String B = HashUtil.dataToHash("Bob paga Charlie");
+
+    private static final String C = HashUtil.dataToHash("Charlie paga Diana");
+
+    private static final String D = HashUtil.dataToHash("Diana paga Alice");
+
+    private static String combine(String left, String right) {
+        return HashUtil.computeMD5((left + right).getBytes());
+    }
+
+    @Test
+    void testComposition() {
+        String left = combine(A, B);
+        String right = combine(C, D);
+        MerkleProof shard = new MerkleProof(right, 1);
+        shard.addHash(D, false);
+        MerkleProof top = new MerkleProof(combine(left, right), 1);
+        top.addHash(left, true);
+        ShardedMerkleProof proof = new ShardedMerkleProof(shard, top);
+
+        assertEquals(combine(left, right), proof.getRootHash());
+        assertEquals(2, proof.getLength(), "La prova dovrebbe avere 2 passi.");
+        assertTrue(proof.proveValidityOfData("Charlie paga Diana"),
+                "La prova composta a mano dovrebbe essere valida.");
+        assertFalse(proof.proveValidityOfData("Alice paga Bob"),
+                "La prova non dovrebbe validare un altro dato.");
+    }
+
+    @Test
+    void testMismatchedProofs() {
+        String left = combine(A, B);
+        String right = combine(C, D);
+        MerkleProof shard = new MerkleProof(right, 1);
+        shard.addHash(D, false);
+        MerkleProof top = new MerkleProof(combine(left, right), 1);
+        top.addHash(right, false); // Prova del frammento sinistro
+
+        assertFalse(new ShardedMerkleProof(shard, top)
+                .proveValidityOfData("Charlie paga Diana"),
+                "La prova superiore si riferisce a un altro frammento.");
+    }
+
+    @Test
+    void testInvalidArguments() {
+        MerkleProof proof = new MerkleProof(A, 0);
+        assertThrows(IllegalArgumentException.class,
+                () -> new ShardedMerkleProof(null, proof));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ShardedMerkleProof(proof, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ShardedMerkleProof(proof, proof)
+                        .proveValidityOfData(null));
+    }
+}
@@ -0,0 +1,256 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Un albero di Merkle suddiviso in N frammenti (shard) indipendenti, ciascuno
+ * dei quali è un {@link ConcurrentMerkleTree} su un intervallo contiguo di
+ * dati con il proprio lock degli aggiornamenti: scritture su frammenti diversi
+ * procedono in parallelo, per cui il throughput in scrittura cresce con il
+ * numero di core invece di restare quello di un unico scrittore.
+ *
+ * <p>
+ * Sopra i frammenti c'è un piccolo albero di Merkle le cui foglie sono le
+ * radici dei frammenti, con la stessa forma di un {@link MerkleTree}. Una
+ * scrittura si limita a marcare come modificato il proprio frammento; l'albero
+ * superiore viene aggiornato in modo pigro alla prima richiesta della radice o
+ * di una prova, ricalcolando una sola volta i cammini di tutti i frammenti
+ * modificati nel frattempo. L'aggiornamento avviene sotto un lock dedicato,
+ * che le scritture non acquisiscono mai.
+ *
+ * <p>
+ * La radice dell'albero è la radice dell'albero superiore, e una prova per un
+ * dato è una {@link ShardedMerkleProof}, composta dalla prova del dato nel suo
+ * frammento e dalla prova della radice del frammento nell'albero superiore.
+ *
+ * @param <T>
+ *                il tipo di dati su cui l'albero è costruito.
+ */
+public class ShardedMerkleTree<T> {
+    private final List<ConcurrentMerkleTree<T>> shards;
+
+    private final int width;
+
+    private final int base; // Dati per frammento, senza il resto
+
+    private final int extra; // Frammenti con base + 1 dati
+
+    private final AtomicIntegerArray dirty; // 1 se la radice è da riportare
+
+    private final HashLevels top; // Albero sulle radici dei frammenti
+
+    private final ReentrantLock topLock; // Protegge top
+
+    /**
+     * Costruisce un albero suddiviso nel numero di frammenti specificato. I
+     * dati della lista vengono distribuiti in intervalli contigui, con
+     * dimensioni che differiscono al più di uno.
+     *
+     * @param hashList
+     *                       un oggetto HashLinkedList contenente i dati e i
+     *                       relativi hash.
+     * @param shardCount
+     *                       il numero di frammenti, tra 1 e il numero di dati.
+     * @throws IllegalArgumentException
+     *                                      se la lista è null o vuota o se il
+     *                                      numero di frammenti non è valido.
+     */
+    public ShardedMerkleTree(HashLinkedList<T> hashList, int shardCount) {
+        if (hashList == null || hashList.getSize() == 0)
+            throw new IllegalArgumentException("The list is null or empty");
+        this.width = hashList.getSize();
+        if (shardCount < 1 || shardCount > width)
+            throw new IllegalArgumentException(
+                    "Invalid shard count: " + shardCount + ", Width: " + width);
+        this.base = width / shardCount;
+        this.extra = width % shardCount;
+        this.shards = new ArrayList<>(shardCount);
+        List<String> roots = new ArrayList<>(shardCount);
+        HashLinkedList<T> part = new HashLinkedList<>();
+        int s = 0;
+        for (T data : hashList) {
+            part.addAtTail(data);
+            if (part.getSize() == base + (s < extra ? 1 : 0)) {
+                MerkleTree<T> tree = new MerkleTree<>(part);
+                shards.add(new ConcurrentMerkleTree<>(tree));
+                roots.add(tree.getRoot().getHash());
+                part = new HashLinkedList<>();
+                s++;
+            }
+        }
+        this.dirty = new AtomicIntegerArray(shardCount);
+        this.top = new HashLevels(roots);
+        this.topLock = new ReentrantLock();
+    }
+
+    /**
+     * Restituisce il numero di frammenti.
+     *
+     * @return il numero di frammenti.
+     */
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * Restituisce la larghezza dell'albero, ovvero il numero di dati.
+     *
+     * @return la larghezza dell'albero.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Restituisce il frammento che contiene il dato nella posizione
+     * specificata.
+     */
+    private int shardOf(int index) {
+        if (index < 0 || index >= width)
+            throw new IndexOutOfBoundsException(
+                    "Index: " + index + ", Width: " + width);
+        int boundary = extra * (base + 1);
+        if (index < boundary)
+            return index / (base + 1);
+        return extra + (index - boundary) / base;
+    }
+
+    /**
+     * Restituisce la posizione del primo dato del frammento specificato.
+     */
+    private int startOf(int shard) {
+        return shard * base + Math.min(shard, extra);
+    }
+
+    /**
+     * Sostituisce il dato nella posizione specificata. L'aggiornamento blocca
+     * solo il frammento che contiene il dato, e l'albero superiore viene
+     * aggiornato alla successiva richiesta della radice o di una prova.
+     *
+     * @param index
+     *                  la posizione del dato da sostituire.
+     * @param data
+     *                  il nuovo dato.
+     * @throws IllegalArgumentException
+     *                                       se il dato è null.
+     * @throws IndexOutOfBoundsException
+     *                                       se la posizione non è valida.
+     */
+    public void setLeaf(int index, T data) {
+        int s = shardOf(index);
+        shards.get(s).setLeaf(index - startOf(s), data);
+        // Marcato dopo la pubblicazione, così che chi azzera il flag legga
+        // almeno questa versione
+        dirty.set(s, 1);
+    }
+
+    /**
+     * Riporta nell'albero superiore le radici dei frammenti modificati. Va
+     * chiamato tenendo il lock dell'albero superiore.
+     */
+    private void refresh() {
+        for (int s = 0; s < shards.size(); s++) {
+            if (dirty.get(s) == 1 && dirty.getAndSet(s, 0) == 1)
+                top.set(s, shards.get(s).getRootHash());
+        }
+    }
+
+    /**
+     * Restituisce l'hash della radice dell'albero superiore, aggiornandolo
+     * prima con le radici dei frammenti modificati.
+     *
+     * @return l'hash della radice.
+     */
+    public String getRootHash() {
+        topLock.lock();
+        try {
+            refresh();
+            return top.root();
+        } finally {
+            topLock.unlock();
+        }
+    }
+
+    /**
+     * Restituisce l'hash della radice del frammento specificato.
+     *
+     * @param shard
+     *                  il frammento, a partire da 0.
+     * @return l'hash della radice del frammento.
+     * @throws IndexOutOfBoundsException
+     *                                       se il frammento non esiste.
+     */
+    public String getShardRootHash(int shard) {
+        return shards.get(shard).getRootHash();
+    }
+
+    /**
+     * Restituisce la prova per il dato nella posizione specificata, composta
+     * dalla prova nel frammento e da quella nell'albero superiore. Le due
+     * prove si riferiscono alla stessa versione del frammento.
+     *
+     * @param index
+     *                  la posizione del dato, a partire da 0.
+     * @return la prova per il dato.
+     * @throws IndexOutOfBoundsException
+     *                                       se la posizione non è valida.
+     */
+    public ShardedMerkleProof getMerkleProofAt(int index) {
+        int s = shardOf(index);
+        topLock.lock();
+        try {
+            refresh();
+            MerkleTree<T> snapshot = shards.get(s).snapshot();
+            return proof(s, snapshot, index - startOf(s));
+        } finally {
+            topLock.unlock();
+        }
+    }
+
+    /**
+     * Restituisce la prova per il dato nella posizione specificata di una
+     * versione del frammento, presa dopo l'ultimo refresh. Va chiamato
+     * tenendo il lock dell'albero superiore.
+     */
+    private ShardedMerkleProof proof(int shard, MerkleTree<T> snapshot,
+            int index) {
+        // Il frammento può essere cambiato dopo il refresh
+        top.set(shard, snapshot.getRoot().getHash());
+        return new ShardedMerkleProof(snapshot.getMerkleProofAt(index),
+                top.proof(shard));
+    }
+
+    /**
+     * Restituisce la prova per un dato elemento, cercandolo in tutti i
+     * frammenti. La posizione del dato e la prova vengono ricavate dalla
+     * stessa versione del frammento, per cui la prova valida sempre il dato
+     * anche se nel frattempo la sua posizione viene sostituita.
+     *
+     * @param data
+     *                 l'elemento per cui generare la prova.
+     * @return la prova per il dato.
+     * @throws IllegalArgumentException
+     *                                      se il dato è null o non è parte
+     *                                      dell'albero.
+     */
+    public ShardedMerkleProof getMerkleProof(T data) {
+        if (data == null)
+            throw new IllegalArgumentException("The data is null");
+        for (int s = 0; s < shards.size(); s++) {
+            topLock.lock();
+            try {
+                refresh();
+                MerkleTree<T> snapshot = shards.get(s).snapshot();
+                int index = snapshot.getIndexOfData(data);
+                if (index >= 0)
+                    return proof(s, snapshot, index);
+            } finally {
+                topLock.unlock();
+            }
+        }
+        throw new IllegalArgumentException("The data is not in the tree");
+    }
+}
@@ -0,0 +1,202 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per la classe {@link ShardedMerkleTree}. Di seguito,
+ * l'elenco dei test inclusi con una breve descrizione:
+ *
+ * <ul>
+ * <li>{@link #testPartition()}: Verifica la suddivisione dei dati in
+ * frammenti contigui e la radice dell'albero superiore.</li>
+ *
+ * <li>{@link #testProofs()}: Verifica le prove composte per tutti i
+ * dati.</li>
+ *
+ * <li>{@link #testLazyTopLevel()}: Verifica che dopo delle scritture la
+ * radice e le prove riflettano tutti i frammenti modificati.</li>
+ *
+ * <li>{@link #testConcurrentWriters()}: Più thread scrivono su frammenti
+ * diversi contemporaneamente, mentre un altro chiede la radice, e si verifica
+ * la radice finale.</li>
+ *
+ * <li>{@link #testConcurrentProofByData()}: Verifica che la prova per un dato
+ * lo validi sempre, anche se un altro thread sostituisce di continuo la sua
+ * posizione.</li>
+ *
+ * <li>{@link #testInvalidArguments()}: Verifica che vengano lanciate
+ * eccezioni per argomenti non validi.</li>
+ * </ul>
+ */
+class ShardedMerkleTreeTest {
+
+    private HashLinkedList<String> list;
+
+    private ShardedMerkleTree<String> tree;
+
+    @BeforeEach
+    void setUp() {
+        list = new HashLinkedList<>();
+        for (int i = 0; i < 10; i++)
+            list.addAtTail("Transazione " + i);
+        tree = new ShardedMerkleTree<>(list, 4);
+    }
+
+    private static String combine(String left, String right) {
+        return HashUtil.computeMD5((left + right).getBytes());
+    }
+
+    /**
+     * Restituisce la radice dell'albero di Merkle sui dati della lista da
+     * from a to - 1.
+     */
+    private String rootOf(int from, int to) {
+        HashLinkedList<String> part = new HashLinkedList<>();
+        for (int i = from; i < to; i++)
+            part.addAtTail(list.get(i));
+        return new MerkleTree<>(part).getRoot().getHash();
+    }
+
+    /**
+     * Restituisce la radice attesa per la suddivisione 3, 3, 2, 2.
+     */
+    private String expectedRoot() {
+        return combine(combine(rootOf(0, 3), rootOf(3, 6)),
+                combine(rootOf(6, 8), rootOf(8, 10)));
+    }
+
+    @Test
+    void testPartition() {
+        assertEquals(4, tree.getShardCount(),
+                "L'albero dovrebbe avere 4 frammenti.");
+        assertEquals(10, tree.getWidth(), "La larghezza non è corretta.");
+        assertEquals(rootOf(0, 3), tree.getShardRootHash(0));
+        assertEquals(rootOf(3, 6), tree.getShardRootHash(1));
+        assertEquals(rootOf(6, 8), tree.getShardRootHash(2));
+        assertEquals(rootOf(8, 10), tree.getShardRootHash(3));
+        assertEquals(expectedRoot(), tree.getRootHash(),
+                "La radice non è quella dell'albero sulle radici dei "
+                        + "frammenti.");
+        assertEquals(new MerkleTree<>(list).getRoot().getHash(),
+                new ShardedMerkleTree<>(list, 1).getRootHash(),
+                "Con un solo frammento la radice è quella del MerkleTree.");
+    }
+
+    @Test
+    void testProofs() {
+        String root = tree.getRootHash();
+        for (int i = 0; i < 10; i++) {
+            ShardedMerkleProof proof = tree.getMerkleProofAt(i);
+            assertEquals(root, proof.getRootHash(),
+                    "La prova dovrebbe riferirsi alla radice corrente.");
+            assertTrue(proof.proveValidityOfData("Transazione " + i),
+                    "La prova del dato " + i + " non è valida.");
+            assertFalse(proof.proveValidityOfData("Transazione " + (i + 1)),
+                    "La prova non dovrebbe validare un altro dato.");
+        }
+        assertTrue(tree.getMerkleProof("Transazione 7")
+                .proveValidityOfData("Transazione 7"));
+        assertEquals(2 + 2, tree.getMerkleProofAt(0).getLength(),
+                "La prova dovrebbe avere 2 passi nel frammento e 2 sopra.");
+    }
+
+    @Test
+    void testLazyTopLevel() {
+        ShardedMerkleProof old = tree.getMerkleProofAt(4);
+        tree.setLeaf(1, "Alice paga Bob");
+        tree.setLeaf(4, "Bob paga Charlie");
+        tree.setLeaf(9, "Charlie paga Diana");
+        list.set(1, "Alice paga Bob");
+        list.set(4, "Bob paga Charlie");
+        list.set(9, "Charlie paga Diana");
+
+        assertEquals(expectedRoot(), tree.getRootHash(),
+                "La radice dovrebbe riflettere tutti i frammenti modificati.");
+        assertTrue(tree.getMerkleProofAt(4)
+                .proveValidityOfData("Bob paga Charlie"),
+                "La nuova prova dovrebbe validare il nuovo dato.");
+        assertNotEquals(tree.getRootHash(), old.getRootHash(),
+                "La vecchia prova si riferisce alla vecchia radice.");
+        assertTrue(old.proveValidityOfData("Transazione 4"),
+                "La vecchia prova resta valida per la vecchia radice.");
+    }
+
+    @Test
+    void testConcurrentWriters() throws InterruptedException {
+        HashLinkedList<String> big = new HashLinkedList<>();
+        for (int i = 0; i < 64; i++)
+            big.addAtTail("Transazione " + i);
+        ShardedMerkleTree<String> sharded = new ShardedMerkleTree<>(big, 8);
+        Thread[] writers = new Thread[8];
+        for (int w = 0; w < writers.length; w++) {
+            int id = w;
+            writers[w] = new Thread(() -> {
+                for (int n = 0; n < 300; n++) {
+                    for (int i = id * 8; i < id * 8 + 8; i++)
+                        sharded.setLeaf(i, "Dato " + i + ", passo " + n);
+                }
+            });
+        }
+        Thread reader = new Thread(() -> {
+            for (int n = 0; n < 200; n++)
+                sharded.getMerkleProofAt(n % 64);
+        });
+        for (Thread t : writers)
+            t.start();
+        reader.start();
+        for (Thread t : writers)
+            t.join();
+        reader.join();
+
+        for (int i = 0; i < 64; i++)
+            big.set(i, "Dato " + i + ", passo 299");
+        assertEquals(new MerkleTree<>(big).getRoot().getHash(),
+                sharded.getRootHash(),
+                "Con frammenti di potenza di due la radice coincide con "
+                        + "quella del MerkleTree.");
+    }
+
+    @Test
+    void testConcurrentProofByData() throws InterruptedException {
+        Thread writer = new Thread(() -> {
+            for (int n = 0; n < 20_000; n++)
+                tree.setLeaf(5, n % 2 == 0 ? "Alice paga Bob"
+                        : "Transazione 5");
+        });
+        writer.start();
+        int found = 0;
+        int invalid = 0;
+        while (writer.isAlive()) {
+            try {
+                if (!tree.getMerkleProof("Alice paga Bob")
+                        .proveValidityOfData("Alice paga Bob"))
+                    invalid++;
+                found++;
+            } catch (IllegalArgumentException e) {
+                // Il dato è stato appena sostituito
+            }
+        }
+        writer.join();
+        assertEquals(0, invalid, "Su " + found + " prove, " + invalid
+                + " non validano il dato cercato.");
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ShardedMerkleTree<String>(null, 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ShardedMerkleTree<>(list, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ShardedMerkleTree<>(list, 11));
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> tree.setLeaf(10, "Alice paga Bob"));
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> tree.getMerkleProofAt(-1));
+        assertThrows(IllegalArgumentException.class,
+                () -> tree.getMerkleProof("Alice paga Bob"));
+    }
+}
@@ -0,0 +1,263 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Un albero di Merkle sugli ultimi eventi di un flusso, limitato a un numero
+ * massimo di eventi e, facoltativamente, a un'età massima. Gli hash dei dati
+ * sono tenuti in un buffer circolare di capacità fissa, che costituisce le
+ * foglie di un {@link HashLevels}: l'evento con numero di sequenza s occupa la
+ * posizione s mod capacità, per cui un nuovo evento sostituisce il più vecchio
+ * nella sua stessa foglia e solo il cammino di quella foglia va ricalcolato.
+ * Ogni evento costa quindi O(log N) e la memoria occupata non dipende dalla
+ * lunghezza del flusso.
+ *
+ * <p>
+ * La radice è quella di un {@link MerkleTree} costruito sulle posizioni del
+ * buffer, in cui le posizioni libere sono foglie di riempimento vuote, per
+ * cui l'altezza dell'albero dipende solo dalla capacità. Finché il buffer non
+ * ha compiuto un giro gli eventi occupano le posizioni nel loro ordine e,
+ * quando il loro numero supera la metà della potenza di due successiva alla
+ * capacità, la radice coincide con quella del {@link MerkleTree} costruito
+ * sugli eventi della finestra; in seguito coincide con quella dell'albero
+ * costruito sugli eventi nell'ordine delle posizioni. Le prove vengono
+ * richieste per posizione nella finestra, a partire dall'evento più vecchio,
+ * e si verificano come quelle di un {@link MerkleTree}.
+ *
+ * <p>
+ * Gli eventi espulsi dalla finestra, perché sostituiti o perché troppo
+ * vecchi, vengono notificati a un ascoltatore facoltativo insieme al loro
+ * numero di sequenza. La classe non è thread-safe.
+ *
+ * @param <T>
+ *                il tipo degli eventi.
+ */
+public class SlidingWindowMerkleTree<T> {
+    private final int capacity;
+
+    private final long maxAge; // Long.MAX_VALUE se l'età non è limitata
+
+    private final HashLevels levels;
+
+    private final Object[] data;
+
+    private final long[] timestamps;
+
+    private long first; // Numero di sequenza dell'evento più vecchio
+
+    private long next; // Numero di sequenza del prossimo evento
+
+    private ObjLongConsumer<? super T> evictionListener;
+
+    /**
+     * Crea una finestra vuota che contiene al più il numero specificato di
+     * eventi.
+     *
+     * @param capacity
+     *                     il numero massimo di eventi nella finestra.
+     * @throws IllegalArgumentException
+     *                                      se la capacità è minore di 1.
+     */
+    public SlidingWindowMerkleTree(int capacity) {
+        this(capacity, Long.MAX_VALUE);
+    }
+
+    /**
+     * Crea una finestra vuota che contiene al più il numero specificato di
+     * eventi, nessuno dei quali più vecchio dell'età massima rispetto
+     * all'ultimo istante noto.
+     *
+     * @param capacity
+     *                     il numero massimo di eventi nella finestra.
+     * @param maxAge
+     *                     l'età massima di un evento, nella stessa unità dei
+     *                     timestamp.
+     * @throws IllegalArgumentException
+     *                                      se la capacità è minore di 1 o se
+     *                                      l'età massima non è positiva.
+     */
+    public SlidingWindowMerkleTree(int capacity, long maxAge) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        if (maxAge <= 0)
+            throw new IllegalArgumentException("Invalid maximum age: " + maxAge);
+        this.capacity = capacity;
+        this.maxAge = maxAge;
+        this.levels = new HashLevels(
+                new ArrayList<>(Collections.nCopies(capacity, "")));
+        this.data = new Object[capacity];
+        this.timestamps = new long[capacity];
+    }
+
+    /**
+     * Imposta l'ascoltatore che riceve gli eventi espulsi dalla finestra e i
+     * loro numeri di sequenza, sostituendo quello precedente.
+     *
+     * @param listener
+     *                     l'ascoltatore, o null per non ricevere notifiche.
+     */
+    public void setEvictionListener(ObjLongConsumer<? super T> listener) {
+        this.evictionListener = listener;
+    }
+
+    /**
+     * Aggiunge un evento con l'istante corrente, in millisecondi.
+     *
+     * @param event
+     *                  l'evento da aggiungere.
+     * @return il numero di sequenza dell'evento.
+     * @throws IllegalArgumentException
+     *                                      se l'evento è null o se l'istante
+     *                                      precede quello dell'ultimo evento.
+     */
+    public long append(T event) {
+        return append(event, System.currentTimeMillis());
+    }
+
+    /**
+     * Aggiunge un evento con l'istante specificato, espellendo l'evento più
+     * vecchio se la finestra è piena e gli eventi più vecchi dell'età massima
+     * rispetto a quell'istante.
+     *
+     * @param event
+     *                      l'evento da aggiungere.
+     * @param timestamp
+     *                      l'istante dell'evento, non precedente a quello
+     *                      dell'ultimo evento aggiunto.
+     * @return il numero di sequenza dell'evento.
+     * @throws IllegalArgumentException
+     *                                      se l'evento è null o se l'istante
+     *                                      precede quello dell'ultimo evento.
+     */
+    public long append(T event, long timestamp) {
+        if (event == null)
+            throw new IllegalArgumentException("The event is null");
+        if (next > 0 && timestamp < timestamps[slot(next - 1)])
+            throw new IllegalArgumentException(
+                    "The timestamp precedes the last event");
+        expire(timestamp);
+        if (next - first == capacity)
+            evictOldest();
+        int slot = slot(next);
+        data[slot] = event;
+        timestamps[slot] = timestamp;
+        levels.set(slot, HashUtil.dataToHash(event));
+        return next++;
+    }
+
+    /**
+     * Espelle gli eventi la cui età all'istante specificato raggiunge l'età
+     * massima.
+     *
+     * @param now
+     *                l'istante corrente.
+     * @return il numero di eventi espulsi.
+     */
+    public int expire(long now) {
+        int count = 0;
+        while (first < next && now - timestamps[slot(first)] >= maxAge) {
+            evictOldest();
+            count++;
+        }
+        return count;
+    }
+
+    private void evictOldest() {
+        int slot = slot(first);
+        @SuppressWarnings("unchecked")
+        T event = (T) data[slot];
+        data[slot] = null;
+        levels.set(slot, "");
+        long sequence = first++;
+        if (evictionListener != null)
+            evictionListener.accept(event, sequence);
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence % capacity);
+    }
+
+    /**
+     * Restituisce il numero di eventi nella finestra.
+     *
+     * @return il numero di eventi.
+     */
+    public int getSize() {
+        return (int) (next - first);
+    }
+
+    /**
+     * Restituisce il numero massimo di eventi nella finestra.
+     *
+     * @return la capacità della finestra.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Restituisce il numero di sequenza dell'evento più vecchio della
+     * finestra, uguale a quello del prossimo evento se la finestra è vuota.
+     *
+     * @return il numero di sequenza del primo evento.
+     */
+    public long getFirstSequence() {
+        return first;
+    }
+
+    /**
+     * Restituisce l'evento nella posizione specificata della finestra.
+     *
+     * @param offset
+     *                   la posizione nella finestra, 0 per l'evento più
+     *                   vecchio.
+     * @return l'evento.
+     * @throws IndexOutOfBoundsException
+     *                                       se la posizione non è compresa
+     *                                       tra 0 e size - 1.
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int offset) {
+        checkOffset(offset);
+        return (T) data[slot(first + offset)];
+    }
+
+    private void checkOffset(int offset) {
+        if (offset < 0 || offset >= getSize())
+            throw new IndexOutOfBoundsException(
+                    "Index: " + offset + ", Size: " + getSize());
+    }
+
+    /**
+     * Restituisce l'hash della radice della finestra corrente, ricalcolando
+     * solo i cammini delle foglie modificate dall'ultima richiesta.
+     *
+     * @return l'hash della radice.
+     * @throws IllegalStateException
+     *                                   se la finestra è vuota.
+     */
+    public String getRootHash() {
+        if (first == next)
+            throw new IllegalStateException("The window is empty");
+        return levels.root();
+    }
+
+    /**
+     * Restituisce la prova di Merkle per l'evento nella posizione specificata
+     * della finestra, rispetto alla radice corrente.
+     *
+     * @param offset
+     *                   la posizione nella finestra, 0 per l'evento più
+     *                   vecchio.
+     * @return la prova di Merkle per l'evento.
+     * @throws IndexOutOfBoundsException
+     *                                       se la posizione non è compresa
+     *                                       tra 0 e size - 1.
+     */
+    public MerkleProof getMerkleProofAt(int offset) {
+        checkOffset(offset);
+        return levels.proof(slot(first + offset));
+    }
+}
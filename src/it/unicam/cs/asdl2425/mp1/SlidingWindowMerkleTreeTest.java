@@ -0,0 +1,151 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per la classe {@link SlidingWindowMerkleTree}. Di seguito,
+ * l'elenco dei test inclusi con una breve descrizione:
+ *
+ * <ul>
+ * <li>{@link #testRootBeforeWrap()}: Verifica che, finché il buffer non ha
+ * compiuto un giro, la radice coincida con quella di un {@link MerkleTree}
+ * costruito sugli eventi della finestra con lo stesso numero di foglie.</li>
+ *
+ * <li>{@link #testRootAfterWrap()}: Verifica che, dopo molti giri del buffer,
+ * la radice coincida con quella di un {@link MerkleTree} costruito sulle
+ * posizioni del buffer e che le prove validino gli eventi della
+ * finestra.</li>
+ *
+ * <li>{@link #testEvictionListener()}: Verifica che gli eventi sostituiti
+ * vengano notificati in ordine con il loro numero di sequenza.</li>
+ *
+ * <li>{@link #testMaxAge()}: Verifica l'espulsione degli eventi troppo
+ * vecchi, all'aggiunta di un evento e su richiesta.</li>
+ *
+ * <li>{@link #testInvalidArguments()}: Verifica che vengano lanciate
+ * eccezioni per argomenti non validi.</li>
+ * </ul>
+ */
+class SlidingWindowMerkleTreeTest {
+
+    @Test
+    void testRootBeforeWrap() {
+        SlidingWindowMerkleTree<String> window = new SlidingWindowMerkleTree<>(
+                12);
+        HashLinkedList<String> list = new HashLinkedList<>();
+        for (int i = 0; i < 12; i++) {
+            assertEquals(i, window.append("Evento " + i, i));
+            list.addAtTail("Evento " + i);
+            // Con più di 8 eventi il MerkleTree ha 16 foglie, come il buffer
+            if (i >= 8)
+                assertEquals(new MerkleTree<>(list).getRoot().getHash(),
+                        window.getRootHash(),
+                        "La radice dovrebbe coincidere con quella del "
+                                + "MerkleTree con " + (i + 1) + " eventi.");
+            assertTrue(window.getMerkleProofAt(i)
+                    .proveValidityOfData("Evento " + i));
+        }
+        assertEquals(12, window.getSize());
+        assertEquals("Evento 3", window.get(3));
+    }
+
+    @Test
+    void testRootAfterWrap() {
+        SlidingWindowMerkleTree<Integer> window = new SlidingWindowMerkleTree<>(
+                6);
+        for (int i = 0; i < 100; i++) {
+            window.append(i, i);
+            if (i < 6)
+                continue;
+            // Evento nella posizione s mod 6 del buffer
+            HashLinkedList<Integer> slots = new HashLinkedList<>();
+            for (int s = 0; s < 6; s++)
+                slots.addAtTail(i - ((i - s) % 6 + 6) % 6);
+            assertEquals(new MerkleTree<>(slots).getRoot().getHash(),
+                    window.getRootHash(),
+                    "Radice errata dopo l'evento " + i);
+        }
+        assertEquals(94, window.getFirstSequence());
+        for (int offset = 0; offset < 6; offset++) {
+            assertEquals(94 + offset, window.get(offset));
+            MerkleProof proof = window.getMerkleProofAt(offset);
+            assertEquals(window.getRootHash(), proof.getRootHash());
+            assertTrue(proof.proveValidityOfData(94 + offset),
+                    "La prova dell'evento " + (94 + offset) + " non è valida.");
+            assertFalse(proof.proveValidityOfData(93 + offset),
+                    "La prova non dovrebbe validare un evento espulso.");
+        }
+    }
+
+    @Test
+    void testEvictionListener() {
+        SlidingWindowMerkleTree<String> window = new SlidingWindowMerkleTree<>(
+                3);
+        List<String> evicted = new ArrayList<>();
+        window.setEvictionListener((event, sequence) -> evicted
+                .add(sequence + ":" + event));
+        for (int i = 0; i < 5; i++)
+            window.append("e" + i, 0);
+        assertEquals(List.of("0:e0", "1:e1"), evicted,
+                "Dovrebbero essere espulsi i due eventi più vecchi.");
+        assertEquals(3, window.getSize());
+        assertEquals("e2", window.get(0));
+
+        window.setEvictionListener(null);
+        window.append("e5", 0);
+        assertEquals(2, evicted.size(),
+                "Senza ascoltatore non dovrebbero esserci notifiche.");
+    }
+
+    @Test
+    void testMaxAge() {
+        SlidingWindowMerkleTree<String> window = new SlidingWindowMerkleTree<>(
+                8, 100);
+        List<Long> evicted = new ArrayList<>();
+        window.setEvictionListener((event, sequence) -> evicted.add(sequence));
+        window.append("a", 0);
+        window.append("b", 50);
+        window.append("c", 120);
+        assertEquals(List.of(0L), evicted,
+                "L'evento all'istante 0 ha raggiunto l'età massima.");
+        assertEquals(2, window.getSize());
+        assertEquals(1, window.getFirstSequence());
+        assertTrue(window.getMerkleProofAt(0).proveValidityOfData("b"));
+
+        assertEquals(0, window.expire(149));
+        assertEquals(1, window.expire(150));
+        assertEquals(1, window.expire(1000));
+        assertEquals(0, window.getSize());
+        assertThrows(IllegalStateException.class, window::getRootHash);
+        assertEquals(3, window.getFirstSequence());
+
+        window.append("d", 1000);
+        assertTrue(window.getMerkleProofAt(0).proveValidityOfData("d"),
+                "Un evento dopo lo svuotamento dovrebbe essere valido.");
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new SlidingWindowMerkleTree<String>(0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new SlidingWindowMerkleTree<String>(4, 0));
+        SlidingWindowMerkleTree<String> window = new SlidingWindowMerkleTree<>(
+                4);
+        assertThrows(IllegalStateException.class, window::getRootHash);
+        assertThrows(IllegalArgumentException.class,
+                () -> window.append(null, 0));
+        window.append("a", 10);
+        assertThrows(IllegalArgumentException.class,
+                () -> window.append("b", 9),
+                "L'istante non può precedere quello dell'ultimo evento.");
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> window.getMerkleProofAt(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> window.get(-1));
+    }
+}
@@ -0,0 +1,128 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Una prova per la foglia di un elemento in un {@link SparseMerkleTree}, che
+ * può dimostrare sia che l'elemento è presente sia che è assente. La prova
+ * contiene gli hash dei 128 fratelli del cammino dalla foglia alla radice, ma
+ * memorizza esplicitamente solo quelli che non sono sottoalberi vuoti: gli
+ * altri sono indicati da un bit a zero e ricostruiti dalla tabella degli hash
+ * dei sottoalberi vuoti.
+ *
+ * <p>
+ * La verifica parte dall'hash della foglia, ovvero la chiave dell'elemento per
+ * una prova di appartenenza o l'hash di una foglia vuota per una prova di non
+ * appartenenza, e lo combina con i fratelli a sinistra o a destra secondo i
+ * bit della chiave, fino a ottenere la radice.
+ */
+public class SparseMerkleProof {
+    /**
+     * L'hash della radice dell'albero per il quale la prova è stata
+     * costruita.
+     */
+    private final String rootHash;
+
+    /**
+     * Le altezze dei fratelli che non sono sottoalberi vuoti.
+     */
+    private final BitSet present;
+
+    /**
+     * Gli hash dei fratelli che non sono sottoalberi vuoti, in ordine di
+     * altezza crescente.
+     */
+    private final List<String> siblings;
+
+    /**
+     * Costruisce una prova a partire dagli hash dei fratelli del cammino.
+     *
+     * @param rootHash
+     *                     l'hash della radice dell'albero.
+     * @param siblings
+     *                     gli hash dei fratelli, indicizzati per altezza da 0
+     *                     a 127; null indica un sottoalbero vuoto.
+     * @throws IllegalArgumentException
+     *                                      se l'hash della radice è null o se
+     *                                      il numero di fratelli non è 128.
+     */
+    public SparseMerkleProof(String rootHash, String[] siblings) {
+        if (rootHash == null)
+            throw new IllegalArgumentException("The root hash is null");
+        if (siblings == null
+                || siblings.length != SparseMerkleTree.KEY_BITS)
+            throw new IllegalArgumentException(
+                    "A proof needs " + SparseMerkleTree.KEY_BITS + " siblings");
+        this.rootHash = rootHash;
+        this.present = new BitSet(SparseMerkleTree.KEY_BITS);
+        this.siblings = new ArrayList<>();
+        for (int h = 0; h < siblings.length; h++) {
+            if (siblings[h] != null) {
+                present.set(h);
+                this.siblings.add(siblings[h]);
+            }
+        }
+    }
+
+    /**
+     * Restituisce il numero di hash memorizzati esplicitamente nella prova.
+     *
+     * @return il numero di hash dei fratelli non vuoti.
+     */
+    public int getLength() {
+        return siblings.size();
+    }
+
+    /**
+     * Verifica che un elemento sia presente nell'albero.
+     *
+     * @param data
+     *                 l'elemento da verificare.
+     * @return true se la prova dimostra che l'elemento è presente; false
+     *         altrimenti.
+     * @throws IllegalArgumentException
+     *                                      se l'elemento è null.
+     */
+    public boolean proveMembership(Object data) {
+        if (data == null)
+            throw new IllegalArgumentException("The data is null");
+        String key = HashUtil.dataToHash(data);
+        return computeRoot(key, key).equals(rootHash);
+    }
+
+    /**
+     * Verifica che un elemento non sia presente nell'albero, ovvero che la sua
+     * foglia sia vuota.
+     *
+     * @param data
+     *                 l'elemento da verificare.
+     * @return true se la prova dimostra che l'elemento è assente; false
+     *         altrimenti.
+     * @throws IllegalArgumentException
+     *                                      se l'elemento è null.
+     */
+    public boolean proveNonMembership(Object data) {
+        if (data == null)
+            throw new IllegalArgumentException("The data is null");
+        return computeRoot(HashUtil.dataToHash(data),
+                SparseMerkleTree.defaultHash(0)).equals(rootHash);
+    }
+
+    private String computeRoot(String keyHex, String leafHash) {
+        long[] key = SparseMerkleTree.keyOf(keyHex);
+        String hash = leafHash;
+        int next = 0;
+        for (int h = 0; h < SparseMerkleTree.KEY_BITS; h++) {
+            String sibling = present.get(h) ? siblings.get(next++)
+                    : SparseMerkleTree.defaultHash(h);
+            int depth = SparseMerkleTree.KEY_BITS - 1 - h;
+            hash = SparseMerkleTree.bit(key[0], key[1], depth) == 0
+                    ? hash + sibling
+                    : sibling + hash;
+            hash = HashUtil.computeMD5(hash.getBytes());
+        }
+        return hash;
+    }
+}
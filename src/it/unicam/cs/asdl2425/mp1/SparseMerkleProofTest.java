@@ -0,0 +1,48 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per la classe {@link SparseMerkleProof}. Di seguito,
+ * l'elenco dei test inclusi con una breve descrizione:
+ *
+ * <ul>
+ * <li>{@link #testCompactSiblings()}: Verifica che vengano memorizzati solo
+ * gli hash dei fratelli non vuoti e che una prova costruita a mano su un solo
+ * elemento sia valida.</li>
+ *
+ * <li>{@link #testInvalidArguments()}: Verifica che vengano lanciate
+ * eccezioni per argomenti non validi.</li>
+ * </ul>
+ */
+class SparseMerkleProofTest {
+
+    @Test
+    void testCompactSiblings() {
+        SparseMerkleTree<String> tree = new SparseMerkleTree<>();
+        tree.insert("Alice paga Bob");
+        SparseMerkleProof proof = new SparseMerkleProof(tree.getRootHash(),
+                new String[128]);
+
+        assertEquals(0, proof.getLength(),
+                "La prova non dovrebbe memorizzare fratelli vuoti.");
+        assertTrue(proof.proveMembership("Alice paga Bob"),
+                "Con un solo elemento tutti i fratelli sono vuoti.");
+        assertFalse(proof.proveNonMembership("Alice paga Bob"),
+                "La prova non dovrebbe dimostrare l'assenza dell'elemento.");
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new SparseMerkleProof(null, new String[128]));
+        assertThrows(IllegalArgumentException.class,
+                () -> new SparseMerkleProof("root", new String[64]));
+        SparseMerkleProof proof = new SparseMerkleProof("root",
+                new String[128]);
+        assertThrows(IllegalArgumentException.class,
+                () -> proof.proveMembership(null));
+    }
+}
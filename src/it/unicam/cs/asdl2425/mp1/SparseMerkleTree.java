@@ -0,0 +1,373 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Un albero di Merkle sparso che rappresenta un insieme di elementi, in cui
+ * ogni elemento occupa la foglia individuata dal suo hash MD5
+ * ({@link HashUtil#dataToHash(Object)}) interpretato come numero di 128 bit:
+ * l'albero ha quindi 2^128 foglie e altezza 128. Una foglia occupata ha come
+ * hash la chiave stessa, una foglia vuota l'hash MD5 della sequenza vuota, e
+ * ogni nodo interno l'hash MD5 della concatenazione degli hash dei figli. Oltre
+ * alle prove di appartenenza, l'albero fornisce quindi prove di non
+ * appartenenza: la foglia di un elemento assente è vuota.
+ *
+ * <p>
+ * Un sottoalbero vuoto di altezza h ha sempre lo stesso hash, che viene
+ * precalcolato una volta per tutte in una tabella di 129 valori. Vengono
+ * memorizzati solo i nodi in cui due sottoalberi non vuoti si separano e le
+ * foglie occupate, come in un trie binario compresso, per cui la memoria
+ * occupata è proporzionale al numero di elementi e non allo spazio delle
+ * chiavi. Ogni nodo memorizza l'hash del sottoalbero che ha radice nel punto in
+ * cui è agganciato al padre, ottenuto combinando il proprio hash con quelli
+ * dei sottoalberi vuoti attraversati; un inserimento o una rimozione
+ * ricalcolano solo i nodi sul cammino della chiave.
+ *
+ * <p>
+ * La classe non è thread-safe.
+ *
+ * @param <T>
+ *                il tipo di dati contenuti nell'albero.
+ */
+public class SparseMerkleTree<T> {
+    /**
+     * Numero di bit di una chiave, pari all'altezza dell'albero.
+     */
+    static final int KEY_BITS = 128;
+
+    /**
+     * Hash dei sottoalberi vuoti, indicizzati per altezza.
+     */
+    private static final String[] DEFAULTS = new String[KEY_BITS + 1];
+
+    /**
+     * Gli stessi hash di {@link #DEFAULTS}, come digest grezzi.
+     */
+    private static final byte[][] DEFAULT_DIGESTS = new byte[KEY_BITS + 1][];
+
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes();
+
+    static {
+        DEFAULTS[0] = HashUtil.computeMD5(new byte[0]);
+        for (int h = 1; h <= KEY_BITS; h++)
+            DEFAULTS[h] = HashUtil.computeMD5(
+                    (DEFAULTS[h - 1] + DEFAULTS[h - 1]).getBytes());
+        for (int h = 0; h <= KEY_BITS; h++)
+            DEFAULT_DIGESTS[h] = HashUtil.hexToBytes(DEFAULTS[h]);
+    }
+
+    /**
+     * Un nodo memorizzato: una foglia occupata o un punto di separazione tra
+     * due sottoalberi non vuoti.
+     */
+    private static final class Node {
+        // Chiave della foglia, o di una foglia qualsiasi del sottoalbero
+        private final long hi;
+
+        private final long lo;
+
+        // Bit su cui i figli si separano, o KEY_BITS per una foglia
+        private final int split;
+
+        private Node left;
+
+        private Node right;
+
+        // Hash del sottoalbero con radice alla profondità split
+        private byte[] natural;
+
+        // Hash del sottoalbero con radice alla profondità di aggancio
+        private byte[] hash;
+
+        private Node(long hi, long lo, int split) {
+            this.hi = hi;
+            this.lo = lo;
+            this.split = split;
+        }
+    }
+
+    private final MessageDigest md;
+
+    private final byte[] buffer; // Concatenazione di due hash esadecimali
+
+    private Node root;
+
+    private int size;
+
+    private boolean changed; // Esito dell'ultimo inserimento o rimozione
+
+    /**
+     * Crea un albero sparso vuoto.
+     */
+    public SparseMerkleTree() {
+        try {
+            this.md = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("MD5 algorithm not found", e);
+        }
+        this.buffer = new byte[4 * HashUtil.MD5_LENGTH];
+    }
+
+    /**
+     * Restituisce l'hash di un sottoalbero vuoto dell'altezza specificata.
+     */
+    static String defaultHash(int height) {
+        return DEFAULTS[height];
+    }
+
+    /**
+     * Restituisce il bit della chiave nella posizione specificata, a partire
+     * da quello più significativo.
+     */
+    static int bit(long hi, long lo, int index) {
+        return (int) (index < 64 ? hi >>> (63 - index)
+                : lo >>> (127 - index)) & 1;
+    }
+
+    /**
+     * Restituisce la posizione del primo bit in cui due chiavi differiscono,
+     * o KEY_BITS se sono uguali.
+     */
+    private static int firstDifference(long hi1, long lo1, long hi2,
+            long lo2) {
+        if (hi1 != hi2)
+            return Long.numberOfLeadingZeros(hi1 ^ hi2);
+        if (lo1 != lo2)
+            return 64 + Long.numberOfLeadingZeros(lo1 ^ lo2);
+        return KEY_BITS;
+    }
+
+    /**
+     * Restituisce la chiave corrispondente all'hash esadecimale di un
+     * elemento, come coppia di long.
+     */
+    static long[] keyOf(String hex) {
+        return new long[] { Long.parseUnsignedLong(hex.substring(0, 16), 16),
+                Long.parseUnsignedLong(hex.substring(16), 16) };
+    }
+
+    /**
+     * Combina due digest come {@code HashUtil.computeMD5((left + right)
+     * .getBytes())} sulle loro rappresentazioni esadecimali, ma senza creare
+     * stringhe e riusando lo stesso digest e lo stesso buffer. Gli hash dei
+     * nodi sono mantenuti come digest grezzi e convertiti solo quando escono
+     * dall'albero.
+     */
+    private byte[] combine(byte[] left, byte[] right) {
+        int n = HashUtil.MD5_LENGTH;
+        for (int i = 0; i < n; i++) {
+            buffer[2 * i] = HEX_DIGITS[(left[i] >> 4) & 0xf];
+            buffer[2 * i + 1] = HEX_DIGITS[left[i] & 0xf];
+            buffer[2 * n + 2 * i] = HEX_DIGITS[(right[i] >> 4) & 0xf];
+            buffer[2 * n + 2 * i + 1] = HEX_DIGITS[right[i] & 0xf];
+        }
+        return md.digest(buffer);
+    }
+
+    /**
+     * Calcola l'hash del sottoalbero con radice alla profondità specificata
+     * che contiene solo il nodo fornito, combinandone l'hash con quelli dei
+     * sottoalberi vuoti attraversati.
+     */
+    private byte[] lift(Node n, int depth) {
+        byte[] h = n.natural;
+        for (int d = n.split - 1; d >= depth; d--) {
+            byte[] empty = DEFAULT_DIGESTS[KEY_BITS - 1 - d];
+            h = bit(n.hi, n.lo, d) == 0 ? combine(h, empty) : combine(empty, h);
+        }
+        return h;
+    }
+
+    private Node attach(Node n, int depth) {
+        n.hash = lift(n, depth);
+        return n;
+    }
+
+    private Node leaf(long hi, long lo) {
+        Node n = new Node(hi, lo, KEY_BITS);
+        n.natural = ByteBuffer.allocate(HashUtil.MD5_LENGTH).putLong(hi)
+                .putLong(lo).array();
+        return n;
+    }
+
+    /**
+     * Inserisce un elemento nell'albero.
+     *
+     * @param data
+     *                 l'elemento da inserire.
+     * @return true se l'elemento è stato inserito, false se era già presente.
+     * @throws IllegalArgumentException
+     *                                      se l'elemento è null.
+     */
+    public boolean insert(T data) {
+        if (data == null)
+            throw new IllegalArgumentException("The data is null");
+        long[] key = keyOf(HashUtil.dataToHash(data));
+        changed = false;
+        root = insert(root, 0, key[0], key[1]);
+        if (changed)
+            size++;
+        return changed;
+    }
+
+    private Node insert(Node n, int depth, long hi, long lo) {
+        if (n == null) {
+            changed = true;
+            return attach(leaf(hi, lo), depth);
+        }
+        int diff = firstDifference(n.hi, n.lo, hi, lo);
+        if (diff < n.split) {
+            Node leaf = attach(leaf(hi, lo), diff + 1);
+            attach(n, diff + 1);
+            Node branch = new Node(hi, lo, diff);
+            if (bit(hi, lo, diff) == 0) {
+                branch.left = leaf;
+                branch.right = n;
+            } else {
+                branch.left = n;
+                branch.right = leaf;
+            }
+            branch.natural = combine(branch.left.hash, branch.right.hash);
+            changed = true;
+            return attach(branch, depth);
+        }
+        if (n.split == KEY_BITS)
+            return n; // Già presente
+        if (bit(hi, lo, n.split) == 0)
+            n.left = insert(n.left, n.split + 1, hi, lo);
+        else
+            n.right = insert(n.right, n.split + 1, hi, lo);
+        if (!changed)
+            return n;
+        n.natural = combine(n.left.hash, n.right.hash);
+        return attach(n, depth);
+    }
+
+    /**
+     * Rimuove un elemento dall'albero.
+     *
+     * @param data
+     *                 l'elemento da rimuovere.
+     * @return true se l'elemento è stato rimosso, false se non era presente.
+     * @throws IllegalArgumentException
+     *                                      se l'elemento è null.
+     */
+    public boolean delete(T data) {
+        if (data == null)
+            throw new IllegalArgumentException("The data is null");
+        long[] key = keyOf(HashUtil.dataToHash(data));
+        changed = false;
+        root = delete(root, 0, key[0], key[1]);
+        if (changed)
+            size--;
+        return changed;
+    }
+
+    private Node delete(Node n, int depth, long hi, long lo) {
+        if (n == null)
+            return null;
+        int diff = firstDifference(n.hi, n.lo, hi, lo);
+        if (n.split == KEY_BITS) {
+            if (diff < KEY_BITS)
+                return n;
+            changed = true;
+            return null;
+        }
+        if (diff < n.split)
+            return n;
+        boolean goLeft = bit(hi, lo, n.split) == 0;
+        Node child = delete(goLeft ? n.left : n.right, n.split + 1, hi, lo);
+        if (!changed)
+            return n;
+        if (child == null)
+            return attach(goLeft ? n.right : n.left, depth);
+        if (goLeft)
+            n.left = child;
+        else
+            n.right = child;
+        n.natural = combine(n.left.hash, n.right.hash);
+        return attach(n, depth);
+    }
+
+    /**
+     * Verifica se un elemento è presente nell'albero.
+     *
+     * @param data
+     *                 l'elemento da cercare.
+     * @return true se l'elemento è presente, false altrimenti.
+     * @throws IllegalArgumentException
+     *                                      se l'elemento è null.
+     */
+    public boolean contains(T data) {
+        if (data == null)
+            throw new IllegalArgumentException("The data is null");
+        long[] key = keyOf(HashUtil.dataToHash(data));
+        Node n = root;
+        while (n != null) {
+            if (firstDifference(n.hi, n.lo, key[0], key[1]) < n.split)
+                return false;
+            if (n.split == KEY_BITS)
+                return true;
+            n = bit(key[0], key[1], n.split) == 0 ? n.left : n.right;
+        }
+        return false;
+    }
+
+    /**
+     * Restituisce il numero di elementi nell'albero.
+     *
+     * @return il numero di elementi.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Restituisce l'hash della radice dell'albero. L'albero vuoto ha come
+     * radice l'hash di un sottoalbero vuoto di altezza 128.
+     *
+     * @return l'hash della radice.
+     */
+    public String getRootHash() {
+        return root == null ? DEFAULTS[KEY_BITS]
+                : HashUtil.bytesToHex(root.hash);
+    }
+
+    /**
+     * Restituisce la prova per la foglia di un elemento, che dimostra la sua
+     * appartenenza all'albero se è presente, o la sua assenza altrimenti. La
+     * prova contiene solo gli hash dei fratelli che non sono sottoalberi
+     * vuoti, al più uno per ogni nodo memorizzato sul cammino più uno.
+     *
+     * @param data
+     *                 l'elemento per cui generare la prova.
+     * @return la prova per la foglia dell'elemento.
+     * @throws IllegalArgumentException
+     *                                      se l'elemento è null.
+     */
+    public SparseMerkleProof getProof(T data) {
+        if (data == null)
+            throw new IllegalArgumentException("The data is null");
+        long[] key = keyOf(HashUtil.dataToHash(data));
+        String[] siblings = new String[KEY_BITS]; // Indicizzati per altezza
+        Node n = root;
+        while (n != null) {
+            int diff = firstDifference(n.hi, n.lo, key[0], key[1]);
+            if (diff < n.split) {
+                // Il nodo è fratello del cammino alla profondità diff + 1
+                siblings[KEY_BITS - 1 - diff] = HashUtil
+                        .bytesToHex(lift(n, diff + 1));
+                break;
+            }
+            if (n.split == KEY_BITS)
+                break;
+            boolean goLeft = bit(key[0], key[1], n.split) == 0;
+            siblings[KEY_BITS - 1 - n.split] = HashUtil
+                    .bytesToHex(goLeft ? n.right.hash : n.left.hash);
+            n = goLeft ? n.left : n.right;
+        }
+        return new SparseMerkleProof(getRootHash(), siblings);
+    }
+}
@@ -0,0 +1,180 @@
+package it.unicam.cs.asdl2425.mp1;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per la classe {@link SparseMerkleTree}. Di seguito, l'elenco
+ * dei test inclusi con una breve descrizione:
+ *
+ * <ul>
+ * <li>{@link #testEmptyTree()}: Verifica la radice dell'albero vuoto e la
+ * prova di non appartenenza di un elemento qualsiasi.</li>
+ *
+ * <li>{@link #testRootMatchesDefinition()}: Confronta la radice con quella
+ * calcolata direttamente dalla definizione, su tutte le 2^128 foglie.</li>
+ *
+ * <li>{@link #testMembershipProofs()}: Verifica le prove di appartenenza e di
+ * non appartenenza per elementi presenti e assenti.</li>
+ *
+ * <li>{@link #testInsertAndDelete()}: Verifica inserimenti e rimozioni
+ * ripetuti, la dimensione e il ritorno alla radice precedente.</li>
+ *
+ * <li>{@link #testOrderIndependence()}: Verifica che la radice non dipenda
+ * dall'ordine degli inserimenti e delle rimozioni, su molti elementi.</li>
+ * </ul>
+ */
+class SparseMerkleTreeTest {
+
+    private SparseMerkleTree<String> tree;
+
+    @BeforeEach
+    void setUp() {
+        tree = new SparseMerkleTree<>();
+        tree.insert("Alice paga Bob");
+        tree.insert("Bob paga Charlie");
+        tree.insert("Charlie paga Diana");
+        tree.insert("Diana paga Alice");
+    }
+
+    /**
+     * Calcola la radice del sottoalbero alla profondità specificata che
+     * contiene le chiavi fornite, direttamente dalla definizione.
+     */
+    private static String definitionRoot(List<String> keys, int depth) {
+        if (keys.isEmpty())
+            return SparseMerkleTree.defaultHash(128 - depth);
+        if (depth == 128)
+            return keys.get(0);
+        List<String> left = new ArrayList<>();
+        List<String> right = new ArrayList<>();
+        for (String k : keys) {
+            long[] key = SparseMerkleTree.keyOf(k);
+            if (SparseMerkleTree.bit(key[0], key[1], depth) == 0)
+                left.add(k);
+            else
+                right.add(k);
+        }
+        return HashUtil.computeMD5((definitionRoot(left, depth + 1)
+                + definitionRoot(right, depth + 1)).getBytes());
+    }
+
+    @Test
+    void testEmptyTree() {
+        SparseMerkleTree<String> empty = new SparseMerkleTree<>();
+
+        assertEquals(SparseMerkleTree.defaultHash(128), empty.getRootHash(),
+                "La radice dell'albero vuoto non è corretta.");
+        assertEquals(0, empty.getSize(),
+                "L'albero vuoto non dovrebbe contenere elementi.");
+        SparseMerkleProof proof = empty.getProof("Alice paga Bob");
+        assertTrue(proof.proveNonMembership("Alice paga Bob"),
+                "La prova dovrebbe dimostrare l'assenza dell'elemento.");
+        assertEquals(0, proof.getLength(),
+                "La prova nell'albero vuoto non dovrebbe contenere hash.");
+    }
+
+    @Test
+    void testRootMatchesDefinition() {
+        List<String> keys = new ArrayList<>();
+        for (String s : new String[] { "Alice paga Bob", "Bob paga Charlie",
+                "Charlie paga Diana", "Diana paga Alice" })
+            keys.add(HashUtil.dataToHash(s));
+
+        assertEquals(definitionRoot(keys, 0), tree.getRootHash(),
+                "La radice non coincide con quella della definizione.");
+        tree.delete("Bob paga Charlie");
+        keys.remove(HashUtil.dataToHash("Bob paga Charlie"));
+        assertEquals(definitionRoot(keys, 0), tree.getRootHash(),
+                "La radice dopo la rimozione non è corretta.");
+    }
+
+    @Test
+    void testMembershipProofs() {
+        SparseMerkleProof present = tree.getProof("Charlie paga Diana");
+        assertTrue(present.proveMembership("Charlie paga Diana"),
+                "La prova dovrebbe dimostrare la presenza dell'elemento.");
+        assertFalse(present.proveNonMembership("Charlie paga Diana"),
+                "La prova non dovrebbe dimostrare l'assenza di un elemento "
+                        + "presente.");
+        assertFalse(present.proveMembership("Alice paga Bob"),
+                "La prova non dovrebbe valere per un altro elemento.");
+        assertTrue(present.getLength() >= 1 && present.getLength() <= 4,
+                "La prova dovrebbe contenere pochi hash non vuoti.");
+
+        SparseMerkleProof absent = tree.getProof("Bob paga Diana");
+        assertTrue(absent.proveNonMembership("Bob paga Diana"),
+                "La prova dovrebbe dimostrare l'assenza dell'elemento.");
+        assertFalse(absent.proveMembership("Bob paga Diana"),
+                "La prova non dovrebbe dimostrare la presenza di un elemento "
+                        + "assente.");
+        assertFalse(tree.contains("Bob paga Diana"),
+                "L'elemento non dovrebbe essere presente.");
+        assertTrue(tree.contains("Diana paga Alice"),
+                "L'elemento dovrebbe essere presente.");
+    }
+
+    @Test
+    void testInsertAndDelete() {
+        String root = tree.getRootHash();
+
+        assertFalse(tree.insert("Alice paga Bob"),
+                "Un elemento già presente non dovrebbe essere inserito.");
+        assertTrue(tree.insert("Bob paga Diana"),
+                "Un nuovo elemento dovrebbe essere inserito.");
+        assertEquals(5, tree.getSize(), "La dimensione non è corretta.");
+        assertNotEquals(root, tree.getRootHash(),
+                "La radice dovrebbe cambiare dopo l'inserimento.");
+        assertTrue(tree.delete("Bob paga Diana"),
+                "L'elemento dovrebbe essere rimosso.");
+        assertFalse(tree.delete("Bob paga Diana"),
+                "Un elemento assente non dovrebbe essere rimosso.");
+        assertEquals(root, tree.getRootHash(),
+                "La radice dovrebbe tornare quella precedente.");
+
+        for (String s : new String[] { "Alice paga Bob", "Bob paga Charlie",
+                "Charlie paga Diana", "Diana paga Alice" })
+            tree.delete(s);
+        assertEquals(SparseMerkleTree.defaultHash(128), tree.getRootHash(),
+                "Rimuovendo tutti gli elementi si dovrebbe ottenere la radice "
+                        + "dell'albero vuoto.");
+        assertThrows(IllegalArgumentException.class, () -> tree.insert(null));
+    }
+
+    @Test
+    void testOrderIndependence() {
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < 2000; i++)
+            values.add(i);
+        SparseMerkleTree<Integer> a = new SparseMerkleTree<>();
+        for (int v : values)
+            a.insert(v);
+        Collections.shuffle(values, new Random(42));
+        SparseMerkleTree<Integer> b = new SparseMerkleTree<>();
+        for (int v : values)
+            b.insert(v);
+        assertEquals(a.getRootHash(), b.getRootHash(),
+                "La radice non dovrebbe dipendere dall'ordine degli "
+                        + "inserimenti.");
+
+        SparseMerkleTree<Integer> c = new SparseMerkleTree<>();
+        for (int i = 0; i < 2000; i += 2)
+            c.insert(i);
+        for (int i = 1; i < 2000; i += 2)
+            a.delete(i);
+        assertEquals(c.getRootHash(), a.getRootHash(),
+                "La radice dopo le rimozioni non è corretta.");
+        assertEquals(1000, a.getSize(), "La dimensione non è corretta.");
+        assertTrue(a.getProof(1998).proveMembership(1998),
+                "La prova dovrebbe dimostrare la presenza dell'elemento.");
+        assertTrue(a.getProof(1999).proveNonMembership(1999),
+                "La prova dovrebbe dimostrare l'assenza dell'elemento.");
+    }
+}